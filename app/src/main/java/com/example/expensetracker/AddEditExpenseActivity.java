@@ -1,10 +1,12 @@
 package com.example.expensetracker;
 
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import android.app.DatePickerDialog;
 import android.database.Cursor;
 import android.os.Bundle;
 import android.view.View;
+import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.EditText;
@@ -12,13 +14,12 @@ import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Locale;
 
 public class AddEditExpenseActivity extends AppCompatActivity {
 
-    private DatabaseHelper dbHelper;
+    private ExpenseRepository repository;
+    private DbExecutor.Request loadRequest;
+    private DbExecutor.Request categoriesRequest;
     private long currentUserId;
     private long expenseIdToEdit = -1; // -1 means ADD mode
 
@@ -27,17 +28,20 @@ public class AddEditExpenseActivity extends AppCompatActivity {
     private Spinner spCategory; // Replaced etCategory
     private Button btnSave, btnDelete;
 
-    // Fixed expense categories
-    private static final String[] EXPENSE_CATEGORIES = {
-            "Food", "Transport", "Rent", "Electricity", "Water", "Others"
-    };
+    // The user's categories (see CategoryDictionary), in name order, then NEW_CATEGORY
+    private ArrayAdapter<String> categoryAdapter;
+    private CategoryDictionary categories;
+    private String categoryToSelect; // Wanted before the categories arrived, or null
+    private int lastCategoryPosition;
+
+    private static final String NEW_CATEGORY = "New category...";
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_add_edit_expense);
 
-        dbHelper = new DatabaseHelper(this);
+        repository = ExpenseRepository.getInstance(this);
 
         // 1. Initialize UI components
         tvTitle = findViewById(R.id.tvTitle);
@@ -48,13 +52,26 @@ public class AddEditExpenseActivity extends AppCompatActivity {
         btnSave = findViewById(R.id.btnSave);
         btnDelete = findViewById(R.id.btnDelete);
 
-        // 2. Setup Category Spinner
-        ArrayAdapter<String> spinnerAdapter = new ArrayAdapter<>(
+        // 2. Setup Category Spinner; filled once the user's categories load
+        categoryAdapter = new ArrayAdapter<>(
                 this,
-                android.R.layout.simple_spinner_dropdown_item,
-                EXPENSE_CATEGORIES
+                android.R.layout.simple_spinner_dropdown_item
         );
-        spCategory.setAdapter(spinnerAdapter);
+        spCategory.setAdapter(categoryAdapter);
+        spCategory.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                if (categories != null && position == categories.size()) {
+                    showNewCategoryDialog();
+                } else {
+                    lastCategoryPosition = position;
+                }
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
 
         // 3. Setup Date Picker
         etDate.setOnClickListener(v -> showDatePicker());
@@ -66,6 +83,8 @@ public class AddEditExpenseActivity extends AppCompatActivity {
             expenseIdToEdit = extras.getLong("EXPENSE_ID", -1);
         }
 
+        categoriesRequest = repository.getCategories(currentUserId, this::showCategories);
+
         // 5. Check for Edit mode
         if (expenseIdToEdit != -1) {
             tvTitle.setText("Edit Existing Expense");
@@ -83,33 +102,28 @@ public class AddEditExpenseActivity extends AppCompatActivity {
     }
 
     private String getDefaultDate() {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
-        return sdf.format(Calendar.getInstance().getTime());
+        return Formats.getInstance().isoDate(EpochDays.today());
     }
 
     private void showDatePicker() {
-        final Calendar c = Calendar.getInstance();
-        int year = c.get(Calendar.YEAR);
-        int month = c.get(Calendar.MONTH);
-        int day = c.get(Calendar.DAY_OF_MONTH);
+        long initialDay = EpochDays.today();
 
         // If etDate has a date, use it to initialize the picker
         try {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
-            c.setTime(sdf.parse(etDate.getText().toString()));
-            year = c.get(Calendar.YEAR);
-            month = c.get(Calendar.MONTH);
-            day = c.get(Calendar.DAY_OF_MONTH);
-        } catch (Exception ignored) {
+            initialDay = EpochDays.parse(etDate.getText().toString());
+        } catch (IllegalArgumentException ignored) {
             // Ignore if date format is invalid, use current date
         }
+        int ymd = EpochDays.toYmd(initialDay);
+        int year = ymd / 10000;
+        int month = ymd / 100 % 100 - 1; // DatePickerDialog months are 0-based
+        int day = ymd % 100;
 
         DatePickerDialog dpd = new DatePickerDialog(
                 this,
                 (view, y, m, d) -> {
                     // Format date as YYYY-MM-DD for storage
-                    String selectedDate = String.format(Locale.US, "%04d-%02d-%02d", y, (m + 1), d);
-                    etDate.setText(selectedDate);
+                    etDate.setText(Formats.getInstance().isoDate(EpochDays.of(y, m + 1, d)));
                 },
                 year, month, day
         );
@@ -117,11 +131,72 @@ public class AddEditExpenseActivity extends AppCompatActivity {
     }
 
 
+    @Override
+    protected void onDestroy() {
+        // Saves are left to finish; only the pending form load is dropped
+        if (loadRequest != null) {
+            loadRequest.cancel();
+        }
+        if (categoriesRequest != null) {
+            categoriesRequest.cancel();
+        }
+        super.onDestroy();
+    }
+
+    private void showCategories(CategoryDictionary dictionary) {
+        String selected = categoryToSelect != null ? categoryToSelect : selectedCategory();
+        categories = dictionary;
+        categoryToSelect = null;
+        categoryAdapter.clear();
+        categoryAdapter.addAll(dictionary.names());
+        categoryAdapter.add(NEW_CATEGORY);
+        selectCategory(selected);
+    }
+
+    // Binary search in the dictionary rather than a scan of the spinner's items
+    private void selectCategory(String name) {
+        if (categories == null) {
+            categoryToSelect = name; // Selected in showCategories()
+            return;
+        }
+        int index = categories.indexOf(name);
+        lastCategoryPosition = index >= 0 ? index : 0;
+        spCategory.setSelection(lastCategoryPosition);
+    }
+
+    private String selectedCategory() {
+        int position = spCategory.getSelectedItemPosition();
+        return categories != null && position >= 0 && position < categories.size() ? categories.name(position) : null;
+    }
+
+    private void showNewCategoryDialog() {
+        EditText etName = new EditText(this);
+        etName.setSingleLine();
+        new AlertDialog.Builder(this)
+                .setTitle("New category")
+                .setView(etName)
+                .setPositiveButton("Add", (dialog, which) -> {
+                    String name = etName.getText().toString().trim();
+                    if (name.isEmpty()) {
+                        spCategory.setSelection(lastCategoryPosition);
+                        return;
+                    }
+                    categoryToSelect = name;
+                    categoriesRequest = repository.addCategory(currentUserId, name, this::showCategories);
+                })
+                .setNegativeButton("Cancel", (dialog, which) -> spCategory.setSelection(lastCategoryPosition))
+                .setOnCancelListener(dialog -> spCategory.setSelection(lastCategoryPosition))
+                .show();
+    }
+
     private void loadExpenseData(long expenseId) {
-        Cursor cursor = dbHelper.getExpenseById(expenseId);
+        loadRequest = repository.getExpenseById(expenseId, this::showExpenseData);
+    }
+
+    private void showExpenseData(Cursor cursor) {
         if (cursor.moveToFirst()) {
             // Retrieve and populate fields
-            String amount = String.valueOf(cursor.getDouble(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_AMOUNT)));
+            String amount = Money.toPlainString(cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_AMOUNT)));
             String category = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_CATEGORY));
             String date = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_DATE));
             String note = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_NOTE));
@@ -131,19 +206,14 @@ public class AddEditExpenseActivity extends AppCompatActivity {
             etNote.setText(note);
 
             // Set the spinner to the correct category
-            for (int i = 0; i < EXPENSE_CATEGORIES.length; i++) {
-                if (EXPENSE_CATEGORIES[i].equals(category)) {
-                    spCategory.setSelection(i);
-                    break;
-                }
-            }
+            selectCategory(category);
         }
         cursor.close();
     }
 
     private void saveOrUpdateExpense() {
         String amountStr = etAmount.getText().toString().trim();
-        String category = spCategory.getSelectedItem().toString(); // Get value from Spinner
+        String category = selectedCategory(); // Get value from Spinner
         String date = etDate.getText().toString().trim();
         String note = etNote.getText().toString().trim();
 
@@ -151,39 +221,68 @@ public class AddEditExpenseActivity extends AppCompatActivity {
             Toast.makeText(this, "Please fill in Amount and Date.", Toast.LENGTH_SHORT).show();
             return;
         }
+        if (category == null) {
+            Toast.makeText(this, "Please choose a category.", Toast.LENGTH_SHORT).show();
+            return;
+        }
 
-        double amount;
+        long amount; // Minor units (cents)
         try {
-            amount = Double.parseDouble(amountStr);
+            amount = Money.parse(amountStr);
         } catch (NumberFormatException e) {
             Toast.makeText(this, "Invalid amount format.", Toast.LENGTH_SHORT).show();
             return;
         }
 
-        boolean success;
+        // Dates that don't parse get no DateDay, which keeps them out of every month and week
+        try {
+            EpochDays.parse(date);
+        } catch (IllegalArgumentException e) {
+            Toast.makeText(this, "Invalid date format (use YYYY-MM-DD).", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        // Block double submits while the write runs in the background
+        setButtonsEnabled(false);
 
         if (expenseIdToEdit == -1) {
             // ADD Logic (Create)
-            success = dbHelper.addExpense(currentUserId, amount, category, date, note);
-            Toast.makeText(this, success ? "Expense added!" : "Failed to add expense.", Toast.LENGTH_SHORT).show();
+            repository.addExpense(currentUserId, amount, category, date, note,
+                    writeCallback("Expense added!", "Failed to add expense."));
         } else {
             // UPDATE Logic
-            success = dbHelper.updateExpense(expenseIdToEdit, amount, category, date, note);
-            Toast.makeText(this, success ? "Expense updated!" : "Failed to update expense.", Toast.LENGTH_SHORT).show();
+            repository.updateExpense(expenseIdToEdit, amount, category, date, note,
+                    writeCallback("Expense updated!", "Failed to update expense."));
         }
+    }
 
+    private void deleteExpense() {
+        if (expenseIdToEdit != -1) {
+            setButtonsEnabled(false);
+            repository.deleteExpense(expenseIdToEdit, writeCallback("Expense deleted!", "Failed to delete expense."));
+        }
+    }
+
+    // A write that throws reports like one that changed nothing, so the buttons come back either way
+    private DbExecutor.Callback<Boolean> writeCallback(String successMessage, String failureMessage) {
+        return DbExecutor.callback(success -> onWriteFinished(success, successMessage, failureMessage),
+                error -> onWriteFinished(false, successMessage, failureMessage));
+    }
+
+    private void onWriteFinished(boolean success, String successMessage, String failureMessage) {
+        if (isDestroyed()) {
+            return;
+        }
+        Toast.makeText(this, success ? successMessage : failureMessage, Toast.LENGTH_SHORT).show();
         if (success) {
             finish(); // Close this activity and return to Dashboard
+        } else {
+            setButtonsEnabled(true);
         }
     }
 
-    private void deleteExpense() {
-        if (expenseIdToEdit != -1) {
-            boolean success = dbHelper.deleteExpense(expenseIdToEdit);
-            Toast.makeText(this, success ? "Expense deleted!" : "Failed to delete expense.", Toast.LENGTH_SHORT).show();
-            if (success) {
-                finish(); // Close this activity and return to Dashboard
-            }
-        }
+    private void setButtonsEnabled(boolean enabled) {
+        btnSave.setEnabled(enabled);
+        btnDelete.setEnabled(enabled);
     }
 }
\ No newline at end of file
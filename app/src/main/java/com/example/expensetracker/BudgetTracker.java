@@ -0,0 +1,189 @@
+package com.example.expensetracker;
+
+import android.database.Cursor;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What every budgeted category has spent in a month, held in memory so each write is checked
+ * against its budget without a query. ExpenseRepository reads the months a write touches in
+ * (prepare) before making it, then applies the committed write (apply): a hash lookup per side and
+ * a compare per threshold, however large the ledger. An update that moves money to another
+ * category or month takes it out of one bucket and puts it into the other, like the rollup triggers.
+ *
+ * Spend comes from the monthly rollup (DatabaseHelper.getBudgetStatus), so it matches
+ * getCategorySummary. Holds the last user prepared and at most MAX_MONTHS of their months; a month
+ * dropped here is simply read again. Only ever used on the write thread, but synchronized anyway.
+ */
+final class BudgetTracker {
+
+    /** Percentages of the limit that raise an Alert when a month's spend first reaches them. */
+    static final int[] THRESHOLDS = {50, 80, 100};
+    static final int MAX_MONTHS = 12;
+
+    /** Receives alerts on the write thread (DbExecutor), never the main thread. */
+    interface AlertListener {
+        void onBudgetAlert(Alert alert);
+    }
+
+    /** A category's spend in a month reached percent of its limit with this write. */
+    static final class Alert {
+        final long userId;
+        final String monthYear;
+        final String category;
+        final int percent; // One of THRESHOLDS, the highest reached
+        final long spentMinor;
+        final long limitMinor;
+
+        Alert(long userId, String monthYear, String category, int percent, long spentMinor, long limitMinor) {
+            this.userId = userId;
+            this.monthYear = monthYear;
+            this.category = category;
+            this.percent = percent;
+            this.spentMinor = spentMinor;
+            this.limitMinor = limitMinor;
+        }
+    }
+
+    // One month's budgets; the slots are the user's budgeted categories
+    private static final class Month {
+        final HashMap<String, Integer> slotOf = new HashMap<>();
+        final String[] categories;
+        final long[] limits;
+        final long[] spent;
+
+        Month(int budgets) {
+            categories = new String[budgets];
+            limits = new long[budgets];
+            spent = new long[budgets];
+        }
+
+        int slotOf(@Nullable String category) {
+            Integer slot = category != null ? slotOf.get(category) : null;
+            return slot != null ? slot : -1;
+        }
+    }
+
+    private final DatabaseHelper dbHelper;
+    private long userId = -1;
+    private final LinkedHashMap<String, Month> months;
+
+    BudgetTracker(DatabaseHelper dbHelper) {
+        this.dbHelper = dbHelper;
+        // Access order, as in MonthSnapshotCache: the head is the month least recently written to
+        this.months = new LinkedHashMap<String, Month>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Month> eldest) {
+                return size() > MAX_MONTHS;
+            }
+        };
+    }
+
+    /**
+     * Reads monthYear's budgets and spend unless they are held already. Call on the write thread
+     * before a write to that month, so apply() starts from the totals the write changes. monthYear
+     * may be null or malformed (e.g. a bad stored date), which is a no-op.
+     */
+    synchronized void prepare(long userId, @Nullable String monthYear) {
+        if (userId != this.userId) {
+            months.clear();
+            this.userId = userId;
+        }
+        if (monthYear == null || months.get(monthYear) != null) {
+            return;
+        }
+        Cursor cursor;
+        try {
+            cursor = dbHelper.getBudgetStatus(userId, monthYear, null);
+        } catch (IllegalArgumentException e) {
+            return; // Not a month; the write cannot count against any budget
+        }
+        try {
+            Month month = new Month(cursor.getCount());
+            int categoryIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_CATEGORY);
+            int limitIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_BUD_LIMIT);
+            int spentIndex = cursor.getColumnIndexOrThrow("Spent");
+            for (int slot = 0; cursor.moveToNext(); slot++) {
+                month.categories[slot] = cursor.getString(categoryIndex);
+                month.limits[slot] = cursor.getLong(limitIndex);
+                month.spent[slot] = cursor.getLong(spentIndex);
+                month.slotOf.put(month.categories[slot], slot);
+            }
+            months.put(monthYear, month);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Applies a committed write: fromAmount left (fromMonth, fromCategory) and toAmount arrived in
+     * (toMonth, toCategory). An add has no from side and a delete no to side (null months). Sides
+     * in months that were not prepared are skipped; the next prepare() reads them with the write.
+     * @return An alert for each budget that reached a new threshold, usually none.
+     */
+    synchronized List<Alert> apply(long userId, @Nullable String fromMonth, @Nullable String fromCategory, long fromAmount,
+                                   @Nullable String toMonth, @Nullable String toCategory, long toAmount) {
+        if (userId != this.userId) {
+            return Collections.emptyList();
+        }
+        Month from = fromMonth != null ? months.get(fromMonth) : null;
+        int fromSlot = from != null ? from.slotOf(fromCategory) : -1;
+        Month to = toMonth != null ? months.get(toMonth) : null;
+        int toSlot = to != null ? to.slotOf(toCategory) : -1;
+
+        if (from == to && fromSlot == toSlot) {
+            // Same bucket (e.g. only the note changed): only the difference counts
+            return add(toMonth, to, toSlot, toAmount - fromAmount);
+        }
+        add(fromMonth, from, fromSlot, -fromAmount); // Spend only goes down here, so never alerts
+        return add(toMonth, to, toSlot, toAmount);
+    }
+
+    /** Forgets the user's months, after writes apply() never saw (budget changes, imports, renames). */
+    synchronized void invalidateUser(long userId) {
+        if (userId == this.userId) {
+            months.clear();
+        }
+    }
+
+    /** Held spend of a budgeted category in minor units, or -1 if that month or budget is not held. */
+    synchronized long spent(long userId, String monthYear, String category) {
+        Month month = userId == this.userId ? months.get(monthYear) : null;
+        int slot = month != null ? month.slotOf(category) : -1;
+        return slot >= 0 ? month.spent[slot] : -1;
+    }
+
+    private List<Alert> add(@Nullable String monthYear, @Nullable Month month, int slot, long amountMinor) {
+        if (slot < 0 || amountMinor == 0) {
+            return Collections.emptyList();
+        }
+        long limit = month.limits[slot];
+        long before = month.spent[slot];
+        long after = before + amountMinor;
+        month.spent[slot] = after;
+        int reached = thresholdReached(after, limit);
+        if (reached <= thresholdReached(before, limit)) {
+            return Collections.emptyList();
+        }
+        List<Alert> alerts = new ArrayList<>(1);
+        alerts.add(new Alert(userId, monthYear, month.categories[slot], reached, after, limit));
+        return alerts;
+    }
+
+    // The highest of THRESHOLDS that spent reaches, or 0
+    static int thresholdReached(long spentMinor, long limitMinor) {
+        for (int i = THRESHOLDS.length - 1; i >= 0; i--) {
+            if (spentMinor * 100 >= THRESHOLDS[i] * limitMinor) {
+                return THRESHOLDS[i];
+            }
+        }
+        return 0;
+    }
+}
@@ -1,62 +1,67 @@
 package com.example.expensetracker;
 
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.DividerItemDecoration;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import android.content.Context;
 import android.content.Intent;
 import android.database.Cursor;
 import android.os.Bundle;
 import android.view.View;
+import android.view.ViewGroup;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
+import android.widget.CursorAdapter;
+import android.widget.EditText;
 import android.widget.ListView;
 import android.widget.Spinner;
 import android.widget.TextView;
-import android.widget.SimpleCursorAdapter;
 import android.widget.Toast;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
 import java.util.List;
-import java.util.Locale;
 
 public class CategoryDetailActivity extends AppCompatActivity {
 
     private long currentUserId;
     private String monthYear; // Format: YYYY-MM (e.g., 2025-10)
     private String displayMonth; // Format: October 2025
-    private DatabaseHelper dbHelper;
+    private ExpenseRepository repository;
+    private DbExecutor.Request summaryRequest;
+    private DbExecutor.Request budgetRequest;
+    private PagedExpenseAdapter weeklyAdapter;
 
     private TextView tvDetailTitle;
     private ListView lvCategorySummary;
     private Spinner spWeekSelector;
-    private ListView lvWeeklyExpenses;
+    private RecyclerView rvWeeklyExpenses;
     private TextView tvWeeklyHeader;
 
-    private List<String> weekRanges = new ArrayList<>();
-    private List<WeekBoundary> weekBoundaries = new ArrayList<>();
+    private WeekBuckets weeks;
+    private final List<String> weekLabels = new ArrayList<>();
+    private ArrayAdapter<String> weekAdapter;
+    private DbExecutor.Request weekTotalsRequest;
 
-    private class WeekBoundary {
-        String start; // YYYY-MM-DD
-        String end;   // YYYY-MM-DD
-        public WeekBoundary(String start, String end) {
-            this.start = start;
-            this.end = end;
-        }
-    }
+    // Times the screen to the first frame showing both the summary and the week totals
+    private ScreenTrace trace;
+    private int pendingLoads;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        trace = ScreenTrace.start("CategoryDetail");
+        trace.beginSection("create");
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_category_detail);
 
-        dbHelper = new DatabaseHelper(this);
+        repository = ExpenseRepository.getInstance(this);
 
         // 1. Initialize UI components
         tvDetailTitle = findViewById(R.id.tvDetailTitle);
         lvCategorySummary = findViewById(R.id.lvCategorySummary);
         spWeekSelector = findViewById(R.id.spWeekSelector);
-        lvWeeklyExpenses = findViewById(R.id.lvWeeklyExpenses);
+        rvWeeklyExpenses = findViewById(R.id.rvWeeklyExpenses);
         tvWeeklyHeader = findViewById(R.id.tvWeeklyHeader);
 
         // 2. Get passed data
@@ -69,6 +74,8 @@ public class CategoryDetailActivity extends AppCompatActivity {
 
         if (currentUserId == -1 || monthYear == null) {
             Toast.makeText(this, "Error: Invalid session data.", Toast.LENGTH_LONG).show();
+            trace.endSection();
+            trace.cancel();
             finish();
             return;
         }
@@ -76,6 +83,7 @@ public class CategoryDetailActivity extends AppCompatActivity {
         tvDetailTitle.setText("Category Breakdown for " + displayMonth);
 
         // 3. Load Monthly Summary and Week Selector
+        setupWeeklyList();
         loadCategorySummary();
         calculateAndSetupWeeks();
 
@@ -84,8 +92,7 @@ public class CategoryDetailActivity extends AppCompatActivity {
             @Override
             public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
                 // Load expenses for the selected week
-                WeekBoundary selectedWeek = weekBoundaries.get(position);
-                loadWeeklyExpenses(selectedWeek.start, selectedWeek.end);
+                loadWeeklyExpenses(weeks.startDate(position), weeks.endDate(position));
             }
 
             @Override
@@ -94,164 +101,210 @@ public class CategoryDetailActivity extends AppCompatActivity {
             }
         });
 
+        // Long-press a category to set its monthly budget; the row id is its CategoryID
+        lvCategorySummary.setOnItemLongClickListener((parent, view, position, id) -> {
+            if (id <= 0) {
+                return false; // Expenses without a category cannot have a budget
+            }
+            Cursor cursor = (Cursor) parent.getItemAtPosition(position);
+            showBudgetDialog(id, cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_CATEGORY)));
+            return true;
+        });
+
         // Initial load for the first week
-        if (!weekBoundaries.isEmpty()) {
-            WeekBoundary initialWeek = weekBoundaries.get(0);
-            loadWeeklyExpenses(initialWeek.start, initialWeek.end);
+        if (weeks != null && weeks.count > 0) {
+            loadWeeklyExpenses(weeks.startDate(0), weeks.endDate(0));
+        }
+        trace.endSection();
+    }
+
+    @Override
+    protected void onDestroy() {
+        trace.cancel();
+        if (summaryRequest != null) {
+            summaryRequest.cancel();
+        }
+        if (weekTotalsRequest != null) {
+            weekTotalsRequest.cancel();
+        }
+        if (budgetRequest != null) {
+            budgetRequest.cancel();
+        }
+        if (weeklyAdapter != null) {
+            weeklyAdapter.release();
+        }
+        closeAdapterCursor(lvCategorySummary);
+        super.onDestroy();
+    }
+
+    private static void closeAdapterCursor(ListView listView) {
+        if (listView != null && listView.getAdapter() instanceof CursorAdapter) {
+            ((CursorAdapter) listView.getAdapter()).changeCursor(null);
         }
     }
 
     // --- Data Loading Functions ---
 
     private void loadCategorySummary() {
-        Cursor cursor = dbHelper.getCategorySummary(currentUserId, monthYear);
-
-        // Map Category (text1) and TotalAmount (text2)
-        String[] fromColumns = {DatabaseHelper.COL_EXP_CATEGORY, "TotalAmount"};
-        int[] toViews = {android.R.id.text1, android.R.id.text2};
-
-        SimpleCursorAdapter adapter = new SimpleCursorAdapter(
-                this,
-                android.R.layout.simple_list_item_2,
-                cursor,
-                fromColumns,
-                toViews,
-                0
-        );
-
-        // *** NEW: Custom View Binder for Summary List Formatting ***
-        adapter.setViewBinder(new SimpleCursorAdapter.ViewBinder() {
-            @Override
-            public boolean setViewValue(View view, Cursor cursor, int columnIndex) {
-                if (view.getId() == android.R.id.text2) {
-                    // Line 2: Total Amount (Format as currency)
-                    TextView tv = (TextView) view;
-                    int amountIndex = cursor.getColumnIndexOrThrow("TotalAmount");
-                    String amount = String.format(Locale.US, "$%.2f", cursor.getDouble(amountIndex));
-                    tv.setText(amount);
-                    return true;
-                }
-                return false;
+        long requested = System.nanoTime();
+        pendingLoads++;
+        summaryRequest = repository.getCategorySummary(currentUserId, monthYear, DbExecutor.callback(cursor -> {
+            trace.record("summaryQuery", requested);
+            trace.beginSection("summaryBind");
+            showCategorySummary(cursor);
+            trace.endSection();
+            loadFinished();
+        }, error -> loadFailed()));
+    }
+
+    // Once every first load is bound, the next frame is the screen's first complete render
+    private void loadFinished() {
+        if (--pendingLoads == 0) {
+            trace.finishAfterNextFrame();
+        }
+    }
+
+    // The screen never renders completely, so there is no first frame to time
+    private void loadFailed() {
+        pendingLoads--;
+        trace.cancel();
+        Toast.makeText(this, "Could not load all of this month.", Toast.LENGTH_SHORT).show();
+    }
+
+    private void showCategorySummary(Cursor cursor) {
+        closeAdapterCursor(lvCategorySummary);
+        lvCategorySummary.setAdapter(new CategorySummaryAdapter(this, cursor));
+    }
+
+    // Line 1: Category, Line 2: Total Amount. The adapter owns the cursor and closes it on changeCursor
+    static final class CategorySummaryAdapter extends CursorAdapter {
+        private final Formats formats = Formats.getInstance();
+        private int categoryIndex;
+        private int totalIndex;
+
+        CategorySummaryAdapter(Context context, Cursor cursor) {
+            super(context, cursor, 0);
+            resolveColumns(cursor);
+        }
+
+        @Override
+        public Cursor swapCursor(Cursor newCursor) {
+            resolveColumns(newCursor);
+            return super.swapCursor(newCursor);
+        }
+
+        // Once per cursor rather than once per bound view
+        private void resolveColumns(Cursor cursor) {
+            if (cursor != null) {
+                categoryIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_CATEGORY);
+                totalIndex = cursor.getColumnIndexOrThrow("TotalAmount");
             }
-        });
+        }
+
+        @Override
+        public View newView(Context context, Cursor cursor, ViewGroup parent) {
+            return TwoLineRow.of(null, parent).view;
+        }
 
-        lvCategorySummary.setAdapter(adapter);
+        @Override
+        public void bindView(View view, Context context, Cursor cursor) {
+            TwoLineRow row = (TwoLineRow) view.getTag();
+            row.setLine1(cursor, categoryIndex);
+            row.setLine2(formats.appendCurrency(row.line(), cursor.getLong(totalIndex)));
+        }
     }
 
-    private void loadWeeklyExpenses(String startDate, String endDate) {
-        Cursor cursor = dbHelper.getExpensesForWeek(currentUserId, startDate, endDate);
+    // Alerts at 50%, 80% and 100% of the limit come from BudgetTracker, see DashboardActivity
+    private void showBudgetDialog(long categoryId, String category) {
+        EditText etLimit = new EditText(this);
+        etLimit.setSingleLine();
+        etLimit.setHint("Monthly limit (0 removes the budget)");
+        new AlertDialog.Builder(this)
+                .setTitle("Budget for " + category)
+                .setView(etLimit)
+                .setPositiveButton("Save", (dialog, which) -> {
+                    long limit;
+                    try {
+                        limit = Money.parse(etLimit.getText().toString().trim());
+                    } catch (NumberFormatException e) {
+                        Toast.makeText(this, "Invalid amount format.", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    budgetRequest = repository.setBudget(currentUserId, categoryId, limit, DbExecutor.callback(changed -> {
+                        if (changed) {
+                            Toast.makeText(this, limit > 0 ? "Budget saved." : "Budget removed.", Toast.LENGTH_SHORT).show();
+                        }
+                    }, error -> Toast.makeText(this, "Could not save the budget.", Toast.LENGTH_SHORT).show()));
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
 
+    private void loadWeeklyExpenses(String startDate, String endDate) {
         // Update header text
         tvWeeklyHeader.setText("Transactions: " + startDate + " to " + endDate);
 
-        // Cursor SELECT returns: _id, COL_EXP_DATE, COL_EXP_AMOUNT, COL_EXP_CATEGORY, COL_EXP_NOTE
-        // We will map Category (text1) and Date (text2). Amount must be formatted via ViewBinder.
-        String[] fromColumns = {DatabaseHelper.COL_EXP_CATEGORY, DatabaseHelper.COL_EXP_DATE};
-        int[] toViews = {android.R.id.text1, android.R.id.text2};
-
-        SimpleCursorAdapter adapter = new SimpleCursorAdapter(
-                this,
-                android.R.layout.simple_list_item_2,
-                cursor,
-                fromColumns,
-                toViews,
-                0
-        );
-
-        // *** NEW: Custom View Binder for Weekly List Formatting ***
-        adapter.setViewBinder(new SimpleCursorAdapter.ViewBinder() {
-            @Override
-            public boolean setViewValue(View view, Cursor cursor, int columnIndex) {
-                int categoryIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_CATEGORY);
-                int amountIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_AMOUNT);
-                int dateIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_DATE);
-
-                if (view.getId() == android.R.id.text1) {
-                    // Line 1: Category + $Amount
-                    TextView tv = (TextView) view;
-                    String category = cursor.getString(categoryIndex);
-                    String amount = String.format(Locale.US, "$%.2f", cursor.getDouble(amountIndex));
-                    tv.setText(category + ": " + amount);
-                    return true;
-                }
-
-                if (view.getId() == android.R.id.text2) {
-                    // Line 2: Date
-                    TextView tv = (TextView) view;
-                    String date = cursor.getString(dateIndex);
-                    tv.setText(date);
-                    return true;
-                }
-
-                return false;
-            }
-        });
+        // Swapping the pager cancels the previous week's page loads and drops its pages
+        weeklyAdapter.setPager(new ExpensePager(repository, currentUserId, startDate, endDate, weeklyAdapter));
+    }
 
-        lvWeeklyExpenses.setAdapter(adapter);
+    private void setupWeeklyList() {
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        layoutManager.setInitialPrefetchItemCount(ExpensePager.PREFETCH_DISTANCE);
+        rvWeeklyExpenses.setLayoutManager(layoutManager);
+        rvWeeklyExpenses.setHasFixedSize(true);
+        rvWeeklyExpenses.addItemDecoration(new DividerItemDecoration(this, DividerItemDecoration.VERTICAL));
 
         // Enable editing when clicking a weekly transaction
-        lvWeeklyExpenses.setOnItemClickListener((parent, view, position, id) -> {
+        weeklyAdapter = new PagedExpenseAdapter(expenseId -> {
             Intent intent = new Intent(CategoryDetailActivity.this, AddEditExpenseActivity.class);
             intent.putExtra("USER_ID", currentUserId);
-            intent.putExtra("EXPENSE_ID", id); // 'id' is the ExpID
+            intent.putExtra("EXPENSE_ID", expenseId); // ExpID
             startActivity(intent);
         });
+        rvWeeklyExpenses.setAdapter(weeklyAdapter);
     }
 
     // --- Week Calculation Function (Key Logic) ---
 
+    // Sunday-to-Saturday weeks clamped to the month; see WeekBuckets
     private void calculateAndSetupWeeks() {
-        // ... (The code for calculating weeks is unchanged from the previous session) ...
-        // [omitted for brevity, assume the previous implementation of calculateAndSetupWeeks is here]
-
-        // Parse the YYYY-MM string back to a Calendar object for the first day of the month
-        Calendar monthCal = Calendar.getInstance();
         try {
-            Date firstDayOfMonth = new SimpleDateFormat("yyyy-MM", Locale.US).parse(monthYear);
-            monthCal.setTime(firstDayOfMonth);
-            monthCal.set(Calendar.DAY_OF_MONTH, 1); // Ensure we start on the first day
-        } catch (Exception e) {
+            weeks = WeekBuckets.forMonth(monthYear);
+        } catch (IllegalArgumentException e) {
             return; // Should not happen if data is passed correctly
         }
 
-        Calendar current = (Calendar) monthCal.clone();
-        Calendar lastDay = (Calendar) monthCal.clone();
-        lastDay.set(Calendar.DAY_OF_MONTH, monthCal.getActualMaximum(Calendar.DAY_OF_MONTH));
-
-        SimpleDateFormat sqlFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
-        SimpleDateFormat displayFormat = new SimpleDateFormat("MMM dd", Locale.US);
-
-        weekRanges.clear();
-        weekBoundaries.clear();
-
-        while (current.before(lastDay) || current.equals(lastDay)) {
-            Calendar startOfWeek = (Calendar) current.clone();
-
-            // Go to the previous Sunday (Start of the week).
-            startOfWeek.set(Calendar.DAY_OF_WEEK, Calendar.SUNDAY);
-
-            Calendar endOfWeek = (Calendar) startOfWeek.clone();
-            endOfWeek.add(Calendar.DATE, 6); // End of week (Saturday)
-
-            // Clamp the boundaries to the month limits
-            Calendar weekStart = startOfWeek.before(monthCal) ? monthCal : startOfWeek;
-            Calendar weekEnd = endOfWeek.after(lastDay) ? lastDay : endOfWeek;
-
-            // Format and store the range
-            String startDate = sqlFormat.format(weekStart.getTime());
-            String endDate = sqlFormat.format(weekEnd.getTime());
-            String displayRange = displayFormat.format(weekStart.getTime()) + " - " + displayFormat.format(weekEnd.getTime());
-
-            weekRanges.add(displayRange);
-            weekBoundaries.add(new WeekBoundary(startDate, endDate));
+        // Show the ranges right away; the totals are filled in when the one aggregate query returns
+        showWeekLabels(null);
+        weekAdapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_dropdown_item, weekLabels);
+        spWeekSelector.setAdapter(weekAdapter);
+
+        long requested = System.nanoTime();
+        pendingLoads++;
+        weekTotalsRequest = repository.getWeekTotals(currentUserId, weeks, DbExecutor.callback(totals -> {
+            trace.record("weekTotalsQuery", requested);
+            trace.beginSection("weekTotalsBind");
+            showWeekLabels(totals);
+            weekAdapter.notifyDataSetChanged(); // Keeps the selected week
+            trace.endSection();
+            loadFinished();
+        }, error -> loadFailed()));
+    }
 
-            // Move to the next Monday (to start the next week calculation)
-            current.add(Calendar.DATE, 7);
-            current.set(Calendar.DAY_OF_WEEK, Calendar.SUNDAY);
+    // "Oct 05 - Oct 11", plus ": $123.45 (4)" once totals are known
+    private void showWeekLabels(WeekBuckets.Totals totals) {
+        weekLabels.clear();
+        Formats formats = Formats.getInstance();
+        StringBuilder label = new StringBuilder(40);
+        for (int week = 0; week < weeks.count; week++) {
+            label.setLength(0);
+            weeks.appendLabel(label, week);
+            if (totals != null) {
+                label.append(": ");
+                formats.appendCurrency(label, totals.amounts[week]).append(" (").append(totals.counts[week]).append(')');
+            }
+            weekLabels.add(label.toString());
         }
-
-        // Populate the Spinner
-        ArrayAdapter<String> adapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_dropdown_item, weekRanges);
-        spWeekSelector.setAdapter(adapter);
     }
-}
\ No newline at end of file
+}
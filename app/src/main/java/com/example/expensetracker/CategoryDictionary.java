@@ -0,0 +1,134 @@
+package com.example.expensetracker;
+
+import android.database.Cursor;
+
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * One user's categories: CategoryID <-> name, copied out of the categories table into sorted
+ * arrays. Names are looked up by binary search over the name order, ids over the id order, so
+ * neither direction scans. Immutable, so it can be handed to the UI thread as is; DatabaseHelper
+ * caches the current user's and swaps in a copy when a category is added or renamed.
+ */
+final class CategoryDictionary {
+
+    /** Every new user starts with these; see DatabaseHelper.registerUser and DatabaseMigrations v9. */
+    static final String[] DEFAULTS = {"Food", "Transport", "Rent", "Electricity", "Water", "Others"};
+
+    final long userId;
+    private final String[] names; // Sorted by String.compareTo
+    private final long[] ids; // ids[i] is the CategoryID of names[i]
+    private final long[] sortedIds;
+    private final int[] nameIndexOfId; // names index of sortedIds[i]
+
+    // Takes the pairs in any order and sorts them both ways
+    private CategoryDictionary(long userId, String[] unsortedNames, long[] unsortedIds) {
+        this.userId = userId;
+        int count = unsortedNames.length;
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        // String order, not SQLite's: binarySearch below must agree with the sort
+        Arrays.sort(order, (a, b) -> unsortedNames[a].compareTo(unsortedNames[b]));
+        names = new String[count];
+        ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = unsortedNames[order[i]];
+            ids[i] = unsortedIds[order[i]];
+        }
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(ids[a], ids[b]));
+        sortedIds = new long[count];
+        nameIndexOfId = new int[count];
+        for (int i = 0; i < count; i++) {
+            sortedIds[i] = ids[order[i]];
+            nameIndexOfId[i] = order[i];
+        }
+    }
+
+    /** Reads rows of CategoryID and Name (see DatabaseHelper.getCategories) and closes the cursor. */
+    static CategoryDictionary from(long userId, Cursor cursor) {
+        try {
+            int count = cursor.getCount();
+            String[] names = new String[count];
+            long[] ids = new long[count];
+            for (int i = 0; cursor.moveToNext(); i++) {
+                ids[i] = cursor.getLong(0);
+                names[i] = cursor.getString(1);
+            }
+            return new CategoryDictionary(userId, names, ids);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    int size() {
+        return names.length;
+    }
+
+    /** The i-th name in name order, e.g. for a spinner. */
+    String name(int index) {
+        return names[index];
+    }
+
+    long id(int index) {
+        return ids[index];
+    }
+
+    /** Every name in order; a copy the caller may keep. */
+    String[] names() {
+        return names.clone();
+    }
+
+    /** Position of name in name order, or -1. */
+    int indexOf(@Nullable String name) {
+        if (name == null) {
+            return -1;
+        }
+        int index = Arrays.binarySearch(names, name);
+        return index >= 0 ? index : -1;
+    }
+
+    /** CategoryID of name, or 0 if the user has no such category. */
+    long idOf(@Nullable String name) {
+        int index = indexOf(name);
+        return index >= 0 ? ids[index] : 0;
+    }
+
+    @Nullable
+    String nameOf(long id) {
+        int index = Arrays.binarySearch(sortedIds, id);
+        return index >= 0 ? names[nameIndexOfId[index]] : null;
+    }
+
+    /** A copy with id named name, replacing whatever name id had. */
+    CategoryDictionary with(long id, String name) {
+        int present = Arrays.binarySearch(names, name);
+        if (present >= 0) {
+            if (ids[present] == id) {
+                return this;
+            }
+            // categories is UNIQUE(UserID, Name), so the database cannot have given us this
+            throw new IllegalArgumentException("Category " + name + " already has id " + ids[present]);
+        }
+        int existing = Arrays.binarySearch(sortedIds, id);
+        String[] newNames;
+        long[] newIds;
+        if (existing >= 0) {
+            newNames = names.clone();
+            newIds = ids;
+            newNames[nameIndexOfId[existing]] = name;
+        } else {
+            newNames = Arrays.copyOf(names, names.length + 1);
+            newIds = Arrays.copyOf(ids, ids.length + 1);
+            newNames[names.length] = name;
+            newIds[ids.length] = id;
+        }
+        return new CategoryDictionary(userId, newNames, newIds);
+    }
+}
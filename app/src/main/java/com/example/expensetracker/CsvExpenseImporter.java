@@ -0,0 +1,357 @@
+package com.example.expensetracker;
+
+import android.os.CancellationSignal;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Streams a bank-statement CSV into the expenses table.
+ *
+ * The file is read record by record and never held in memory; valid rows are collected into a
+ * fixed array of reusable Row holders and written BATCH_SIZE at a time, each batch in its own
+ * transaction through DatabaseHelper's compiled insert. Every batch also saves a checkpoint, so
+ * running the importer again with the same sourceKey skips what was already committed.
+ *
+ * Expected header (case-insensitive, any order, UTF-8 byte order mark allowed): Date, Amount, and
+ * optionally Category and Note/Description/Memo. Date must be YYYY-MM-DD; Amount may carry '$',
+ * ',' thousands separators ("1,200.00", but not a decimal comma as in "12,50"), and a minus sign or
+ * accounting parentheses ("-12.50", "(12.50)").
+ *
+ * Only money going out is imported. Which sign that is depends on the bank, so the caller says:
+ * by default amounts are spent as written and negative ones (refunds) are skipped; with
+ * debitsAreNegative, negative amounts are spent and positive ones (deposits, salary) are skipped.
+ * Rows that fail validation or are credits are counted as skipped, not fatal.
+ */
+public final class CsvExpenseImporter {
+
+    static final int BATCH_SIZE = 2000;
+    private static final String DEFAULT_CATEGORY = "Others";
+
+    /** Called on the import thread after each committed batch. */
+    public interface ProgressListener {
+        void onProgress(long recordsRead, long rowsImported, long rowsSkipped);
+    }
+
+    /** Final counts for the whole file, including batches committed by earlier, interrupted runs. */
+    public static final class Result {
+        public final long rowsImported;
+        public final long rowsSkipped;
+        public final boolean cancelled;
+        public final String error; // Null unless the file could not be read at all
+
+        Result(long rowsImported, long rowsSkipped, boolean cancelled) {
+            this(rowsImported, rowsSkipped, cancelled, null);
+        }
+
+        Result(long rowsImported, long rowsSkipped, boolean cancelled, String error) {
+            this.rowsImported = rowsImported;
+            this.rowsSkipped = rowsSkipped;
+            this.cancelled = cancelled;
+            this.error = error;
+        }
+
+        static Result failed(String error) {
+            return new Result(0, 0, false, error);
+        }
+    }
+
+    /** One parsed row, reused across batches. */
+    static final class Row {
+        long amountMinor;
+        String category;
+        String date;
+        String note;
+    }
+
+    private final DatabaseHelper dbHelper;
+    private final boolean debitsAreNegative;
+    private final Row[] batch = new Row[BATCH_SIZE];
+    private final List<String> fields = new ArrayList<>();
+    private final StringBuilder field = new StringBuilder(64);
+    private final StringBuilder amountText = new StringBuilder(16);
+
+    private int dateColumn = -1;
+    private int amountColumn = -1;
+    private int categoryColumn = -1;
+    private int noteColumn = -1;
+
+    /** An importer for statements that list money going out as positive amounts. */
+    public CsvExpenseImporter(DatabaseHelper dbHelper) {
+        this(dbHelper, false);
+    }
+
+    /**
+     * @param debitsAreNegative True for signed statements that list money going out as negative
+     *                          amounts; their positive amounts are skipped as credits. Pass the
+     *                          same value when resuming an import.
+     */
+    public CsvExpenseImporter(DatabaseHelper dbHelper, boolean debitsAreNegative) {
+        this.dbHelper = dbHelper;
+        this.debitsAreNegative = debitsAreNegative;
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch[i] = new Row();
+        }
+    }
+
+    /**
+     * Imports (or resumes importing) one file for one user.
+     * @param sourceKey Stable identity of the file, e.g. its URI plus size; used for resuming.
+     * @param signal Checked between batches. Committed batches stay committed, so a later run resumes.
+     * @throws IOException on read errors or if the header lacks a Date or Amount column.
+     */
+    public Result importCsv(long userId, Reader source, String sourceKey,
+                            ProgressListener listener, CancellationSignal signal) throws IOException {
+        BufferedReader reader = source instanceof BufferedReader
+                ? (BufferedReader) source : new BufferedReader(source, 64 * 1024);
+
+        if (!readRecord(reader)) {
+            throw new IOException("Empty CSV file");
+        }
+        mapHeader();
+
+        long[] checkpoint = dbHelper.getImportProgress(sourceKey, userId);
+        long recordsConsumed = checkpoint[0];
+        long rowsImported = checkpoint[1];
+        long rowsSkipped = checkpoint[2];
+
+        // Fast-forward past records already committed by an interrupted run
+        long alreadyRead = 0;
+        while (alreadyRead < recordsConsumed && readRecord(reader)) {
+            if (!isBlankRecord()) {
+                alreadyRead++;
+            }
+        }
+
+        int pending = 0;
+        long pendingSkipped = 0;
+        while (readRecord(reader)) {
+            if (isBlankRecord()) {
+                continue;
+            }
+            recordsConsumed++;
+            if (parseRow(batch[pending])) {
+                pending++;
+            } else {
+                pendingSkipped++;
+            }
+
+            if (pending == BATCH_SIZE) {
+                rowsImported += pending;
+                rowsSkipped += pendingSkipped;
+                dbHelper.insertImportBatch(userId, batch, pending, sourceKey, recordsConsumed, rowsImported, rowsSkipped);
+                pending = 0;
+                pendingSkipped = 0;
+                if (listener != null) {
+                    listener.onProgress(recordsConsumed, rowsImported, rowsSkipped);
+                }
+                if (signal != null && signal.isCanceled()) {
+                    return new Result(rowsImported, rowsSkipped, true);
+                }
+            }
+        }
+
+        // Final partial batch
+        if (pending > 0 || pendingSkipped > 0) {
+            rowsImported += pending;
+            rowsSkipped += pendingSkipped;
+            dbHelper.insertImportBatch(userId, batch, pending, sourceKey, recordsConsumed, rowsImported, rowsSkipped);
+            if (listener != null) {
+                listener.onProgress(recordsConsumed, rowsImported, rowsSkipped);
+            }
+        }
+
+        dbHelper.clearImportProgress(sourceKey, userId);
+        return new Result(rowsImported, rowsSkipped, false);
+    }
+
+    // --- Header & row validation ---
+
+    private void mapHeader() throws IOException {
+        dateColumn = amountColumn = categoryColumn = noteColumn = -1;
+        for (int i = 0; i < fields.size(); i++) {
+            String name = fields.get(i);
+            if (i == 0 && name.startsWith("\uFEFF")) {
+                name = name.substring(1); // Byte order mark, as written by Excel's "CSV UTF-8"
+            }
+            name = name.trim().toLowerCase(Locale.US);
+            switch (name) {
+                case "date":
+                    dateColumn = i;
+                    break;
+                case "amount":
+                    amountColumn = i;
+                    break;
+                case "category":
+                    categoryColumn = i;
+                    break;
+                case "note":
+                case "description":
+                case "memo":
+                    if (noteColumn == -1) {
+                        noteColumn = i;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (dateColumn == -1 || amountColumn == -1) {
+            throw new IOException("CSV header must contain Date and Amount columns");
+        }
+    }
+
+    private boolean parseRow(Row row) {
+        String date = column(dateColumn);
+        if (date == null || !isIsoDate(date = date.trim())) {
+            return false;
+        }
+
+        String amount = column(amountColumn);
+        if (amount == null) {
+            return false;
+        }
+        amountText.setLength(0);
+        for (int i = 0; i < amount.length(); i++) {
+            char c = amount.charAt(i);
+            if (c != '$' && c != ' ') {
+                amountText.append(c);
+            }
+        }
+        int start = 0;
+        int end = amountText.length();
+        if (end >= 2 && amountText.charAt(0) == '(' && amountText.charAt(end - 1) == ')') {
+            start = 1;
+            end--;
+        } else if (end >= 1 && amountText.charAt(0) == '-') {
+            start = 1;
+        }
+        boolean negative = start == 1;
+        String digits = amountText.substring(start, end);
+        if (!groupsThousands(digits)) {
+            return false;
+        }
+        try {
+            row.amountMinor = Money.parse(digits.indexOf(',') == -1 ? digits : digits.replace(",", ""));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        if (negative != debitsAreNegative && row.amountMinor != 0) {
+            return false; // A credit in this statement's convention
+        }
+
+        String category = column(categoryColumn);
+        row.category = category == null || category.trim().isEmpty() ? DEFAULT_CATEGORY : category.trim();
+        String note = column(noteColumn);
+        row.note = note == null || note.isEmpty() ? null : note.trim();
+        row.date = date;
+        return true;
+    }
+
+    // True unless a ',' does something other than group the whole part in threes: "12,50" may be a
+    // decimal comma, and reading it as 1250.00 would be worse than skipping it
+    static boolean groupsThousands(String amount) {
+        int comma = amount.indexOf(',');
+        if (comma == -1) {
+            return true;
+        }
+        int point = amount.indexOf('.');
+        int wholeEnd = point == -1 ? amount.length() : point;
+        if (comma == 0 || comma > 3 || comma > wholeEnd) {
+            return false;
+        }
+        for (int i = comma; i < wholeEnd; i += 4) {
+            if (amount.charAt(i) != ',' || i + 4 > wholeEnd) {
+                return false;
+            }
+        }
+        return amount.indexOf(',', wholeEnd) == -1;
+    }
+
+    private String column(int index) {
+        return index >= 0 && index < fields.size() ? fields.get(index) : null;
+    }
+
+    private boolean isBlankRecord() {
+        return fields.size() == 1 && fields.get(0).trim().isEmpty();
+    }
+
+    // YYYY-MM-DD with a real month and a day that exists in that month
+    static boolean isIsoDate(String s) {
+        if (s.length() != 10 || s.charAt(4) != '-' || s.charAt(7) != '-') {
+            return false;
+        }
+        for (int i = 0; i < 10; i++) {
+            if (i != 4 && i != 7 && (s.charAt(i) < '0' || s.charAt(i) > '9')) {
+                return false;
+            }
+        }
+        int year = Integer.parseInt(s.substring(0, 4));
+        int month = (s.charAt(5) - '0') * 10 + (s.charAt(6) - '0');
+        int day = (s.charAt(8) - '0') * 10 + (s.charAt(9) - '0');
+        if (month < 1 || month > 12 || day < 1) {
+            return false;
+        }
+        int[] daysInMonth = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+        boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+        int maxDay = month == 2 && leap ? 29 : daysInMonth[month - 1];
+        return day <= maxDay;
+    }
+
+    // --- RFC 4180 record reader ---
+
+    /**
+     * Reads the next record into {@link #fields}. Handles quoted fields, doubled quotes and
+     * line breaks inside quotes. Returns false at end of input.
+     */
+    private boolean readRecord(BufferedReader reader) throws IOException {
+        fields.clear();
+        field.setLength(0);
+
+        int c = reader.read();
+        if (c == -1) {
+            return false;
+        }
+        boolean inQuotes = false;
+        while (c != -1) {
+            if (inQuotes) {
+                if (c == '"') {
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == '"') {
+                        field.append('"'); // Escaped quote
+                    } else {
+                        inQuotes = false;
+                        if (next != -1) {
+                            reader.reset();
+                        }
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"') {
+                inQuotes = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c == '\r') {
+                reader.mark(1);
+                if (reader.read() != '\n') {
+                    reader.reset();
+                }
+                break;
+            } else {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+        fields.add(field.toString());
+        return true;
+    }
+}
@@ -1,16 +1,19 @@
 package com.example.expensetracker;
 
 import androidx.appcompat.app.AppCompatActivity;
+import android.content.Context;
 import android.content.Intent;
-import android.database.Cursor;
 import android.graphics.Color;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
 import android.widget.Button;
 import android.widget.ListView;
 import android.widget.TextView;
 import android.widget.Toast;
-import android.widget.SimpleCursorAdapter;
 
 // Chart Imports (Now using PieChart components)
 import com.github.mikephil.charting.charts.PieChart;
@@ -20,29 +23,46 @@ import com.github.mikephil.charting.data.PieEntry;
 import com.github.mikephil.charting.formatter.PercentFormatter;
 import com.github.mikephil.charting.utils.ColorTemplate;
 
-import java.text.SimpleDateFormat;
+import java.io.File;
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.List;
-import java.util.Locale;
 
 public class DashboardActivity extends AppCompatActivity {
 
+    // Use the new method to limit transactions to 5
+    private static final int MAX_ITEMS = 5;
+    // Months on each side of the current one to load ahead of Next/Previous taps
+    private static final int PREFETCH_WINDOW = 3;
+
     private long currentUserId = -1;
-    private DatabaseHelper dbHelper;
+    private ExpenseRepository repository;
+    private Formats formats;
     private PieChart expenseChart; // Changed from BarChart
     private ListView lvExpenses;
-    private Calendar currentMonth;
+    private int currentMonth; // Month index, see EpochDays
     private TextView tvCurrentMonth;
     private Button btnNextMonth;
     private TextView tvSeeMore; // New TextView for navigation
 
+    // In-flight month load; cancelled when the month changes so only the latest month renders
+    private DbExecutor.Request snapshotRequest;
+    private MonthPrefetcher prefetcher;
+    private int lastMonthStep; // 1 after Next, -1 after Previous; steers prefetching
+
+    // Times each month load to its first frame; see PerformanceLog. The launch trace also
+    // covers onCreate and is handed to the first load.
+    private ScreenTrace launchTrace;
+    private ScreenTrace loadTrace;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        launchTrace = ScreenTrace.start("Dashboard launch");
+        launchTrace.beginSection("create");
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_dashboard);
 
-        dbHelper = new DatabaseHelper(this);
+        repository = ExpenseRepository.getInstance(this);
+        formats = Formats.getInstance();
         expenseChart = findViewById(R.id.expenseChart); // Now a PieChart
         lvExpenses = findViewById(R.id.lvExpenses);
         tvCurrentMonth = findViewById(R.id.tvCurrentMonth);
@@ -51,7 +71,7 @@ public class DashboardActivity extends AppCompatActivity {
         tvSeeMore = findViewById(R.id.tvSeeMore); // Initialize See More link
 
         // Initialize to current month
-        currentMonth = Calendar.getInstance();
+        currentMonth = EpochDays.monthIndexOf(EpochDays.today());
 
         // FAB to open the Add/Edit screen
         findViewById(R.id.fabAddExpense).setOnClickListener(v -> {
@@ -72,11 +92,19 @@ public class DashboardActivity extends AppCompatActivity {
             startActivity(intent);
             finish();
         }
+        prefetcher = new MonthPrefetcher(repository, currentUserId, MAX_ITEMS, PREFETCH_WINDOW);
+        repository.setBudgetAlertListener(budgetAlertToasts(getApplicationContext(), formats));
 
         // 2. Setup Month Navigation Listeners
         btnPreviousMonth.setOnClickListener(v -> changeMonth(-1));
         btnNextMonth.setOnClickListener(v -> changeMonth(1));
 
+        findViewById(R.id.tvSearch).setOnClickListener(v -> {
+            Intent intent = new Intent(DashboardActivity.this, SearchActivity.class);
+            intent.putExtra("USER_ID", currentUserId);
+            startActivity(intent);
+        });
+
         // 3. Setup See More Listener
         tvSeeMore.setOnClickListener(v -> {
             Intent intent = new Intent(DashboardActivity.this, CategoryDetailActivity.class);
@@ -85,24 +113,46 @@ public class DashboardActivity extends AppCompatActivity {
             intent.putExtra("DISPLAY_MONTH", getDisplayMonthYearString()); // Pass Oct 2025
             startActivity(intent);
         });
+
+        // Debug builds: long-press the month title to dump screen loads and query metrics for a performance report
+        if (BuildConfig.DEBUG) {
+            tvCurrentMonth.setOnLongClickListener(v -> {
+                File file = new File(getExternalFilesDir(null), "performance-report.txt");
+                repository.dumpPerformanceReport(file, written -> Toast.makeText(this,
+                        written != null ? "Performance report written to " + written : "Could not write performance report.",
+                        Toast.LENGTH_LONG).show());
+                return true;
+            });
+        }
+        launchTrace.endSection();
+    }
+
+    // Alerts arrive on the write thread, often after the screen that saved the expense has finished,
+    // so they are shown with the application context rather than this activity's
+    private static BudgetTracker.AlertListener budgetAlertToasts(Context appContext, Formats formats) {
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        return alert -> {
+            String message = alert.category + ": " + alert.percent + "% of the " + alert.monthYear + " budget used (" +
+                    formats.currency(alert.spentMinor) + " of " + formats.currency(alert.limitMinor) + ")";
+            mainHandler.post(() -> Toast.makeText(appContext, message, Toast.LENGTH_LONG).show());
+        };
     }
 
     // Changes the month by increment (1 for next, -1 for previous)
     private void changeMonth(int increment) {
-        currentMonth.add(Calendar.MONTH, increment);
+        currentMonth += increment;
+        lastMonthStep = increment;
         updateUI();
     }
 
     // Helper method to format the current month for SQL query (YYYY-MM)
     private String getMonthYearString() {
-        SimpleDateFormat sqlFormat = new SimpleDateFormat("yyyy-MM", Locale.US);
-        return sqlFormat.format(currentMonth.getTime());
+        return formats.monthKey(currentMonth);
     }
 
     // Helper method to format the current month for display (e.g., October 2025)
     private String getDisplayMonthYearString() {
-        SimpleDateFormat displayFormat = new SimpleDateFormat("MMMM yyyy", Locale.US);
-        return displayFormat.format(currentMonth.getTime());
+        return formats.displayMonth(currentMonth);
     }
 
     // Updates the UI text and refreshes the data
@@ -119,81 +169,77 @@ public class DashboardActivity extends AppCompatActivity {
         }
     }
 
+    @Override
+    protected void onPause() {
+        // Background prefetching is only worth it while the user can scrub
+        prefetcher.stop();
+        super.onPause();
+    }
+
+    @Override
+    protected void onDestroy() {
+        cancelPendingLoads();
+        if (loadTrace != null) {
+            loadTrace.cancel();
+        }
+        super.onDestroy();
+    }
+
     private void loadExpenseData() {
         String monthYear = getMonthYearString();
 
-        loadExpenseList(monthYear);
-        loadExpenseChart(monthYear);
+        // A quick Next/Previous tap supersedes whatever month was still loading.
+        // Months viewed recently (and unchanged since) come from ExpenseRepository's cache.
+        cancelPendingLoads();
+        if (loadTrace != null) {
+            loadTrace.cancel(); // No-op once it rendered
+        }
+        ScreenTrace trace = launchTrace != null ? launchTrace : ScreenTrace.start("Dashboard month");
+        launchTrace = null;
+        loadTrace = trace;
+
+        long requested = System.nanoTime();
+        snapshotRequest = repository.getMonthSnapshot(currentUserId, monthYear, MAX_ITEMS, DbExecutor.callback(snapshot -> {
+            trace.record("query", requested); // Includes the wait for the read thread
+            showMonth(snapshot, trace);
+            trace.finishAfterNextFrame();
+            // Only once the visible month is on screen, so prefetching never delays it
+            prefetcher.start(monthYear, lastMonthStep);
+        }, error -> {
+            snapshotRequest = null;
+            if (error == null) {
+                loadExpenseData(); // Dropped from the full read queue: the month on screen still needs it
+            } else {
+                trace.cancel();
+                Toast.makeText(this, "Could not load " + getDisplayMonthYearString() + ".", Toast.LENGTH_SHORT).show();
+            }
+        }));
     }
 
-    // Updated to use getTopNExpenses (limit 5) and include amount and date
-    private void loadExpenseList(String monthYear) {
-        // Use the new method to limit transactions to 5
-        final int MAX_ITEMS = 5;
-        Cursor cursor = dbHelper.getTopNExpenses(currentUserId, monthYear, MAX_ITEMS);
-
-        // --- CUSTOM CURSOR ADAPTER FOR FORMATTING FIX ---
-        // SimpleCursorAdapter cannot format data like adding '$' or combining columns.
-        // We must use a custom CursorAdapter to display Category and Amount correctly side-by-side.
-        // For simplicity (to stick with SimpleCursorAdapter), we will use an anonymous CursorAdapter
-        // and format the amount manually in a custom view binder.
-
-        String[] fromColumns = {DatabaseHelper.COL_EXP_CATEGORY, DatabaseHelper.COL_EXP_AMOUNT};
-        int[] toViews = {android.R.id.text1, android.R.id.text2};
-
-        SimpleCursorAdapter adapter = new SimpleCursorAdapter(
-                this,
-                android.R.layout.simple_list_item_2,
-                cursor,
-                fromColumns,
-                toViews,
-                0
-        );
-
-        // *** NEW: Custom View Binder to display Category and Amount/Date ***
-        adapter.setViewBinder(new SimpleCursorAdapter.ViewBinder() {
-            @Override
-            public boolean setViewValue(View view, Cursor cursor, int columnIndex) {
-                // columnIndex 0 is _id, 1 is COL_EXP_DATE, 2 is COL_EXP_AMOUNT, 3 is COL_EXP_CATEGORY
-                // We use getColumnIndexOrThrow for safer indexing.
-
-                int categoryIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_CATEGORY);
-                int amountIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_AMOUNT);
-                int dateIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_DATE);
-
-                if (view.getId() == android.R.id.text1) {
-                    // Line 1: Category
-                    TextView tv = (TextView) view;
-                    String category = cursor.getString(categoryIndex);
-                    String amount = String.format(Locale.US, "$%.2f", cursor.getDouble(amountIndex));
-                    tv.setText(category);
-
-                    // Note: We need a way to combine text or place the amount on the right.
-                    // Since simple_list_item_2 text1 is left-aligned, we can display: Category: $Amount
-                    // We will put Category on text1 and Date/Amount on text2 for readability.
-                    tv.setText(category);
-                    return true;
-                }
-
-                if (view.getId() == android.R.id.text2) {
-                    // Line 2: Amount | Date
-                    TextView tv = (TextView) view;
-                    String date = cursor.getString(dateIndex);
-                    String amount = String.format(Locale.US, "$%.2f", cursor.getDouble(amountIndex));
-
-                    // Display amount and date on the second line
-                    tv.setText(amount + " on " + date);
-                    return true;
-                }
-
-                return false;
-            }
-        });
+    private void cancelPendingLoads() {
+        prefetcher.stop(); // Frees the read thread for the foreground load
+        if (snapshotRequest != null) {
+            snapshotRequest.cancel();
+            snapshotRequest = null;
+        }
+    }
 
-        lvExpenses.setAdapter(adapter);
+    private void showMonth(MonthSnapshot snapshot, ScreenTrace trace) {
+        trace.beginSection("bind");
+        showExpenseList(snapshot.topExpenses);
+        trace.endSection();
+        trace.beginSection("chart");
+        showExpenseChart(snapshot);
+        trace.endSection();
+    }
+
+    // Updated to use getTopNExpenses (limit 5) and include amount and date
+    // The rows are an immutable page shared with the snapshot cache, so nothing needs closing
+    private void showExpenseList(ExpensePage topExpenses) {
+        lvExpenses.setAdapter(new TopExpensesAdapter(topExpenses, formats));
 
         // See More link visibility
-        if (cursor.getCount() > 0) {
+        if (topExpenses.size > 0) {
             tvSeeMore.setVisibility(View.VISIBLE);
         } else {
             tvSeeMore.setVisibility(View.GONE);
@@ -203,27 +249,61 @@ public class DashboardActivity extends AppCompatActivity {
         lvExpenses.setOnItemClickListener((parent, view, position, id) -> {
             Intent intent = new Intent(this, AddEditExpenseActivity.class);
             intent.putExtra("USER_ID", currentUserId);
-            intent.putExtra("EXPENSE_ID", id);
+            intent.putExtra("EXPENSE_ID", id); // getItemId() is the ExpID
             startActivity(intent);
         });
     }
 
+    // Line 1: Category, Line 2: "$Amount on Date"
+    // Package-private for TwoLineRowTest
+    static final class TopExpensesAdapter extends BaseAdapter {
+        private final ExpensePage page;
+        private final Formats formats;
+
+        TopExpensesAdapter(ExpensePage page, Formats formats) {
+            this.page = page;
+            this.formats = formats;
+        }
+
+        @Override
+        public int getCount() {
+            return page.size;
+        }
+
+        @Override
+        public Object getItem(int position) {
+            return page.ids[position];
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return page.ids[position];
+        }
+
+        @Override
+        public boolean hasStableIds() {
+            return true;
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            TwoLineRow row = TwoLineRow.of(convertView, parent);
+            row.setLine1(page.categories[position]);
+            row.setLine2(formats.appendCurrency(row.line(), page.amounts[position]).append(" on ").append(page.dates[position]));
+            return row.view;
+        }
+    }
+
     // Updated to accept monthYear filter and use PieChart logic
-    private void loadExpenseChart(String monthYear) {
-        Cursor cursor = dbHelper.getCategoryTotalsForMonth(currentUserId, monthYear);
-        List<PieEntry> entries = new ArrayList<>();
-        float totalAmount = 0f;
-
-        if (cursor.moveToFirst()) {
-            do {
-                String category = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_CATEGORY));
-                float amount = cursor.getFloat(cursor.getColumnIndexOrThrow("TotalAmount"));
-
-                entries.add(new PieEntry(amount, category));
-                totalAmount += amount;
-            } while (cursor.moveToNext());
+    // Called on the main thread with the month's totals already summed by MonthSnapshot
+    private void showExpenseChart(MonthSnapshot snapshot) {
+        List<PieEntry> entries = new ArrayList<>(snapshot.categories.length);
+        long totalAmount = snapshot.grandTotal; // Exact, in minor units
+
+        for (int i = 0; i < snapshot.categories.length; i++) {
+            // The chart only takes float; the total stays in integer cents
+            entries.add(new PieEntry(Money.toFloat(snapshot.categoryTotals[i]), snapshot.categories[i]));
         }
-        cursor.close();
 
         // 1. Setup the DataSet
         PieDataSet dataSet = new PieDataSet(entries, "Expense Categories");
@@ -250,7 +330,7 @@ public class DashboardActivity extends AppCompatActivity {
         expenseChart.setData(pieData);
         expenseChart.setUsePercentValues(true);
         expenseChart.getDescription().setEnabled(false);
-        expenseChart.setCenterText("Total:\n$" + String.format("%.2f", totalAmount));
+        expenseChart.setCenterText("Total:\n" + formats.currency(totalAmount));
         expenseChart.setCenterTextSize(18f);
         expenseChart.setDrawHoleEnabled(true);
         expenseChart.setHoleColor(Color.TRANSPARENT);
@@ -1,16 +1,23 @@
 package com.example.expensetracker;
 
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.sqlite.SQLiteConstraintException;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.CancellationSignal;
 import androidx.annotation.Nullable;
 
+import java.io.IOException;
+import java.io.Writer;
+
 public class DatabaseHelper extends SQLiteOpenHelper {
 
     private static final String DATABASE_NAME = "ExpenseTrackerDB";
-    private static final int DATABASE_VERSION = 1;
+    // Must match the toVersion of the last entry in DatabaseMigrations.ALL
+    private static final int DATABASE_VERSION = 11;
 
     // --- Users Table for Login/Signup ---
     public static final String TABLE_USERS = "users";
@@ -22,17 +29,144 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     public static final String TABLE_EXPENSES = "expenses";
     public static final String COL_EXP_ID = "ExpID";
     public static final String COL_EXP_USER_ID = "UserID";
-    public static final String COL_EXP_AMOUNT = "Amount";
+    public static final String COL_EXP_AMOUNT = "Amount"; // INTEGER minor units (cents), see Money
+    public static final String COL_EXP_CATEGORY_ID = "CategoryID"; // INTEGER, see TABLE_CATEGORIES; NULL for no category
+    // The category's name as reads return it, looked up from CategoryID. Before v9 this was the
+    // expenses column itself, and it is still the column name of the FTS index.
     public static final String COL_EXP_CATEGORY = "Category";
-    public static final String COL_EXP_DATE = "Date"; // Format: YYYY-MM-DD
+    public static final String COL_EXP_DATE = "Date"; // Format: YYYY-MM-DD, kept for display and export
+    public static final String COL_EXP_DAY = "DateDay"; // INTEGER epoch day of Date (see EpochDays); used by every range, sort and grouping
     public static final String COL_EXP_NOTE = "Note";
 
-    public DatabaseHelper(@Nullable Context context) {
+    // --- Categories (one row per category of each user, see DatabaseMigrations v9) ---
+    public static final String TABLE_CATEGORIES = "categories";
+    public static final String COL_CAT_ID = "CategoryID";
+    public static final String COL_CAT_USER_ID = "UserID";
+    public static final String COL_CAT_NAME = "Name"; // Unique per user
+
+    // --- Monthly Budgets (one limit per budgeted category of each user, see DatabaseMigrations v10) ---
+    public static final String TABLE_BUDGETS = "budgets";
+    public static final String COL_BUD_USER_ID = "UserID";
+    public static final String COL_BUD_CATEGORY_ID = "CategoryID";
+    public static final String COL_BUD_LIMIT = "LimitAmount"; // INTEGER minor units, per calendar month
+
+    // --- Monthly Category Rollup (maintained by triggers on expenses, see DatabaseMigrations v5) ---
+    public static final String TABLE_MONTHLY_TOTALS = "monthly_category_totals";
+    public static final String COL_MT_USER_ID = "UserID";
+    public static final String COL_MT_MONTH = "Month"; // Format: YYYY-MM
+    public static final String COL_MT_CATEGORY_ID = "CategoryID"; // DatabaseMigrations.NO_CATEGORY_ID for none
+    public static final String COL_MT_TOTAL = "Total"; // INTEGER minor units
+    public static final String COL_MT_COUNT = "Count";
+
+    // --- Full-text index over Category and Note (FTS4, docid = ExpID, see DatabaseMigrations v7) ---
+    public static final String TABLE_EXPENSES_FTS = "expenses_fts";
+    // Its content table: rowid (ExpID), Category (the name) and Note of every expense
+    public static final String VIEW_EXPENSES_TEXT = "expenses_text";
+
+    // --- Bulk Import Checkpoints (one row per file being imported) ---
+    public static final String TABLE_IMPORT_PROGRESS = "import_progress";
+    public static final String COL_IMP_SOURCE = "Source";
+    public static final String COL_IMP_USER_ID = "UserID";
+    public static final String COL_IMP_RECORDS = "RecordsConsumed";
+    public static final String COL_IMP_IMPORTED = "RowsImported";
+    public static final String COL_IMP_SKIPPED = "RowsSkipped";
+
+    // Half-open month filter on the raw DateDay column; binds DateRange.startDay then DateRange.endDay.
+    // Never wrap the column in a function here (e.g. strftime) or SQLite can no longer use an index.
+    private static final String MONTH_RANGE_CLAUSE = COL_EXP_DAY + " >= ? AND " + COL_EXP_DAY + " < ?";
+
+    // The rollup rows computed from expenses; mirrors the trigger bodies in DatabaseMigrations
+    private static final String ROLLUP_SOURCE = "SELECT " +
+            DatabaseMigrations.rollupSourceColumns(COL_EXP_CATEGORY_ID, DatabaseMigrations.NO_CATEGORY_ID) +
+            " FROM " + TABLE_EXPENSES + " WHERE " + DatabaseMigrations.rollupSourceFilter() + " GROUP BY 1, 2, 3";
+
+    // The category name of an expense (NULL for none) and of a rollup row ('' for none), as Category
+    private static final String EXPENSE_CATEGORY = categoryNameOf(TABLE_EXPENSES + "." + COL_EXP_CATEGORY_ID) +
+            " AS " + COL_EXP_CATEGORY;
+    private static final String ROLLUP_CATEGORY = "IFNULL(" + categoryNameOf(TABLE_MONTHLY_TOTALS + "." +
+            COL_MT_CATEGORY_ID) + ", '') AS " + COL_EXP_CATEGORY;
+
+    private static DatabaseHelper instance;
+
+    // Precompiled CRUD writes, compiled once against the shared connection and reused.
+    // Guarded by "this": a statement's bindings are not safe to share across threads.
+    private SQLiteStatement insertUserStatement;
+    private SQLiteStatement insertExpenseStatement;
+    private SQLiteStatement updateExpenseStatement;
+    private SQLiteStatement deleteExpenseStatement;
+    private SQLiteStatement expenseUserStatement;
+    private SQLiteStatement insertCategoryStatement;
+    private SQLiteStatement renameCategoryStatement;
+    private SQLiteStatement setBudgetStatement;
+    private SQLiteStatement removeBudgetStatement;
+
+    // The categories of the user who last wrote or read them; guarded by "this" like the statements.
+    // Dropped (null) whenever it may have drifted from the table, e.g. after a rolled-back import.
+    private CategoryDictionary categories;
+
+    // Latency and row counts of every query and write below; see QueryMetrics
+    private final QueryMetrics metrics = new QueryMetrics();
+    private final QueryMetrics.Op registerUserOp = metrics.op("registerUser");
+    private final QueryMetrics.Op checkUserOp = metrics.op("checkUser");
+    private final QueryMetrics.Op addExpenseOp = metrics.op("addExpense");
+    private final QueryMetrics.Op importBatchOp = metrics.op("insertImportBatch");
+    private final QueryMetrics.Op importProgressOp = metrics.op("getImportProgress");
+    private final QueryMetrics.Op clearImportProgressOp = metrics.op("clearImportProgress");
+    private final QueryMetrics.Op topNOp = metrics.op("getTopNExpenses");
+    private final QueryMetrics.Op categoryTotalsOp = metrics.op("getCategoryTotalsForMonth");
+    private final QueryMetrics.Op categorySummaryOp = metrics.op("getCategorySummary");
+    private final QueryMetrics.Op monthlyCategoryTotalsOp = metrics.op("getMonthlyCategoryTotals");
+    private final QueryMetrics.Op rebuildTotalsOp = metrics.op("rebuildMonthlyTotals");
+    private final QueryMetrics.Op verifyTotalsOp = metrics.op("verifyMonthlyTotals");
+    private final QueryMetrics.Op weekTotalsOp = metrics.op("getWeekTotals");
+    private final QueryMetrics.Op pageAscendingOp = metrics.op("getExpensesPageAscending");
+    private final QueryMetrics.Op undatedPageOp = metrics.op("getUndatedExpensesPage");
+    private final QueryMetrics.Op pageDescendingOp = metrics.op("getExpensesPageDescending");
+    private final QueryMetrics.Op ledgerColumnsOp = metrics.op("getLedgerColumnsPage");
+    private final QueryMetrics.Op expenseByIdOp = metrics.op("getExpenseById");
+    private final QueryMetrics.Op searchRankOp = metrics.op("searchExpenses.rank");
+    private final QueryMetrics.Op searchRowsOp = metrics.op("searchExpenses.rows");
+    private final QueryMetrics.Op updateExpenseOp = metrics.op("updateExpense");
+    private final QueryMetrics.Op deleteExpenseOp = metrics.op("deleteExpense");
+    private final QueryMetrics.Op categoriesOp = metrics.op("getCategories");
+    private final QueryMetrics.Op addCategoryOp = metrics.op("addCategory");
+    private final QueryMetrics.Op renameCategoryOp = metrics.op("renameCategory");
+    private final QueryMetrics.Op setBudgetOp = metrics.op("setBudget");
+    private final QueryMetrics.Op budgetStatusOp = metrics.op("getBudgetStatus");
+
+    /**
+     * The one app-wide helper. Every screen shares the same open connection instead of building
+     * its own helper and reopening the database file on each write.
+     */
+    public static synchronized DatabaseHelper getInstance(Context context) {
+        if (instance == null) {
+            instance = new DatabaseHelper(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    // Package-private for tests; app code must go through getInstance()
+    DatabaseHelper(@Nullable Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        // WAL lets readers (dashboard queries) run alongside a write instead of waiting on it
+        setWriteAheadLoggingEnabled(true);
     }
 
     @Override
     public void onCreate(SQLiteDatabase db) {
+        // Fresh installs go through the same migration chain as upgrades, so both end up identical
+        createBaseSchema(db);
+        DatabaseMigrations.migrate(db, DatabaseMigrations.BASE_VERSION, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Step through each version in order; never drop tables, users' data must survive upgrades
+        DatabaseMigrations.migrate(db, oldVersion, newVersion);
+    }
+
+    // Version 1 schema. Do not edit: later changes belong in DatabaseMigrations.
+    private static void createBaseSchema(SQLiteDatabase db) {
         // 1. Create Users Table
         String createUsersTable = "CREATE TABLE " + TABLE_USERS + " (" +
                 COL_USER_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
@@ -53,48 +187,158 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         db.execSQL(createExpensesTable);
     }
 
-    @Override
-    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_EXPENSES);
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_USERS);
-        onCreate(db);
-    }
-
     // --- USER MANAGEMENT (For Login/Signup) ---
 
-    public boolean registerUser(String username, String password) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues cv = new ContentValues();
-        cv.put(COL_USERNAME, username);
-        cv.put(COL_PASSWORD, password);
-
-        long result = db.insert(TABLE_USERS, null, cv);
-        db.close();
-        return result != -1;
+    public synchronized boolean registerUser(String username, String password) {
+        if (insertUserStatement == null) {
+            registerUserOp.lastSql = "INSERT INTO " + TABLE_USERS + " (" + COL_USERNAME + ", " + COL_PASSWORD + ") VALUES (?, ?)";
+            insertUserStatement = getWritableDatabase().compileStatement(registerUserOp.lastSql);
+        }
+        bindNullableString(insertUserStatement, 1, username);
+        bindNullableString(insertUserStatement, 2, password);
+        SQLiteDatabase db = getWritableDatabase();
+        long start = System.nanoTime();
+        boolean inserted = false;
+        // The user and their default categories appear together or not at all
+        db.beginTransactionNonExclusive();
+        try {
+            long userId = insertUserStatement.executeInsert();
+            if (userId != -1) {
+                for (String name : CategoryDictionary.DEFAULTS) {
+                    insertCategory(userId, name);
+                }
+                db.setTransactionSuccessful();
+                inserted = true;
+            }
+            return inserted;
+        } catch (SQLiteConstraintException e) {
+            return false; // Username already taken (UNIQUE)
+        } finally {
+            db.endTransaction();
+            insertUserStatement.clearBindings();
+            registerUserOp.record(start, inserted ? 1 : 0);
+        }
     }
 
     public Cursor checkUser(String username, String password) {
-        SQLiteDatabase db = this.getReadableDatabase();
-        return db.rawQuery("SELECT * FROM " + TABLE_USERS + " WHERE " +
+        return query(checkUserOp, "SELECT * FROM " + TABLE_USERS + " WHERE " +
                         COL_USERNAME + " = ? AND " + COL_PASSWORD + " = ?",
-                new String[]{username, password});
+                new String[]{username, password}, null);
     }
 
     // --- EXPENSE MANAGEMENT (CRUD) ---
 
     // Create: Add new expense
-    public boolean addExpense(long userId, double amount, String category, String date, String note) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues cv = new ContentValues();
-        cv.put(COL_EXP_USER_ID, userId);
-        cv.put(COL_EXP_AMOUNT, amount);
-        cv.put(COL_EXP_CATEGORY, category);
-        cv.put(COL_EXP_DATE, date);
-        cv.put(COL_EXP_NOTE, note);
+    // amountMinor is in cents (see Money.parse)
+    public synchronized boolean addExpense(long userId, long amountMinor, String category, String date, String note) {
+        return addExpenseReturningId(userId, amountMinor, category, date, note) != -1;
+    }
 
-        long result = db.insert(TABLE_EXPENSES, null, cv);
-        db.close();
-        return result != -1;
+    // Same as addExpense, for callers that track rows by ExpID (see LedgerColumns); -1 on failure
+    public synchronized long addExpenseReturningId(long userId, long amountMinor, String category, String date, String note) {
+        SQLiteDatabase db = getWritableDatabase();
+        long start = System.nanoTime();
+        long id = -1;
+        // A new category and the expense filed under it appear together or not at all
+        db.beginTransactionNonExclusive();
+        try {
+            id = insertExpense(userId, amountMinor, category, date, note);
+            if (id != -1) {
+                db.setTransactionSuccessful();
+            }
+            return id;
+        } finally {
+            db.endTransaction();
+            if (id == -1) {
+                categories = null; // May hold a category the rollback just removed
+            }
+            addExpenseOp.record(start, id != -1 ? 1 : 0);
+        }
+    }
+
+    // Caller holds the lock. Shared by addExpense and the bulk import batches. A category the user
+    // does not have yet is added to their categories.
+    private long insertExpense(long userId, long amountMinor, String category, String date, String note) {
+        if (insertExpenseStatement == null) {
+            addExpenseOp.lastSql = "INSERT INTO " + TABLE_EXPENSES + " (" + COL_EXP_USER_ID + ", " + COL_EXP_AMOUNT + ", " +
+                    COL_EXP_CATEGORY_ID + ", " + COL_EXP_DATE + ", " + COL_EXP_NOTE + ", " + COL_EXP_DAY +
+                    ") VALUES (?, ?, ?, ?, ?, ?)";
+            importBatchOp.lastSql = addExpenseOp.lastSql;
+            insertExpenseStatement = getWritableDatabase().compileStatement(addExpenseOp.lastSql);
+        }
+        insertExpenseStatement.bindLong(1, userId);
+        insertExpenseStatement.bindLong(2, amountMinor);
+        bindCategoryId(insertExpenseStatement, 3, userId, category);
+        bindNullableString(insertExpenseStatement, 4, date);
+        bindNullableString(insertExpenseStatement, 5, note);
+        bindEpochDay(insertExpenseStatement, 6, date);
+        try {
+            return insertExpenseStatement.executeInsert();
+        } finally {
+            insertExpenseStatement.clearBindings();
+        }
+    }
+
+    // --- BULK IMPORT ---
+
+    /**
+     * Inserts rows[0..count) and records how far into the source file we got, in one transaction.
+     * After a crash the import_progress row therefore always points at the last committed batch.
+     * @param sourceKey Identifies the file being imported (see CsvExpenseImporter).
+     * @param recordsConsumed Data records read from the file so far, including skipped ones.
+     */
+    public synchronized void insertImportBatch(long userId, CsvExpenseImporter.Row[] rows, int count,
+                                               String sourceKey, long recordsConsumed, long rowsImported, long rowsSkipped) {
+        SQLiteDatabase db = getWritableDatabase();
+        long start = System.nanoTime();
+        boolean committed = false;
+        db.beginTransactionNonExclusive();
+        try {
+            for (int i = 0; i < count; i++) {
+                CsvExpenseImporter.Row row = rows[i];
+                insertExpense(userId, row.amountMinor, row.category, row.date, row.note);
+            }
+            db.execSQL("INSERT OR REPLACE INTO " + TABLE_IMPORT_PROGRESS + " (" +
+                            COL_IMP_SOURCE + ", " + COL_IMP_USER_ID + ", " + COL_IMP_RECORDS + ", " +
+                            COL_IMP_IMPORTED + ", " + COL_IMP_SKIPPED + ") VALUES (?, ?, ?, ?, ?)",
+                    new Object[]{sourceKey, userId, recordsConsumed, rowsImported, rowsSkipped});
+            db.setTransactionSuccessful();
+            committed = true;
+        } finally {
+            db.endTransaction();
+            if (!committed) {
+                categories = null; // May hold categories the rollback just removed
+            }
+        }
+        importBatchOp.record(start, count);
+    }
+
+    /**
+     * Where a previous, interrupted import of sourceKey stopped.
+     * @return {recordsConsumed, rowsImported, rowsSkipped}, all zero if it never started.
+     */
+    public long[] getImportProgress(String sourceKey, long userId) {
+        Cursor cursor = query(importProgressOp, "SELECT " + COL_IMP_RECORDS + ", " + COL_IMP_IMPORTED + ", " +
+                        COL_IMP_SKIPPED + " FROM " + TABLE_IMPORT_PROGRESS +
+                        " WHERE " + COL_IMP_SOURCE + " = ? AND " + COL_IMP_USER_ID + " = ?",
+                new String[]{sourceKey, String.valueOf(userId)}, null);
+        try {
+            if (cursor.moveToFirst()) {
+                return new long[]{cursor.getLong(0), cursor.getLong(1), cursor.getLong(2)};
+            }
+            return new long[3];
+        } finally {
+            cursor.close();
+        }
+    }
+
+    // Called once a file has been fully imported, so importing it again starts from the top
+    public void clearImportProgress(String sourceKey, long userId) {
+        String sql = "DELETE FROM " + TABLE_IMPORT_PROGRESS +
+                " WHERE " + COL_IMP_SOURCE + " = ? AND " + COL_IMP_USER_ID + " = ?";
+        long start = System.nanoTime();
+        getWritableDatabase().execSQL(sql, new Object[]{sourceKey, userId});
+        clearImportProgressOp.record(sql, start, 1);
     }
 
     /**
@@ -105,113 +349,645 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * @param limit Maximum number of records to return.
      */
     public Cursor getTopNExpenses(long userId, @Nullable String monthYear, int limit) {
-        SQLiteDatabase db = this.getReadableDatabase();
+        return getTopNExpenses(userId, monthYear, limit, null);
+    }
 
+    // Same as above; cancelling the signal aborts the query (used by ExpenseRepository)
+    public Cursor getTopNExpenses(long userId, @Nullable String monthYear, int limit, @Nullable CancellationSignal signal) {
         String selectionClause = COL_EXP_USER_ID + " = ?";
         String[] selectionArgs;
 
         if (monthYear != null) {
-            selectionClause += " AND strftime('%Y-%m', " + COL_EXP_DATE + ") = ?";
-            selectionArgs = new String[]{String.valueOf(userId), monthYear};
+            DateRange range = DateRange.forMonth(monthYear);
+            selectionClause += " AND " + MONTH_RANGE_CLAUSE;
+            selectionArgs = new String[]{String.valueOf(userId), String.valueOf(range.startDay), String.valueOf(range.endDay)};
         } else {
             selectionArgs = new String[]{String.valueOf(userId)};
         }
 
         // CRASH FIX: We must alias the primary key (ExpID) as _id for SimpleCursorAdapter to work.
         // We also explicitly select the Date column here.
-        String query = "SELECT " + COL_EXP_ID + " AS _id, " + COL_EXP_DATE + ", " + COL_EXP_AMOUNT + ", " + COL_EXP_CATEGORY +
+        String query = "SELECT " + COL_EXP_ID + " AS _id, " + COL_EXP_DATE + ", " + COL_EXP_DAY + ", " + COL_EXP_AMOUNT + ", " + EXPENSE_CATEGORY +
                 " FROM " + TABLE_EXPENSES +
                 " WHERE " + selectionClause +
-                " ORDER BY " + COL_EXP_DATE + " DESC LIMIT " + limit; // LIMIT clause added
+                " ORDER BY " + COL_EXP_DAY + " DESC LIMIT " + limit; // LIMIT clause added
 
-        return db.rawQuery(query, selectionArgs);
+        return query(topNOp, query, selectionArgs, signal);
     }
 
     // Original getExpensesForUser is no longer used, replaced by getTopNExpenses in Dashboard and new methods for details.
 
     /**
      * Read: Get aggregated expense totals by Category for the Pie Chart.
+     * TotalAmount is an exact INTEGER sum in minor units; read it with getLong().
      * @param userId The ID of the current user.
      * @param monthYear YYYY-MM format (e.g., '2025-10').
      */
     public Cursor getCategoryTotalsForMonth(long userId, String monthYear) {
-        SQLiteDatabase db = this.getReadableDatabase();
+        return getCategoryTotalsForMonth(userId, monthYear, null);
+    }
 
-        // Query: SELECT Category, SUM(Amount) FROM expenses WHERE UserID = ? AND Date (is in monthYear) GROUP BY Category
-        String query = "SELECT " + COL_EXP_CATEGORY + ", SUM(" + COL_EXP_AMOUNT + ") AS TotalAmount " +
-                " FROM " + TABLE_EXPENSES +
-                " WHERE " + COL_EXP_USER_ID + " = ? AND strftime('%Y-%m', " + COL_EXP_DATE + ") = ?" +
-                " GROUP BY " + COL_EXP_CATEGORY;
+    public Cursor getCategoryTotalsForMonth(long userId, String monthYear, @Nullable CancellationSignal signal) {
+        // Read the pre-aggregated rollup: one row per category, no matter how many expenses
+        String query = "SELECT " + ROLLUP_CATEGORY + ", " + COL_MT_TOTAL + " AS TotalAmount " +
+                " FROM " + TABLE_MONTHLY_TOTALS +
+                " WHERE " + COL_MT_USER_ID + " = ? AND " + COL_MT_MONTH + " = ?" +
+                " ORDER BY " + COL_EXP_CATEGORY;
 
-        return db.rawQuery(query, new String[]{String.valueOf(userId), monthYear});
+        return query(categoryTotalsOp, query, new String[]{String.valueOf(userId), monthKey(monthYear)}, signal);
     }
 
     /**
      * NEW: Get Aggregated Category Summary for the Detail Page Table
+     * TotalAmount is an exact INTEGER sum in minor units; read it with getLong().
      * @param userId The ID of the current user.
      * @param monthYear YYYY-MM format (e.g., '2025-10').
      */
     public Cursor getCategorySummary(long userId, String monthYear) {
-        SQLiteDatabase db = this.getReadableDatabase();
-        // NOTE: We alias the category name as _id as well, to make it work with a CursorAdapter (if needed)
-        String query = "SELECT " + COL_EXP_CATEGORY + " AS _id, " + COL_EXP_CATEGORY + ", SUM(" + COL_EXP_AMOUNT + ") AS TotalAmount " +
-                " FROM " + TABLE_EXPENSES +
-                " WHERE " + COL_EXP_USER_ID + " = ? AND strftime('%Y-%m', " + COL_EXP_DATE + ") = ?" +
-                " GROUP BY " + COL_EXP_CATEGORY +
+        return getCategorySummary(userId, monthYear, null);
+    }
+
+    public Cursor getCategorySummary(long userId, String monthYear, @Nullable CancellationSignal signal) {
+        // NOTE: We alias the CategoryID as _id, to make it work with a CursorAdapter (if needed)
+        String query = "SELECT " + COL_MT_CATEGORY_ID + " AS _id, " + ROLLUP_CATEGORY + ", " +
+                COL_MT_TOTAL + " AS TotalAmount " +
+                " FROM " + TABLE_MONTHLY_TOTALS +
+                " WHERE " + COL_MT_USER_ID + " = ? AND " + COL_MT_MONTH + " = ?" +
                 " ORDER BY TotalAmount DESC";
 
-        return db.rawQuery(query, new String[]{String.valueOf(userId), monthYear});
+        return query(categorySummaryOp, query, new String[]{String.valueOf(userId), monthKey(monthYear)}, signal);
     }
 
     /**
-     * NEW: Get Expenses for a specific week range (used for weekly breakdown)
-     * @param userId The ID of the current user.
-     * @param weekStart Date (YYYY-MM-DD)
-     * @param weekEnd Date (YYYY-MM-DD)
+     * Read: Every category total of months [fromMonth, toMonth) (YYYY-MM keys), in one range scan
+     * of the rollup's primary key. Rows: Month, Category, TotalAmount (minor units), ordered by
+     * Month then CategoryID, which is index order, so no sort step. Months without expenses are absent.
+     */
+    public Cursor getMonthlyCategoryTotals(long userId, String fromMonth, String toMonth,
+                                           @Nullable CancellationSignal signal) {
+        String query = "SELECT " + COL_MT_MONTH + ", " + ROLLUP_CATEGORY + ", " +
+                COL_MT_TOTAL + " AS TotalAmount " +
+                " FROM " + TABLE_MONTHLY_TOTALS +
+                " WHERE " + COL_MT_USER_ID + " = ? AND " + COL_MT_MONTH + " >= ? AND " + COL_MT_MONTH + " < ?" +
+                " ORDER BY " + COL_MT_MONTH + ", " + COL_MT_CATEGORY_ID;
+
+        return query(monthlyCategoryTotalsOp, query,
+                new String[]{String.valueOf(userId), monthKey(fromMonth), monthKey(toMonth)}, signal);
+    }
+
+    // Name of the category whose id is in categoryId (a qualified column); one primary key seek per row
+    private static String categoryNameOf(String categoryId) {
+        return "(SELECT " + COL_CAT_NAME + " FROM " + TABLE_CATEGORIES +
+                " WHERE " + TABLE_CATEGORIES + "." + COL_CAT_ID + " = " + categoryId + ")";
+    }
+
+    // Validates a YYYY-MM key the same way the range queries do
+    private static String monthKey(String monthYear) {
+        DateRange.forMonth(monthYear);
+        return monthYear;
+    }
+
+    // --- MONTHLY ROLLUP MAINTENANCE ---
+
+    /**
+     * Recomputes monthly_category_totals from the raw expenses. The triggers keep it exact, so this
+     * is only for migrations and for repairing a rollup that verifyMonthlyTotals() found out of sync.
+     */
+    public void rebuildMonthlyTotals() {
+        SQLiteDatabase db = getWritableDatabase();
+        long start = System.nanoTime();
+        db.beginTransaction();
+        try {
+            DatabaseMigrations.rebuildMonthlyTotals(db, COL_EXP_CATEGORY_ID, DatabaseMigrations.NO_CATEGORY_ID);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        rebuildTotalsOp.record(ROLLUP_SOURCE, start, 0);
+    }
+
+    /** True if every rollup bucket matches a fresh GROUP BY over expenses (both directions). */
+    public boolean verifyMonthlyTotals() {
+        String rollup = "SELECT " + COL_MT_USER_ID + ", " + COL_MT_MONTH + ", " + COL_MT_CATEGORY_ID + ", " +
+                COL_MT_TOTAL + ", " + COL_MT_COUNT + " FROM " + TABLE_MONTHLY_TOTALS;
+        String fresh = ROLLUP_SOURCE;
+
+        Cursor cursor = query(verifyTotalsOp,
+                "SELECT (SELECT COUNT(*) FROM (" + fresh + " EXCEPT " + rollup + "))" +
+                        " + (SELECT COUNT(*) FROM (" + rollup + " EXCEPT " + fresh + "))", null, null);
+        try {
+            return cursor.moveToFirst() && cursor.getLong(0) == 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+
+    /**
+     * Read: Total and number of expenses in every week of a month, in one pass over the month's
+     * rows (one index range scan). Rows: Week (bucket index, see WeekBuckets), TotalAmount (minor
+     * units) and ExpenseCount; weeks without expenses are absent.
      */
-    public Cursor getExpensesForWeek(long userId, String weekStart, String weekEnd) {
-        SQLiteDatabase db = this.getReadableDatabase();
+    public Cursor getWeekTotals(long userId, WeekBuckets weeks, @Nullable CancellationSignal signal) {
+        DateRange range = DateRange.forMonth(weeks.monthYear);
 
-        String query = "SELECT " + COL_EXP_ID + " AS _id, " + COL_EXP_DATE + ", " + COL_EXP_AMOUNT + ", " + COL_EXP_CATEGORY + ", " + COL_EXP_NOTE +
+        // Same bucket formula as WeekBuckets.weekOf(), in integer day arithmetic on DateDay
+        String query = "SELECT (" + COL_EXP_DAY + " - " + weeks.firstEpochDay + " + " + weeks.firstDayOfWeek + ") / 7 AS Week, " +
+                "SUM(" + COL_EXP_AMOUNT + ") AS TotalAmount, COUNT(*) AS ExpenseCount" +
                 " FROM " + TABLE_EXPENSES +
-                " WHERE " + COL_EXP_USER_ID + " = ? " +
-                " AND " + COL_EXP_DATE + " BETWEEN ? AND ?" +
-                " ORDER BY " + COL_EXP_DATE + " DESC";
+                " WHERE " + COL_EXP_USER_ID + " = ? AND " + MONTH_RANGE_CLAUSE +
+                " GROUP BY Week";
 
-        return db.rawQuery(query, new String[]{String.valueOf(userId), weekStart, weekEnd});
+        return query(weekTotalsOp, query,
+                new String[]{String.valueOf(userId), String.valueOf(range.startDay), String.valueOf(range.endDay)}, signal);
     }
 
+    /**
+     * Read: One keyset page of a user's ledger in ascending (DateDay, ExpID) order, for streaming
+     * exports. Pass the DateDay/ExpID of the last row of the previous page (afterId 0 for the first
+     * page); unlike OFFSET, each page costs the same no matter how deep into the ledger it is.
+     * Rows whose Date is not a valid YYYY-MM-DD (NULL DateDay) have no place in the order and are
+     * skipped; getUndatedExpensesPage() reads those.
+     * @param fromDate Inclusive YYYY-MM-DD lower bound, or null.
+     * @param toDate Exclusive YYYY-MM-DD upper bound, or null.
+     */
+    public Cursor getExpensesPageAscending(long userId, @Nullable String fromDate, @Nullable String toDate,
+                                           long afterDay, long afterId, int pageSize,
+                                           @Nullable CancellationSignal signal) {
+        // The lowest day this page can start on; the key only ever raises it
+        long lowDay = fromDate != null ? EpochDays.parse(fromDate) : Long.MIN_VALUE;
+        if (afterId > 0) {
+            lowDay = Math.max(lowDay, afterDay);
+        }
+
+        StringBuilder where = new StringBuilder(COL_EXP_USER_ID + " = ? AND " + COL_EXP_DAY + " >= ?");
+        String[] args = new String[5];
+        int argCount = 0;
+        args[argCount++] = String.valueOf(userId);
+        args[argCount++] = String.valueOf(lowDay);
+        if (toDate != null) {
+            where.append(" AND " + COL_EXP_DAY + " < ?");
+            args[argCount++] = String.valueOf(EpochDays.parse(toDate));
+        }
+        if (afterId > 0) {
+            // (DateDay, ExpID) > (afterDay, afterId); the "DateDay >= ?" above seeks the index.
+            // Row-value comparisons would be neater but need SQLite 3.15 (API 26).
+            where.append(" AND (" + COL_EXP_DAY + " > ? OR " + COL_EXP_ID + " > ?)");
+            args[argCount++] = String.valueOf(afterDay);
+            args[argCount++] = String.valueOf(afterId);
+        }
+        String[] selectionArgs = new String[argCount];
+        System.arraycopy(args, 0, selectionArgs, 0, argCount);
+
+        String query = "SELECT " + COL_EXP_ID + " AS _id, " + COL_EXP_DATE + ", " + COL_EXP_DAY + ", " + COL_EXP_AMOUNT + ", " +
+                EXPENSE_CATEGORY + ", " + COL_EXP_NOTE +
+                " FROM " + TABLE_EXPENSES +
+                " WHERE " + where +
+                " ORDER BY " + COL_EXP_DAY + ", " + COL_EXP_ID +
+                " LIMIT " + pageSize;
+
+        return query(pageAscendingOp, query, selectionArgs, signal);
+    }
+
+    /**
+     * Read: One keyset page of the user's rows with no DateDay (a Date that is not a valid
+     * YYYY-MM-DD, from before input was validated), in ExpID order, with the same columns as
+     * getExpensesPageAscending. (UserID, DateDay) indexes NULL too, so this seeks rather than scans.
+     */
+    public Cursor getUndatedExpensesPage(long userId, long afterId, int pageSize, @Nullable CancellationSignal signal) {
+        String query = "SELECT " + COL_EXP_ID + " AS _id, " + COL_EXP_DATE + ", " + COL_EXP_DAY + ", " + COL_EXP_AMOUNT + ", " +
+                EXPENSE_CATEGORY + ", " + COL_EXP_NOTE +
+                " FROM " + TABLE_EXPENSES +
+                " WHERE " + COL_EXP_USER_ID + " = ? AND " + COL_EXP_DAY + " IS NULL AND " + COL_EXP_ID + " > ?" +
+                " ORDER BY " + COL_EXP_ID +
+                " LIMIT " + pageSize;
+
+        return query(undatedPageOp, query, new String[]{String.valueOf(userId), String.valueOf(afterId)}, signal);
+    }
+
+    /**
+     * Read: One keyset page of a week's expenses, newest first by (DateDay, ExpID), for the paged
+     * weekly list. Pass the DateDay/ExpID of the last row of the previous page (beforeId 0 for the first).
+     * @param weekStart Date (YYYY-MM-DD), inclusive
+     * @param weekEnd Date (YYYY-MM-DD), inclusive
+     */
+    public Cursor getExpensesPageDescending(long userId, String weekStart, String weekEnd,
+                                            long beforeDay, long beforeId, int pageSize,
+                                            @Nullable CancellationSignal signal) {
+        String query = "SELECT " + COL_EXP_ID + " AS _id, " + COL_EXP_DATE + ", " + COL_EXP_DAY + ", " + COL_EXP_AMOUNT + ", " +
+                EXPENSE_CATEGORY + ", " + COL_EXP_NOTE +
+                " FROM " + TABLE_EXPENSES +
+                " WHERE " + COL_EXP_USER_ID + " = ? " +
+                " AND " + COL_EXP_DAY + " >= ? AND " + COL_EXP_DAY + " <= ?" +
+                (beforeId > 0
+                        // (DateDay, ExpID) < (beforeDay, beforeId), see getExpensesPageAscending
+                        ? " AND (" + COL_EXP_DAY + " < ? OR " + COL_EXP_ID + " < ?)"
+                        : "") +
+                " ORDER BY " + COL_EXP_DAY + " DESC, " + COL_EXP_ID + " DESC" +
+                " LIMIT " + pageSize;
+
+        // With a key, the upper bound tightens to beforeDay so the index seek starts there
+        String startDay = String.valueOf(EpochDays.parse(weekStart));
+        String[] args = beforeId > 0
+                ? new String[]{String.valueOf(userId), startDay, String.valueOf(beforeDay),
+                        String.valueOf(beforeDay), String.valueOf(beforeId)}
+                : new String[]{String.valueOf(userId), startDay, String.valueOf(EpochDays.parse(weekEnd))};
+        return query(pageDescendingOp, query, args, signal);
+    }
+
+    /**
+     * Read: One keyset page of the four columns LedgerColumns keeps: _id (ExpID), DateDay, Amount
+     * and Category (NULL read as '', like the rollup), ascending by (DateDay, ExpID). Paging works
+     * as in getExpensesPageAscending, and rows with a NULL DateDay are skipped the same way.
+     */
+    public Cursor getLedgerColumnsPage(long userId, long afterDay, long afterId, int pageSize,
+                                       @Nullable CancellationSignal signal) {
+        String query = "SELECT " + COL_EXP_ID + " AS _id, " + COL_EXP_DAY + ", " + COL_EXP_AMOUNT + ", " +
+                "IFNULL(" + categoryNameOf(TABLE_EXPENSES + "." + COL_EXP_CATEGORY_ID) + ", '') AS " + COL_EXP_CATEGORY +
+                " FROM " + TABLE_EXPENSES +
+                " WHERE " + COL_EXP_USER_ID + " = ? AND " + COL_EXP_DAY + " >= ?" +
+                (afterId > 0 ? " AND (" + COL_EXP_DAY + " > ? OR " + COL_EXP_ID + " > ?)" : "") +
+                " ORDER BY " + COL_EXP_DAY + ", " + COL_EXP_ID +
+                " LIMIT " + pageSize;
+
+        String[] args = afterId > 0
+                ? new String[]{String.valueOf(userId), String.valueOf(afterDay), String.valueOf(afterDay), String.valueOf(afterId)}
+                : new String[]{String.valueOf(userId), String.valueOf(Long.MIN_VALUE)};
+        return query(ledgerColumnsOp, query, args, signal);
+    }
 
     // Read: Get an expense by its ID
     public Cursor getExpenseById(long expenseId) {
-        SQLiteDatabase db = this.getReadableDatabase();
         // Include the _id alias here for consistency
-        String query = "SELECT " + COL_EXP_ID + " AS _id, * " +
+        String query = "SELECT " + COL_EXP_ID + " AS _id, *, " + EXPENSE_CATEGORY +
                 " FROM " + TABLE_EXPENSES +
                 " WHERE " + COL_EXP_ID + " = ?";
-        return db.rawQuery(query, new String[]{String.valueOf(expenseId)});
+        return query(expenseByIdOp, query, new String[]{String.valueOf(expenseId)}, null);
     }
 
-    // Update: Modify an existing expense
-    public boolean updateExpense(long expenseId, double amount, String category, String date, String note) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues cv = new ContentValues();
-        cv.put(COL_EXP_AMOUNT, amount);
-        cv.put(COL_EXP_CATEGORY, category);
-        cv.put(COL_EXP_DATE, date);
-        cv.put(COL_EXP_NOTE, note);
+    /**
+     * Read: Full-text search over the user's expense categories and notes, best match first.
+     * Every word of the query must match the start of a word in the row ("ub" finds "Uber").
+     * Ties (e.g. the same note on many rows) are broken newest first.
+     * @param query Free text as typed by the user; see ExpenseSearch.toMatchQuery().
+     * @param offset Number of ranked results to skip (page * limit).
+     * @param limit Maximum number of results in this page, at most ExpenseSearch.MAX_PAGE_SIZE.
+     */
+    public ExpenseSearch.Results searchExpenses(long userId, String query, int offset, int limit,
+                                                @Nullable CancellationSignal signal) {
+        String match = ExpenseSearch.toMatchQuery(query);
+        if (match == null) {
+            return ExpenseSearch.Results.EMPTY;
+        }
 
-        int result = db.update(TABLE_EXPENSES, cv, COL_EXP_ID + "=?", new String[]{String.valueOf(expenseId)});
-        db.close();
-        return result > 0;
+        // 1. Rank every match of this user. The FTS lookup only touches matching rows, unlike
+        //    LIKE '%x%', which has to read every note in the table. CROSS JOIN pins the FTS table
+        //    as the outer loop; left to itself the planner walks the user's rows and re-runs the
+        //    MATCH once per row, which is slower than the LIKE scan.
+        String rankQuery = "SELECT e." + COL_EXP_ID + ", e." + COL_EXP_DATE + ", matchinfo(" + TABLE_EXPENSES_FTS +
+                ", '" + ExpenseSearch.MATCHINFO_FORMAT + "')" +
+                " FROM " + TABLE_EXPENSES_FTS + " CROSS JOIN " + TABLE_EXPENSES + " e ON e." + COL_EXP_ID + " = " +
+                TABLE_EXPENSES_FTS + ".docid" +
+                " WHERE " + TABLE_EXPENSES_FTS + " MATCH ? AND e." + COL_EXP_USER_ID + " = ?";
+        long[] ids;
+        String[] dates;
+        double[] scores;
+        Cursor hits = query(searchRankOp, rankQuery, new String[]{match, String.valueOf(userId)}, signal);
+        try {
+            int count = hits.getCount();
+            ids = new long[count];
+            dates = new String[count];
+            scores = new double[count];
+            for (int i = 0; hits.moveToNext(); i++) {
+                ids[i] = hits.getLong(0);
+                dates[i] = hits.getString(1);
+                scores[i] = ExpenseSearch.score(hits.getBlob(2));
+            }
+        } finally {
+            hits.close();
+        }
+
+        // Only the hits up to the end of this page need ordering
+        int from = Math.min(Math.max(offset, 0), ids.length);
+        int to = Math.min(from + Math.max(Math.min(limit, ExpenseSearch.MAX_PAGE_SIZE), 0), ids.length);
+        int[] order = ExpenseSearch.topRanked(scores, dates, ids, to);
+        ExpenseSearch.Results results = new ExpenseSearch.Results(to - from, ids.length);
+        if (results.size == 0) {
+            return results;
+        }
+
+        // 2. Fetch only this page's rows by primary key and place them in rank order
+        StringBuilder in = new StringBuilder(results.size * 8);
+        String[] args = new String[results.size];
+        for (int i = 0; i < results.size; i++) {
+            in.append(i == 0 ? "?" : ",?");
+            args[i] = String.valueOf(ids[order[from + i]]);
+            results.ids[i] = ids[order[from + i]];
+        }
+        Cursor rows = query(searchRowsOp, "SELECT " + COL_EXP_ID + ", " + COL_EXP_DATE + ", " + COL_EXP_AMOUNT + ", " +
+                EXPENSE_CATEGORY + ", " + COL_EXP_NOTE + " FROM " + TABLE_EXPENSES +
+                " WHERE " + COL_EXP_ID + " IN (" + in + ")", args, signal);
+        try {
+            while (rows.moveToNext()) {
+                long id = rows.getLong(0);
+                for (int i = 0; i < results.size; i++) {
+                    if (results.ids[i] == id) {
+                        results.dates[i] = rows.getString(1);
+                        results.amounts[i] = rows.getLong(2);
+                        results.categories[i] = rows.isNull(3) ? "" : rows.getString(3);
+                        results.notes[i] = rows.getString(4);
+                        break;
+                    }
+                }
+            }
+        } finally {
+            rows.close();
+        }
+        return results;
+    }
+
+    // Update: Modify an existing expense
+    public synchronized boolean updateExpense(long expenseId, long amountMinor, String category, String date, String note) {
+        long start = System.nanoTime();
+        if (updateExpenseStatement == null) {
+            updateExpenseOp.lastSql = "UPDATE " + TABLE_EXPENSES + " SET " + COL_EXP_AMOUNT + " = ?, " + COL_EXP_CATEGORY_ID + " = ?, " +
+                    COL_EXP_DATE + " = ?, " + COL_EXP_NOTE + " = ?, " + COL_EXP_DAY + " = ? WHERE " + COL_EXP_ID + " = ?";
+            updateExpenseStatement = getWritableDatabase().compileStatement(updateExpenseOp.lastSql);
+            expenseUserStatement = getWritableDatabase().compileStatement("SELECT " + COL_EXP_USER_ID +
+                    " FROM " + TABLE_EXPENSES + " WHERE " + COL_EXP_ID + " = ?");
+        }
+        SQLiteDatabase db = getWritableDatabase();
+        int updated = 0;
+        // A new category and the expense moved into it appear together or not at all
+        db.beginTransactionNonExclusive();
+        try {
+            // Category names are per user, so find whose expense this is first
+            long userId;
+            expenseUserStatement.bindLong(1, expenseId);
+            try {
+                userId = expenseUserStatement.simpleQueryForLong();
+            } catch (SQLiteDoneException e) {
+                return false; // No such expense
+            } finally {
+                expenseUserStatement.clearBindings();
+            }
+            updateExpenseStatement.bindLong(1, amountMinor);
+            bindCategoryId(updateExpenseStatement, 2, userId, category);
+            bindNullableString(updateExpenseStatement, 3, date);
+            bindNullableString(updateExpenseStatement, 4, note);
+            bindEpochDay(updateExpenseStatement, 5, date);
+            updateExpenseStatement.bindLong(6, expenseId);
+            try {
+                updated = updateExpenseStatement.executeUpdateDelete();
+            } finally {
+                updateExpenseStatement.clearBindings();
+            }
+            if (updated > 0) {
+                db.setTransactionSuccessful();
+            }
+            return updated > 0;
+        } finally {
+            db.endTransaction();
+            if (updated == 0) {
+                categories = null; // May hold a category the rollback just removed
+            }
+            updateExpenseOp.record(start, updated);
+        }
     }
 
     // Delete: Remove an expense
-    public boolean deleteExpense(long expenseId) {
-        SQLiteDatabase db = this.getWritableDatabase();
+    public synchronized boolean deleteExpense(long expenseId) {
+        if (deleteExpenseStatement == null) {
+            deleteExpenseOp.lastSql = "DELETE FROM " + TABLE_EXPENSES + " WHERE " + COL_EXP_ID + " = ?";
+            deleteExpenseStatement = getWritableDatabase().compileStatement(deleteExpenseOp.lastSql);
+        }
+        deleteExpenseStatement.bindLong(1, expenseId);
+        long start = System.nanoTime();
+        int deleted = 0;
+        try {
+            deleted = deleteExpenseStatement.executeUpdateDelete();
+            return deleted > 0;
+        } finally {
+            deleteExpenseStatement.clearBindings();
+            deleteExpenseOp.record(start, deleted);
+        }
+    }
+
+    // --- CATEGORIES ---
+
+    /** The user's categories; cached, so repeated calls cost no query. */
+    public synchronized CategoryDictionary getCategories(long userId) {
+        if (categories == null || categories.userId != userId) {
+            Cursor cursor = query(categoriesOp, "SELECT " + COL_CAT_ID + ", " + COL_CAT_NAME +
+                    " FROM " + TABLE_CATEGORIES + " WHERE " + COL_CAT_USER_ID + " = ?",
+                    new String[]{String.valueOf(userId)}, null);
+            categories = CategoryDictionary.from(userId, cursor);
+        }
+        return categories;
+    }
+
+    /**
+     * Adds a category to the user's list, or finds the one already named so.
+     * @return Its CategoryID.
+     */
+    public synchronized long addCategory(long userId, String name) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("Category name is empty");
+        }
+        long start = System.nanoTime();
+        int before = getCategories(userId).size();
+        long id = categoryIdFor(userId, name);
+        addCategoryOp.record(start, getCategories(userId).size() - before);
+        return id;
+    }
+
+    /**
+     * Renames one of the user's categories. Only the categories row changes: every expense
+     * and rollup bucket refers to it by CategoryID. The search index re-tokenizes the
+     * category's expenses through triggers (see DatabaseMigrations.createSearchIndex).
+     * @return false if there is no such category or the user already has one named newName.
+     */
+    public synchronized boolean renameCategory(long userId, long categoryId, String newName) {
+        if (newName == null || newName.isEmpty()) {
+            throw new IllegalArgumentException("Category name is empty");
+        }
+        if (renameCategoryStatement == null) {
+            renameCategoryOp.lastSql = "UPDATE " + TABLE_CATEGORIES + " SET " + COL_CAT_NAME + " = ?" +
+                    " WHERE " + COL_CAT_ID + " = ? AND " + COL_CAT_USER_ID + " = ?";
+            renameCategoryStatement = getWritableDatabase().compileStatement(renameCategoryOp.lastSql);
+        }
+        renameCategoryStatement.bindString(1, newName);
+        renameCategoryStatement.bindLong(2, categoryId);
+        renameCategoryStatement.bindLong(3, userId);
+        long start = System.nanoTime();
+        int renamed = 0;
+        try {
+            renamed = renameCategoryStatement.executeUpdateDelete();
+        } catch (SQLiteConstraintException e) {
+            return false; // Name already taken (UNIQUE)
+        } finally {
+            renameCategoryStatement.clearBindings();
+            renameCategoryOp.record(start, renamed);
+        }
+        if (renamed > 0 && categories != null && categories.userId == userId) {
+            categories = categories.with(categoryId, newName);
+        }
+        return renamed > 0;
+    }
 
-        int result = db.delete(TABLE_EXPENSES, COL_EXP_ID + "=?", new String[]{String.valueOf(expenseId)});
-        db.close();
-        return result > 0;
+    // Caller holds the lock. CategoryID of name for userId, adding the category if it is new.
+    private long categoryIdFor(long userId, String name) {
+        CategoryDictionary known = getCategories(userId);
+        long id = known.idOf(name);
+        if (id != 0) {
+            return id;
+        }
+        id = insertCategory(userId, name);
+        if (id != -1) {
+            categories = known.with(id, name);
+            return id;
+        }
+        // Ignored: another connection or a raw write added it behind the cache's back
+        categories = null;
+        return getCategories(userId).idOf(name);
+    }
+
+    // Caller holds the lock. The new CategoryID, or -1 if the user already has name.
+    private long insertCategory(long userId, String name) {
+        if (insertCategoryStatement == null) {
+            addCategoryOp.lastSql = "INSERT OR IGNORE INTO " + TABLE_CATEGORIES + " (" + COL_CAT_USER_ID + ", " +
+                    COL_CAT_NAME + ") VALUES (?, ?)";
+            insertCategoryStatement = getWritableDatabase().compileStatement(addCategoryOp.lastSql);
+        }
+        insertCategoryStatement.bindLong(1, userId);
+        insertCategoryStatement.bindString(2, name);
+        try {
+            return insertCategoryStatement.executeInsert();
+        } finally {
+            insertCategoryStatement.clearBindings();
+        }
+    }
+
+    // --- BUDGETS ---
+
+    /**
+     * Sets the monthly limit of one of the user's categories; a limit of 0 or less removes it.
+     * @return false if removing a budget the category did not have.
+     */
+    public synchronized boolean setBudget(long userId, long categoryId, long limitMinor) {
+        SQLiteStatement statement;
+        if (limitMinor > 0) {
+            if (setBudgetStatement == null) {
+                setBudgetOp.lastSql = "INSERT OR REPLACE INTO " + TABLE_BUDGETS + " (" + COL_BUD_USER_ID + ", " +
+                        COL_BUD_CATEGORY_ID + ", " + COL_BUD_LIMIT + ") VALUES (?, ?, ?)";
+                setBudgetStatement = getWritableDatabase().compileStatement(setBudgetOp.lastSql);
+            }
+            statement = setBudgetStatement;
+            statement.bindLong(3, limitMinor);
+        } else {
+            if (removeBudgetStatement == null) {
+                removeBudgetStatement = getWritableDatabase().compileStatement("DELETE FROM " + TABLE_BUDGETS +
+                        " WHERE " + COL_BUD_USER_ID + " = ? AND " + COL_BUD_CATEGORY_ID + " = ?");
+            }
+            statement = removeBudgetStatement;
+        }
+        statement.bindLong(1, userId);
+        statement.bindLong(2, categoryId);
+        long start = System.nanoTime();
+        int changed = 0;
+        try {
+            changed = limitMinor > 0 ? (statement.executeInsert() != -1 ? 1 : 0) : statement.executeUpdateDelete();
+            return changed > 0;
+        } finally {
+            statement.clearBindings();
+            setBudgetOp.record(start, changed);
+        }
+    }
+
+    /**
+     * Read: Every budget of the user with what its category has spent in monthYear (YYYY-MM), from
+     * the rollup: _id (CategoryID), Category, LimitAmount and Spent, both in minor units, by name.
+     * One primary key seek of the rollup per budget, however many expenses the month has.
+     */
+    public Cursor getBudgetStatus(long userId, String monthYear, @Nullable CancellationSignal signal) {
+        String query = "SELECT b." + COL_BUD_CATEGORY_ID + " AS _id, " +
+                "IFNULL(" + categoryNameOf("b." + COL_BUD_CATEGORY_ID) + ", '') AS " + COL_EXP_CATEGORY + ", " +
+                "b." + COL_BUD_LIMIT + ", IFNULL(t." + COL_MT_TOTAL + ", 0) AS Spent" +
+                " FROM " + TABLE_BUDGETS + " b LEFT JOIN " + TABLE_MONTHLY_TOTALS + " t" +
+                " ON t." + COL_MT_USER_ID + " = b." + COL_BUD_USER_ID + " AND t." + COL_MT_MONTH + " = ?" +
+                " AND t." + COL_MT_CATEGORY_ID + " = b." + COL_BUD_CATEGORY_ID +
+                " WHERE b." + COL_BUD_USER_ID + " = ?" +
+                " ORDER BY " + COL_EXP_CATEGORY;
+
+        return query(budgetStatusOp, query, new String[]{monthKey(monthYear), String.valueOf(userId)}, signal);
+    }
+
+    // Every read goes through here so its cursor reports to metrics (see QueryMetrics)
+    private Cursor query(QueryMetrics.Op op, String sql, @Nullable String[] args, @Nullable CancellationSignal signal) {
+        op.lastSql = sql;
+        return getReadableDatabase().rawQueryWithFactory(op, sql, args, null, signal);
+    }
+
+    // --- QUERY METRICS (debug) ---
+
+    /** Per-query latency histograms and the slow-query log; see QueryMetrics. */
+    QueryMetrics getQueryMetrics() {
+        return metrics;
+    }
+
+    /** Writes the QueryMetrics report, with the current plan of every query seen, to out. */
+    public void dumpQueryMetrics(Writer out) throws IOException {
+        metrics.dump(out, getReadableDatabase());
+    }
+
+    // SQLiteStatement.bindString() throws on null, but ContentValues used to store NULL
+    private static void bindNullableString(SQLiteStatement statement, int index, @Nullable String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
+    // Expenses store the CategoryID of their category's name; NULL and "" mean no category
+    private void bindCategoryId(SQLiteStatement statement, int index, long userId, @Nullable String category) {
+        if (category == null || category.isEmpty()) {
+            statement.bindNull(index);
+        } else {
+            statement.bindLong(index, categoryIdFor(userId, category));
+        }
+    }
+
+    // DateDay mirrors Date; a missing or malformed date stays NULL there and out of every range
+    private static void bindEpochDay(SQLiteStatement statement, int index, @Nullable String date) {
+        try {
+            statement.bindLong(index, EpochDays.parse(date));
+        } catch (IllegalArgumentException e) {
+            statement.bindNull(index);
+        }
+    }
+
+    // Only tests and process teardown should close the shared helper
+    @Override
+    public synchronized void close() {
+        insertUserStatement = closeStatement(insertUserStatement);
+        insertExpenseStatement = closeStatement(insertExpenseStatement);
+        updateExpenseStatement = closeStatement(updateExpenseStatement);
+        deleteExpenseStatement = closeStatement(deleteExpenseStatement);
+        expenseUserStatement = closeStatement(expenseUserStatement);
+        insertCategoryStatement = closeStatement(insertCategoryStatement);
+        renameCategoryStatement = closeStatement(renameCategoryStatement);
+        setBudgetStatement = closeStatement(setBudgetStatement);
+        removeBudgetStatement = closeStatement(removeBudgetStatement);
+        categories = null;
+        super.close();
+    }
+
+    @Nullable
+    private static SQLiteStatement closeStatement(@Nullable SQLiteStatement statement) {
+        if (statement != null) {
+            statement.close();
+        }
+        return null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,498 @@
+package com.example.expensetracker;
+
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+/**
+ * Ordered, step-by-step schema migrations for DatabaseHelper.
+ * Each step moves the schema from (toVersion - 1) to toVersion and must keep existing rows intact.
+ * To change the schema: append a new Migration here and bump DatabaseHelper.DATABASE_VERSION to match.
+ * A step that rebuilds the expenses table must keep its DateDay and CategoryID columns, re-create
+ * its indexes, the rollup triggers (createMonthlyTotalsTriggers), the DateDay triggers
+ * (createDateDayTriggers), the expenses_text view and the search triggers (createSearchIndex),
+ * then rebuildSearchIndex().
+ *
+ * The shared DDL helpers take the category column they work on, so steps written before v9 still
+ * build the text-era schema they were written for.
+ */
+final class DatabaseMigrations {
+
+    private static final String TAG = "DatabaseMigrations";
+
+    /** Version 1 is the original schema created by DatabaseHelper.createBaseSchema(). */
+    static final int BASE_VERSION = 1;
+
+    /** Rows per UPDATE while backfilling a new column, so no single statement walks the whole table. */
+    static final int BACKFILL_BATCH = 10_000;
+
+    abstract static class Migration {
+        final int toVersion;
+        final String description;
+
+        Migration(int toVersion, String description) {
+            this.toVersion = toVersion;
+            this.description = description;
+        }
+
+        abstract void migrate(SQLiteDatabase db);
+    }
+
+    static final Migration[] ALL = {
+
+            // v2: Dashboard access path (getTopNExpenses, month ranges ordered by Date)
+            new Migration(2, "index expenses(UserID, Date)") {
+                @Override
+                void migrate(SQLiteDatabase db) {
+                    createUserDateIndex(db);
+                }
+            },
+
+            // v3: Category detail access path. Amount is a trailing column so the monthly
+            // SUM(Amount) GROUP BY Category is answered from the index alone.
+            new Migration(3, "index expenses(UserID, Category, Date, Amount)") {
+                @Override
+                void migrate(SQLiteDatabase db) {
+                    createUserCategoryDateIndex(db, DatabaseHelper.COL_EXP_CATEGORY, DatabaseHelper.COL_EXP_DATE);
+                }
+            },
+
+            // v4: Amount REAL (dollars) -> INTEGER (cents, see Money). SQLite cannot change a
+            // column's type in place, so rebuild the table, converting each row once, then
+            // restore the v2/v3 indexes on the new table.
+            new Migration(4, "store expenses.Amount as INTEGER minor units") {
+                @Override
+                void migrate(SQLiteDatabase db) {
+                    db.execSQL("CREATE TABLE expenses_v4 (" +
+                            DatabaseHelper.COL_EXP_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                            DatabaseHelper.COL_EXP_USER_ID + " INTEGER, " +
+                            DatabaseHelper.COL_EXP_AMOUNT + " INTEGER NOT NULL DEFAULT 0, " +
+                            DatabaseHelper.COL_EXP_CATEGORY + " TEXT, " +
+                            DatabaseHelper.COL_EXP_DATE + " TEXT, " +
+                            DatabaseHelper.COL_EXP_NOTE + " TEXT, " +
+                            "FOREIGN KEY(" + DatabaseHelper.COL_EXP_USER_ID + ") REFERENCES " +
+                            DatabaseHelper.TABLE_USERS + "(" + DatabaseHelper.COL_USER_ID + "))");
+                    db.execSQL("INSERT INTO expenses_v4 SELECT " +
+                            DatabaseHelper.COL_EXP_ID + ", " + DatabaseHelper.COL_EXP_USER_ID + ", " +
+                            "CAST(ROUND(IFNULL(" + DatabaseHelper.COL_EXP_AMOUNT + ", 0) * " + Money.MINOR_PER_MAJOR + ") AS INTEGER), " +
+                            DatabaseHelper.COL_EXP_CATEGORY + ", " + DatabaseHelper.COL_EXP_DATE + ", " +
+                            DatabaseHelper.COL_EXP_NOTE +
+                            " FROM " + DatabaseHelper.TABLE_EXPENSES);
+                    db.execSQL("DROP TABLE " + DatabaseHelper.TABLE_EXPENSES);
+                    db.execSQL("ALTER TABLE expenses_v4 RENAME TO " + DatabaseHelper.TABLE_EXPENSES);
+
+                    createUserDateIndex(db);
+                    createUserCategoryDateIndex(db, DatabaseHelper.COL_EXP_CATEGORY, DatabaseHelper.COL_EXP_DATE);
+                }
+            },
+
+            // v5: Per-(user, month, category) rollup so the dashboard reads O(categories) rows
+            // instead of summing the whole month. Triggers keep it exact inside the same
+            // transaction as every write to expenses, whichever code path makes it.
+            new Migration(5, "monthly_category_totals rollup") {
+                @Override
+                void migrate(SQLiteDatabase db) {
+                    createMonthlyTotalsTable(db, DatabaseHelper.COL_EXP_CATEGORY, "TEXT");
+                    createMonthlyTotalsTriggers(db, DatabaseHelper.COL_EXP_CATEGORY, "''");
+                    rebuildMonthlyTotals(db, DatabaseHelper.COL_EXP_CATEGORY, "''");
+                }
+            },
+
+            // v6: Checkpoints for CsvExpenseImporter, so an interrupted import resumes
+            // after the last committed batch instead of duplicating or losing rows.
+            new Migration(6, "import_progress checkpoints") {
+                @Override
+                void migrate(SQLiteDatabase db) {
+                    db.execSQL("CREATE TABLE IF NOT EXISTS " + DatabaseHelper.TABLE_IMPORT_PROGRESS + " (" +
+                            DatabaseHelper.COL_IMP_SOURCE + " TEXT NOT NULL, " +
+                            DatabaseHelper.COL_IMP_USER_ID + " INTEGER NOT NULL, " +
+                            DatabaseHelper.COL_IMP_RECORDS + " INTEGER NOT NULL DEFAULT 0, " +
+                            DatabaseHelper.COL_IMP_IMPORTED + " INTEGER NOT NULL DEFAULT 0, " +
+                            DatabaseHelper.COL_IMP_SKIPPED + " INTEGER NOT NULL DEFAULT 0, " +
+                            "PRIMARY KEY(" + DatabaseHelper.COL_IMP_SOURCE + ", " + DatabaseHelper.COL_IMP_USER_ID + "))");
+                }
+            },
+
+            // v7: Full-text index over Category and Note for DatabaseHelper.searchExpenses().
+            // FTS4 rather than FTS5, which older devices' SQLite lacks. External content: the
+            // index stores only tokens and reads the text back from expenses (docid = ExpID).
+            new Migration(7, "expenses_fts full-text index") {
+                @Override
+                void migrate(SQLiteDatabase db) {
+                    db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS " + DatabaseHelper.TABLE_EXPENSES_FTS +
+                            " USING fts4(content=\"" + DatabaseHelper.TABLE_EXPENSES + "\", " +
+                            DatabaseHelper.COL_EXP_CATEGORY + ", " + DatabaseHelper.COL_EXP_NOTE + ")");
+                    createSearchIndexTriggers(db, DatabaseHelper.TABLE_EXPENSES, DatabaseHelper.COL_EXP_CATEGORY);
+                    rebuildSearchIndex(db);
+                }
+            },
+
+            // v8: Dates as INTEGER days since 1970-01-01 (EpochDays) next to the display string.
+            // Range filters, ORDER BY and week bucketing then compare small integers, and
+            // (UserID, DateDay) replaces (UserID, Date) as the per-user date index.
+            new Migration(8, "expenses.DateDay epoch-day column") {
+                @Override
+                void migrate(SQLiteDatabase db) {
+                    db.execSQL("ALTER TABLE " + DatabaseHelper.TABLE_EXPENSES + " ADD COLUMN " +
+                            DatabaseHelper.COL_EXP_DAY + " INTEGER");
+                    backfillDateDay(db);
+                    createUserDayIndex(db);
+                    db.execSQL("DROP INDEX IF EXISTS idx_expenses_user_date");
+                    createDateDayTriggers(db);
+                }
+            },
+
+            // v9: Categories as rows of their own, referenced by INTEGER CategoryID from expenses
+            // and the rollup. Index keys and GROUP BYs compare small integers instead of strings,
+            // users can add categories, and a rename updates one row instead of every expense.
+            // Each user starts with the defaults plus every name their expenses already use;
+            // NULL and '' (which the rollup already treated as one bucket) become no category.
+            new Migration(9, "categories table and expenses.CategoryID") {
+                @Override
+                void migrate(SQLiteDatabase db) {
+                    createCategoriesTable(db);
+                    for (String name : CategoryDictionary.DEFAULTS) {
+                        db.execSQL("INSERT OR IGNORE INTO " + DatabaseHelper.TABLE_CATEGORIES + " (" +
+                                DatabaseHelper.COL_CAT_USER_ID + ", " + DatabaseHelper.COL_CAT_NAME + ")" +
+                                " SELECT " + DatabaseHelper.COL_USER_ID + ", ? FROM " + DatabaseHelper.TABLE_USERS,
+                                new Object[]{name});
+                    }
+                    // Rows without a user belong to no one and keep no category
+                    db.execSQL("INSERT OR IGNORE INTO " + DatabaseHelper.TABLE_CATEGORIES + " (" +
+                            DatabaseHelper.COL_CAT_USER_ID + ", " + DatabaseHelper.COL_CAT_NAME + ")" +
+                            " SELECT DISTINCT " + DatabaseHelper.COL_EXP_USER_ID + ", " + DatabaseHelper.COL_EXP_CATEGORY +
+                            " FROM " + DatabaseHelper.TABLE_EXPENSES +
+                            " WHERE " + DatabaseHelper.COL_EXP_USER_ID + " IS NOT NULL AND " +
+                            DatabaseHelper.COL_EXP_CATEGORY + " <> ''");
+
+                    // The old index reads its text from expenses, so it goes before the table does
+                    db.execSQL("DROP TABLE IF EXISTS " + DatabaseHelper.TABLE_EXPENSES_FTS);
+                    db.execSQL("CREATE TABLE expenses_v9 (" +
+                            DatabaseHelper.COL_EXP_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                            DatabaseHelper.COL_EXP_USER_ID + " INTEGER, " +
+                            DatabaseHelper.COL_EXP_AMOUNT + " INTEGER NOT NULL DEFAULT 0, " +
+                            DatabaseHelper.COL_EXP_CATEGORY_ID + " INTEGER, " +
+                            DatabaseHelper.COL_EXP_DATE + " TEXT, " +
+                            DatabaseHelper.COL_EXP_NOTE + " TEXT, " +
+                            DatabaseHelper.COL_EXP_DAY + " INTEGER, " +
+                            "FOREIGN KEY(" + DatabaseHelper.COL_EXP_USER_ID + ") REFERENCES " +
+                            DatabaseHelper.TABLE_USERS + "(" + DatabaseHelper.COL_USER_ID + "), " +
+                            "FOREIGN KEY(" + DatabaseHelper.COL_EXP_CATEGORY_ID + ") REFERENCES " +
+                            DatabaseHelper.TABLE_CATEGORIES + "(" + DatabaseHelper.COL_CAT_ID + "))");
+                    // One seek of the categories (UserID, Name) key per row
+                    db.execSQL("INSERT INTO expenses_v9 SELECT e." +
+                            DatabaseHelper.COL_EXP_ID + ", e." + DatabaseHelper.COL_EXP_USER_ID + ", e." +
+                            DatabaseHelper.COL_EXP_AMOUNT + ", " +
+                            "(SELECT c." + DatabaseHelper.COL_CAT_ID + " FROM " + DatabaseHelper.TABLE_CATEGORIES + " c" +
+                            " WHERE c." + DatabaseHelper.COL_CAT_USER_ID + " = e." + DatabaseHelper.COL_EXP_USER_ID +
+                            " AND c." + DatabaseHelper.COL_CAT_NAME + " = e." + DatabaseHelper.COL_EXP_CATEGORY + "), e." +
+                            DatabaseHelper.COL_EXP_DATE + ", e." + DatabaseHelper.COL_EXP_NOTE + ", e." +
+                            DatabaseHelper.COL_EXP_DAY +
+                            " FROM " + DatabaseHelper.TABLE_EXPENSES + " e");
+                    db.execSQL("DROP TABLE " + DatabaseHelper.TABLE_EXPENSES);
+                    db.execSQL("ALTER TABLE expenses_v9 RENAME TO " + DatabaseHelper.TABLE_EXPENSES);
+
+                    createUserDayIndex(db);
+                    createUserCategoryDateIndex(db, DatabaseHelper.COL_EXP_CATEGORY_ID, DatabaseHelper.COL_EXP_DAY);
+                    createDateDayTriggers(db);
+
+                    db.execSQL("DROP TABLE " + DatabaseHelper.TABLE_MONTHLY_TOTALS);
+                    createMonthlyTotalsTable(db, DatabaseHelper.COL_EXP_CATEGORY_ID, "INTEGER");
+                    createMonthlyTotalsTriggers(db, DatabaseHelper.COL_EXP_CATEGORY_ID, NO_CATEGORY_ID);
+                    rebuildMonthlyTotals(db, DatabaseHelper.COL_EXP_CATEGORY_ID, NO_CATEGORY_ID);
+
+                    createSearchIndex(db);
+                    rebuildSearchIndex(db);
+                }
+            },
+
+            // v10: Monthly spending limits per category, checked by BudgetTracker on every write.
+            // One limit applies to every month; keyed by CategoryID, so a renamed category keeps it.
+            new Migration(10, "budgets table") {
+                @Override
+                void migrate(SQLiteDatabase db) {
+                    db.execSQL("CREATE TABLE IF NOT EXISTS " + DatabaseHelper.TABLE_BUDGETS + " (" +
+                            DatabaseHelper.COL_BUD_USER_ID + " INTEGER NOT NULL, " +
+                            DatabaseHelper.COL_BUD_CATEGORY_ID + " INTEGER NOT NULL, " +
+                            DatabaseHelper.COL_BUD_LIMIT + " INTEGER NOT NULL, " +
+                            "PRIMARY KEY(" + DatabaseHelper.COL_BUD_USER_ID + ", " + DatabaseHelper.COL_BUD_CATEGORY_ID + "), " +
+                            "FOREIGN KEY(" + DatabaseHelper.COL_BUD_CATEGORY_ID + ") REFERENCES " +
+                            DatabaseHelper.TABLE_CATEGORIES + "(" + DatabaseHelper.COL_CAT_ID + ")) WITHOUT ROWID");
+                }
+            },
+
+            // v11: The rollup only counts rows whose Date is a real day (those with a DateDay), like
+            // every list, week and column read, so a month's chart and summary add up to its rows.
+            new Migration(11, "rollup skips rows without a calendar date") {
+                @Override
+                void migrate(SQLiteDatabase db) {
+                    createMonthlyTotalsTriggers(db, DatabaseHelper.COL_EXP_CATEGORY_ID, NO_CATEGORY_ID);
+                    rebuildMonthlyTotals(db, DatabaseHelper.COL_EXP_CATEGORY_ID, NO_CATEGORY_ID);
+                }
+            },
+    };
+
+    /** Rollup bucket of expenses without a category (CategoryID NULL); category ids start at 1. */
+    static final String NO_CATEGORY_ID = "0";
+
+    private DatabaseMigrations() {
+    }
+
+    // --- Shared DDL (re-run whenever a migration rebuilds the expenses table) ---
+
+    // --- Categories ---
+
+    private static void createCategoriesTable(SQLiteDatabase db) {
+        // UNIQUE(UserID, Name) is also the index behind name lookups and the sorted category list
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + DatabaseHelper.TABLE_CATEGORIES + " (" +
+                DatabaseHelper.COL_CAT_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                DatabaseHelper.COL_CAT_USER_ID + " INTEGER NOT NULL, " +
+                DatabaseHelper.COL_CAT_NAME + " TEXT NOT NULL, " +
+                "UNIQUE(" + DatabaseHelper.COL_CAT_USER_ID + ", " + DatabaseHelper.COL_CAT_NAME + "), " +
+                "FOREIGN KEY(" + DatabaseHelper.COL_CAT_USER_ID + ") REFERENCES " +
+                DatabaseHelper.TABLE_USERS + "(" + DatabaseHelper.COL_USER_ID + "))");
+    }
+
+    // --- Monthly rollup. The bucket's category key is the same-named column of expenses: the
+    // Category text before v9 (NULL read as ''), CategoryID since (NULL read as NO_CATEGORY_ID).
+
+    private static void createMonthlyTotalsTable(SQLiteDatabase db, String categoryColumn, String categoryType) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + DatabaseHelper.TABLE_MONTHLY_TOTALS + " (" +
+                DatabaseHelper.COL_MT_USER_ID + " INTEGER NOT NULL, " +
+                DatabaseHelper.COL_MT_MONTH + " TEXT NOT NULL, " +
+                categoryColumn + " " + categoryType + " NOT NULL, " +
+                DatabaseHelper.COL_MT_TOTAL + " INTEGER NOT NULL DEFAULT 0, " +
+                DatabaseHelper.COL_MT_COUNT + " INTEGER NOT NULL DEFAULT 0, " +
+                "PRIMARY KEY(" + DatabaseHelper.COL_MT_USER_ID + ", " + DatabaseHelper.COL_MT_MONTH + ", " +
+                categoryColumn + ")) WITHOUT ROWID");
+    }
+
+    /** Bucket key and aggregates of rollup rows, for a GROUP BY 1, 2, 3 over expenses. */
+    static String rollupSourceColumns(String categoryColumn, String noCategory) {
+        return DatabaseHelper.COL_EXP_USER_ID + ", substr(" + DatabaseHelper.COL_EXP_DATE + ", 1, 7), IFNULL(" +
+                categoryColumn + ", " + noCategory + "), SUM(" + DatabaseHelper.COL_EXP_AMOUNT + "), COUNT(*)";
+    }
+
+    /**
+     * The expenses rows the rollup counts: those whose Date is a real day, i.e. that have a
+     * DateDay. Tested on Date rather than DateDay because the DateDay triggers may set it after the
+     * rollup trigger has run, and because steps before v8 have no DateDay.
+     */
+    static String rollupSourceFilter() {
+        return isCalendarDate(DatabaseHelper.COL_EXP_DATE);
+    }
+
+    static void rebuildMonthlyTotals(SQLiteDatabase db, String categoryColumn, String noCategory) {
+        db.execSQL("DELETE FROM " + DatabaseHelper.TABLE_MONTHLY_TOTALS);
+        db.execSQL("INSERT INTO " + DatabaseHelper.TABLE_MONTHLY_TOTALS + " (" +
+                DatabaseHelper.COL_MT_USER_ID + ", " + DatabaseHelper.COL_MT_MONTH + ", " + categoryColumn + ", " +
+                DatabaseHelper.COL_MT_TOTAL + ", " + DatabaseHelper.COL_MT_COUNT + ")" +
+                " SELECT " + rollupSourceColumns(categoryColumn, noCategory) +
+                " FROM " + DatabaseHelper.TABLE_EXPENSES +
+                " WHERE " + rollupSourceFilter() +
+                " GROUP BY 1, 2, 3");
+    }
+
+    // Rollup bucket expressions for a NEW./OLD. row; must match rollupSourceColumns()
+    private static String bucketWhere(String row, String categoryColumn, String noCategory) {
+        return DatabaseHelper.COL_MT_USER_ID + " = " + row + "." + DatabaseHelper.COL_EXP_USER_ID +
+                " AND " + DatabaseHelper.COL_MT_MONTH + " = substr(" + row + "." + DatabaseHelper.COL_EXP_DATE + ", 1, 7)" +
+                " AND " + categoryColumn + " = IFNULL(" + row + "." + categoryColumn + ", " + noCategory + ")";
+    }
+
+    // Rows outside rollupSourceFilter() are in no bucket, so adding or removing them changes nothing
+    private static String addToBucket(String row, String categoryColumn, String noCategory) {
+        String counted = isCalendarDate(row + "." + DatabaseHelper.COL_EXP_DATE);
+        return "INSERT OR IGNORE INTO " + DatabaseHelper.TABLE_MONTHLY_TOTALS + " (" +
+                DatabaseHelper.COL_MT_USER_ID + ", " + DatabaseHelper.COL_MT_MONTH + ", " + categoryColumn + ")" +
+                " SELECT " + row + "." + DatabaseHelper.COL_EXP_USER_ID + ", substr(" + row + "." + DatabaseHelper.COL_EXP_DATE +
+                ", 1, 7), IFNULL(" + row + "." + categoryColumn + ", " + noCategory + ") WHERE " + counted + ";" +
+                " UPDATE " + DatabaseHelper.TABLE_MONTHLY_TOTALS + " SET " +
+                DatabaseHelper.COL_MT_TOTAL + " = " + DatabaseHelper.COL_MT_TOTAL + " + " + row + "." + DatabaseHelper.COL_EXP_AMOUNT + ", " +
+                DatabaseHelper.COL_MT_COUNT + " = " + DatabaseHelper.COL_MT_COUNT + " + 1" +
+                " WHERE " + bucketWhere(row, categoryColumn, noCategory) + " AND " + counted + ";";
+    }
+
+    // Empty buckets are deleted so reads never see a category with no expenses left in it
+    private static String removeFromBucket(String row, String categoryColumn, String noCategory) {
+        return "UPDATE " + DatabaseHelper.TABLE_MONTHLY_TOTALS + " SET " +
+                DatabaseHelper.COL_MT_TOTAL + " = " + DatabaseHelper.COL_MT_TOTAL + " - " + row + "." + DatabaseHelper.COL_EXP_AMOUNT + ", " +
+                DatabaseHelper.COL_MT_COUNT + " = " + DatabaseHelper.COL_MT_COUNT + " - 1" +
+                " WHERE " + bucketWhere(row, categoryColumn, noCategory) +
+                " AND " + isCalendarDate(row + "." + DatabaseHelper.COL_EXP_DATE) + ";" +
+                " DELETE FROM " + DatabaseHelper.TABLE_MONTHLY_TOTALS +
+                " WHERE " + bucketWhere(row, categoryColumn, noCategory) + " AND " + DatabaseHelper.COL_MT_COUNT + " <= 0;";
+    }
+
+    static void createMonthlyTotalsTriggers(SQLiteDatabase db, String categoryColumn, String noCategory) {
+        String expenses = DatabaseHelper.TABLE_EXPENSES;
+        db.execSQL("DROP TRIGGER IF EXISTS trg_expenses_rollup_insert");
+        db.execSQL("DROP TRIGGER IF EXISTS trg_expenses_rollup_delete");
+        db.execSQL("DROP TRIGGER IF EXISTS trg_expenses_rollup_update");
+
+        db.execSQL("CREATE TRIGGER trg_expenses_rollup_insert AFTER INSERT ON " + expenses +
+                " BEGIN " + addToBucket("NEW", categoryColumn, noCategory) + " END");
+        db.execSQL("CREATE TRIGGER trg_expenses_rollup_delete AFTER DELETE ON " + expenses +
+                " BEGIN " + removeFromBucket("OLD", categoryColumn, noCategory) + " END");
+        // Moving an expense across months or categories takes it out of one bucket and into the other
+        db.execSQL("CREATE TRIGGER trg_expenses_rollup_update AFTER UPDATE OF " +
+                DatabaseHelper.COL_EXP_USER_ID + ", " + DatabaseHelper.COL_EXP_AMOUNT + ", " +
+                categoryColumn + ", " + DatabaseHelper.COL_EXP_DATE + " ON " + expenses +
+                " BEGIN " + removeFromBucket("OLD", categoryColumn, noCategory) + " " +
+                addToBucket("NEW", categoryColumn, noCategory) + " END");
+    }
+
+    // --- Full-text index ---
+
+    // Since v9 the index reads its text (the category's name and the note) through this view,
+    // whose rowid column is the ExpID; the FTS4 content table only has to answer rowid lookups.
+    private static void createSearchIndex(SQLiteDatabase db) {
+        db.execSQL("DROP VIEW IF EXISTS " + DatabaseHelper.VIEW_EXPENSES_TEXT);
+        db.execSQL("CREATE VIEW " + DatabaseHelper.VIEW_EXPENSES_TEXT + " AS SELECT e." +
+                DatabaseHelper.COL_EXP_ID + " AS rowid, IFNULL(c." + DatabaseHelper.COL_CAT_NAME + ", '') AS " +
+                DatabaseHelper.COL_EXP_CATEGORY + ", e." + DatabaseHelper.COL_EXP_NOTE + " AS " + DatabaseHelper.COL_EXP_NOTE +
+                " FROM " + DatabaseHelper.TABLE_EXPENSES + " e LEFT JOIN " + DatabaseHelper.TABLE_CATEGORIES + " c ON c." +
+                DatabaseHelper.COL_CAT_ID + " = e." + DatabaseHelper.COL_EXP_CATEGORY_ID);
+        db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS " + DatabaseHelper.TABLE_EXPENSES_FTS +
+                " USING fts4(content=\"" + DatabaseHelper.VIEW_EXPENSES_TEXT + "\", " +
+                DatabaseHelper.COL_EXP_CATEGORY + ", " + DatabaseHelper.COL_EXP_NOTE + ")");
+        createSearchIndexTriggers(db, DatabaseHelper.VIEW_EXPENSES_TEXT, DatabaseHelper.COL_EXP_CATEGORY_ID);
+
+        // A rename re-tokenizes only that category's rows; the expenses themselves are untouched
+        String categories = DatabaseHelper.TABLE_CATEGORIES;
+        String fts = DatabaseHelper.TABLE_EXPENSES_FTS;
+        String rowsOf = " FROM " + DatabaseHelper.TABLE_EXPENSES +
+                " WHERE " + DatabaseHelper.COL_EXP_USER_ID + " = %1$s." + DatabaseHelper.COL_CAT_USER_ID +
+                " AND " + DatabaseHelper.COL_EXP_CATEGORY_ID + " = %1$s." + DatabaseHelper.COL_CAT_ID;
+        db.execSQL("DROP TRIGGER IF EXISTS trg_categories_fts_before_rename");
+        db.execSQL("DROP TRIGGER IF EXISTS trg_categories_fts_after_rename");
+        db.execSQL("CREATE TRIGGER trg_categories_fts_before_rename BEFORE UPDATE OF " + DatabaseHelper.COL_CAT_NAME +
+                " ON " + categories + " BEGIN DELETE FROM " + fts + " WHERE docid IN (SELECT " +
+                DatabaseHelper.COL_EXP_ID + String.format(rowsOf, "OLD") + "); END");
+        db.execSQL("CREATE TRIGGER trg_categories_fts_after_rename AFTER UPDATE OF " + DatabaseHelper.COL_CAT_NAME +
+                " ON " + categories + " BEGIN INSERT INTO " + fts + " (docid, " + DatabaseHelper.COL_EXP_CATEGORY + ", " +
+                DatabaseHelper.COL_EXP_NOTE + ") SELECT " + DatabaseHelper.COL_EXP_ID + ", NEW." + DatabaseHelper.COL_CAT_NAME +
+                ", " + DatabaseHelper.COL_EXP_NOTE + String.format(rowsOf, "NEW") + "; END");
+    }
+
+    // An external-content FTS4 index must be told about every change to expenses. Old tokens are
+    // removed BEFORE the row changes, because FTS reads the old text from content to find them.
+    // content is expenses itself before v9 and VIEW_EXPENSES_TEXT since; categoryColumn is the
+    // expenses column the indexed category comes from.
+    private static void createSearchIndexTriggers(SQLiteDatabase db, String content, String categoryColumn) {
+        String expenses = DatabaseHelper.TABLE_EXPENSES;
+        String fts = DatabaseHelper.TABLE_EXPENSES_FTS;
+        String indexed = DatabaseHelper.COL_EXP_CATEGORY + ", " + DatabaseHelper.COL_EXP_NOTE;
+        String insertNew = "INSERT INTO " + fts + " (docid, " + indexed + ") SELECT rowid, " + indexed +
+                " FROM " + content + " WHERE rowid = NEW." + DatabaseHelper.COL_EXP_ID + ";";
+        String deleteOld = "DELETE FROM " + fts + " WHERE docid = OLD." + DatabaseHelper.COL_EXP_ID + ";";
+        String watched = categoryColumn + ", " + DatabaseHelper.COL_EXP_NOTE;
+
+        db.execSQL("DROP TRIGGER IF EXISTS trg_expenses_fts_insert");
+        db.execSQL("DROP TRIGGER IF EXISTS trg_expenses_fts_delete");
+        db.execSQL("DROP TRIGGER IF EXISTS trg_expenses_fts_before_update");
+        db.execSQL("DROP TRIGGER IF EXISTS trg_expenses_fts_after_update");
+
+        db.execSQL("CREATE TRIGGER trg_expenses_fts_insert AFTER INSERT ON " + expenses +
+                " BEGIN " + insertNew + " END");
+        db.execSQL("CREATE TRIGGER trg_expenses_fts_delete BEFORE DELETE ON " + expenses +
+                " BEGIN " + deleteOld + " END");
+        // Amount/Date edits leave the index alone; only the indexed text columns re-tokenize
+        db.execSQL("CREATE TRIGGER trg_expenses_fts_before_update BEFORE UPDATE OF " + watched + " ON " + expenses +
+                " BEGIN " + deleteOld + " END");
+        db.execSQL("CREATE TRIGGER trg_expenses_fts_after_update AFTER UPDATE OF " + watched + " ON " + expenses +
+                " BEGIN " + insertNew + " END");
+    }
+
+    // DateDay of a 'YYYY-MM-DD' column; NULL unless it is a real calendar date, like EpochDays.parse()
+    private static String epochDayOf(String date) {
+        return "CASE WHEN " + isCalendarDate(date) +
+                " THEN CAST(julianday(" + date + ") - 2440587.5 AS INTEGER) END";
+    }
+
+    // julianday('2025-02-30') is 2025-03-02, so the round trip back through date() rejects it. NULL is not.
+    private static String isCalendarDate(String date) {
+        return "date(julianday(" + date + ")) = " + date;
+    }
+
+    // Walks the table in ExpID ranges of BACKFILL_BATCH; each UPDATE seeks the primary key
+    private static void backfillDateDay(SQLiteDatabase db) {
+        long maxId = DatabaseUtils.longForQuery(db,
+                "SELECT IFNULL(MAX(" + DatabaseHelper.COL_EXP_ID + "), 0) FROM " + DatabaseHelper.TABLE_EXPENSES, null);
+        SQLiteStatement update = db.compileStatement("UPDATE " + DatabaseHelper.TABLE_EXPENSES +
+                " SET " + DatabaseHelper.COL_EXP_DAY + " = " + epochDayOf(DatabaseHelper.COL_EXP_DATE) +
+                " WHERE " + DatabaseHelper.COL_EXP_ID + " > ? AND " + DatabaseHelper.COL_EXP_ID + " <= ?");
+        try {
+            for (long after = 0; after < maxId; after += BACKFILL_BATCH) {
+                update.bindLong(1, after);
+                update.bindLong(2, after + BACKFILL_BATCH);
+                update.executeUpdateDelete();
+            }
+        } finally {
+            update.close();
+        }
+    }
+
+    // DatabaseHelper binds DateDay on every insert and update; these cover writes that only set
+    // Date (raw SQL, older code paths), so the column never drifts from the string
+    static void createDateDayTriggers(SQLiteDatabase db) {
+        String expenses = DatabaseHelper.TABLE_EXPENSES;
+        String setDay = "UPDATE " + expenses + " SET " + DatabaseHelper.COL_EXP_DAY + " = " +
+                epochDayOf("NEW." + DatabaseHelper.COL_EXP_DATE) +
+                " WHERE " + DatabaseHelper.COL_EXP_ID + " = NEW." + DatabaseHelper.COL_EXP_ID + ";";
+        db.execSQL("DROP TRIGGER IF EXISTS trg_expenses_day_insert");
+        db.execSQL("DROP TRIGGER IF EXISTS trg_expenses_day_update");
+
+        db.execSQL("CREATE TRIGGER trg_expenses_day_insert AFTER INSERT ON " + expenses +
+                " WHEN NEW." + DatabaseHelper.COL_EXP_DAY + " IS NULL AND NEW." + DatabaseHelper.COL_EXP_DATE + " IS NOT NULL" +
+                " BEGIN " + setDay + " END");
+        db.execSQL("CREATE TRIGGER trg_expenses_day_update AFTER UPDATE OF " + DatabaseHelper.COL_EXP_DATE + " ON " + expenses +
+                " WHEN NEW." + DatabaseHelper.COL_EXP_DATE + " IS NOT OLD." + DatabaseHelper.COL_EXP_DATE +
+                " AND NEW." + DatabaseHelper.COL_EXP_DAY + " IS OLD." + DatabaseHelper.COL_EXP_DAY +
+                " BEGIN " + setDay + " END");
+    }
+
+    // Re-tokenizes every row of expenses; needed after the table is created or rebuilt
+    static void rebuildSearchIndex(SQLiteDatabase db) {
+        db.execSQL("INSERT INTO " + DatabaseHelper.TABLE_EXPENSES_FTS + " (" + DatabaseHelper.TABLE_EXPENSES_FTS +
+                ") VALUES ('rebuild')");
+    }
+
+    private static void createUserDateIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_expenses_user_date ON " +
+                DatabaseHelper.TABLE_EXPENSES + " (" +
+                DatabaseHelper.COL_EXP_USER_ID + ", " + DatabaseHelper.COL_EXP_DATE + ")");
+    }
+
+    private static void createUserDayIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_expenses_user_day ON " +
+                DatabaseHelper.TABLE_EXPENSES + " (" +
+                DatabaseHelper.COL_EXP_USER_ID + ", " + DatabaseHelper.COL_EXP_DAY + ")");
+    }
+
+    // (UserID, Category, Date, Amount) until v9, (UserID, CategoryID, DateDay, Amount) since
+    private static void createUserCategoryDateIndex(SQLiteDatabase db, String categoryColumn, String dateColumn) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_expenses_user_category_date ON " +
+                DatabaseHelper.TABLE_EXPENSES + " (" +
+                DatabaseHelper.COL_EXP_USER_ID + ", " + categoryColumn + ", " +
+                dateColumn + ", " + DatabaseHelper.COL_EXP_AMOUNT + ")");
+    }
+
+    /**
+     * Applies every migration in (fromVersion, toVersion], in order.
+     * SQLiteOpenHelper already wraps onCreate/onUpgrade in one transaction, so a failed step
+     * rolls the whole upgrade back and the database stays at fromVersion.
+     */
+    static void migrate(SQLiteDatabase db, int fromVersion, int toVersion) {
+        for (Migration migration : ALL) {
+            if (migration.toVersion <= fromVersion || migration.toVersion > toVersion) {
+                continue;
+            }
+            long startNanos = System.nanoTime();
+            migration.migrate(db);
+            Log.i(TAG, "Migrated to v" + migration.toVersion + " (" + migration.description + ") in " +
+                    (System.nanoTime() - startNanos) / 1_000_000 + " ms");
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.expensetracker;
+
+/**
+ * A half-open [start, end) range of days as the epoch days stored in the expenses DateDay column.
+ * Comparing the raw column against these bounds keeps the WHERE clause sargable, so SQLite can
+ * seek an index instead of running strftime() on every row.
+ */
+public final class DateRange {
+
+    public final long startDay; // Inclusive, epoch day (see EpochDays)
+    public final long endDay;   // Exclusive, epoch day
+
+    private DateRange(long startDay, long endDay) {
+        this.startDay = startDay;
+        this.endDay = endDay;
+    }
+
+    /**
+     * Builds the range covering one calendar month.
+     * @param monthYear YYYY-MM format (e.g., '2025-10').
+     * @return [YYYY-MM-01, first day of the following month), as epoch days
+     */
+    public static DateRange forMonth(String monthYear) {
+        if (monthYear == null || monthYear.length() != 7 || monthYear.charAt(4) != '-') {
+            throw new IllegalArgumentException("Expected YYYY-MM but got: " + monthYear);
+        }
+
+        int year;
+        int month;
+        try {
+            year = Integer.parseInt(monthYear.substring(0, 4));
+            month = Integer.parseInt(monthYear.substring(5, 7));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Expected YYYY-MM but got: " + monthYear, e);
+        }
+        if (month < 1 || month > 12) {
+            throw new IllegalArgumentException("Month out of range: " + monthYear);
+        }
+
+        // December rolls over into January of the next year
+        int nextYear = month == 12 ? year + 1 : year;
+        int nextMonth = month == 12 ? 1 : month + 1;
+
+        long startDay = EpochDays.of(year, month, 1);
+        long endDay = EpochDays.of(nextYear, nextMonth, 1);
+        return new DateRange(startDay, endDay);
+    }
+}
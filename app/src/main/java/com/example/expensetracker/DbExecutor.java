@@ -0,0 +1,253 @@
+package com.example.expensetracker;
+
+import android.database.Cursor;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.OperationCanceledException;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs DatabaseHelper work off the main thread and posts results back to it.
+ * Reads go to a small bounded pool; writes go to a single thread so saves keep their order.
+ * Long reads (exports, reports) get a thread of their own so they never hold up a screen's reads.
+ */
+public final class DbExecutor {
+
+    private static final String TAG = "DbExecutor";
+
+    private static final int READ_THREADS = 2;
+    private static final int READ_QUEUE_CAPACITY = 32;
+
+    /** Work to run on a background thread. Pass the signal to DatabaseHelper so cancel() aborts the query. */
+    public interface Work<T> {
+        T run(CancellationSignal signal);
+    }
+
+    /** Receives the result on the main thread. Never called for a cancelled request. */
+    public interface Callback<T> {
+        void onResult(T result);
+
+        /**
+         * Called on the main thread instead of onResult when the request will never produce a
+         * result: its work threw (error), or it was dropped unstarted from a full read queue (null
+         * error; see DROP_OLDEST_READ). Not called after cancel(). The default only ignores it, so
+         * callers that wait on a result (spinners, counters, disabled buttons) must override this,
+         * e.g. through DbExecutor.callback().
+         */
+        default void onFailure(@Nullable Throwable error) {
+        }
+    }
+
+    /** The failure half of a Callback, for DbExecutor.callback(). */
+    public interface FailureCallback {
+        void onFailure(@Nullable Throwable error);
+    }
+
+    /** A Callback from two lambdas: onResult as usual, and onFailure when no result will come. */
+    public static <T> Callback<T> callback(Callback<T> onResult, FailureCallback onFailure) {
+        return new Callback<T>() {
+            @Override
+            public void onResult(T result) {
+                onResult.onResult(result);
+            }
+
+            @Override
+            public void onFailure(@Nullable Throwable error) {
+                onFailure.onFailure(error);
+            }
+        };
+    }
+
+    /** Handle for one submitted unit of work. */
+    public static final class Request {
+        private final CancellationSignal signal = new CancellationSignal();
+        private volatile boolean cancelled;
+        private volatile Future<?> future;
+
+        /** Drops the result, aborts the running query if any, and unqueues it if it has not started. */
+        public void cancel() {
+            cancelled = true;
+            signal.cancel();
+            Future<?> f = future;
+            if (f != null) {
+                f.cancel(false);
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private static DbExecutor instance;
+
+    private final ThreadPoolExecutor readExecutor;
+    private final ThreadPoolExecutor writeExecutor;
+    private final ThreadPoolExecutor longReadExecutor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public static synchronized DbExecutor getInstance() {
+        if (instance == null) {
+            instance = new DbExecutor();
+        }
+        return instance;
+    }
+
+    private DbExecutor() {
+        readExecutor = new ThreadPoolExecutor(READ_THREADS, READ_THREADS, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(READ_QUEUE_CAPACITY), namedThreads("db-read"), DROP_OLDEST_READ);
+        readExecutor.allowCoreThreadTimeOut(true);
+
+        writeExecutor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), namedThreads("db-write"));
+        writeExecutor.allowCoreThreadTimeOut(true);
+
+        longReadExecutor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), namedThreads("db-long-read"));
+        longReadExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    // When the read queue is full the oldest queued read is the stalest one: drop it, not the new one.
+    // Its caller hears about it through Callback.onFailure(null) and may ask again.
+    private static final RejectedExecutionHandler DROP_OLDEST_READ = (runnable, executor) -> {
+        if (executor.isShutdown()) {
+            return;
+        }
+        Runnable oldest = executor.getQueue().poll();
+        if (oldest instanceof Task) {
+            ((Task<?>) oldest).drop();
+        } else if (oldest instanceof Future) {
+            ((Future<?>) oldest).cancel(false);
+        }
+        executor.execute(runnable);
+    };
+
+    private static ThreadFactory namedThreads(String prefix) {
+        return new ThreadFactory() {
+            private int count;
+
+            @Override
+            public synchronized Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, prefix + "-" + (++count));
+                thread.setPriority(Thread.NORM_PRIORITY - 1); // Below the UI thread
+                return thread;
+            }
+        };
+    }
+
+    public <T> Request read(Work<T> work, Callback<T> callback) {
+        return submit(readExecutor, work, callback);
+    }
+
+    public <T> Request write(Work<T> work, Callback<T> callback) {
+        return submit(writeExecutor, work, callback);
+    }
+
+    /** A read that may run for seconds (e.g. a full export): queued on its own thread, never dropped. */
+    public <T> Request longRead(Work<T> work, Callback<T> callback) {
+        return submit(longReadExecutor, work, callback);
+    }
+
+    /** Posts an already available result (e.g. a cache hit) with the same cancel semantics as read(). */
+    public <T> Request deliver(T result, Callback<T> callback) {
+        Request request = new Request();
+        mainHandler.post(() -> {
+            if (request.cancelled) {
+                discard(result);
+            } else {
+                callback.onResult(result);
+            }
+        });
+        return request;
+    }
+
+    private <T> Request submit(ThreadPoolExecutor executor, Work<T> work, Callback<T> callback) {
+        Request request = new Request();
+        Task<T> task = new Task<>(mainHandler, request, work, callback);
+        request.future = task;
+        executor.execute(task);
+        return request;
+    }
+
+    // One submitted unit of work. Delivers exactly one of onResult / onFailure unless cancelled first.
+    private static final class Task<T> extends FutureTask<Void> {
+        private final Handler mainHandler;
+        private final Request request;
+        private final Callback<T> callback;
+
+        Task(Handler mainHandler, Request request, Work<T> work, Callback<T> callback) {
+            super(() -> {
+                if (request.cancelled) {
+                    return null;
+                }
+                final T result;
+                try {
+                    result = work.run(request.signal);
+                } catch (OperationCanceledException e) {
+                    return null; // Superseded while the query was running
+                }
+                mainHandler.post(() -> {
+                    // Re-check on the main thread: cancel() may have happened after the work finished
+                    if (request.cancelled) {
+                        discard(result);
+                    } else {
+                        callback.onResult(result);
+                    }
+                });
+                return null;
+            });
+            this.mainHandler = mainHandler;
+            this.request = request;
+            this.callback = callback;
+        }
+
+        // Taken off a full queue before it started
+        void drop() {
+            if (cancel(false)) {
+                fail(null);
+            }
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled()) {
+                return; // By cancel() (no callback) or drop() (already failed)
+            }
+            try {
+                get();
+            } catch (ExecutionException e) {
+                Log.e(TAG, "Background database work failed", e.getCause());
+                fail(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt(); // Cannot happen: the task is done
+            }
+        }
+
+        private void fail(@Nullable Throwable error) {
+            mainHandler.post(() -> {
+                if (!request.cancelled) {
+                    callback.onFailure(error);
+                }
+            });
+        }
+    }
+
+    // Results that nobody will consume must not leak their cursor window
+    private static void discard(Object result) {
+        if (result instanceof Cursor) {
+            ((Cursor) result).close();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.expensetracker;
+
+import java.util.TimeZone;
+
+/**
+ * Dates as days since 1970-01-01 (the expenses DateDay column), and conversion to and from the
+ * 'YYYY-MM-DD' strings kept in the Date column, without Calendar or SimpleDateFormat.
+ * Same numbering as java.time's LocalDate.toEpochDay(), which minSdk 21 cannot use.
+ *
+ * Months are handled as a month index, year * 12 + (month - 1), so stepping is plain arithmetic.
+ */
+final class EpochDays {
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private static final String[] MONTH_NAMES = {
+            "January", "February", "March", "April", "May", "June",
+            "July", "August", "September", "October", "November", "December"
+    };
+
+    private EpochDays() {
+    }
+
+    /** Proleptic Gregorian date to epoch day (H. Hinnant's days_from_civil). */
+    static long of(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    /**
+     * Epoch day to year * 10000 + month * 100 + day (civil_from_days), e.g. 20251005.
+     * Packed into one int so callers can unpack what they need without allocating.
+     */
+    static int toYmd(long epochDay) {
+        long z = epochDay + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        int dayOfEra = (int) (z - era * 146097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int mp = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        int year = (int) (yearOfEra + era * 400) + (month <= 2 ? 1 : 0);
+        return year * 10000 + month * 100 + day;
+    }
+
+    /** Weekday with Sunday = 0 ... Saturday = 6. 1970-01-01 was a Thursday. */
+    static int dayOfWeek(long epochDay) {
+        return (int) (((epochDay + 4) % 7 + 7) % 7);
+    }
+
+    /** Today in the device's time zone. */
+    static long today() {
+        long now = System.currentTimeMillis();
+        long local = now + TimeZone.getDefault().getOffset(now);
+        return local >= 0 ? local / MILLIS_PER_DAY : (local + 1) / MILLIS_PER_DAY - 1;
+    }
+
+    /** Parses 'YYYY-MM-DD'; throws IllegalArgumentException for anything else or a non-existent day. */
+    static long parse(String date) {
+        if (date == null || date.length() != 10 || date.charAt(4) != '-' || date.charAt(7) != '-') {
+            throw new IllegalArgumentException("Expected YYYY-MM-DD but got: " + date);
+        }
+        int year = digits(date, 0, 4);
+        int month = digits(date, 5, 7);
+        int day = digits(date, 8, 10);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)) {
+            throw new IllegalArgumentException("Not a calendar date: " + date);
+        }
+        return of(year, month, day);
+    }
+
+    /** 'YYYY-MM-DD' of an epoch day. */
+    static String format(long epochDay) {
+        return appendIso(new StringBuilder(10), epochDay).toString();
+    }
+
+    static StringBuilder appendIso(StringBuilder sb, long epochDay) {
+        int ymd = toYmd(epochDay);
+        appendDigits(sb, ymd / 10000, 4).append('-');
+        appendDigits(sb, ymd / 100 % 100, 2).append('-');
+        return appendDigits(sb, ymd % 100, 2);
+    }
+
+    static int daysInMonth(int year, int month) {
+        int nextMonthIndex = monthIndex(year, month) + 1;
+        return (int) (firstDayOfMonth(nextMonthIndex) - of(year, month, 1));
+    }
+
+    // --- Month index: year * 12 + (month - 1) ---
+
+    static int monthIndex(int year, int month) {
+        return year * 12 + (month - 1);
+    }
+
+    static int monthIndexOf(long epochDay) {
+        int ymd = toYmd(epochDay);
+        return monthIndex(ymd / 10000, ymd / 100 % 100);
+    }
+
+    static long firstDayOfMonth(int monthIndex) {
+        return of(monthIndex / 12, monthIndex % 12 + 1, 1);
+    }
+
+    /** Parses 'YYYY-MM'; throws IllegalArgumentException like DateRange.forMonth. */
+    static int parseMonth(String monthYear) {
+        if (monthYear == null || monthYear.length() != 7 || monthYear.charAt(4) != '-') {
+            throw new IllegalArgumentException("Expected YYYY-MM but got: " + monthYear);
+        }
+        int year = digits(monthYear, 0, 4);
+        int month = digits(monthYear, 5, 7);
+        if (year < 0 || month < 1 || month > 12) {
+            throw new IllegalArgumentException("Expected YYYY-MM but got: " + monthYear);
+        }
+        return monthIndex(year, month);
+    }
+
+    /** 'YYYY-MM', the key used by DashboardActivity and the monthly rollup. */
+    static String formatMonth(int monthIndex) {
+        StringBuilder sb = new StringBuilder(7);
+        appendDigits(sb, monthIndex / 12, 4).append('-');
+        return appendDigits(sb, monthIndex % 12 + 1, 2).toString();
+    }
+
+    /** e.g. "October 2025". */
+    static String displayMonth(int monthIndex) {
+        return MONTH_NAMES[monthIndex % 12] + " " + monthIndex / 12;
+    }
+
+    // Non-negative decimal in text[start, end), or -1 if any character is not a digit
+    private static int digits(String text, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static StringBuilder appendDigits(StringBuilder sb, int value, int width) {
+        for (int divisor = width == 4 ? 1000 : 10; divisor > 0; divisor /= 10) {
+            sb.append((char) ('0' + value / divisor % 10));
+        }
+        return sb;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.expensetracker;
+
+import android.database.Cursor;
+
+/**
+ * One immutable page of expense rows copied out of a cursor into flat arrays, so the cursor can be
+ * closed right away and the page dropped as a unit when it scrolls far out of view.
+ */
+final class ExpensePage {
+
+    final int size;
+    final long[] ids;
+    final String[] dates;
+    final long[] days; // DateDay, the keyset paging key
+    final long[] amounts; // Minor units
+    final String[] categories; // "" for no category, as in the rollup
+
+    private ExpensePage(int size) {
+        this.size = size;
+        ids = new long[size];
+        dates = new String[size];
+        days = new long[size];
+        amounts = new long[size];
+        categories = new String[size];
+    }
+
+    /** Copies every row of cursor and closes it. */
+    static ExpensePage from(Cursor cursor) {
+        try {
+            ExpensePage page = new ExpensePage(cursor.getCount());
+            int idIndex = cursor.getColumnIndexOrThrow("_id");
+            int dateIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_DATE);
+            int dayIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_DAY);
+            int amountIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_AMOUNT);
+            int categoryIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_CATEGORY);
+            for (int i = 0; cursor.moveToNext(); i++) {
+                page.ids[i] = cursor.getLong(idIndex);
+                page.dates[i] = cursor.getString(dateIndex);
+                page.days[i] = cursor.getLong(dayIndex);
+                page.amounts[i] = cursor.getLong(amountIndex);
+                String category = cursor.getString(categoryIndex);
+                page.categories[i] = category != null ? category : "";
+            }
+            return page;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    long lastDay() {
+        return days[size - 1];
+    }
+
+    long lastId() {
+        return ids[size - 1];
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.expensetracker;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Paged, keyset-addressed view of one week's expenses (newest first) for a RecyclerView.
+ *
+ * Rows live in fixed-size pages keyed by the (DateDay, ExpID) of the row just before them, so any
+ * page can be fetched on its own. Pages are loaded as the list approaches them, and pages far
+ * from what is on screen are dropped; a dropped page keeps its key and size, so it is simply
+ * fetched again if the user scrolls back. Main thread only.
+ */
+final class ExpensePager {
+
+    static final int PAGE_SIZE = 50;
+    // Start loading the next page this many rows before the end of what is loaded
+    static final int PREFETCH_DISTANCE = 20;
+    // Pages kept in memory on either side of the page being bound
+    static final int RESIDENT_PAGES_EACH_SIDE = 2;
+
+    interface Listener {
+        void onRowsInserted(int start, int count);
+
+        void onRowsChanged(int start, int count);
+    }
+
+    private static final class Slot {
+        final long afterDay; // Key of the row before this page; afterId 0 for the first page
+        final long afterId;
+        boolean loadedOnce;
+        int size;
+        long lastDay; // Key of this page's last row, kept after the page is dropped
+        long lastId;
+        ExpensePage page;
+        DbExecutor.Request request;
+
+        Slot(long afterDay, long afterId) {
+            this.afterDay = afterDay;
+            this.afterId = afterId;
+        }
+    }
+
+    private final ExpenseRepository repository;
+    private final long userId;
+    private final String weekStart;
+    private final String weekEnd;
+    private final Listener listener;
+
+    private final List<Slot> slots = new ArrayList<>();
+    private int count;
+    private boolean endReached;
+    private boolean released;
+
+    ExpensePager(ExpenseRepository repository, long userId, String weekStart, String weekEnd, Listener listener) {
+        this.repository = repository;
+        this.userId = userId;
+        this.weekStart = weekStart;
+        this.weekEnd = weekEnd;
+        this.listener = listener;
+        appendSlot();
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    /** The page holding position, or null while it is (re)loading. */
+    ExpensePage pageFor(int position) {
+        return slots.get(position / PAGE_SIZE).page;
+    }
+
+    static int indexInPage(int position) {
+        return position % PAGE_SIZE;
+    }
+
+    /** Tell the pager a row is being shown: loads it if needed, prefetches ahead, drops far pages. */
+    void onPositionBound(int position) {
+        int slotIndex = position / PAGE_SIZE;
+        load(slots.get(slotIndex), slotIndex);
+
+        if (!endReached && position >= count - PREFETCH_DISTANCE) {
+            Slot last = slots.get(slots.size() - 1);
+            if (last.page != null && last.request == null) {
+                appendSlot();
+            }
+        }
+
+        for (int i = 0; i < slots.size(); i++) {
+            Slot slot = slots.get(i);
+            if (slot.page != null && Math.abs(i - slotIndex) > RESIDENT_PAGES_EACH_SIDE) {
+                slot.page = null; // Size and keys stay, so positions do not shift
+            }
+        }
+    }
+
+    /** Cancels loads and drops every page; the pager is unusable afterwards. */
+    void release() {
+        released = true;
+        for (Slot slot : slots) {
+            if (slot.request != null) {
+                slot.request.cancel();
+            }
+            slot.page = null;
+        }
+        slots.clear();
+        count = 0;
+    }
+
+    private void appendSlot() {
+        Slot previous = slots.isEmpty() ? null : slots.get(slots.size() - 1);
+        Slot slot = previous == null ? new Slot(0, 0) : new Slot(previous.lastDay, previous.lastId);
+        slots.add(slot);
+        load(slot, slots.size() - 1);
+    }
+
+    private void load(Slot slot, int slotIndex) {
+        if (slot.page != null || slot.request != null) {
+            return;
+        }
+        slot.request = repository.getWeekExpensePage(userId, weekStart, weekEnd, slot.afterDay, slot.afterId, PAGE_SIZE,
+                DbExecutor.callback(page -> onPageLoaded(slot, slotIndex, page), error -> onPageFailed(slot, slotIndex, error)));
+    }
+
+    // A page dropped from the full read queue is asked for again; one that failed waits for the next bind
+    private void onPageFailed(Slot slot, int slotIndex, @Nullable Throwable error) {
+        if (released) {
+            return;
+        }
+        slot.request = null;
+        if (error == null) {
+            load(slot, slotIndex);
+        }
+    }
+
+    private void onPageLoaded(Slot slot, int slotIndex, ExpensePage page) {
+        if (released) {
+            return;
+        }
+        slot.request = null;
+        slot.page = page;
+        int start = slotIndex * PAGE_SIZE;
+
+        if (!slot.loadedOnce) {
+            // First load of the newest slot: its rows are new to the list
+            slot.loadedOnce = true;
+            slot.size = page.size;
+            if (page.size > 0) {
+                slot.lastDay = page.lastDay();
+                slot.lastId = page.lastId();
+            }
+            if (page.size < PAGE_SIZE) {
+                endReached = true;
+            }
+            count += page.size;
+            listener.onRowsInserted(start, page.size);
+        } else {
+            // Re-fetch of a page that was dropped: same keys, same positions
+            listener.onRowsChanged(start, slot.size);
+        }
+    }
+}
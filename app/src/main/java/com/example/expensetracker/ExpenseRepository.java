@@ -0,0 +1,475 @@
+package com.example.expensetracker;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * The only way screens reach the database. Every call runs on DbExecutor and reports back through
+ * a main-thread callback; the returned Request lets a screen cancel work it no longer needs
+ * (e.g. the previous month after a quick Next/Previous tap).
+ *
+ * Cursors handed to callbacks are already filled on the background thread, so the UI only reads
+ * the in-memory window. The receiver owns the cursor and must close it (or hand it to an adapter).
+ *
+ * Dashboard months are cached as MonthSnapshots; every write below invalidates the months it
+ * touched once it has committed. The analytics columns (LedgerColumns) are patched in place instead,
+ * and so are the budgets (BudgetTracker), which report thresholds crossed to the AlertListener.
+ */
+public final class ExpenseRepository {
+
+    private static ExpenseRepository instance;
+
+    private final Context appContext;
+    private final DatabaseHelper dbHelper;
+    private final DbExecutor executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final MonthSnapshotCache snapshotCache = new MonthSnapshotCache(MonthSnapshotCache.MAX_MONTHS);
+
+    // The last user's ledger as columns, kept current by the writes below. Guarded by ledgerLock;
+    // ledgerGeneration plays the same part as MonthSnapshotCache.generation().
+    private final Object ledgerLock = new Object();
+    @Nullable
+    private LedgerColumns ledgerColumns;
+    private long ledgerGeneration;
+
+    // Only touched on the write thread
+    private final BudgetTracker budgets;
+    @Nullable
+    private volatile BudgetTracker.AlertListener budgetAlertListener;
+
+    public static synchronized ExpenseRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new ExpenseRepository(context.getApplicationContext(),
+                    DatabaseHelper.getInstance(context), DbExecutor.getInstance());
+        }
+        return instance;
+    }
+
+    private ExpenseRepository(Context appContext, DatabaseHelper dbHelper, DbExecutor executor) {
+        this.appContext = appContext;
+        this.dbHelper = dbHelper;
+        this.executor = executor;
+        this.budgets = new BudgetTracker(dbHelper);
+    }
+
+    // --- Users ---
+
+    /** Delivers the user's ID, or -1 if the credentials do not match. */
+    public DbExecutor.Request login(String username, String password, DbExecutor.Callback<Long> callback) {
+        return executor.read(signal -> {
+            Cursor cursor = dbHelper.checkUser(username, password);
+            try {
+                return cursor.moveToFirst()
+                        ? cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_USER_ID))
+                        : -1L;
+            } finally {
+                cursor.close();
+            }
+        }, callback);
+    }
+
+    public DbExecutor.Request registerUser(String username, String password, DbExecutor.Callback<Boolean> callback) {
+        return executor.write(signal -> dbHelper.registerUser(username, password), callback);
+    }
+
+    // --- Reads ---
+
+    public DbExecutor.Request getTopNExpenses(long userId, String monthYear, int limit, DbExecutor.Callback<Cursor> callback) {
+        return executor.read(signal -> filled(dbHelper.getTopNExpenses(userId, monthYear, limit, signal)), callback);
+    }
+
+    /**
+     * The dashboard's top-N rows and category totals for a month. A cached month is delivered without
+     * touching the database; otherwise both queries run on one read thread and the result is cached.
+     */
+    public DbExecutor.Request getMonthSnapshot(long userId, String monthYear, int limit,
+                                               DbExecutor.Callback<MonthSnapshot> callback) {
+        MonthSnapshot cached = snapshotCache.get(userId, monthYear, limit);
+        if (cached != null) {
+            return executor.deliver(cached, callback);
+        }
+        return executor.read(signal -> {
+            long generation = snapshotCache.generation();
+            MonthSnapshot snapshot = MonthSnapshot.load(dbHelper, userId, monthYear, limit, signal);
+            snapshotCache.put(snapshot, generation);
+            return snapshot;
+        }, callback);
+    }
+
+    /**
+     * The user's whole ledger as in-memory columns, for analytics. Loaded once on a read thread, then
+     * kept current by this repository's writes, so later calls deliver it without a query.
+     */
+    public DbExecutor.Request getLedgerColumns(long userId, DbExecutor.Callback<LedgerColumns> callback) {
+        LedgerColumns cached;
+        long generation;
+        synchronized (ledgerLock) {
+            cached = ledgerColumns != null && ledgerColumns.userId == userId ? ledgerColumns : null;
+            generation = ledgerGeneration;
+        }
+        if (cached != null) {
+            return executor.deliver(cached, callback);
+        }
+        return executor.read(signal -> {
+            LedgerColumns columns = LedgerColumns.load(dbHelper, userId, signal);
+            synchronized (ledgerLock) {
+                // A write that committed during the load may be missing from it; the next call reloads
+                if (ledgerGeneration == generation) {
+                    ledgerColumns = columns;
+                }
+            }
+            return columns;
+        }, callback);
+    }
+
+    public DbExecutor.Request getCategoryTotalsForMonth(long userId, String monthYear, DbExecutor.Callback<Cursor> callback) {
+        return executor.read(signal -> filled(dbHelper.getCategoryTotalsForMonth(userId, monthYear, signal)), callback);
+    }
+
+    public DbExecutor.Request getCategorySummary(long userId, String monthYear, DbExecutor.Callback<Cursor> callback) {
+        return executor.read(signal -> filled(dbHelper.getCategorySummary(userId, monthYear, signal)), callback);
+    }
+
+    /**
+     * Month x category totals of [fromMonthYear, toMonthYear) (YYYY-MM), with year-over-year and
+     * rolling figures, from one query; see TrendReport.
+     */
+    public DbExecutor.Request getTrendReport(long userId, String fromMonthYear, String toMonthYear,
+                                             DbExecutor.Callback<TrendReport> callback) {
+        return executor.read(signal -> TrendReport.read(dbHelper, userId, EpochDays.parseMonth(fromMonthYear),
+                EpochDays.parseMonth(toMonthYear), signal), callback);
+    }
+
+    /** Per-week totals and counts for every week of weeks' month, from one query. */
+    public DbExecutor.Request getWeekTotals(long userId, WeekBuckets weeks, DbExecutor.Callback<WeekBuckets.Totals> callback) {
+        return executor.read(signal -> weeks.totalsFrom(filled(dbHelper.getWeekTotals(userId, weeks, signal))), callback);
+    }
+
+    /** A keyset page of a week's expenses, newest first; see DatabaseHelper.getExpensesPageDescending. */
+    public DbExecutor.Request getWeekExpensePage(long userId, String weekStart, String weekEnd,
+                                                 long beforeDay, long beforeId, int pageSize,
+                                                 DbExecutor.Callback<ExpensePage> callback) {
+        return executor.read(signal -> ExpensePage.from(filled(dbHelper.getExpensesPageDescending(
+                userId, weekStart, weekEnd, beforeDay, beforeId, pageSize, signal))), callback);
+    }
+
+    /** One ranked page of full-text search results; see DatabaseHelper.searchExpenses. */
+    public DbExecutor.Request searchExpenses(long userId, String query, int offset, int limit,
+                                             DbExecutor.Callback<ExpenseSearch.Results> callback) {
+        return executor.read(signal -> dbHelper.searchExpenses(userId, query, offset, limit, signal), callback);
+    }
+
+    public DbExecutor.Request getExpenseById(long expenseId, DbExecutor.Callback<Cursor> callback) {
+        return executor.read(signal -> filled(dbHelper.getExpenseById(expenseId)), callback);
+    }
+
+    /** The user's categories, for pickers; see CategoryDictionary. */
+    public DbExecutor.Request getCategories(long userId, DbExecutor.Callback<CategoryDictionary> callback) {
+        return executor.read(signal -> dbHelper.getCategories(userId), callback);
+    }
+
+    // --- Writes ---
+
+    public DbExecutor.Request addExpense(long userId, long amountMinor, String category, String date, String note,
+                                         DbExecutor.Callback<Boolean> callback) {
+        return executor.write(signal -> {
+            budgets.prepare(userId, monthOf(date));
+            long id = dbHelper.addExpenseReturningId(userId, amountMinor, category, date, note);
+            snapshotCache.invalidate(userId, monthOf(date));
+            if (id != -1) {
+                ledgerChanged(userId, -1, id, amountMinor, category, date);
+                budgetsChanged(budgets.apply(userId, null, null, 0, monthOf(date), category, amountMinor));
+            }
+            return id != -1;
+        }, callback);
+    }
+
+    public DbExecutor.Request updateExpense(long expenseId, long amountMinor, String category, String date, String note,
+                                            DbExecutor.Callback<Boolean> callback) {
+        return executor.write(signal -> {
+            // The row may move to another month: both the old and the new month change
+            ExpenseOwner before = findOwner(expenseId);
+            if (before != null) {
+                budgets.prepare(before.userId, before.monthYear);
+                budgets.prepare(before.userId, monthOf(date));
+            }
+            boolean updated = dbHelper.updateExpense(expenseId, amountMinor, category, date, note);
+            if (before != null) {
+                snapshotCache.invalidate(before.userId, before.monthYear);
+                snapshotCache.invalidate(before.userId, monthOf(date));
+                if (updated) {
+                    ledgerChanged(before.userId, expenseId, expenseId, amountMinor, category, date);
+                    budgetsChanged(budgets.apply(before.userId, before.monthYear, before.category, before.amountMinor,
+                            monthOf(date), category, amountMinor));
+                }
+            }
+            return updated;
+        }, callback);
+    }
+
+    public DbExecutor.Request deleteExpense(long expenseId, DbExecutor.Callback<Boolean> callback) {
+        return executor.write(signal -> {
+            ExpenseOwner before = findOwner(expenseId);
+            if (before != null) {
+                budgets.prepare(before.userId, before.monthYear);
+            }
+            boolean deleted = dbHelper.deleteExpense(expenseId);
+            if (before != null) {
+                snapshotCache.invalidate(before.userId, before.monthYear);
+                if (deleted) {
+                    ledgerChanged(before.userId, expenseId, -1, 0, null, null);
+                    budgetsChanged(budgets.apply(before.userId, before.monthYear, before.category, before.amountMinor,
+                            null, null, 0));
+                }
+            }
+            return deleted;
+        }, callback);
+    }
+
+    /** Adds a category (or finds the one already named so) and delivers the user's categories with it. */
+    public DbExecutor.Request addCategory(long userId, String name, DbExecutor.Callback<CategoryDictionary> callback) {
+        return executor.write(signal -> {
+            dbHelper.addCategory(userId, name);
+            return dbHelper.getCategories(userId);
+        }, callback);
+    }
+
+    /** Renames a category; false if the user has no such category or already has one named newName. */
+    public DbExecutor.Request renameCategory(long userId, long categoryId, String newName,
+                                             DbExecutor.Callback<Boolean> callback) {
+        return executor.write(signal -> {
+            boolean renamed = dbHelper.renameCategory(userId, categoryId, newName);
+            if (renamed) {
+                // Every cached month and the ledger columns carry names, not ids
+                snapshotCache.invalidateUser(userId);
+                ledgerReplaced(userId); // And the budgets, which match by name
+            }
+            return renamed;
+        }, callback);
+    }
+
+    // --- Budgets ---
+
+    /**
+     * Sets the monthly limit of a category, in minor units; zero or less removes its budget.
+     * Delivers false if there was no budget to remove.
+     */
+    public DbExecutor.Request setBudget(long userId, long categoryId, long limitMinor,
+                                        DbExecutor.Callback<Boolean> callback) {
+        return executor.write(signal -> {
+            boolean changed = dbHelper.setBudget(userId, categoryId, limitMinor);
+            budgets.invalidateUser(userId);
+            return changed;
+        }, callback);
+    }
+
+    /** Each budgeted category's limit and what the month has spent; see DatabaseHelper.getBudgetStatus. */
+    public DbExecutor.Request getBudgetStatus(long userId, String monthYear, DbExecutor.Callback<Cursor> callback) {
+        return executor.read(signal -> filled(dbHelper.getBudgetStatus(userId, monthYear, signal)), callback);
+    }
+
+    /**
+     * Receives every budget threshold a write crosses, on the write thread; post to the main thread
+     * to show it. Replaces the previous listener; null stops the alerts.
+     */
+    public void setBudgetAlertListener(@Nullable BudgetTracker.AlertListener listener) {
+        budgetAlertListener = listener;
+    }
+
+    /**
+     * Applies a committed write to the cached LedgerColumns of userId, if those are loaded.
+     * @param removedId ExpID of the row to drop first (update, delete), or -1.
+     * @param addedId ExpID of the row to add (add, update), or -1.
+     */
+    private void ledgerChanged(long userId, long removedId, long addedId, long amountMinor,
+                               @Nullable String category, @Nullable String date) {
+        synchronized (ledgerLock) {
+            ledgerGeneration++;
+            if (ledgerColumns == null || ledgerColumns.userId != userId) {
+                return;
+            }
+            if (removedId != -1) {
+                ledgerColumns.remove(removedId);
+            }
+            if (addedId != -1) {
+                try {
+                    ledgerColumns.insert(addedId, EpochDays.parse(date), amountMinor, category);
+                } catch (IllegalArgumentException e) {
+                    // Not a calendar date: DateDay is NULL, which keeps the row out of the columns too
+                }
+            }
+        }
+    }
+
+    private void budgetsChanged(List<BudgetTracker.Alert> alerts) {
+        BudgetTracker.AlertListener listener = budgetAlertListener;
+        if (listener == null) {
+            return;
+        }
+        for (BudgetTracker.Alert alert : alerts) {
+            listener.onBudgetAlert(alert);
+        }
+    }
+
+    // Bulk writes: cheaper to reload the columns (and budget spend) on next use than to patch them row by row
+    private void ledgerReplaced(long userId) {
+        synchronized (ledgerLock) {
+            ledgerGeneration++;
+            if (ledgerColumns != null && ledgerColumns.userId == userId) {
+                ledgerColumns = null;
+            }
+        }
+        budgets.invalidateUser(userId);
+    }
+
+    // Who owns an expense and what it counted towards; read on the write thread just before changing it
+    private static final class ExpenseOwner {
+        final long userId;
+        final String monthYear;
+        final long amountMinor;
+        final String category;
+
+        ExpenseOwner(long userId, String monthYear, long amountMinor, String category) {
+            this.userId = userId;
+            this.monthYear = monthYear;
+            this.amountMinor = amountMinor;
+            this.category = category;
+        }
+    }
+
+    @Nullable
+    private ExpenseOwner findOwner(long expenseId) {
+        Cursor cursor = dbHelper.getExpenseById(expenseId);
+        try {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            return new ExpenseOwner(
+                    cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_USER_ID)),
+                    monthOf(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_DATE))),
+                    cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_AMOUNT)),
+                    cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_CATEGORY)));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    // YYYY-MM of a YYYY-MM-DD date, or null unless it is a calendar day: like the rollup and the
+    // month reads, a row such as 2025-02-30 counts towards no month
+    @Nullable
+    private static String monthOf(@Nullable String date) {
+        try {
+            EpochDays.parse(date);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return date.substring(0, 7);
+    }
+
+    // --- Bulk import ---
+
+    /**
+     * Imports a CSV bank statement on the write thread. Progress is posted to the main thread after
+     * every committed batch. Cancelling stops after the current batch; calling this again with the
+     * same sourceKey resumes from there.
+     * @param debitsAreNegative True if the statement lists money going out as negative amounts;
+     *                          see CsvExpenseImporter.
+     */
+    public DbExecutor.Request importCsv(long userId, Uri uri, String sourceKey, boolean debitsAreNegative,
+                                        CsvExpenseImporter.ProgressListener progress,
+                                        DbExecutor.Callback<CsvExpenseImporter.Result> callback) {
+        return executor.write(signal -> {
+            // Each committed batch may land in any month, so the user's cached months are dropped
+            CsvExpenseImporter.ProgressListener mainThreadProgress = (read, imported, skipped) -> {
+                snapshotCache.invalidateUser(userId);
+                ledgerReplaced(userId);
+                if (progress != null) {
+                    mainHandler.post(() -> progress.onProgress(read, imported, skipped));
+                }
+            };
+            try (InputStream in = appContext.getContentResolver().openInputStream(uri)) {
+                if (in == null) {
+                    return CsvExpenseImporter.Result.failed("Cannot open " + uri);
+                }
+                Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+                return new CsvExpenseImporter(dbHelper, debitsAreNegative).importCsv(userId, reader, sourceKey, mainThreadProgress, signal);
+            } catch (IOException e) {
+                return CsvExpenseImporter.Result.failed(e.getMessage());
+            }
+        }, callback);
+    }
+
+    // --- Export ---
+
+    /**
+     * Streams the user's ledger (optionally [fromDate, toDate)) to uri. Progress, including
+     * throughput, is posted to the main thread after each page. Delivers null if the file could
+     * not be written. Runs on the long-read thread, so screens' reads never queue behind it.
+     */
+    public DbExecutor.Request exportLedger(long userId, String fromDate, String toDate, LedgerExporter.Format format,
+                                           Uri uri, LedgerExporter.ProgressListener progress,
+                                           DbExecutor.Callback<LedgerExporter.Result> callback) {
+        return executor.longRead(signal -> {
+            LedgerExporter.ProgressListener mainThreadProgress = progress == null ? null
+                    : (rows, elapsed) -> mainHandler.post(() -> progress.onProgress(rows, elapsed));
+            try (OutputStream os = appContext.getContentResolver().openOutputStream(uri)) {
+                if (os == null) {
+                    return null;
+                }
+                Writer out = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), 64 * 1024);
+                return new LedgerExporter(dbHelper).export(userId, fromDate, toDate, format, out, mainThreadProgress, signal);
+            } catch (IOException e) {
+                return null;
+            }
+        }, callback);
+    }
+
+    // --- Diagnostics ---
+
+    /**
+     * Writes PerformanceLog's screen loads and DatabaseHelper's query metrics (latency percentiles,
+     * rows, plans, slow-query log) to file, for attaching to a performance report. Delivers the
+     * file, or null if it could not be written.
+     */
+    public DbExecutor.Request dumpPerformanceReport(File file, DbExecutor.Callback<File> callback) {
+        return executor.longRead(signal -> {
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+                PerformanceLog.getInstance().dump(out);
+                out.write('\n');
+                dbHelper.dumpQueryMetrics(out);
+                return file;
+            } catch (IOException e) {
+                return null;
+            }
+        }, callback);
+    }
+
+    // rawQuery() is lazy; getCount() runs the query and fills the first window on this thread
+    private static Cursor filled(Cursor cursor) {
+        try {
+            cursor.getCount();
+        } catch (RuntimeException e) {
+            cursor.close(); // Includes OperationCanceledException from a superseded request
+            throw e;
+        }
+        return cursor;
+    }
+}
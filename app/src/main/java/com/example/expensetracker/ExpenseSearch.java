@@ -0,0 +1,323 @@
+package com.example.expensetracker;
+
+import androidx.annotation.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Query building and ranking for DatabaseHelper.searchExpenses() over the expenses_fts index.
+ *
+ * User input is never passed to MATCH as-is: it is split into words the same way FTS4's default
+ * "simple" tokenizer splits the indexed text, and every word becomes a prefix term, so "ub mar"
+ * finds rows containing a word starting with "ub" AND a word starting with "mar".
+ */
+final class ExpenseSearch {
+
+    // A hit in the category counts more than the same hit in a free-text note
+    private static final double CATEGORY_WEIGHT = 2.0;
+    private static final double NOTE_WEIGHT = 1.0;
+    private static final double[] COLUMN_WEIGHTS = {CATEGORY_WEIGHT, NOTE_WEIGHT}; // fts4 column order
+
+    // matchinfo() format read by score(): p (phrases), c (columns), then x (3 ints per phrase/column)
+    static final String MATCHINFO_FORMAT = "pcx";
+
+    private static final int MAX_TERMS = 8;
+    private static final String[] NO_TERMS = new String[0];
+
+    // A page is fetched with one "ExpID IN (?, ...)"; stay far below SQLite's 999 bound arguments
+    static final int MAX_PAGE_SIZE = 200;
+
+    /** One page of ranked results, copied out of the database like ExpensePage. */
+    static final class Results {
+        static final Results EMPTY = new Results(0, 0);
+
+        final int size;
+        final int totalMatches; // Across all pages
+        final long[] ids;
+        final String[] dates;
+        final long[] amounts; // Minor units
+        final String[] categories; // "" for no category
+        final String[] notes;
+
+        Results(int size, int totalMatches) {
+            this.size = size;
+            this.totalMatches = totalMatches;
+            ids = new long[size];
+            dates = new String[size];
+            amounts = new long[size];
+            categories = new String[size];
+            notes = new String[size];
+        }
+    }
+
+    private ExpenseSearch() {
+    }
+
+    /**
+     * Splits free text into at most MAX_TERMS words, e.g. "Rent, March" into {"rent", "march"}.
+     * ASCII is lower-cased like the tokenizer does, which also keeps words like "and"/"or" from
+     * acting as query operators.
+     */
+    static String[] terms(@Nullable String text) {
+        if (text == null) {
+            return NO_TERMS;
+        }
+        String[] terms = new String[MAX_TERMS];
+        int count = 0;
+        int i = 0;
+        int length = text.length();
+        while (i < length && count < MAX_TERMS) {
+            while (i < length && !isTokenChar(text.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && isTokenChar(text.charAt(i))) {
+                i++;
+            }
+            if (i > start) {
+                terms[count++] = asciiLowerCase(text, start, i);
+            }
+        }
+        return count == MAX_TERMS ? terms : Arrays.copyOf(terms, count);
+    }
+
+    /**
+     * Turns free text into an FTS4 MATCH expression of AND-ed prefix terms, e.g. "Rent, March" to
+     * "rent* march*". Returns null if the text has no searchable words.
+     */
+    @Nullable
+    static String toMatchQuery(@Nullable String text) {
+        String[] terms = terms(text);
+        if (terms.length == 0) {
+            return null;
+        }
+        StringBuilder match = new StringBuilder(text.length() + 2 * terms.length);
+        for (int i = 0; i < terms.length; i++) {
+            if (i > 0) {
+                match.append(' ');
+            }
+            match.append(terms[i]).append('*');
+        }
+        return match.toString();
+    }
+
+    /**
+     * True if every row matching next also matches previous, i.e. the user only typed more: the
+     * same words with the last one extended, possibly followed by new words ("ub" to "uber e").
+     */
+    static boolean narrows(String[] previous, String[] next) {
+        if (previous.length == 0 || next.length < previous.length) {
+            return false;
+        }
+        int last = previous.length - 1;
+        for (int i = 0; i < last; i++) {
+            if (!previous[i].equals(next[i])) {
+                return false;
+            }
+        }
+        return next[last].startsWith(previous[last]);
+    }
+
+    /**
+     * Keeps the rows of a complete earlier result that still match terms, in their earlier rank
+     * order, applying the same prefix rule as the index so the answer equals a fresh search's rows.
+     */
+    static Results narrow(Results previous, String[] terms) {
+        int[] kept = new int[previous.size];
+        int count = 0;
+        for (int i = 0; i < previous.size; i++) {
+            if (matchesAll(terms, previous.categories[i], previous.notes[i])) {
+                kept[count++] = i;
+            }
+        }
+        Results results = new Results(count, count);
+        for (int i = 0; i < count; i++) {
+            int from = kept[i];
+            results.ids[i] = previous.ids[from];
+            results.dates[i] = previous.dates[from];
+            results.amounts[i] = previous.amounts[from];
+            results.categories[i] = previous.categories[from];
+            results.notes[i] = previous.notes[from];
+        }
+        return results;
+    }
+
+    private static boolean matchesAll(String[] terms, @Nullable String category, @Nullable String note) {
+        for (String term : terms) {
+            if (!hasWordStartingWith(category, term) && !hasWordStartingWith(note, term)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Same word boundaries and ASCII-only case folding as the simple tokenizer
+    private static boolean hasWordStartingWith(@Nullable String text, String prefix) {
+        if (text == null) {
+            return false;
+        }
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && !isTokenChar(text.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && isTokenChar(text.charAt(i))) {
+                i++;
+            }
+            if (i - start >= prefix.length() && startsWithAt(text, start, prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // prefix is already lower case; only ASCII letters of text are folded
+    private static boolean startsWithAt(String text, int start, String prefix) {
+        for (int k = 0; k < prefix.length(); k++) {
+            if (asciiLowerCase(text.charAt(start + k)) != prefix.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String asciiLowerCase(String text, int start, int end) {
+        char[] chars = new char[end - start];
+        for (int k = 0; k < chars.length; k++) {
+            chars[k] = asciiLowerCase(text.charAt(start + k));
+        }
+        return new String(chars);
+    }
+
+    private static char asciiLowerCase(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    // The simple tokenizer keeps ASCII letters/digits and every non-ASCII character; the rest separates words
+    private static boolean isTokenChar(char c) {
+        return c >= 0x80 || (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    /**
+     * Indexes of the best k hits, best first: highest score, then newest date, then highest id.
+     * A bounded heap keeps the worst of the k best so far at its root, so n hits cost O(n log k)
+     * with nothing boxed, instead of sorting all n for every page.
+     */
+    static int[] topRanked(double[] scores, String[] dates, long[] ids, int k) {
+        Ranking ranking = new Ranking(scores, dates, ids);
+        k = Math.max(Math.min(k, scores.length), 0);
+        int[] heap = new int[k];
+        int size = 0;
+        for (int hit = 0; hit < scores.length; hit++) {
+            if (size < k) {
+                heap[size] = hit;
+                ranking.siftUp(heap, size++);
+            } else if (k > 0 && ranking.before(hit, heap[0])) {
+                heap[0] = hit;
+                ranking.siftDown(heap, 0, k);
+            }
+        }
+        // Take the worst off the root until the heap is empty, filling the page from the back
+        int[] order = new int[k];
+        for (int end = k - 1; end >= 0; end--) {
+            order[end] = heap[0];
+            heap[0] = heap[end];
+            ranking.siftDown(heap, 0, end);
+        }
+        return order;
+    }
+
+    // Rank order of the hits of one search; the heap in topRanked() holds indexes into these arrays
+    private static final class Ranking {
+        private final double[] scores;
+        private final String[] dates;
+        private final long[] ids;
+
+        Ranking(double[] scores, String[] dates, long[] ids) {
+            this.scores = scores;
+            this.dates = dates;
+            this.ids = ids;
+        }
+
+        // True if hit a ranks before hit b
+        boolean before(int a, int b) {
+            int byScore = Double.compare(scores[a], scores[b]);
+            if (byScore != 0) {
+                return byScore > 0;
+            }
+            int byDate = compareNullable(dates[a], dates[b]);
+            return byDate != 0 ? byDate > 0 : ids[a] > ids[b];
+        }
+
+        // Min-heap by rank: every parent ranks after its children
+        void siftUp(int[] heap, int child) {
+            while (child > 0) {
+                int parent = (child - 1) / 2;
+                if (!before(heap[parent], heap[child])) {
+                    return;
+                }
+                swap(heap, parent, child);
+                child = parent;
+            }
+        }
+
+        void siftDown(int[] heap, int parent, int size) {
+            while (true) {
+                int worst = parent;
+                int left = 2 * parent + 1;
+                if (left < size && before(heap[worst], heap[left])) {
+                    worst = left;
+                }
+                if (left + 1 < size && before(heap[worst], heap[left + 1])) {
+                    worst = left + 1;
+                }
+                if (worst == parent) {
+                    return;
+                }
+                swap(heap, parent, worst);
+                parent = worst;
+            }
+        }
+
+        private static void swap(int[] heap, int i, int j) {
+            int t = heap[i];
+            heap[i] = heap[j];
+            heap[j] = t;
+        }
+
+        private static int compareNullable(@Nullable String a, @Nullable String b) {
+            if (a == null || b == null) {
+                return a == null ? (b == null ? 0 : -1) : 1;
+            }
+            return a.compareTo(b);
+        }
+    }
+
+    /**
+     * Relevance of one row from its matchinfo(MATCHINFO_FORMAT) blob: for every term and column,
+     * the share of that term's hits across the whole index that fall in this row, times the
+     * column weight. Rare terms therefore count for more than ones found in every row.
+     */
+    static double score(byte[] matchinfo) {
+        ByteBuffer info = ByteBuffer.wrap(matchinfo).order(ByteOrder.nativeOrder()); // 32-bit native ints
+        int phrases = info.getInt(0);
+        int columns = info.getInt(4);
+        double score = 0;
+        for (int phrase = 0; phrase < phrases; phrase++) {
+            for (int column = 0; column < columns; column++) {
+                int offset = 8 + 12 * (phrase * columns + column);
+                int hitsInRow = info.getInt(offset);
+                int hitsInIndex = info.getInt(offset + 4);
+                if (hitsInRow > 0) {
+                    double weight = column < COLUMN_WEIGHTS.length ? COLUMN_WEIGHTS[column] : 1.0;
+                    score += weight * hitsInRow / hitsInIndex;
+                }
+            }
+        }
+        return score;
+    }
+}
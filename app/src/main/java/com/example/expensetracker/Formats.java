@@ -0,0 +1,191 @@
+package com.example.expensetracker;
+
+import java.math.BigDecimal;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Locale;
+
+/**
+ * Display formatting for the screens: month keys, display months, ISO dates and locale-aware
+ * currency, from one instance per locale that every thread can share.
+ *
+ * Building a NumberFormat or SimpleDateFormat costs far more than formatting with one, and neither
+ * is thread-safe, so nothing here constructs a formatter per call. Month strings are cached by
+ * month index in a small table of immutable entries. Currency is appended digit by digit from the
+ * locale's prefix, suffix and separators, read once from its currency DecimalFormat; every amount
+ * is in minor units, so that fast path always shows exactly two decimals. A locale whose format
+ * the fast path cannot reproduce (checked at construction) goes through a per-thread
+ * NumberFormat clone instead.
+ *
+ * Stored, exported and edited values must not depend on the locale, so they go through
+ * Money.parse() and Money.appendPlain() ("1234.56") instead.
+ */
+final class Formats {
+
+    // Power of two; a month index maps to one slot. Covers a few years of Next/Previous scrubbing.
+    private static final int MONTH_CACHE_SIZE = 64;
+
+    private static volatile Formats instance;
+
+    /** One month's strings. Immutable, so a slot can be read and replaced without locking. */
+    private static final class MonthStrings {
+        final int monthIndex;
+        final String key;
+        final String display;
+
+        MonthStrings(int monthIndex) {
+            this.monthIndex = monthIndex;
+            this.key = EpochDays.formatMonth(monthIndex);
+            this.display = EpochDays.displayMonth(monthIndex);
+        }
+    }
+
+    final Locale locale;
+    private final MonthStrings[] months = new MonthStrings[MONTH_CACHE_SIZE];
+
+    // Currency fast path, from the locale's currency format
+    private final boolean fastCurrency;
+    private final String positivePrefix;
+    private final String positiveSuffix;
+    private final String negativePrefix;
+    private final String negativeSuffix;
+    private final char zeroDigit;
+    private final char decimalSeparator;
+    private final char groupingSeparator;
+    private final int groupingSize; // 0 when the locale does not group
+
+    // Slow path: NumberFormat is not thread-safe, so each thread formats with its own clone
+    private final NumberFormat currencyPrototype;
+    private final ThreadLocal<NumberFormat> currencyFormat = new ThreadLocal<NumberFormat>() {
+        @Override
+        protected NumberFormat initialValue() {
+            return (NumberFormat) currencyPrototype.clone();
+        }
+    };
+
+    /** The instance for the default locale, rebuilt if that changes (e.g. after a settings change). */
+    static Formats getInstance() {
+        Locale locale = Locale.getDefault();
+        Formats formats = instance;
+        if (formats == null || !formats.locale.equals(locale)) {
+            formats = new Formats(locale);
+            instance = formats; // A race only builds a spare instance
+        }
+        return formats;
+    }
+
+    Formats(Locale locale) {
+        this.locale = locale;
+        NumberFormat currency = NumberFormat.getCurrencyInstance(locale);
+        // Amounts are always hundredths, even in currencies without minor units
+        currency.setMinimumFractionDigits(2);
+        currency.setMaximumFractionDigits(2);
+        currencyPrototype = currency;
+
+        if (currency instanceof DecimalFormat) {
+            DecimalFormat decimal = (DecimalFormat) currency;
+            DecimalFormatSymbols symbols = decimal.getDecimalFormatSymbols();
+            positivePrefix = decimal.getPositivePrefix();
+            positiveSuffix = decimal.getPositiveSuffix();
+            negativePrefix = decimal.getNegativePrefix();
+            negativeSuffix = decimal.getNegativeSuffix();
+            zeroDigit = symbols.getZeroDigit();
+            decimalSeparator = symbols.getMonetaryDecimalSeparator();
+            groupingSeparator = symbols.getGroupingSeparator();
+            groupingSize = decimal.isGroupingUsed() ? decimal.getGroupingSize() : 0;
+            fastCurrency = fastPathMatches();
+        } else {
+            positivePrefix = positiveSuffix = negativePrefix = negativeSuffix = "";
+            zeroDigit = '0';
+            decimalSeparator = '.';
+            groupingSeparator = ',';
+            groupingSize = 0;
+            fastCurrency = false;
+        }
+    }
+
+    // --- Months and dates ---
+
+    /** 'YYYY-MM' of a month index (see EpochDays), the key used by queries and the rollup. */
+    String monthKey(int monthIndex) {
+        return month(monthIndex).key;
+    }
+
+    /** e.g. "October 2025". */
+    String displayMonth(int monthIndex) {
+        return month(monthIndex).display;
+    }
+
+    /** 'YYYY-MM-DD' of an epoch day, as stored in the expenses Date column. */
+    String isoDate(long epochDay) {
+        return EpochDays.format(epochDay);
+    }
+
+    private MonthStrings month(int monthIndex) {
+        int slot = monthIndex & (MONTH_CACHE_SIZE - 1);
+        MonthStrings cached = months[slot];
+        if (cached == null || cached.monthIndex != monthIndex) {
+            cached = new MonthStrings(monthIndex);
+            months[slot] = cached; // Final fields make a racy publish safe
+        }
+        return cached;
+    }
+
+    // --- Currency ---
+
+    /** Appends minorUnits in the locale's currency format, e.g. "$1,234.56" in en_US. */
+    StringBuilder appendCurrency(StringBuilder sb, long minorUnits) {
+        if (!fastCurrency || minorUnits == Long.MIN_VALUE) {
+            return sb.append(currencyFormat.get().format(BigDecimal.valueOf(minorUnits, 2)));
+        }
+        return appendFast(sb, minorUnits);
+    }
+
+    String currency(long minorUnits) {
+        return appendCurrency(new StringBuilder(24), minorUnits).toString();
+    }
+
+    // Left to right so nothing needs a scratch buffer: 1234567 -> "1,234,567"
+    private void appendGrouped(StringBuilder sb, long value) {
+        long scale = 1;
+        int digits = 1;
+        while (value / scale >= 10) {
+            scale *= 10;
+            digits++;
+        }
+        for (; scale > 0; scale /= 10, digits--) {
+            sb.append((char) (zeroDigit + value / scale % 10));
+            if (groupingSize > 0 && digits > 1 && (digits - 1) % groupingSize == 0) {
+                sb.append(groupingSeparator);
+            }
+        }
+    }
+
+    // Locales with secondary grouping (e.g. en_IN's "12,34,567.00") or other patterns the
+    // getters above do not describe fall back to the NumberFormat
+    private boolean fastPathMatches() {
+        long[] samples = {0, 5, 99, 100, 123_456, -123_456, 123_456_789_012L, -100_000_000};
+        StringBuilder fast = new StringBuilder(32);
+        for (long sample : samples) {
+            fast.setLength(0);
+            String expected = currencyPrototype.format(BigDecimal.valueOf(sample, 2));
+            if (!expected.contentEquals(appendFast(fast, sample))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private StringBuilder appendFast(StringBuilder sb, long minorUnits) {
+        boolean negative = minorUnits < 0;
+        long value = negative ? -minorUnits : minorUnits;
+        sb.append(negative ? negativePrefix : positivePrefix);
+        appendGrouped(sb, value / Money.MINOR_PER_MAJOR);
+        long cents = value % Money.MINOR_PER_MAJOR;
+        sb.append(decimalSeparator)
+                .append((char) (zeroDigit + cents / 10))
+                .append((char) (zeroDigit + cents % 10));
+        return sb.append(negative ? negativeSuffix : positiveSuffix);
+    }
+}
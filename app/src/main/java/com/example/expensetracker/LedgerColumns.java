@@ -0,0 +1,284 @@
+package com.example.expensetracker;
+
+import android.database.Cursor;
+import android.os.CancellationSignal;
+
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * One user's whole ledger in memory as parallel primitive columns, for analytics that would
+ * otherwise cost a SQLite GROUP BY per question (category trends, day-of-week spend, comparing
+ * months). Rows are kept sorted by (DateDay, ExpID), so any day range is two binary searches
+ * away, and categories are dictionary-encoded as int codes. The aggregates are plain counted
+ * loops over int and long arrays that the JIT can unroll; a million rows are four arrays (24 MB)
+ * rather than a million objects, and summing them takes a few milliseconds.
+ *
+ * Rows without a valid date (NULL DateDay) are left out, as they are from every range query.
+ * ExpenseRepository keeps the loaded instance current by applying each add, update and delete
+ * in place, so readers always see committed rows; every method is synchronized.
+ */
+final class LedgerColumns {
+
+    static final int LOAD_PAGE_SIZE = 4096;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    final long userId;
+
+    // Rows [0, size), ordered by (days, ids)
+    private int[] days; // Epoch day, see EpochDays
+    private long[] amounts; // Minor units
+    private int[] categories; // Code into categoryNames
+    private long[] ids; // ExpID
+    private int size;
+
+    // Category dictionary. Codes are never reassigned, so a category that lost its rows totals 0.
+    private String[] categoryNames = new String[16];
+    private int categoryCount;
+    private final HashMap<String, Integer> categoryCodes = new HashMap<>();
+
+    LedgerColumns(long userId) {
+        this.userId = userId;
+        days = new int[INITIAL_CAPACITY];
+        amounts = new long[INITIAL_CAPACITY];
+        categories = new int[INITIAL_CAPACITY];
+        ids = new long[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Reads the user's ledger in keyset pages of LOAD_PAGE_SIZE, so no cursor window ever has to be
+     * refilled from the start of a huge result. Cancelling the signal aborts the current page.
+     */
+    static LedgerColumns load(DatabaseHelper dbHelper, long userId, @Nullable CancellationSignal signal) {
+        LedgerColumns columns = new LedgerColumns(userId);
+        long afterDay = 0;
+        long afterId = 0;
+        int rows;
+        do {
+            Cursor page = dbHelper.getLedgerColumnsPage(userId, afterDay, afterId, LOAD_PAGE_SIZE, signal);
+            try {
+                rows = page.getCount();
+                int idIndex = page.getColumnIndexOrThrow("_id");
+                int dayIndex = page.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_DAY);
+                int amountIndex = page.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_AMOUNT);
+                int categoryIndex = page.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_CATEGORY);
+                synchronized (columns) {
+                    while (page.moveToNext()) {
+                        afterId = page.getLong(idIndex);
+                        afterDay = page.getLong(dayIndex);
+                        columns.insertAt(columns.size, afterId, afterDay, page.getLong(amountIndex),
+                                columns.codeFor(page.getString(categoryIndex)));
+                    }
+                }
+            } finally {
+                page.close();
+            }
+        } while (rows == LOAD_PAGE_SIZE);
+        return columns;
+    }
+
+    // --- Incremental updates ---
+
+    /** Adds a committed row. A null category is stored as '', like the rollup. */
+    synchronized void insert(long id, long day, long amountMinor, @Nullable String category) {
+        int at = size;
+        // A new expense is usually dated today and has the highest ExpID: it goes at the end
+        if (size > 0 && (days[size - 1] > day || (days[size - 1] == day && ids[size - 1] > id))) {
+            at = lowerBound(day);
+            while (at < size && days[at] == day && ids[at] < id) {
+                at++;
+            }
+        }
+        insertAt(at, id, day, amountMinor, codeFor(category));
+    }
+
+    /** Drops the row with this ExpID; false if it is not here (e.g. it had no valid date). */
+    synchronized boolean remove(long id) {
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == id) {
+                int tail = size - i - 1;
+                System.arraycopy(days, i + 1, days, i, tail);
+                System.arraycopy(amounts, i + 1, amounts, i, tail);
+                System.arraycopy(categories, i + 1, categories, i, tail);
+                System.arraycopy(ids, i + 1, ids, i, tail);
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Caller holds the lock
+    private void insertAt(int at, long id, long day, long amountMinor, int category) {
+        if (size == ids.length) {
+            int capacity = size * 2;
+            days = Arrays.copyOf(days, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+            categories = Arrays.copyOf(categories, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+        }
+        int tail = size - at;
+        if (tail > 0) {
+            System.arraycopy(days, at, days, at + 1, tail);
+            System.arraycopy(amounts, at, amounts, at + 1, tail);
+            System.arraycopy(categories, at, categories, at + 1, tail);
+            System.arraycopy(ids, at, ids, at + 1, tail);
+        }
+        days[at] = (int) day;
+        amounts[at] = amountMinor;
+        categories[at] = category;
+        ids[at] = id;
+        size++;
+    }
+
+    // Caller holds the lock
+    private int codeFor(@Nullable String category) {
+        String name = category != null ? category : "";
+        Integer code = categoryCodes.get(name);
+        if (code != null) {
+            return code;
+        }
+        if (categoryCount == categoryNames.length) {
+            categoryNames = Arrays.copyOf(categoryNames, categoryCount * 2);
+        }
+        categoryNames[categoryCount] = name;
+        categoryCodes.put(name, categoryCount);
+        return categoryCount++;
+    }
+
+    // --- Dictionary ---
+
+    synchronized int size() {
+        return size;
+    }
+
+    /** Number of category codes; every per-category array below has this length. */
+    synchronized int categoryCount() {
+        return categoryCount;
+    }
+
+    synchronized String categoryName(int code) {
+        return categoryNames[code];
+    }
+
+    /** The code of category, or -1 if no row ever had it. */
+    synchronized int categoryCode(String category) {
+        Integer code = categoryCodes.get(category);
+        return code != null ? code : -1;
+    }
+
+    // --- Scans and aggregates; day ranges are half-open [fromDay, toDay) ---
+
+    /** Sum of every row in the range, in minor units. */
+    synchronized long total(long fromDay, long toDay) {
+        long total = 0;
+        for (int i = lowerBound(fromDay), end = lowerBound(toDay); i < end; i++) {
+            total += amounts[i];
+        }
+        return total;
+    }
+
+    synchronized int count(long fromDay, long toDay) {
+        return Math.max(0, lowerBound(toDay) - lowerBound(fromDay));
+    }
+
+    /** Totals indexed by category code. */
+    synchronized long[] totalsByCategory(long fromDay, long toDay) {
+        long[] totals = new long[categoryCount];
+        addByCategory(totals, lowerBound(fromDay), lowerBound(toDay));
+        return totals;
+    }
+
+    /** Totals indexed by day of week, 0 = Sunday (see EpochDays.dayOfWeek). */
+    synchronized long[] totalsByDayOfWeek(long fromDay, long toDay) {
+        long[] totals = new long[7];
+        int end = lowerBound(toDay);
+        int i = lowerBound(fromDay);
+        // Rows are sorted by day, so the weekday is computed once per distinct day
+        while (i < end) {
+            int day = days[i];
+            long dayTotal = 0;
+            for (; i < end && days[i] == day; i++) {
+                dayTotal += amounts[i];
+            }
+            totals[EpochDays.dayOfWeek(day)] += dayTotal;
+        }
+        return totals;
+    }
+
+    /** Totals of months [fromMonth, toMonth) (month indexes, see EpochDays), one per month. */
+    synchronized long[] totalsByMonth(int fromMonth, int toMonth) {
+        long[] totals = new long[Math.max(0, toMonth - fromMonth)];
+        int start = lowerBound(EpochDays.firstDayOfMonth(fromMonth));
+        for (int m = 0; m < totals.length; m++) {
+            int end = lowerBound(EpochDays.firstDayOfMonth(fromMonth + m + 1));
+            long total = 0;
+            for (int i = start; i < end; i++) {
+                total += amounts[i];
+            }
+            totals[m] = total;
+            start = end;
+        }
+        return totals;
+    }
+
+    /** [month - fromMonth][category code] totals of months [fromMonth, toMonth). */
+    synchronized long[][] totalsByMonthAndCategory(int fromMonth, int toMonth) {
+        int[] monthStarts = monthStarts(fromMonth, toMonth);
+        long[][] totals = new long[monthStarts.length - 1][categoryCount];
+        for (int m = 0; m < totals.length; m++) {
+            addByCategory(totals[m], monthStarts[m], monthStarts[m + 1]);
+        }
+        return totals;
+    }
+
+    /**
+     * The same totals, with the scan split into date-ordered segments across pool's threads (see
+     * ParallelAggregation). Worth it for multi-year ranges; writes wait until it returns.
+     */
+    synchronized long[][] totalsByMonthAndCategory(int fromMonth, int toMonth, ForkJoinPool pool) {
+        return ParallelAggregation.monthCategoryTotals(pool, amounts, categories,
+                monthStarts(fromMonth, toMonth), categoryCount);
+    }
+
+    // monthStarts[m] is the first row of month fromMonth + m; the last entry ends toMonth - 1.
+    // Caller holds the lock.
+    private int[] monthStarts(int fromMonth, int toMonth) {
+        int[] starts = new int[Math.max(0, toMonth - fromMonth) + 1];
+        for (int m = 0; m < starts.length; m++) {
+            starts[m] = lowerBound(EpochDays.firstDayOfMonth(fromMonth + m));
+        }
+        return starts;
+    }
+
+    // Caller holds the lock
+    private void addByCategory(long[] totals, int start, int end) {
+        for (int i = start; i < end; i++) {
+            totals[categories[i]] += amounts[i];
+        }
+    }
+
+    // First row whose day is >= day; size if there is none. Caller holds the lock.
+    private int lowerBound(long day) {
+        if (day > Integer.MAX_VALUE) {
+            return size;
+        }
+        if (day < Integer.MIN_VALUE) {
+            return 0;
+        }
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (days[mid] < day) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.expensetracker;
+
+import android.database.Cursor;
+import android.os.CancellationSignal;
+import android.os.SystemClock;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Streams a user's expenses to CSV or JSON without loading the ledger into memory.
+ *
+ * Rows are read in keyset pages of PAGE_SIZE ordered by (DateDay, ExpID); each page's cursor is
+ * closed before the next one is opened, so memory stays flat whatever the row count. Exporting the
+ * whole ledger also writes the rows without a DateDay (unparseable dates), last, in ExpID order. Output goes
+ * straight to the given Writer (wrap it in a BufferedWriter) through one reused StringBuilder.
+ */
+public final class LedgerExporter {
+
+    static final int PAGE_SIZE = 1000;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    public enum Format { CSV, JSON }
+
+    /** Called on the export thread after each page has been written. */
+    public interface ProgressListener {
+        void onProgress(long rowsWritten, long elapsedMillis);
+    }
+
+    public static final class Result {
+        public final long rowsWritten;
+        public final long elapsedMillis;
+        public final boolean cancelled;
+
+        Result(long rowsWritten, long elapsedMillis, boolean cancelled) {
+            this.rowsWritten = rowsWritten;
+            this.elapsedMillis = elapsedMillis;
+            this.cancelled = cancelled;
+        }
+
+        public long rowsPerSecond() {
+            return elapsedMillis == 0 ? rowsWritten * 1000 : rowsWritten * 1000 / elapsedMillis;
+        }
+    }
+
+    private final DatabaseHelper dbHelper;
+    private final StringBuilder line = new StringBuilder(128);
+    private char[] lineChars = new char[256];
+
+    public LedgerExporter(DatabaseHelper dbHelper) {
+        this.dbHelper = dbHelper;
+    }
+
+    /**
+     * @param fromDate Inclusive YYYY-MM-DD, or null for the beginning of the ledger.
+     * @param toDate Exclusive YYYY-MM-DD, or null for the end of the ledger. With both bounds null
+     *               every expense is written, including those whose Date is not a valid day.
+     * @param signal Checked between pages; a cancelled export leaves a truncated file.
+     */
+    public Result export(long userId, String fromDate, String toDate, Format format, Writer out,
+                         ProgressListener listener, CancellationSignal signal) throws IOException {
+        long startMillis = SystemClock.elapsedRealtime();
+        long rowsWritten = 0;
+
+        if (format == Format.CSV) {
+            out.write("Date,Amount,Category,Note\n");
+        } else {
+            out.write('[');
+        }
+
+        long afterDay = 0;
+        long afterId = 0;
+        // A whole-ledger export ends with a second pass over the rows that have no DateDay
+        boolean undatedPass = false;
+        boolean cancelled = false;
+        while (true) {
+            if (signal != null && signal.isCanceled()) {
+                cancelled = true;
+                break;
+            }
+
+            Cursor page = undatedPass
+                    ? dbHelper.getUndatedExpensesPage(userId, afterId, PAGE_SIZE, signal)
+                    : dbHelper.getExpensesPageAscending(userId, fromDate, toDate, afterDay, afterId, PAGE_SIZE, signal);
+            int rowsInPage;
+            try {
+                rowsInPage = page.getCount();
+                int idIndex = page.getColumnIndexOrThrow("_id");
+                int dateIndex = page.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_DATE);
+                int dayIndex = page.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_DAY);
+                int amountIndex = page.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_AMOUNT);
+                int categoryIndex = page.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_CATEGORY);
+                int noteIndex = page.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_NOTE);
+
+                while (page.moveToNext()) {
+                    String date = page.getString(dateIndex);
+                    line.setLength(0);
+                    if (format == Format.CSV) {
+                        appendCsvRow(date, page.getLong(amountIndex), page.getString(categoryIndex), page.getString(noteIndex));
+                    } else {
+                        appendJsonRow(rowsWritten == 0, date, page.getLong(amountIndex),
+                                page.getString(categoryIndex), page.getString(noteIndex));
+                    }
+                    writeLine(out);
+                    rowsWritten++;
+
+                    afterDay = page.getLong(dayIndex);
+                    afterId = page.getLong(idIndex);
+                }
+            } finally {
+                page.close();
+            }
+
+            if (listener != null && rowsInPage > 0) {
+                listener.onProgress(rowsWritten, SystemClock.elapsedRealtime() - startMillis);
+            }
+            if (rowsInPage < PAGE_SIZE) {
+                // Short page: nothing after it in this pass. Undated rows are in no date range.
+                if (undatedPass || fromDate != null || toDate != null) {
+                    break;
+                }
+                undatedPass = true;
+                afterId = 0;
+            }
+        }
+
+        if (format == Format.JSON) {
+            out.write("]\n");
+        }
+        out.flush();
+        return new Result(rowsWritten, SystemClock.elapsedRealtime() - startMillis, cancelled);
+    }
+
+    // Writer.append(CharSequence) would allocate a String per row; copy through a reused char[] instead
+    private void writeLine(Writer out) throws IOException {
+        int length = line.length();
+        if (length > lineChars.length) {
+            lineChars = new char[Math.max(length, lineChars.length * 2)];
+        }
+        line.getChars(0, length, lineChars, 0);
+        out.write(lineChars, 0, length);
+    }
+
+    // --- Row encoders (append to the shared line buffer) ---
+
+    private void appendCsvRow(String date, long amountMinor, String category, String note) {
+        appendCsvField(date);
+        line.append(',');
+        Money.appendPlain(line, amountMinor);
+        line.append(',');
+        appendCsvField(category);
+        line.append(',');
+        appendCsvField(note);
+        line.append('\n');
+    }
+
+    private void appendCsvField(String value) {
+        if (value == null) {
+            return;
+        }
+        boolean needsQuotes = false;
+        for (int i = 0; i < value.length() && !needsQuotes; i++) {
+            char c = value.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!needsQuotes) {
+            line.append(value);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+
+    private void appendJsonRow(boolean first, String date, long amountMinor, String category, String note) {
+        if (!first) {
+            line.append(',');
+        }
+        line.append("\n{\"date\":");
+        appendJsonString(date);
+        line.append(",\"amount\":");
+        Money.appendPlain(line, amountMinor);
+        line.append(",\"category\":");
+        appendJsonString(category);
+        line.append(",\"note\":");
+        appendJsonString(note);
+        line.append('}');
+    }
+
+    private void appendJsonString(String value) {
+        if (value == null) {
+            line.append("null");
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    line.append("\\\"");
+                    break;
+                case '\\':
+                    line.append("\\\\");
+                    break;
+                case '\n':
+                    line.append("\\n");
+                    break;
+                case '\r':
+                    line.append("\\r");
+                    break;
+                case '\t':
+                    line.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        line.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                    } else {
+                        line.append(c);
+                    }
+            }
+        }
+        line.append('"');
+    }
+}
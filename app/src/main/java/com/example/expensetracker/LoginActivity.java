@@ -2,7 +2,6 @@ package com.example.expensetracker;
 
 import androidx.appcompat.app.AppCompatActivity;
 import android.content.Intent;
-import android.database.Cursor;
 import android.os.Bundle;
 import android.util.Patterns; // Import for email validation
 import android.widget.Button;
@@ -15,7 +14,7 @@ public class LoginActivity extends AppCompatActivity {
     EditText etUsername, etPassword;
     Button btnLogin;
     TextView tvGoToSignup;
-    DatabaseHelper dbHelper;
+    ExpenseRepository repository;
 
     // --- Validation Constants ---
     private static final int MIN_PASSWORD_LENGTH = 8;
@@ -52,7 +51,7 @@ public class LoginActivity extends AppCompatActivity {
         etPassword = findViewById(R.id.etLoginPassword);
         btnLogin = findViewById(R.id.btnLogin);
         tvGoToSignup = findViewById(R.id.tvGoToSignup);
-        dbHelper = new DatabaseHelper(this);
+        repository = ExpenseRepository.getInstance(this);
 
         // 2. Go to Signup Logic (Explicit Intent)
         tvGoToSignup.setOnClickListener(v -> {
@@ -68,24 +67,33 @@ public class LoginActivity extends AppCompatActivity {
             // *** Apply Validation Here ***
             if (isInputValid(username, password)) {
 
-                // If validation passes, attempt login
-                Cursor cursor = dbHelper.checkUser(username, password);
-
-                if (cursor.moveToFirst()) {
-                    // Login Successful
-                    long userId = cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_USER_ID));
-                    Toast.makeText(this, "Login Successful!", Toast.LENGTH_SHORT).show();
-
-                    // Navigate to Dashboard
-                    Intent intent = new Intent(LoginActivity.this, DashboardActivity.class);
-                    intent.putExtra("USER_ID", userId);
-                    startActivity(intent);
-                    finish();
-                } else {
-                    // Login Failed
-                    Toast.makeText(this, "Invalid username or password.", Toast.LENGTH_SHORT).show();
-                }
-                cursor.close();
+                // If validation passes, attempt login (off the main thread)
+                btnLogin.setEnabled(false);
+                repository.login(username, password, DbExecutor.callback(userId -> {
+                    if (isDestroyed()) {
+                        return;
+                    }
+                    btnLogin.setEnabled(true);
+
+                    if (userId != -1) {
+                        // Login Successful
+                        Toast.makeText(this, "Login Successful!", Toast.LENGTH_SHORT).show();
+
+                        // Navigate to Dashboard
+                        Intent intent = new Intent(LoginActivity.this, DashboardActivity.class);
+                        intent.putExtra("USER_ID", (long) userId);
+                        startActivity(intent);
+                        finish();
+                    } else {
+                        // Login Failed
+                        Toast.makeText(this, "Invalid username or password.", Toast.LENGTH_SHORT).show();
+                    }
+                }, error -> {
+                    if (!isDestroyed()) {
+                        btnLogin.setEnabled(true);
+                        Toast.makeText(this, "Could not log in, please try again.", Toast.LENGTH_SHORT).show();
+                    }
+                }));
             }
         });
     }
@@ -0,0 +1,97 @@
+package com.example.expensetracker;
+
+/**
+ * Money is carried through the app as a primitive long of minor units (cents), which is also how
+ * the expenses Amount column stores it. SQLite SUMs over INTEGER are exact, and these helpers work
+ * on the raw long so the read/aggregate path never boxes or goes through double/float.
+ */
+public final class Money {
+
+    public static final int MINOR_PER_MAJOR = 100;
+
+    // Keeps major * MINOR_PER_MAJOR (plus rounding) well inside a long
+    private static final long MAX_MAJOR = Long.MAX_VALUE / (MINOR_PER_MAJOR * 10L);
+
+    private Money() {
+    }
+
+    /**
+     * Parses user input like "12", "12.5" or "12.345" into minor units without going through double.
+     * A third decimal digit and beyond is rounded half-up.
+     * @throws NumberFormatException if the text is not a plain non-negative decimal number.
+     */
+    public static long parse(String text) {
+        if (text == null) {
+            throw new NumberFormatException("null amount");
+        }
+        int length = text.length();
+        if (length == 0) {
+            throw new NumberFormatException("Empty amount");
+        }
+
+        long major = 0;
+        int i = 0;
+        boolean anyDigit = false;
+        for (; i < length && text.charAt(i) != '.'; i++) {
+            major = major * 10 + digit(text, i);
+            anyDigit = true;
+            if (major > MAX_MAJOR) {
+                throw new NumberFormatException("Amount too large: " + text);
+            }
+        }
+
+        long minor = 0;
+        if (i < length) {
+            i++; // Skip '.'
+            int fractionDigits = 0;
+            for (; i < length; i++, fractionDigits++) {
+                int d = digit(text, i);
+                anyDigit = true;
+                if (fractionDigits < 2) {
+                    minor = minor * 10 + d;
+                } else if (fractionDigits == 2 && d >= 5) {
+                    minor++; // Round half-up on the first dropped digit
+                }
+            }
+            if (fractionDigits == 1) {
+                minor *= 10;
+            }
+        }
+        if (!anyDigit) {
+            throw new NumberFormatException("Invalid amount: " + text);
+        }
+        return major * MINOR_PER_MAJOR + minor;
+    }
+
+    private static int digit(String text, int index) {
+        char c = text.charAt(index);
+        if (c < '0' || c > '9') {
+            throw new NumberFormatException("Invalid amount: " + text);
+        }
+        return c - '0';
+    }
+
+    /** Appends minorUnits as "1234.56" (no currency symbol). Allocates nothing beyond builder growth. */
+    public static StringBuilder appendPlain(StringBuilder sb, long minorUnits) {
+        if (minorUnits < 0) {
+            sb.append('-');
+            minorUnits = -minorUnits;
+        }
+        long cents = minorUnits % MINOR_PER_MAJOR;
+        sb.append(minorUnits / MINOR_PER_MAJOR).append('.');
+        if (cents < 10) {
+            sb.append('0');
+        }
+        return sb.append(cents);
+    }
+
+    /** "1234.56", suitable for putting back into an amount EditText. */
+    public static String toPlainString(long minorUnits) {
+        return appendPlain(new StringBuilder(16), minorUnits).toString();
+    }
+
+    /** For chart libraries that only take float. Never feed the result back into arithmetic. */
+    public static float toFloat(long minorUnits) {
+        return minorUnits / (float) MINOR_PER_MAJOR;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.expensetracker;
+
+/**
+ * Warms ExpenseRepository's month snapshot cache with the months around the one on screen, so
+ * Next/Previous taps are served from memory.
+ *
+ * Months are loaded one at a time, nearest first and favouring the direction the user last moved,
+ * so at most one read thread is ever busy prefetching and a foreground load never queues behind
+ * more than that one. The screen calls stop() before its own load and when it is paused.
+ */
+final class MonthPrefetcher {
+
+    // Never prefetch more than the cache can hold next to the month being viewed, or the
+    // prefetched months would start evicting each other (and the current one)
+    static final int MAX_WINDOW = (MonthSnapshotCache.MAX_MONTHS - 1) / 2;
+
+    private final ExpenseRepository repository;
+    private final long userId;
+    private final int limit;
+    private final int window;
+
+    private final String[] queue;
+    private int queueSize;
+    private int next;
+    private DbExecutor.Request request;
+
+    /** @param window how many months on each side of the current one to load, clamped to MAX_WINDOW */
+    MonthPrefetcher(ExpenseRepository repository, long userId, int limit, int window) {
+        this.repository = repository;
+        this.userId = userId;
+        this.limit = limit;
+        this.window = Math.max(0, Math.min(window, MAX_WINDOW));
+        this.queue = new String[this.window * 2];
+    }
+
+    /**
+     * Starts loading the neighbours of monthYear (YYYY-MM), replacing any earlier run.
+     * @param direction the last step the user took: 1 for Next, -1 for Previous, 0 if unknown
+     */
+    void start(String monthYear, int direction) {
+        stop();
+        int index = EpochDays.parseMonth(monthYear);
+
+        Formats formats = Formats.getInstance();
+        int first = direction < 0 ? -1 : 1;
+        queueSize = 0;
+        next = 0;
+        for (int distance = 1; distance <= window; distance++) {
+            queue[queueSize++] = formats.monthKey(index + first * distance);
+            queue[queueSize++] = formats.monthKey(index - first * distance);
+        }
+        fetchNext();
+    }
+
+    /** Cancels the month being loaded and drops the rest. Months already loaded stay cached. */
+    void stop() {
+        if (request != null) {
+            request.cancel();
+            request = null;
+        }
+        next = queueSize;
+    }
+
+    // Called on the main thread; cached months come straight back from the repository without I/O
+    private void fetchNext() {
+        if (next >= queueSize) {
+            request = null;
+            return;
+        }
+        String monthYear = queue[next++];
+        // A month that could not be loaded is skipped rather than stalling the rest
+        request = repository.getMonthSnapshot(userId, monthYear, limit,
+                DbExecutor.callback(snapshot -> fetchNext(), error -> fetchNext()));
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.expensetracker;
+
+import android.database.Cursor;
+import android.os.CancellationSignal;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Everything the dashboard shows for one month, copied out of the database into immutable arrays:
+ * the newest expenses, the per-category totals and their grand total. Cached by MonthSnapshotCache.
+ */
+final class MonthSnapshot {
+
+    final long userId;
+    final String monthYear; // YYYY-MM
+    final int limit; // The top-N the rows were loaded with
+    final ExpensePage topExpenses;
+    final String[] categories; // Sorted by name, as getCategoryTotalsForMonth returns them
+    final long[] categoryTotals; // Minor units
+    final long grandTotal; // Minor units
+
+    private MonthSnapshot(long userId, String monthYear, int limit, ExpensePage topExpenses,
+                          String[] categories, long[] categoryTotals, long grandTotal) {
+        this.userId = userId;
+        this.monthYear = monthYear;
+        this.limit = limit;
+        this.topExpenses = topExpenses;
+        this.categories = categories;
+        this.categoryTotals = categoryTotals;
+        this.grandTotal = grandTotal;
+    }
+
+    /** Runs both dashboard queries for the month; cancelling the signal aborts whichever is running. */
+    static MonthSnapshot load(DatabaseHelper dbHelper, long userId, String monthYear, int limit,
+                              @Nullable CancellationSignal signal) {
+        ExpensePage top = ExpensePage.from(dbHelper.getTopNExpenses(userId, monthYear, limit, signal));
+
+        Cursor cursor = dbHelper.getCategoryTotalsForMonth(userId, monthYear, signal);
+        try {
+            int count = cursor.getCount();
+            String[] categories = new String[count];
+            long[] totals = new long[count];
+            long grandTotal = 0;
+            int categoryIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_CATEGORY);
+            int totalIndex = cursor.getColumnIndexOrThrow("TotalAmount");
+            for (int i = 0; cursor.moveToNext(); i++) {
+                categories[i] = cursor.getString(categoryIndex);
+                totals[i] = cursor.getLong(totalIndex);
+                grandTotal += totals[i];
+            }
+            return new MonthSnapshot(userId, monthYear, limit, top, categories, totals, grandTotal);
+        } finally {
+            cursor.close();
+        }
+    }
+}
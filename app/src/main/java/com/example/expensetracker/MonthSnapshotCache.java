@@ -0,0 +1,82 @@
+package com.example.expensetracker;
+
+import androidx.annotation.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded LRU cache of MonthSnapshots keyed by user and month, so flipping back to a month that
+ * was just on screen costs no query. ExpenseRepository invalidates the months a write touches after
+ * the write commits.
+ *
+ * A load that was already running when an invalidation happened may have read the old rows, so
+ * loads capture generation() before querying and put() drops the result if it has changed since.
+ */
+final class MonthSnapshotCache {
+
+    static final int MAX_MONTHS = 12;
+
+    private final int maxMonths;
+    private final LinkedHashMap<String, MonthSnapshot> snapshots;
+    private long generation;
+
+    MonthSnapshotCache(int maxMonths) {
+        this.maxMonths = maxMonths;
+        // Access order: get() moves a month to the tail, the head is the least recently viewed
+        this.snapshots = new LinkedHashMap<String, MonthSnapshot>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, MonthSnapshot> eldest) {
+                return size() > MonthSnapshotCache.this.maxMonths;
+            }
+        };
+    }
+
+    /** The cached snapshot, or null if the month is not cached or was loaded with a different limit. */
+    @Nullable
+    synchronized MonthSnapshot get(long userId, String monthYear, int limit) {
+        MonthSnapshot snapshot = snapshots.get(key(userId, monthYear));
+        return snapshot != null && snapshot.limit == limit ? snapshot : null;
+    }
+
+    synchronized long generation() {
+        return generation;
+    }
+
+    /** Caches snapshot unless something was invalidated after loadGeneration was read. */
+    synchronized boolean put(MonthSnapshot snapshot, long loadGeneration) {
+        if (loadGeneration != generation) {
+            return false;
+        }
+        snapshots.put(key(snapshot.userId, snapshot.monthYear), snapshot);
+        return true;
+    }
+
+    /** Drops one month; monthYear may be null or malformed (e.g. a bad stored date), which is a no-op. */
+    synchronized void invalidate(long userId, @Nullable String monthYear) {
+        generation++;
+        if (monthYear != null) {
+            snapshots.remove(key(userId, monthYear));
+        }
+    }
+
+    /** Drops every month of the user, for writes that touch an unknown set of months (bulk import). */
+    synchronized void invalidateUser(long userId) {
+        generation++;
+        Iterator<MonthSnapshot> it = snapshots.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().userId == userId) {
+                it.remove();
+            }
+        }
+    }
+
+    synchronized int size() {
+        return snapshots.size();
+    }
+
+    private static String key(long userId, String monthYear) {
+        return userId + "/" + monthYear;
+    }
+}
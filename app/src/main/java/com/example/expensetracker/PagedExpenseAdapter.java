@@ -0,0 +1,100 @@
+package com.example.expensetracker;
+
+import android.view.ViewGroup;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * RecyclerView adapter over an ExpensePager. Rows show "Category: $Amount" over the date, like the
+ * old weekly ListView, but only the pages near the viewport are in memory.
+ */
+final class PagedExpenseAdapter extends RecyclerView.Adapter<PagedExpenseAdapter.RowHolder>
+        implements ExpensePager.Listener {
+
+    interface OnExpenseClickListener {
+        void onExpenseClick(long expenseId);
+    }
+
+    static final class RowHolder extends RecyclerView.ViewHolder {
+        final TwoLineRow row; // Reused for every bind of this holder
+        long expenseId = -1;
+
+        RowHolder(TwoLineRow row) {
+            super(row.view);
+            this.row = row;
+        }
+    }
+
+    private final OnExpenseClickListener clickListener;
+    private final Formats formats = Formats.getInstance();
+    private ExpensePager pager;
+
+    PagedExpenseAdapter(OnExpenseClickListener clickListener) {
+        this.clickListener = clickListener;
+    }
+
+    /** Swaps in a new data source (e.g. another week), releasing the previous one's pages and loads. */
+    void setPager(ExpensePager newPager) {
+        if (pager != null) {
+            pager.release();
+        }
+        pager = newPager;
+        notifyDataSetChanged();
+    }
+
+    void release() {
+        setPager(null);
+    }
+
+    @Override
+    public int getItemCount() {
+        return pager == null ? 0 : pager.getCount();
+    }
+
+    @Override
+    public RowHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        RowHolder holder = new RowHolder(TwoLineRow.of(null, parent));
+        holder.itemView.setOnClickListener(v -> {
+            if (holder.expenseId != -1) {
+                clickListener.onExpenseClick(holder.expenseId);
+            }
+        });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(RowHolder holder, int position) {
+        pager.onPositionBound(position);
+        ExpensePage page = pager.pageFor(position);
+        int index = ExpensePager.indexInPage(position);
+
+        if (page == null || index >= page.size) {
+            // Page is being (re)fetched; onRowsChanged rebinds this row when it arrives
+            holder.expenseId = -1;
+            holder.row.setLine1("Loading...");
+            holder.row.setLine2("");
+            return;
+        }
+
+        holder.expenseId = page.ids[index];
+        TwoLineRow row = holder.row;
+        row.setLine1(formats.appendCurrency(row.line().append(page.categories[index]).append(": "), page.amounts[index]));
+        row.setLine2(page.dates[index]);
+    }
+
+    // --- ExpensePager.Listener ---
+
+    @Override
+    public void onRowsInserted(int start, int count) {
+        if (count > 0) {
+            notifyItemRangeInserted(start, count);
+        }
+    }
+
+    @Override
+    public void onRowsChanged(int start, int count) {
+        if (count > 0) {
+            notifyItemRangeChanged(start, count);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.expensetracker;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * In-app log of screen loads recorded by ScreenTrace: the last CAPACITY loads, each with its
+ * time to first render and the phases it spent that time in (query, bind, chart, frame...), so a
+ * slow screen can be pinned on the database, view binding or drawing.
+ */
+final class PerformanceLog {
+
+    private static final String TAG = "PerformanceLog";
+
+    static final int CAPACITY = 64;
+
+    /** One finished screen load. Phase times are in microseconds and may overlap (parallel loads). */
+    static final class ScreenLoad {
+        final String screen;
+        final long atMillis; // System.currentTimeMillis() at first render
+        final long firstRenderMicros;
+        final String[] phases;
+        final long[] phaseMicros;
+
+        ScreenLoad(String screen, long atMillis, long firstRenderMicros, String[] phases, long[] phaseMicros) {
+            this.screen = screen;
+            this.atMillis = atMillis;
+            this.firstRenderMicros = firstRenderMicros;
+            this.phases = phases;
+            this.phaseMicros = phaseMicros;
+        }
+
+        /** e.g. "Dashboard month: first render 84 ms (query 12 ms, bind 3 ms, chart 20 ms, frame 49 ms)". */
+        StringBuilder appendTo(StringBuilder sb) {
+            sb.append(screen).append(": first render ");
+            appendMillis(sb, firstRenderMicros).append(" (");
+            for (int i = 0; i < phases.length; i++) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                sb.append(phases[i]).append(' ');
+                appendMillis(sb, phaseMicros[i]);
+            }
+            return sb.append(')');
+        }
+    }
+
+    private static PerformanceLog instance;
+
+    // Ring buffer, guarded by this; next is where the next entry goes
+    private final ScreenLoad[] loads = new ScreenLoad[CAPACITY];
+    private int next;
+    private long total;
+
+    static synchronized PerformanceLog getInstance() {
+        if (instance == null) {
+            instance = new PerformanceLog();
+        }
+        return instance;
+    }
+
+    void add(ScreenLoad load) {
+        synchronized (this) {
+            loads[next] = load;
+            next = (next + 1) % CAPACITY;
+            total++;
+        }
+        Log.i(TAG, load.appendTo(new StringBuilder(128)).toString());
+    }
+
+    /** The logged loads, newest first. */
+    synchronized List<ScreenLoad> recent() {
+        int size = (int) Math.min(total, CAPACITY);
+        List<ScreenLoad> newestFirst = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            newestFirst.add(loads[(next - i + CAPACITY) % CAPACITY]);
+        }
+        return newestFirst;
+    }
+
+    /** Median time to first render of screen over the logged loads, in microseconds; -1 if none. */
+    long medianFirstRenderMicros(String screen) {
+        List<ScreenLoad> all = recent();
+        long[] times = new long[all.size()];
+        int count = 0;
+        for (ScreenLoad load : all) {
+            if (load.screen.equals(screen)) {
+                times[count++] = load.firstRenderMicros;
+            }
+        }
+        if (count == 0) {
+            return -1;
+        }
+        Arrays.sort(times, 0, count);
+        return times[count / 2];
+    }
+
+    /** Writes the per-screen medians and every logged load, newest first. */
+    void dump(Writer out) throws IOException {
+        List<ScreenLoad> all = recent();
+        out.write("Screen loads (" + all.size() + " of " + totalLoads() + " kept, newest first)\n");
+        List<String> screens = new ArrayList<>();
+        for (ScreenLoad load : all) {
+            if (!screens.contains(load.screen)) {
+                screens.add(load.screen);
+            }
+        }
+        for (String screen : screens) {
+            out.write(screen + " median first render " + medianFirstRenderMicros(screen) / 1000 + " ms\n");
+        }
+        StringBuilder line = new StringBuilder(128);
+        for (ScreenLoad load : all) {
+            line.setLength(0);
+            line.append(load.atMillis).append(' ');
+            out.write(load.appendTo(line).append('\n').toString());
+        }
+        out.flush();
+    }
+
+    synchronized long totalLoads() {
+        return total;
+    }
+
+    private static StringBuilder appendMillis(StringBuilder sb, long micros) {
+        // One decimal: most phases are a few milliseconds
+        return sb.append(micros / 1000).append('.').append(micros / 100 % 10).append(" ms");
+    }
+}
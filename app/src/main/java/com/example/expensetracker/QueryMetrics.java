@@ -0,0 +1,309 @@
+package com.example.expensetracker;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteCursor;
+import android.database.sqlite.SQLiteCursorDriver;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQuery;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Always-on timing of DatabaseHelper's queries and writes: a latency histogram and row counts per
+ * named operation, plus a ring buffer of the last SLOW_LOG_CAPACITY calls over the slow threshold.
+ *
+ * Reads are timed where SQLite actually runs them. rawQuery() only prepares the statement; the
+ * rows are produced by the cursor's first fill, which happens in its first getCount() (every
+ * move calls getCount() first). Each Op is the CursorFactory for its own queries and its cursors
+ * time that call. Recording costs two nanoTime() calls and an uncontended lock. EXPLAIN QUERY
+ * PLAN runs only in dump(), never on the query path.
+ */
+final class QueryMetrics {
+
+    private static final String TAG = "QueryMetrics";
+
+    static final int SLOW_LOG_CAPACITY = 32;
+    static final long DEFAULT_SLOW_THRESHOLD_MICROS = 50_000;
+
+    // Bucket 0 counts calls under 1 us; bucket b > 0 counts [2^(b-1), 2^b) us. The last is open-ended.
+    static final int BUCKETS = 32;
+
+    /** One named query or write with its running statistics. */
+    final class Op implements SQLiteDatabase.CursorFactory {
+        final String name;
+
+        private final long[] histogram = new long[BUCKETS];
+        private long count;
+        private long totalMicros;
+        private long maxMicros;
+        private long totalRows;
+        private long maxRows;
+
+        // The SQL of the latest call, for dump()'s plans. Two threads running the same Op may
+        // swap texts, which only matters for the slow log, and both are the same query shape.
+        volatile String lastSql;
+
+        private Op(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Cursor newCursor(SQLiteDatabase db, SQLiteCursorDriver driver, String editTable, SQLiteQuery query) {
+            return new TimedCursor(driver, editTable, query, this, lastSql);
+        }
+
+        /**
+         * Records one call that began at startNanos (System.nanoTime()).
+         * @param rows Rows returned by a read, or changed by a write.
+         */
+        void record(long startNanos, long rows) {
+            record(lastSql, startNanos, rows);
+        }
+
+        void record(String sql, long startNanos, long rows) {
+            recordMicros(sql, (System.nanoTime() - startNanos) / 1000, rows);
+        }
+
+        void recordMicros(String sql, long micros, long rows) {
+            int bucket = micros == 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+            synchronized (this) {
+                histogram[bucket]++;
+                count++;
+                totalMicros += micros;
+                maxMicros = Math.max(maxMicros, micros);
+                totalRows += rows;
+                maxRows = Math.max(maxRows, rows);
+            }
+            if (micros >= slowThresholdMicros) {
+                logSlow(name, sql, micros, rows);
+            }
+        }
+
+        synchronized Stats stats() {
+            return new Stats(name, count, totalMicros, maxMicros, totalRows, maxRows, histogram.clone(), lastSql);
+        }
+    }
+
+    /** A point-in-time copy of one Op's statistics. */
+    static final class Stats {
+        final String name;
+        final long count;
+        final long totalMicros;
+        final long maxMicros;
+        final long totalRows;
+        final long maxRows;
+        final long[] histogram;
+        @Nullable
+        final String lastSql;
+
+        Stats(String name, long count, long totalMicros, long maxMicros, long totalRows, long maxRows,
+              long[] histogram, @Nullable String lastSql) {
+            this.name = name;
+            this.count = count;
+            this.totalMicros = totalMicros;
+            this.maxMicros = maxMicros;
+            this.totalRows = totalRows;
+            this.maxRows = maxRows;
+            this.histogram = histogram;
+            this.lastSql = lastSql;
+        }
+
+        /**
+         * Upper bound of the histogram bucket holding the given percentile, in microseconds, so the
+         * answer is at most 2x the real value. 0 if nothing was recorded.
+         */
+        long percentileMicros(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(count * percentile / 100);
+            long seen = 0;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                seen += histogram[bucket];
+                if (seen >= Math.max(rank, 1)) {
+                    return bucket == BUCKETS - 1 ? maxMicros : Math.min(1L << bucket, maxMicros);
+                }
+            }
+            return maxMicros;
+        }
+    }
+
+    /** One call that took at least the slow threshold. */
+    static final class SlowQuery {
+        final String name;
+        @Nullable
+        final String sql;
+        final long micros;
+        final long rows;
+        final long atMillis; // System.currentTimeMillis() when it finished
+
+        SlowQuery(String name, @Nullable String sql, long micros, long rows, long atMillis) {
+            this.name = name;
+            this.sql = sql;
+            this.micros = micros;
+            this.rows = rows;
+            this.atMillis = atMillis;
+        }
+    }
+
+    private final List<Op> ops = new ArrayList<>();
+    private volatile long slowThresholdMicros = DEFAULT_SLOW_THRESHOLD_MICROS;
+
+    // Ring buffer, guarded by itself; slowNext is where the next entry goes
+    private final SlowQuery[] slowLog = new SlowQuery[SLOW_LOG_CAPACITY];
+    private int slowNext;
+    private long slowTotal;
+
+    /** Registers a named operation. Call once per operation, not per call. */
+    synchronized Op op(String name) {
+        Op op = new Op(name);
+        ops.add(op);
+        return op;
+    }
+
+    void setSlowThresholdMillis(long millis) {
+        slowThresholdMicros = millis * 1000;
+    }
+
+    long getSlowThresholdMillis() {
+        return slowThresholdMicros / 1000;
+    }
+
+    /** Statistics of every registered operation, in registration order. */
+    List<Stats> stats() {
+        List<Op> registered;
+        synchronized (this) {
+            registered = new ArrayList<>(ops);
+        }
+        List<Stats> stats = new ArrayList<>(registered.size());
+        for (Op op : registered) {
+            stats.add(op.stats());
+        }
+        return stats;
+    }
+
+    /** The slow log, newest first. */
+    List<SlowQuery> slowQueries() {
+        synchronized (slowLog) {
+            int size = (int) Math.min(slowTotal, SLOW_LOG_CAPACITY);
+            List<SlowQuery> newestFirst = new ArrayList<>(size);
+            for (int i = 1; i <= size; i++) {
+                newestFirst.add(slowLog[(slowNext - i + SLOW_LOG_CAPACITY) % SLOW_LOG_CAPACITY]);
+            }
+            return newestFirst;
+        }
+    }
+
+    /** Calls over the slow threshold since startup, including those the ring buffer has dropped. */
+    long slowQueryCount() {
+        synchronized (slowLog) {
+            return slowTotal;
+        }
+    }
+
+    private void logSlow(String name, @Nullable String sql, long micros, long rows) {
+        synchronized (slowLog) {
+            slowLog[slowNext] = new SlowQuery(name, sql, micros, rows, System.currentTimeMillis());
+            slowNext = (slowNext + 1) % SLOW_LOG_CAPACITY;
+            slowTotal++;
+        }
+        Log.w(TAG, name + " took " + micros / 1000 + " ms (" + rows + " rows)");
+    }
+
+    /**
+     * Writes a plain-text report: every operation's count, latency percentiles and rows, then the
+     * slow log. With db, each query's latest SQL is run through EXPLAIN QUERY PLAN and summarized.
+     */
+    void dump(Writer out, @Nullable SQLiteDatabase db) throws IOException {
+        out.write("Query metrics (slow >= " + getSlowThresholdMillis() + " ms)\n");
+        out.write("name count p50us p95us p99us maxus avgRows maxRows\n");
+        List<Stats> all = stats();
+        for (Stats stats : all) {
+            if (stats.count == 0) {
+                continue;
+            }
+            out.write(stats.name + " " + stats.count + " " + stats.percentileMicros(50) + " " +
+                    stats.percentileMicros(95) + " " + stats.percentileMicros(99) + " " + stats.maxMicros + " " +
+                    stats.totalRows / stats.count + " " + stats.maxRows + "\n");
+        }
+
+        if (db != null) {
+            out.write("\nPlans\n");
+            for (Stats stats : all) {
+                if (stats.count > 0 && stats.lastSql != null) {
+                    out.write(stats.name + ": " + explain(db, stats.lastSql) + "\n");
+                }
+            }
+        }
+
+        List<SlowQuery> slow = slowQueries();
+        out.write("\nSlow queries (" + slowQueryCount() + " total, newest first)\n");
+        for (SlowQuery query : slow) {
+            out.write(query.atMillis + " " + query.name + " " + query.micros + " us, " + query.rows + " rows");
+            if (db != null && query.sql != null) {
+                out.write(": " + explain(db, query.sql));
+            }
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    /**
+     * EXPLAIN QUERY PLAN of sql (a read or a write) as one line, e.g. "SEARCH expenses USING INDEX
+     * idx_expenses_user_day (UserID=? AND DateDay>? AND DateDay<?)". Parameters stay unbound,
+     * which does not change the plan.
+     */
+    static String explain(SQLiteDatabase db, String sql) {
+        Cursor cursor;
+        try {
+            cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, null);
+        } catch (RuntimeException e) {
+            return "(no plan: " + e.getMessage() + ")";
+        }
+        try {
+            StringBuilder plan = new StringBuilder();
+            int detail = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                if (plan.length() > 0) {
+                    plan.append("; ");
+                }
+                plan.append(cursor.getString(detail));
+            }
+            return plan.toString();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    // SQLiteCursor that times the fill behind its first getCount()
+    private static final class TimedCursor extends SQLiteCursor {
+        private final Op op;
+        @Nullable
+        private final String sql;
+        private boolean counted;
+
+        TimedCursor(SQLiteCursorDriver driver, String editTable, SQLiteQuery query, Op op, @Nullable String sql) {
+            super(driver, editTable, query);
+            this.op = op;
+            this.sql = sql;
+        }
+
+        @Override
+        public int getCount() {
+            if (counted) {
+                return super.getCount();
+            }
+            counted = true;
+            long start = System.nanoTime();
+            int count = super.getCount();
+            op.record(sql, start, count);
+            return count;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.expensetracker;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Trace;
+import android.view.Choreographer;
+
+import java.util.Arrays;
+
+/**
+ * Times one screen load from start() to the first frame drawn with its data, and the phases in
+ * between, for PerformanceLog. Synchronous phases (binding, building the chart) are also systrace
+ * sections named "screen.phase", so they line up with the framework's own slices in Perfetto.
+ * Asynchronous phases (a query on DbExecutor) are recorded from when they were requested.
+ *
+ * Main thread only. Costs a few nanoTime() calls per load; nothing is allocated per frame.
+ */
+final class ScreenTrace {
+
+    private static final int MAX_PHASES = 8;
+
+    private final String screen;
+    private final long startNanos;
+    private final String[] phases = new String[MAX_PHASES];
+    private final long[] phaseMicros = new long[MAX_PHASES];
+    private int phaseCount;
+
+    private String openSection;
+    private long sectionStartNanos;
+    private boolean done; // Finished or cancelled
+
+    private ScreenTrace(String screen, long startNanos) {
+        this.screen = screen;
+        this.startNanos = startNanos;
+    }
+
+    /** Starts timing a load of screen (e.g. "Dashboard launch") now. */
+    static ScreenTrace start(String screen) {
+        return new ScreenTrace(screen, System.nanoTime());
+    }
+
+    /** Records a phase that began at sinceNanos (System.nanoTime()) and ends now. */
+    void record(String phase, long sinceNanos) {
+        if (done || phaseCount == MAX_PHASES) {
+            return;
+        }
+        phases[phaseCount] = phase;
+        phaseMicros[phaseCount] = (System.nanoTime() - sinceNanos) / 1000;
+        phaseCount++;
+    }
+
+    /** Opens a synchronous phase; close it with endSection(). Sections do not nest. */
+    void beginSection(String phase) {
+        if (openSection != null) {
+            throw new IllegalStateException(screen + "." + openSection + " is still open");
+        }
+        openSection = phase;
+        sectionStartNanos = System.nanoTime();
+        Trace.beginSection(screen + "." + phase);
+    }
+
+    void endSection() {
+        Trace.endSection();
+        record(openSection, sectionStartNanos);
+        openSection = null;
+    }
+
+    /**
+     * Logs the load once the frame showing its data has been drawn: Choreographer runs the
+     * frame's input, animation and traversal (measure, layout, draw) right after the callback,
+     * and a message posted to the front of the queue from there runs when that is over.
+     */
+    void finishAfterNextFrame() {
+        if (done) {
+            return;
+        }
+        long requested = System.nanoTime();
+        Handler handler = new Handler(Looper.getMainLooper());
+        Choreographer.getInstance().postFrameCallback(frameTimeNanos -> handler.postAtFrontOfQueue(() -> {
+            record("frame", requested);
+            finish();
+        }));
+    }
+
+    /** Drops a load superseded before it rendered, so it does not skew the log. */
+    void cancel() {
+        done = true;
+    }
+
+    private void finish() {
+        if (done) {
+            return;
+        }
+        done = true;
+        PerformanceLog.getInstance().add(new PerformanceLog.ScreenLoad(screen, System.currentTimeMillis(),
+                (System.nanoTime() - startNanos) / 1000,
+                Arrays.copyOf(phases, phaseCount), Arrays.copyOf(phaseMicros, phaseCount)));
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.expensetracker;
+
+import androidx.appcompat.app.AppCompatActivity;
+import android.content.Intent;
+import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.EditText;
+import android.widget.ListView;
+import android.widget.TextView;
+import android.widget.Toast;
+
+public class SearchActivity extends AppCompatActivity {
+
+    private long currentUserId;
+    private SearchController searchController;
+
+    private TextView tvSearchStatus;
+    private ListView lvSearchResults;
+    private ResultsAdapter resultsAdapter;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_search);
+
+        // 1. Initialize UI components
+        EditText etSearch = findViewById(R.id.etSearch);
+        tvSearchStatus = findViewById(R.id.tvSearchStatus);
+        lvSearchResults = findViewById(R.id.lvSearchResults);
+
+        // 2. Get passed data
+        Bundle extras = getIntent().getExtras();
+        if (extras != null) {
+            currentUserId = extras.getLong("USER_ID", -1);
+        }
+
+        if (currentUserId == -1) {
+            Toast.makeText(this, "Error: Invalid session data.", Toast.LENGTH_LONG).show();
+            finish();
+            return;
+        }
+
+        resultsAdapter = new ResultsAdapter();
+        lvSearchResults.setAdapter(resultsAdapter);
+        lvSearchResults.setOnItemClickListener((parent, view, position, id) -> {
+            Intent intent = new Intent(this, AddEditExpenseActivity.class);
+            intent.putExtra("USER_ID", currentUserId);
+            intent.putExtra("EXPENSE_ID", id); // getItemId() is the ExpID
+            startActivity(intent);
+        });
+
+        // 3. Search as the user types; SearchController debounces and drops superseded queries
+        searchController = new SearchController(ExpenseRepository.getInstance(this), currentUserId,
+                this::showResults, new SearchController.LoggingMetrics());
+        etSearch.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                searchController.onQueryChanged(s.toString());
+            }
+        });
+    }
+
+    @Override
+    protected void onDestroy() {
+        if (searchController != null) {
+            searchController.release();
+        }
+        super.onDestroy();
+    }
+
+    private void showResults(String query, ExpenseSearch.Results results) {
+        resultsAdapter.setResults(results);
+        if (query.trim().isEmpty()) {
+            tvSearchStatus.setText("");
+        } else if (results.totalMatches > results.size) {
+            tvSearchStatus.setText("Top " + results.size + " of " + results.totalMatches + " matches");
+        } else {
+            tvSearchStatus.setText(results.size + (results.size == 1 ? " match" : " matches"));
+        }
+    }
+
+    // Line 1: "Category: $Amount", Line 2: "Date  Note"
+    private static final class ResultsAdapter extends BaseAdapter {
+        private ExpenseSearch.Results results = ExpenseSearch.Results.EMPTY;
+        private final Formats formats = Formats.getInstance();
+
+        void setResults(ExpenseSearch.Results results) {
+            this.results = results;
+            notifyDataSetChanged();
+        }
+
+        @Override
+        public int getCount() {
+            return results.size;
+        }
+
+        @Override
+        public Object getItem(int position) {
+            return results.ids[position];
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return results.ids[position];
+        }
+
+        @Override
+        public boolean hasStableIds() {
+            return true;
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            TwoLineRow row = TwoLineRow.of(convertView, parent);
+            StringBuilder line = row.line().append(results.categories[position]).append(": ");
+            row.setLine1(formats.appendCurrency(line, results.amounts[position]));
+
+            line = row.line().append(results.dates[position]);
+            if (results.notes[position] != null) {
+                line.append("  ").append(results.notes[position]);
+            }
+            row.setLine2(line);
+            return row.view;
+        }
+    }
+}
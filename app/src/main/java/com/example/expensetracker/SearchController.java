@@ -0,0 +1,145 @@
+package com.example.expensetracker;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+/**
+ * Search-as-you-type over ExpenseRepository.searchExpenses(). Lives on the main thread; feed it
+ * every text change and it calls the Listener with the results for the latest text only.
+ *
+ * - Keystrokes are debounced: a query runs once typing pauses for DEBOUNCE_MS.
+ * - A new keystroke cancels the query still running for older text (CancellationSignal aborts it
+ *   inside SQLite), so a slow search never delays the next one.
+ * - When the text only grew ("ub" to "uber") and the previous answer was complete, the new answer
+ *   is filtered from it in memory at once, without a query or a debounce.
+ */
+final class SearchController {
+
+    private static final String TAG = "SearchController";
+
+    static final long DEBOUNCE_MS = 150;
+
+    interface Listener {
+        void onResults(String query, ExpenseSearch.Results results);
+    }
+
+    interface Metrics {
+        /** From the text change to the Listener being called with its results. */
+        void onKeystrokeLatency(String query, long latencyMillis, boolean narrowedInMemory);
+
+        /** A running query was cancelled because the text changed again. */
+        void onQuerySuperseded();
+    }
+
+    /** Logs every keystroke with running totals for the screen's lifetime. */
+    static final class LoggingMetrics implements Metrics {
+        private int keystrokes;
+        private int narrowed;
+        private int superseded;
+        private long totalMillis;
+        private long maxMillis;
+
+        @Override
+        public void onKeystrokeLatency(String query, long latencyMillis, boolean narrowedInMemory) {
+            keystrokes++;
+            if (narrowedInMemory) {
+                narrowed++;
+            }
+            totalMillis += latencyMillis;
+            maxMillis = Math.max(maxMillis, latencyMillis);
+            Log.d(TAG, "\"" + query + "\" in " + latencyMillis + " ms" + (narrowedInMemory ? " (narrowed)" : "") +
+                    "; avg " + totalMillis / keystrokes + " ms, max " + maxMillis + " ms, " +
+                    narrowed + "/" + keystrokes + " from memory, " + superseded + " queries superseded");
+        }
+
+        @Override
+        public void onQuerySuperseded() {
+            superseded++;
+        }
+    }
+
+    private final ExpenseRepository repository;
+    private final long userId;
+    private final Listener listener;
+    private final Metrics metrics;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private String pendingQuery = "";
+    private long keystrokeNanos;
+    private DbExecutor.Request request;
+
+    // The last answer delivered and whether it held every match (only then can it be narrowed)
+    private String[] lastTerms = new String[0];
+    private ExpenseSearch.Results lastResults;
+    private boolean lastComplete;
+
+    private final Runnable runSearch = this::runSearch;
+
+    SearchController(ExpenseRepository repository, long userId, Listener listener, Metrics metrics) {
+        this.repository = repository;
+        this.userId = userId;
+        this.listener = listener;
+        this.metrics = metrics;
+    }
+
+    /** Call on every change of the search text. */
+    void onQueryChanged(String text) {
+        keystrokeNanos = System.nanoTime();
+        pendingQuery = text;
+        handler.removeCallbacks(runSearch);
+        cancelQuery();
+
+        String[] terms = ExpenseSearch.terms(text);
+        if (terms.length == 0) {
+            remember(terms, ExpenseSearch.Results.EMPTY, true);
+            deliver(text, ExpenseSearch.Results.EMPTY, true);
+            return;
+        }
+        if (lastComplete && lastResults != null && ExpenseSearch.narrows(lastTerms, terms)) {
+            ExpenseSearch.Results narrowed = ExpenseSearch.narrow(lastResults, terms);
+            remember(terms, narrowed, true);
+            deliver(text, narrowed, true);
+            return;
+        }
+        handler.postDelayed(runSearch, DEBOUNCE_MS);
+    }
+
+    /** Stops pending and running work; call from onDestroy. */
+    void release() {
+        handler.removeCallbacks(runSearch);
+        if (request != null) {
+            request.cancel();
+            request = null;
+        }
+    }
+
+    private void runSearch() {
+        String query = pendingQuery;
+        String[] terms = ExpenseSearch.terms(query);
+        request = repository.searchExpenses(userId, query, 0, ExpenseSearch.MAX_PAGE_SIZE, DbExecutor.callback(results -> {
+            request = null;
+            remember(terms, results, results.size == results.totalMatches);
+            deliver(query, results, false);
+        }, error -> request = null)); // The next keystroke searches again
+    }
+
+    private void cancelQuery() {
+        if (request != null) {
+            request.cancel();
+            request = null;
+            metrics.onQuerySuperseded();
+        }
+    }
+
+    private void remember(String[] terms, ExpenseSearch.Results results, boolean complete) {
+        lastTerms = terms;
+        lastResults = results;
+        lastComplete = complete;
+    }
+
+    private void deliver(String query, ExpenseSearch.Results results, boolean narrowedInMemory) {
+        listener.onResults(query, results);
+        metrics.onKeystrokeLatency(query, (System.nanoTime() - keystrokeNanos) / 1_000_000, narrowedInMemory);
+    }
+}
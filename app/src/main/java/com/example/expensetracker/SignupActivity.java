@@ -13,7 +13,7 @@ public class SignupActivity extends AppCompatActivity {
     EditText etUsername, etPassword;
     Button btnRegister;
     TextView tvGoToLogin;
-    DatabaseHelper dbHelper;
+    ExpenseRepository repository;
 
     // --- Validation Constants ---
     private static final int MIN_PASSWORD_LENGTH = 8;
@@ -50,7 +50,7 @@ public class SignupActivity extends AppCompatActivity {
         etPassword = findViewById(R.id.etSignupPassword);
         btnRegister = findViewById(R.id.btnRegister);
         tvGoToLogin = findViewById(R.id.tvGoToLogin);
-        dbHelper = new DatabaseHelper(this);
+        repository = ExpenseRepository.getInstance(this);
 
         // 2. Register Button Logic
         btnRegister.setOnClickListener(v -> {
@@ -60,15 +60,26 @@ public class SignupActivity extends AppCompatActivity {
             // *** Apply Validation Here ***
             if (isInputValid(username, password)) {
 
-                // If validation passes, attempt registration
-                boolean isRegistered = dbHelper.registerUser(username, password);
+                // If validation passes, attempt registration (off the main thread)
+                btnRegister.setEnabled(false);
+                repository.registerUser(username, password, DbExecutor.callback(isRegistered -> {
+                    if (isDestroyed()) {
+                        return;
+                    }
+                    btnRegister.setEnabled(true);
 
-                if (isRegistered) {
-                    Toast.makeText(this, "Account created successfully! Please log in.", Toast.LENGTH_LONG).show();
-                    finish(); // Navigate back to Login screen
-                } else {
-                    Toast.makeText(this, "Registration failed. Username may already exist.", Toast.LENGTH_LONG).show();
-                }
+                    if (isRegistered) {
+                        Toast.makeText(this, "Account created successfully! Please log in.", Toast.LENGTH_LONG).show();
+                        finish(); // Navigate back to Login screen
+                    } else {
+                        Toast.makeText(this, "Registration failed. Username may already exist.", Toast.LENGTH_LONG).show();
+                    }
+                }, error -> {
+                    if (!isDestroyed()) {
+                        btnRegister.setEnabled(true);
+                        Toast.makeText(this, "Registration failed, please try again.", Toast.LENGTH_LONG).show();
+                    }
+                }));
             }
             // If validation fails, the isInputValid method already shows a Toast message
         });
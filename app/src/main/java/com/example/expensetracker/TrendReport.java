@@ -0,0 +1,186 @@
+package com.example.expensetracker;
+
+import android.database.Cursor;
+import android.os.CancellationSignal;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Category spend over a run of months as a dense month x category matrix, read from the monthly
+ * rollup in one index range scan (getMonthlyCategoryTotals) rather than one
+ * getCategoryTotalsForMonth per month. The LOOKBACK_MONTHS before the range come back in the same
+ * pass, so year-over-year changes and rolling averages of up to a year are defined for every month
+ * shown, including the first.
+ *
+ * Totals are the rollup's, so they match getCategorySummary month for month. Months are numbered
+ * from 0 (fromMonth); a category argument is an index into categories, or ALL. Immutable once read.
+ */
+final class TrendReport {
+
+    static final int LOOKBACK_MONTHS = 12;
+    /** Every category together, wherever a method takes a category. */
+    static final int ALL = -1;
+
+    final long userId;
+    final int fromMonth; // Month index of month 0, see EpochDays
+    final int months;
+    final String[] categories; // Sorted by name, as getCategoryTotalsForMonth returns them
+
+    // [LOOKBACK_MONTHS + month][category], minor units; rows before LOOKBACK_MONTHS precede fromMonth
+    private final long[][] totals;
+    private final long[] monthTotals; // Row sums of totals
+
+    private TrendReport(long userId, int fromMonth, int months, String[] categories, long[][] totals) {
+        this.userId = userId;
+        this.fromMonth = fromMonth;
+        this.months = months;
+        this.categories = categories;
+        this.totals = totals;
+        monthTotals = new long[totals.length];
+        for (int row = 0; row < totals.length; row++) {
+            long sum = 0;
+            for (long total : totals[row]) {
+                sum += total;
+            }
+            monthTotals[row] = sum;
+        }
+    }
+
+    /**
+     * Reads months [fromMonth, toMonth) (month indexes) and the LOOKBACK_MONTHS before them.
+     * Cancelling the signal aborts the query.
+     */
+    static TrendReport read(DatabaseHelper dbHelper, long userId, int fromMonth, int toMonth,
+                            @Nullable CancellationSignal signal) {
+        int months = Math.max(0, toMonth - fromMonth);
+        int firstRow = fromMonth - LOOKBACK_MONTHS;
+        int rows = LOOKBACK_MONTHS + months;
+
+        // Category-major while reading: a category seen for the first time just gets a new column
+        HashMap<String, Integer> columnOf = new HashMap<>();
+        ArrayList<String> names = new ArrayList<>();
+        ArrayList<long[]> columns = new ArrayList<>();
+        Cursor cursor = dbHelper.getMonthlyCategoryTotals(userId, EpochDays.formatMonth(Math.max(0, firstRow)),
+                EpochDays.formatMonth(Math.max(0, firstRow + rows)), signal);
+        try {
+            int monthIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_MT_MONTH);
+            int categoryIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_CATEGORY);
+            int totalIndex = cursor.getColumnIndexOrThrow("TotalAmount");
+            String lastKey = null;
+            int row = -1;
+            while (cursor.moveToNext()) {
+                String key = cursor.getString(monthIndex);
+                if (!key.equals(lastKey)) {
+                    lastKey = key;
+                    row = rowOf(key, firstRow, rows);
+                }
+                if (row < 0) {
+                    continue;
+                }
+                String category = cursor.getString(categoryIndex);
+                Integer column = columnOf.get(category);
+                if (column == null) {
+                    column = columns.size();
+                    columnOf.put(category, column);
+                    names.add(category);
+                    columns.add(new long[rows]);
+                }
+                columns.get(column)[row] = cursor.getLong(totalIndex);
+            }
+        } finally {
+            cursor.close();
+        }
+
+        String[] categories = names.toArray(new String[0]);
+        Arrays.sort(categories);
+        long[][] totals = new long[rows][categories.length];
+        for (int c = 0; c < categories.length; c++) {
+            long[] column = columns.get(columnOf.get(categories[c]));
+            for (int row = 0; row < rows; row++) {
+                totals[row][c] = column[row];
+            }
+        }
+        return new TrendReport(userId, fromMonth, months, categories, totals);
+    }
+
+    // The matrix row of a rollup month key, or -1 for a key that is not a month (from a malformed
+    // Date, which the rollup buckets by its first seven characters) or falls outside the rows
+    private static int rowOf(String key, int firstRow, int rows) {
+        int month;
+        try {
+            month = EpochDays.parseMonth(key);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+        int row = month - firstRow;
+        return row >= 0 && row < rows ? row : -1;
+    }
+
+    /** Index into categories, or -1 if the category has no expenses in any month read. */
+    int categoryIndex(String category) {
+        int index = Arrays.binarySearch(categories, category);
+        return index >= 0 ? index : -1;
+    }
+
+    /** Total of one month in minor units; month may go back to -LOOKBACK_MONTHS. */
+    long total(int month, int category) {
+        int row = LOOKBACK_MONTHS + month;
+        return category == ALL ? monthTotals[row] : totals[row][category];
+    }
+
+    /** total() of every month shown. */
+    long[] series(int category) {
+        long[] series = new long[months];
+        for (int m = 0; m < months; m++) {
+            series[m] = total(m, category);
+        }
+        return series;
+    }
+
+    /** Each month's total minus the same month a year earlier, in minor units. */
+    long[] yearOverYearChange(int category) {
+        long[] change = new long[months];
+        for (int m = 0; m < months; m++) {
+            change[m] = total(m, category) - total(m - 12, category);
+        }
+        return change;
+    }
+
+    /**
+     * Each month's growth over the same month a year earlier, as a fraction (0.25 = 25% more);
+     * NaN where nothing was spent a year earlier.
+     */
+    double[] yearOverYearGrowth(int category) {
+        double[] growth = new double[months];
+        for (int m = 0; m < months; m++) {
+            long before = total(m - 12, category);
+            growth[m] = before == 0 ? Double.NaN : (double) (total(m, category) - before) / before;
+        }
+        return growth;
+    }
+
+    /**
+     * Mean of the window months ending with each month (e.g. 3 for a quarter), rounded to the
+     * nearest minor unit. window is 1 to LOOKBACK_MONTHS + 1. Kept as a running sum, so any
+     * window costs one pass.
+     */
+    long[] rollingAverage(int category, int window) {
+        if (window < 1 || window > LOOKBACK_MONTHS + 1) {
+            throw new IllegalArgumentException("window must be 1 to " + (LOOKBACK_MONTHS + 1) + ": " + window);
+        }
+        long[] average = new long[months];
+        long sum = 0;
+        for (int m = 1 - window; m < months; m++) {
+            sum += total(m, category);
+            if (m >= 0) {
+                average[m] = Math.round((double) sum / window);
+                sum -= total(m - window + 1, category);
+            }
+        }
+        return average;
+    }
+}
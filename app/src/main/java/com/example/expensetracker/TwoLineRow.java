@@ -0,0 +1,85 @@
+package com.example.expensetracker;
+
+import android.database.CharArrayBuffer;
+import android.database.Cursor;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Holder for a recycled android.R.layout.simple_list_item_2 row that binds without allocating.
+ *
+ * TextView.setText(CharSequence) copies its argument into a new String, so a row built in a
+ * StringBuilder still cost one String per line per bind. setText(char[], int, int) keeps a
+ * reference to the array instead, so each line here owns a char buffer that is refilled in
+ * place (line1()/line2() build into a shared scratch builder, then set copies it over) and only
+ * grows when a longer line comes along. Cursor columns go straight into a line's buffer with
+ * copyStringToBuffer, skipping the String getString() would create.
+ */
+final class TwoLineRow {
+
+    final View view;
+    private final TextView text1;
+    private final TextView text2;
+    private final StringBuilder scratch = new StringBuilder(64);
+    private final CharArrayBuffer chars1 = new CharArrayBuffer(48);
+    private final CharArrayBuffer chars2 = new CharArrayBuffer(48);
+
+    private TwoLineRow(View view) {
+        this.view = view;
+        text1 = view.findViewById(android.R.id.text1);
+        text2 = view.findViewById(android.R.id.text2);
+        view.setTag(this);
+    }
+
+    /** The holder of convertView, or a new inflated row if there is nothing to recycle. */
+    static TwoLineRow of(View convertView, ViewGroup parent) {
+        if (convertView != null) {
+            return (TwoLineRow) convertView.getTag();
+        }
+        return new TwoLineRow(LayoutInflater.from(parent.getContext())
+                .inflate(android.R.layout.simple_list_item_2, parent, false));
+    }
+
+    /** A cleared builder for composing a line; pass it to setLine1/setLine2 when done. */
+    StringBuilder line() {
+        scratch.setLength(0);
+        return scratch;
+    }
+
+    void setLine1(@Nullable CharSequence line) {
+        set(text1, chars1, line);
+    }
+
+    void setLine2(@Nullable CharSequence line) {
+        set(text2, chars2, line);
+    }
+
+    /** Shows column of the cursor's current row on line 1 without creating a String. */
+    void setLine1(Cursor cursor, int column) {
+        cursor.copyStringToBuffer(column, chars1);
+        text1.setText(chars1.data, 0, chars1.sizeCopied);
+    }
+
+    // A null line (e.g. an expense without a category) shows as an empty one
+    private static void set(TextView view, CharArrayBuffer chars, @Nullable CharSequence line) {
+        int length = line != null ? line.length() : 0;
+        if (chars.data.length < length) {
+            chars.data = new char[Math.max(length, chars.data.length * 2)];
+        }
+        if (line instanceof StringBuilder) {
+            ((StringBuilder) line).getChars(0, length, chars.data, 0);
+        } else if (line instanceof String) {
+            ((String) line).getChars(0, length, chars.data, 0);
+        } else {
+            for (int i = 0; i < length; i++) {
+                chars.data[i] = line.charAt(i);
+            }
+        }
+        chars.sizeCopied = length;
+        view.setText(chars.data, 0, length);
+    }
+}
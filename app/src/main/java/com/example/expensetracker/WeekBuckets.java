@@ -0,0 +1,113 @@
+package com.example.expensetracker;
+
+import android.database.Cursor;
+
+/**
+ * The Sunday-to-Saturday weeks of one month, clamped to the month's first and last day, computed
+ * with plain epoch-day arithmetic (EpochDays) instead of Calendar/SimpleDateFormat.
+ *
+ * Week i of the month holds the days d (1-based) with (d - 1 + firstDayOfWeek) / 7 == i, where
+ * firstDayOfWeek is the weekday of the 1st (Sunday = 0). DatabaseHelper.getWeekTotals() groups the
+ * DateDay column by the same expression, so bucket numbers from SQL index straight into these arrays.
+ */
+final class WeekBuckets {
+
+    private static final String[] MONTH_ABBREVIATIONS = {
+            "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"
+    };
+
+    final String monthYear; // YYYY-MM
+    final int year;
+    final int month; // 1-12
+    final long firstEpochDay; // The 1st of the month
+    final int firstDayOfWeek; // Weekday of the 1st, Sunday = 0
+    final int daysInMonth;
+    final int count;
+    final int[] startDays; // Day of month, inclusive
+    final int[] endDays; // Day of month, inclusive
+
+    private WeekBuckets(String monthYear, int year, int month) {
+        this.monthYear = monthYear;
+        this.year = year;
+        this.month = month;
+        this.firstEpochDay = EpochDays.of(year, month, 1);
+        this.firstDayOfWeek = EpochDays.dayOfWeek(firstEpochDay);
+        this.daysInMonth = EpochDays.daysInMonth(year, month);
+        this.count = (daysInMonth + firstDayOfWeek + 6) / 7;
+        this.startDays = new int[count];
+        this.endDays = new int[count];
+        for (int week = 0; week < count; week++) {
+            startDays[week] = Math.max(1, week * 7 - firstDayOfWeek + 1);
+            endDays[week] = Math.min(daysInMonth, week * 7 - firstDayOfWeek + 7);
+        }
+    }
+
+    /** @param monthYear YYYY-MM; throws IllegalArgumentException like DateRange.forMonth. */
+    static WeekBuckets forMonth(String monthYear) {
+        int monthIndex = EpochDays.parseMonth(monthYear);
+        return new WeekBuckets(monthYear, monthIndex / 12, monthIndex % 12 + 1);
+    }
+
+    /** Bucket of a day of this month (1-based). */
+    int weekOf(int dayOfMonth) {
+        return (dayOfMonth - 1 + firstDayOfWeek) / 7;
+    }
+
+    /** YYYY-MM-DD of the first day of week. */
+    String startDate(int week) {
+        return isoDate(startDays[week]);
+    }
+
+    /** YYYY-MM-DD of the last day of week (inclusive). */
+    String endDate(int week) {
+        return isoDate(endDays[week]);
+    }
+
+    /** Appends e.g. "Oct 05 - Oct 11" for week. */
+    StringBuilder appendLabel(StringBuilder sb, int week) {
+        String monthName = MONTH_ABBREVIATIONS[month - 1];
+        sb.append(monthName).append(' ');
+        appendTwoDigits(sb, startDays[week]);
+        sb.append(" - ").append(monthName).append(' ');
+        return appendTwoDigits(sb, endDays[week]);
+    }
+
+    private String isoDate(int dayOfMonth) {
+        return EpochDays.format(firstEpochDay + dayOfMonth - 1);
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder sb, int value) {
+        return sb.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    /** Per-week spending of one month, indexed like the buckets. */
+    static final class Totals {
+        final long[] amounts; // Minor units
+        final int[] counts;
+
+        Totals(int weeks) {
+            amounts = new long[weeks];
+            counts = new int[weeks];
+        }
+    }
+
+    /** Reads a DatabaseHelper.getWeekTotals() cursor into Totals and closes it. Weeks without rows stay 0. */
+    Totals totalsFrom(Cursor cursor) {
+        Totals totals = new Totals(count);
+        try {
+            int weekIndex = cursor.getColumnIndexOrThrow("Week");
+            int totalIndex = cursor.getColumnIndexOrThrow("TotalAmount");
+            int countIndex = cursor.getColumnIndexOrThrow("ExpenseCount");
+            while (cursor.moveToNext()) {
+                int week = cursor.getInt(weekIndex);
+                if (week >= 0 && week < count) {
+                    totals.amounts[week] = cursor.getLong(totalIndex);
+                    totals.counts[week] = cursor.getInt(countIndex);
+                }
+            }
+            return totals;
+        } finally {
+            cursor.close();
+        }
+    }
+}
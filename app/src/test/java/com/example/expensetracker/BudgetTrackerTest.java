@@ -0,0 +1,276 @@
+package com.example.expensetracker;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * BudgetTracker must alert once per threshold crossed, follow money that an update moves between
+ * categories and months, and agree with getBudgetStatus after any mix of writes. The writes below
+ * go through the same prepare / write / apply steps as ExpenseRepository.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class BudgetTrackerTest {
+
+    private static final long USER = 1;
+    private static final boolean FULL = Boolean.getBoolean("ledgerBenchmark");
+
+    private DatabaseHelper dbHelper;
+    private BudgetTracker tracker;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase("ExpenseTrackerDB");
+        dbHelper = new DatabaseHelper(context);
+        tracker = new BudgetTracker(dbHelper);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+    }
+
+    private void setBudget(String category, long limitMinor) {
+        long id = dbHelper.addCategory(USER, category);
+        assertTrue(dbHelper.setBudget(USER, id, limitMinor));
+        tracker.invalidateUser(USER);
+    }
+
+    private List<BudgetTracker.Alert> add(long amountMinor, String category, String date) {
+        tracker.prepare(USER, date.substring(0, 7));
+        assertTrue(dbHelper.addExpenseReturningId(USER, amountMinor, category, date, null) != -1);
+        return tracker.apply(USER, null, null, 0, date.substring(0, 7), category, amountMinor);
+    }
+
+    private List<BudgetTracker.Alert> update(long id, long oldAmount, String oldCategory, String oldDate,
+                                             long amountMinor, String category, String date) {
+        tracker.prepare(USER, oldDate.substring(0, 7));
+        tracker.prepare(USER, date.substring(0, 7));
+        assertTrue(dbHelper.updateExpense(id, amountMinor, category, date, null));
+        return tracker.apply(USER, oldDate.substring(0, 7), oldCategory, oldAmount, date.substring(0, 7), category, amountMinor);
+    }
+
+    private List<BudgetTracker.Alert> delete(long id, long oldAmount, String oldCategory, String oldDate) {
+        tracker.prepare(USER, oldDate.substring(0, 7));
+        assertTrue(dbHelper.deleteExpense(id));
+        return tracker.apply(USER, oldDate.substring(0, 7), oldCategory, oldAmount, null, null, 0);
+    }
+
+    private static int[] percents(List<BudgetTracker.Alert> alerts) {
+        int[] percents = new int[alerts.size()];
+        for (int i = 0; i < percents.length; i++) {
+            percents[i] = alerts.get(i).percent;
+        }
+        return percents;
+    }
+
+    @Test
+    public void eachThreshold_alertsOnce() {
+        setBudget("Food", 10_000);
+        assertEquals(0, add(4_000, "Food", "2025-10-01").size());
+
+        List<BudgetTracker.Alert> alerts = add(1_000, "Food", "2025-10-02"); // Exactly half
+        assertEquals(1, alerts.size());
+        BudgetTracker.Alert alert = alerts.get(0);
+        assertEquals(USER, alert.userId);
+        assertEquals("2025-10", alert.monthYear);
+        assertEquals("Food", alert.category);
+        assertEquals(50, alert.percent);
+        assertEquals(5_000, alert.spentMinor);
+        assertEquals(10_000, alert.limitMinor);
+
+        assertEquals(0, add(1_000, "Food", "2025-10-03").size()); // Still above 50, below 80
+        assertArrayEquals(new int[]{80}, percents(add(2_500, "Food", "2025-10-04")));
+        assertArrayEquals(new int[]{100}, percents(add(1_500, "Food", "2025-10-05")));
+        assertEquals(0, add(5_000, "Food", "2025-10-06").size()); // Over budget already
+
+        // A jump past several thresholds reports the highest; a new month starts over
+        assertArrayEquals(new int[]{100}, percents(add(12_000, "Food", "2025-11-01")));
+        assertEquals(12_000, tracker.spent(USER, "2025-11", "Food"));
+    }
+
+    @Test
+    public void categoriesWithoutBudget_neverAlert() {
+        setBudget("Food", 1_000);
+        assertEquals(0, add(5_000, "Rent", "2025-10-01").size());
+        assertEquals(0, add(5_000, "", "2025-10-01").size());
+        assertEquals(0, add(5_000, "Brand new", "2025-10-01").size());
+        assertEquals(-1, tracker.spent(USER, "2025-10", "Rent"));
+        assertEquals(0, tracker.spent(USER, "2025-10", "Food"));
+        assertEquals(0, add(5_000, "Food", "2025-1x-01").size()); // Not a month, so in no budget
+    }
+
+    @Test
+    public void updates_moveSpendBetweenBuckets() {
+        setBudget("Food", 10_000);
+        setBudget("Transport", 10_000);
+        long id = dbHelper.addExpenseReturningId(USER, 6_000, "Food", "2025-10-05", null);
+        tracker.invalidateUser(USER); // Written behind the tracker's back
+
+        // Same bucket: only the note changed, so no second 50% alert
+        tracker.prepare(USER, "2025-10");
+        assertEquals(6_000, tracker.spent(USER, "2025-10", "Food"));
+        assertEquals(0, update(id, 6_000, "Food", "2025-10-05", 6_000, "Food", "2025-10-05").size());
+        assertArrayEquals(new int[]{80}, percents(update(id, 6_000, "Food", "2025-10-05", 8_500, "Food", "2025-10-06")));
+
+        // To another category: Food drops back, Transport crosses 80 at once
+        assertArrayEquals(new int[]{80}, percents(update(id, 8_500, "Food", "2025-10-06", 8_500, "Transport", "2025-10-06")));
+        assertEquals(0, tracker.spent(USER, "2025-10", "Food"));
+        assertEquals(8_500, tracker.spent(USER, "2025-10", "Transport"));
+
+        // To another month, which is read in first
+        List<BudgetTracker.Alert> alerts = update(id, 8_500, "Transport", "2025-10-06", 10_000, "Transport", "2025-11-01");
+        assertArrayEquals(new int[]{100}, percents(alerts));
+        assertEquals("2025-11", alerts.get(0).monthYear);
+        assertEquals(0, tracker.spent(USER, "2025-10", "Transport"));
+        assertEquals(10_000, tracker.spent(USER, "2025-11", "Transport"));
+
+        // Deleting takes it out again, without an alert
+        assertEquals(0, delete(id, 10_000, "Transport", "2025-11-01").size());
+        assertEquals(0, tracker.spent(USER, "2025-11", "Transport"));
+        // And the spend falling back below a threshold lets it alert again
+        assertArrayEquals(new int[]{50}, percents(add(5_000, "Transport", "2025-11-02")));
+    }
+
+    @Test
+    public void prepare_readsSpendFromTheRollup() {
+        dbHelper.addExpense(USER, 3_000, "Food", "2025-10-01", null);
+        dbHelper.addExpense(USER, 1_000, "Food", "2025-10-02", null);
+        dbHelper.addExpense(USER, 9_000, "Food", "2025-09-30", null);
+        setBudget("Food", 10_000);
+        setBudget("Water", 2_000);
+
+        tracker.prepare(USER, "2025-10");
+        assertEquals(4_000, tracker.spent(USER, "2025-10", "Food"));
+        assertEquals(0, tracker.spent(USER, "2025-10", "Water"));
+        assertEquals(-1, tracker.spent(USER, "2025-09", "Food")); // Not prepared
+        assertArrayEquals(new int[]{50}, percents(add(1_000, "Food", "2025-10-03")));
+
+        // Removing a budget (limit 0) drops it from the next read
+        assertTrue(dbHelper.setBudget(USER, dbHelper.getCategories(USER).idOf("Water"), 0));
+        assertFalse(dbHelper.setBudget(USER, dbHelper.getCategories(USER).idOf("Water"), 0));
+        tracker.invalidateUser(USER);
+        tracker.prepare(USER, "2025-10");
+        assertEquals(-1, tracker.spent(USER, "2025-10", "Water"));
+
+        // Another user's writes are none of the tracker's business until they are prepared
+        assertEquals(0, tracker.apply(USER + 1, null, null, 0, "2025-10", "Food", 100_000).size());
+        assertEquals(5_000, tracker.spent(USER, "2025-10", "Food"));
+    }
+
+    @Test
+    public void randomWrites_matchGetBudgetStatus() {
+        String[] categories = {"Food", "Rent", "Transport", "Water"};
+        for (int c = 0; c < categories.length - 1; c++) {
+            setBudget(categories[c], 20_000 * (c + 1)); // Water has none
+        }
+        String[] months = {"2025-09", "2025-10", "2025-11"};
+        Random random = new Random(7);
+        long[] ids = new long[60];
+        long[] amounts = new long[ids.length];
+        String[] rowCategories = new String[ids.length];
+        String[] dates = new String[ids.length];
+
+        for (int i = 0; i < 600; i++) {
+            int row = random.nextInt(ids.length);
+            long amount = 100 + random.nextInt(5_000);
+            String category = categories[random.nextInt(categories.length)];
+            String date = months[random.nextInt(months.length)] + "-1" + random.nextInt(10);
+            if (ids[row] == 0) {
+                tracker.prepare(USER, date.substring(0, 7));
+                ids[row] = dbHelper.addExpenseReturningId(USER, amount, category, date, null);
+                tracker.apply(USER, null, null, 0, date.substring(0, 7), category, amount);
+            } else if (random.nextInt(4) == 0) {
+                delete(ids[row], amounts[row], rowCategories[row], dates[row]);
+                ids[row] = 0;
+                continue;
+            } else {
+                update(ids[row], amounts[row], rowCategories[row], dates[row], amount, category, date);
+            }
+            amounts[row] = amount;
+            rowCategories[row] = category;
+            dates[row] = date;
+        }
+
+        for (String month : months) {
+            tracker.prepare(USER, month); // All held already, so this reads nothing
+            Cursor status = dbHelper.getBudgetStatus(USER, month, null);
+            try {
+                assertEquals(categories.length - 1, status.getCount());
+                while (status.moveToNext()) {
+                    String category = status.getString(status.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_CATEGORY));
+                    assertEquals(month + " " + category, status.getLong(status.getColumnIndexOrThrow("Spent")),
+                            tracker.spent(USER, month, category));
+                }
+            } finally {
+                status.close();
+            }
+        }
+        assertTrue(dbHelper.verifyMonthlyTotals());
+    }
+
+    @Test
+    public void benchmark_beatsAQueryPerWrite() {
+        Assume.assumeTrue("Run with -PledgerBenchmark", FULL);
+        for (String category : CategoryDictionary.DEFAULTS) {
+            setBudget(category, 1_000_000);
+        }
+        new SyntheticLedger(1, 2025, 1, 20_000, 11).insertInto(dbHelper);
+        tracker.prepare(USER, "2025-10");
+        String[] categories = CategoryDictionary.DEFAULTS;
+
+        long[] tracked = new long[21];
+        long[] queried = new long[21];
+        int writes = 1_000;
+        for (int run = -5; run < tracked.length; run++) {
+            long start = System.nanoTime();
+            int alerts = 0;
+            for (int i = 0; i < writes; i++) {
+                alerts += tracker.apply(USER, "2025-10", categories[i % categories.length], 0,
+                        "2025-10", categories[(i + 1) % categories.length], 1).size();
+            }
+            long trackedMicros = (System.nanoTime() - start) / 1000;
+
+            // What each write would cost without the tracker: read the month's status again
+            start = System.nanoTime();
+            long sum = 0;
+            for (int i = 0; i < writes; i++) {
+                Cursor status = dbHelper.getBudgetStatus(USER, "2025-10", null);
+                try {
+                    while (status.moveToNext()) {
+                        sum += status.getLong(3);
+                    }
+                } finally {
+                    status.close();
+                }
+            }
+            long queriedMicros = (System.nanoTime() - start) / 1000;
+
+            assertTrue(sum >= 0 && alerts >= 0);
+            if (run >= 0) {
+                tracked[run] = trackedMicros;
+                queried[run] = queriedMicros;
+            }
+        }
+        Arrays.sort(tracked);
+        Arrays.sort(queried);
+        System.out.println("BudgetTracker, " + writes + " writes: apply " + tracked[tracked.length / 2] +
+                " us vs getBudgetStatus per write " + queried[queried.length / 2] + " us");
+        assertTrue(tracked[tracked.length / 2] < queried[queried.length / 2]);
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.expensetracker;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteConstraintException;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.*;
+
+/**
+ * Expenses refer to their category by CategoryID: new names become categories on first use, the
+ * dictionary maps both ways, and a rename changes one row yet shows everywhere, search included.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class CategoriesTest {
+
+    private static final long USER = 1;
+
+    private DatabaseHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase("ExpenseTrackerDB");
+        dbHelper = new DatabaseHelper(context);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+    }
+
+    @Test
+    public void registerUser_startsWithTheDefaults() {
+        assertTrue(dbHelper.registerUser("a@b.com", "password1"));
+        CategoryDictionary categories = dbHelper.getCategories(USER);
+        assertEquals(CategoryDictionary.DEFAULTS.length, categories.size());
+        for (String name : CategoryDictionary.DEFAULTS) {
+            long id = categories.idOf(name);
+            assertTrue(name, id > 0);
+            assertEquals(name, categories.nameOf(id));
+        }
+        assertArrayEquals(new String[]{"Electricity", "Food", "Others", "Rent", "Transport", "Water"}, categories.names());
+
+        // A second user gets rows of their own
+        assertTrue(dbHelper.registerUser("c@d.com", "password2"));
+        assertNotEquals(categories.idOf("Food"), dbHelper.getCategories(2).idOf("Food"));
+    }
+
+    @Test
+    public void dictionary_looksUpBothWays() {
+        long gym = dbHelper.addCategory(USER, "Gym");
+        long books = dbHelper.addCategory(USER, "Books");
+        assertEquals(gym, dbHelper.addCategory(USER, "Gym")); // Already there
+
+        CategoryDictionary categories = dbHelper.getCategories(USER);
+        assertSame(categories, dbHelper.getCategories(USER)); // Cached
+        assertEquals(2, categories.size());
+        assertEquals(0, categories.indexOf("Books"));
+        assertEquals(1, categories.indexOf("Gym"));
+        assertEquals(-1, categories.indexOf("Food"));
+        assertEquals(-1, categories.indexOf(null));
+        assertEquals(books, categories.id(0));
+        assertEquals("Gym", categories.nameOf(gym));
+        assertNull(categories.nameOf(gym + books));
+        assertEquals(0, categories.idOf("gym")); // Case matters, as in the UNIQUE key
+
+        CategoryDictionary renamed = categories.with(gym, "Athletics");
+        assertEquals("Gym", categories.nameOf(gym)); // Immutable
+        assertArrayEquals(new String[]{"Athletics", "Books"}, renamed.names());
+        assertEquals(gym, renamed.idOf("Athletics"));
+        try {
+            renamed.with(gym, "Books");
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // Two ids cannot share a name
+        }
+    }
+
+    @Test
+    public void addExpense_storesTheIdAndReadsTheName() {
+        long id = dbHelper.addExpenseReturningId(USER, 500, "Gym", "2025-10-05", "Climbing");
+        dbHelper.addExpense(USER, 200, "", "2025-10-06", null);
+        dbHelper.addExpense(USER, 300, null, "2025-10-07", null);
+
+        long gym = dbHelper.getCategories(USER).idOf("Gym");
+        assertTrue(gym > 0);
+        Cursor stored = dbHelper.getReadableDatabase().rawQuery(
+                "SELECT CategoryID FROM expenses ORDER BY ExpID", null);
+        try {
+            assertTrue(stored.moveToNext());
+            assertEquals(gym, stored.getLong(0));
+            // "" and NULL are both no category, as they were one bucket in the rollup
+            assertTrue(stored.moveToNext());
+            assertTrue(stored.isNull(0));
+            assertTrue(stored.moveToNext());
+            assertTrue(stored.isNull(0));
+        } finally {
+            stored.close();
+        }
+
+        Cursor expense = dbHelper.getExpenseById(id);
+        assertTrue(expense.moveToFirst());
+        assertEquals("Gym", expense.getString(expense.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_CATEGORY)));
+        expense.close();
+
+        Cursor totals = dbHelper.getCategoryTotalsForMonth(USER, "2025-10");
+        try {
+            assertTrue(totals.moveToNext());
+            assertEquals("", totals.getString(0));
+            assertEquals(500, totals.getLong(1));
+            assertTrue(totals.moveToNext());
+            assertEquals("Gym", totals.getString(0));
+            assertEquals(500, totals.getLong(1));
+            assertFalse(totals.moveToNext());
+        } finally {
+            totals.close();
+        }
+        assertTrue(dbHelper.verifyMonthlyTotals());
+    }
+
+    @Test
+    public void renameCategory_changesOneRowAndEveryRead() {
+        long id = dbHelper.addExpenseReturningId(USER, 500, "Gym", "2025-10-05", "Climbing");
+        dbHelper.addExpense(USER, 700, "Gym", "2025-11-02", null);
+        dbHelper.addExpense(USER, 100, "Food", "2025-10-05", null);
+        long gym = dbHelper.getCategories(USER).idOf("Gym");
+
+        assertTrue(dbHelper.renameCategory(USER, gym, "Fitness"));
+        assertEquals(gym, dbHelper.getCategories(USER).idOf("Fitness"));
+        assertEquals(-1, dbHelper.getCategories(USER).indexOf("Gym"));
+
+        Cursor expense = dbHelper.getExpenseById(id);
+        assertTrue(expense.moveToFirst());
+        assertEquals("Fitness", expense.getString(expense.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_CATEGORY)));
+        expense.close();
+
+        Cursor summary = dbHelper.getCategorySummary(USER, "2025-11");
+        assertTrue(summary.moveToFirst());
+        assertEquals("Fitness", summary.getString(summary.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_CATEGORY)));
+        assertEquals(700, summary.getLong(summary.getColumnIndexOrThrow("TotalAmount")));
+        summary.close();
+        assertTrue(dbHelper.verifyMonthlyTotals());
+
+        // The index follows the new name
+        assertEquals(2, dbHelper.searchExpenses(USER, "fitness", 0, 10, null).totalMatches);
+        assertEquals(0, dbHelper.searchExpenses(USER, "gym", 0, 10, null).totalMatches);
+        ExpenseSearch.Results climbing = dbHelper.searchExpenses(USER, "climbing", 0, 10, null);
+        assertEquals(1, climbing.size);
+        assertEquals("Fitness", climbing.categories[0]);
+
+        // Taken names and other users' categories are refused
+        assertFalse(dbHelper.renameCategory(USER, gym, "Food"));
+        assertFalse(dbHelper.renameCategory(USER + 1, gym, "Sport"));
+        assertEquals("Fitness", dbHelper.getCategories(USER).nameOf(gym));
+    }
+
+    @Test
+    public void updateExpense_movesBetweenCategories() {
+        long id = dbHelper.addExpenseReturningId(USER, 500, "Food", "2025-10-05", "Dinner");
+        assertTrue(dbHelper.updateExpense(id, 500, "Dining out", "2025-10-05", "Dinner"));
+
+        assertTrue(dbHelper.getCategories(USER).idOf("Dining out") > 0);
+        Cursor totals = dbHelper.getCategoryTotalsForMonth(USER, "2025-10");
+        assertTrue(totals.moveToFirst());
+        assertEquals("Dining out", totals.getString(0));
+        assertEquals(1, totals.getCount());
+        totals.close();
+        assertEquals(1, dbHelper.searchExpenses(USER, "dining", 0, 10, null).totalMatches);
+        assertEquals(0, dbHelper.searchExpenses(USER, "food", 0, 10, null).totalMatches);
+        assertTrue(dbHelper.verifyMonthlyTotals());
+    }
+
+    @Test
+    public void failedWrite_leavesNoNewCategory() {
+        long id = dbHelper.addExpenseReturningId(USER, 500, "Food", "2025-10-05", null);
+        dbHelper.getWritableDatabase().execSQL("CREATE TRIGGER refuse_13 BEFORE INSERT ON expenses" +
+                " WHEN NEW.Amount = 13 BEGIN SELECT RAISE(ABORT, 'refused'); END");
+        dbHelper.getWritableDatabase().execSQL("CREATE TRIGGER refuse_13_update BEFORE UPDATE ON expenses" +
+                " WHEN NEW.Amount = 13 BEGIN SELECT RAISE(ABORT, 'refused'); END");
+
+        try {
+            dbHelper.addExpenseReturningId(USER, 13, "Brand new", "2025-10-05", null);
+            fail("The insert should have been refused");
+        } catch (SQLiteConstraintException expected) {
+            // Rolled back together with the category it added
+        }
+        try {
+            dbHelper.updateExpense(id, 13, "Also new", "2025-10-05", null);
+            fail("The update should have been refused");
+        } catch (SQLiteConstraintException expected) {
+            // Likewise
+        }
+
+        assertEquals(0, dbHelper.getCategories(USER).idOf("Brand new"));
+        assertEquals(0, dbHelper.getCategories(USER).idOf("Also new"));
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.expensetracker;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.StringReader;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class CsvExpenseImporterTest {
+
+    private DatabaseHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase("ExpenseTrackerDB");
+        dbHelper = new DatabaseHelper(context);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+    }
+
+    @Test
+    public void importsValidRowsAndSkipsInvalidOnes() throws Exception {
+        String csv = "Date,Description,Amount,Category\r\n" +
+                "2025-10-01,\"Coffee, large\",$3.50,Food\r\n" +
+                "2025-10-02,\"Say \"\"hi\"\"\",\"1,200.00\",Rent\r\n" +
+                "2025-02-30,Bad date,1.00,Food\r\n" +
+                "2025-10-03,Bad amount,abc,Food\r\n" +
+                "\r\n" +
+                "2025-10-04,No category,7,\r\n";
+
+        CsvExpenseImporter.Result result = new CsvExpenseImporter(dbHelper)
+                .importCsv(1, new StringReader(csv), "statement.csv", null, null);
+
+        assertEquals(3, result.rowsImported);
+        assertEquals(2, result.rowsSkipped);
+        assertFalse(result.cancelled);
+
+        Cursor cursor = dbHelper.getCategorySummary(1, "2025-10");
+        assertTrue(cursor.moveToFirst());
+        assertEquals("Rent", cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_CATEGORY)));
+        assertEquals(120000L, cursor.getLong(cursor.getColumnIndexOrThrow("TotalAmount")));
+        cursor.close();
+        assertTrue(dbHelper.verifyMonthlyTotals());
+    }
+
+    @Test
+    public void signedStatement_importsOnlyTheDebits() throws Exception {
+        String csv = "\uFEFFDate,Amount,Category\n" +
+                "2025-10-01,-3.50,Food\n" +
+                "2025-10-02,\"($1,200.00)\",Rent\n" +
+                "2025-10-03,$-0.50,Food\n" +
+                "2025-10-04,2500.00,Salary\n" + // Credits: skipped, not spent
+                "2025-10-05,12.00,Food\n" +
+                "2025-10-06,(2.00,Food\n" + // Malformed
+                "2025-10-07,--1.00,Food\n";
+
+        CsvExpenseImporter.Result result = new CsvExpenseImporter(dbHelper, true)
+                .importCsv(1, new StringReader(csv), "signed.csv", null, null);
+
+        assertEquals(3, result.rowsImported);
+        assertEquals(4, result.rowsSkipped);
+        assertEquals(120400L, monthTotal("2025-10"));
+        assertEquals(0, dbHelper.getCategories(1).idOf("Salary"));
+        assertTrue(dbHelper.verifyMonthlyTotals());
+    }
+
+    @Test
+    public void unsignedStatement_skipsRefunds() throws Exception {
+        String csv = "Date,Amount,Category\n" +
+                "2025-10-01,3.50,Food\n" +
+                "2025-10-02,(1.50),Food\n" +
+                "2025-10-03,-2.00,Food\n" +
+                "2025-10-04,\"1,200.00\",Rent\n";
+
+        CsvExpenseImporter.Result result = new CsvExpenseImporter(dbHelper)
+                .importCsv(1, new StringReader(csv), "unsigned.csv", null, null);
+
+        assertEquals(2, result.rowsImported);
+        assertEquals(2, result.rowsSkipped);
+        assertEquals(120350L, monthTotal("2025-10"));
+    }
+
+    @Test
+    public void commas_onlySeparateThousands() throws Exception {
+        String csv = "Date,Amount\n" +
+                "2025-10-01,\"12,50\"\n" + // Decimal comma: skipped, never 1250.00
+                "2025-10-02,\"1,2000\"\n" +
+                "2025-10-03,\"1.200,50\"\n" +
+                "2025-10-04,\",100\"\n" +
+                "2025-10-05,\"1,234,567.89\"\n" +
+                "2025-10-06,\"999,000\"\n";
+
+        CsvExpenseImporter.Result result = new CsvExpenseImporter(dbHelper)
+                .importCsv(1, new StringReader(csv), "commas.csv", null, null);
+
+        assertEquals(2, result.rowsImported);
+        assertEquals(4, result.rowsSkipped);
+        assertEquals(123456789L + 99900000L, monthTotal("2025-10"));
+    }
+
+    @Test
+    public void resumesAfterCrashWithoutDuplicatingRows() throws Exception {
+        int rows = CsvExpenseImporter.BATCH_SIZE * 3 + 17;
+        String csv = generateCsv(rows);
+
+        // Simulate the process dying right after the first batch commits
+        try {
+            new CsvExpenseImporter(dbHelper).importCsv(1, new StringReader(csv), "big.csv",
+                    (read, imported, skipped) -> {
+                        throw new IllegalStateException("crash");
+                    }, null);
+            fail("Expected the simulated crash");
+        } catch (IllegalStateException expected) {
+            // Batch 1 is committed, the rest is not
+        }
+        assertEquals(CsvExpenseImporter.BATCH_SIZE, countExpenses());
+
+        CsvExpenseImporter.Result result = new CsvExpenseImporter(dbHelper)
+                .importCsv(1, new StringReader(csv), "big.csv", null, null);
+
+        assertEquals(rows, result.rowsImported);
+        assertEquals(rows, countExpenses());
+        // Checkpoint is cleared once the file is done
+        assertEquals(0, dbHelper.getImportProgress("big.csv", 1)[0]);
+    }
+
+    @Test(expected = java.io.IOException.class)
+    public void rejectsHeaderWithoutAmount() throws Exception {
+        new CsvExpenseImporter(dbHelper).importCsv(1, new StringReader("Date,Note\n2025-10-01,x\n"), "x.csv", null, null);
+    }
+
+    private static String generateCsv(int rows) {
+        StringBuilder sb = new StringBuilder("Date,Amount,Category,Note\n");
+        for (int i = 0; i < rows; i++) {
+            sb.append(String.format(Locale.US, "2025-%02d-%02d,%d.%02d,Food,row %d\n",
+                    1 + i % 12, 1 + i % 28, i % 500, i % 100, i));
+        }
+        return sb.toString();
+    }
+
+    private long monthTotal(String monthYear) {
+        Cursor cursor = dbHelper.getCategorySummary(1, monthYear);
+        try {
+            long total = 0;
+            while (cursor.moveToNext()) {
+                total += cursor.getLong(cursor.getColumnIndexOrThrow("TotalAmount"));
+            }
+            return total;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private long countExpenses() {
+        Cursor cursor = dbHelper.getReadableDatabase().rawQuery("SELECT COUNT(*) FROM expenses", null);
+        try {
+            cursor.moveToFirst();
+            return cursor.getLong(0);
+        } finally {
+            cursor.close();
+        }
+    }
+}
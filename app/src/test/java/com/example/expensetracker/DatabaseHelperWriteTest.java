@@ -0,0 +1,74 @@
+package com.example.expensetracker;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.*;
+
+/**
+ * The precompiled CRUD statements must behave like the ContentValues calls they replaced,
+ * and stay usable across many writes on the same shared connection.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DatabaseHelperWriteTest {
+
+    private DatabaseHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase("ExpenseTrackerDB");
+        dbHelper = new DatabaseHelper(context);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+    }
+
+    @Test
+    public void getInstance_returnsOneSharedHelper() {
+        Context context = ApplicationProvider.getApplicationContext();
+        assertSame(DatabaseHelper.getInstance(context), DatabaseHelper.getInstance(context));
+    }
+
+    @Test
+    public void registerUser_rejectsDuplicateUsername() {
+        assertTrue(dbHelper.registerUser("a@b.com", "password1"));
+        assertFalse(dbHelper.registerUser("a@b.com", "password2"));
+        assertTrue(dbHelper.registerUser("c@d.com", "password3"));
+    }
+
+    @Test
+    public void expenseCrud_reusesStatementsAcrossWrites() {
+        for (int i = 0; i < 50; i++) {
+            assertTrue(dbHelper.addExpense(1, 100 + i, "Food", "2025-10-05", i % 2 == 0 ? null : "note"));
+        }
+
+        Cursor top = dbHelper.getTopNExpenses(1, "2025-10", 100);
+        assertEquals(50, top.getCount());
+        assertTrue(top.moveToFirst());
+        long id = top.getLong(top.getColumnIndexOrThrow("_id"));
+        top.close();
+
+        assertTrue(dbHelper.updateExpense(id, 999, "Rent", "2025-10-06", null));
+        Cursor updated = dbHelper.getExpenseById(id);
+        assertTrue(updated.moveToFirst());
+        assertEquals(999L, updated.getLong(updated.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_AMOUNT)));
+        assertEquals("Rent", updated.getString(updated.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_CATEGORY)));
+        assertTrue(updated.isNull(updated.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_NOTE)));
+        updated.close();
+
+        assertTrue(dbHelper.deleteExpense(id));
+        assertFalse(dbHelper.deleteExpense(id));
+        assertFalse(dbHelper.updateExpense(id, 1, "Food", "2025-10-01", null));
+    }
+}
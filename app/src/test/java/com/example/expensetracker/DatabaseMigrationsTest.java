@@ -0,0 +1,141 @@
+package com.example.expensetracker;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+/**
+ * Upgrades a version 1 database through the migration chain and checks nothing is lost.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DatabaseMigrationsTest {
+
+    private Context context;
+    private DatabaseHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase("ExpenseTrackerDB");
+    }
+
+    @After
+    public void tearDown() {
+        if (dbHelper != null) {
+            dbHelper.close();
+        }
+    }
+
+    @Test
+    public void upgradeFromVersion1_keepsRowsAndAddsIndexes() {
+        createVersion1Database();
+
+        dbHelper = new DatabaseHelper(context);
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+
+        Cursor users = db.rawQuery("SELECT COUNT(*) FROM users", null);
+        assertTrue(users.moveToFirst());
+        assertEquals(1, users.getInt(0));
+        users.close();
+
+        Cursor expenses = dbHelper.getCategorySummary(1, "2025-10");
+        assertTrue(expenses.moveToFirst());
+        assertEquals("Food", expenses.getString(expenses.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_CATEGORY)));
+        // v4 converted 12.5 (REAL dollars) into 1250 INTEGER cents
+        assertEquals(1250L, expenses.getLong(expenses.getColumnIndexOrThrow("TotalAmount")));
+        expenses.close();
+
+        Cursor amountType = db.rawQuery("SELECT typeof(Amount) FROM expenses", null);
+        assertTrue(amountType.moveToFirst());
+        assertEquals("integer", amountType.getString(0));
+        amountType.close();
+
+        // v8 backfilled the epoch day of the stored date
+        Cursor day = db.rawQuery("SELECT DateDay FROM expenses", null);
+        assertTrue(day.moveToFirst());
+        assertEquals(EpochDays.of(2025, 10, 3), day.getLong(0));
+        day.close();
+
+        // v9 gave the user the default categories and pointed the expense at Food's row
+        CategoryDictionary categories = dbHelper.getCategories(1);
+        assertEquals(CategoryDictionary.DEFAULTS.length, categories.size());
+        Cursor categoryId = db.rawQuery("SELECT CategoryID FROM expenses", null);
+        assertTrue(categoryId.moveToFirst());
+        assertEquals(categories.idOf("Food"), categoryId.getLong(0));
+        categoryId.close();
+        ExpenseSearch.Results found = dbHelper.searchExpenses(1, "food lunch", 0, 10, null);
+        assertEquals(1, found.size);
+        assertEquals("Food", found.categories[0]);
+
+        assertIndexExists(db, "idx_expenses_user_day");
+        assertIndexExists(db, "idx_expenses_user_category_date");
+    }
+
+    @Test
+    public void freshInstall_matchesUpgradedSchema() {
+        dbHelper = new DatabaseHelper(context);
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+
+        assertIndexExists(db, "idx_expenses_user_day");
+        assertIndexExists(db, "idx_expenses_user_category_date");
+    }
+
+    @Test
+    public void dateDayFollowsDateOnRawWrites() {
+        dbHelper = new DatabaseHelper(context);
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        db.execSQL("INSERT INTO expenses (UserID, Amount, Date) VALUES (1, 100, '2024-02-29')");
+        db.execSQL("INSERT INTO expenses (UserID, Amount, Date) VALUES (1, 100, '2025-02-30')");
+        assertArrayEquals(new Object[]{EpochDays.of(2024, 2, 29), null}, dateDays(db));
+
+        db.execSQL("UPDATE expenses SET Date = '1969-12-31' WHERE ExpID = 1");
+        assertArrayEquals(new Object[]{-1L, null}, dateDays(db));
+    }
+
+    private static Object[] dateDays(SQLiteDatabase db) {
+        Cursor cursor = db.rawQuery("SELECT DateDay FROM expenses ORDER BY ExpID", null);
+        try {
+            Object[] days = new Object[cursor.getCount()];
+            for (int i = 0; cursor.moveToNext(); i++) {
+                days[i] = cursor.isNull(0) ? null : cursor.getLong(0);
+            }
+            return days;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private void createVersion1Database() {
+        File path = context.getDatabasePath("ExpenseTrackerDB");
+        path.getParentFile().mkdirs();
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(path, null);
+        db.execSQL("CREATE TABLE users (ID INTEGER PRIMARY KEY AUTOINCREMENT, Username TEXT UNIQUE, Password TEXT)");
+        db.execSQL("CREATE TABLE expenses (ExpID INTEGER PRIMARY KEY AUTOINCREMENT, UserID INTEGER, Amount REAL, " +
+                "Category TEXT, Date TEXT, Note TEXT, FOREIGN KEY(UserID) REFERENCES users(ID))");
+        db.execSQL("INSERT INTO users (Username, Password) VALUES ('a@b.com', 'password1')");
+        db.execSQL("INSERT INTO expenses (UserID, Amount, Category, Date, Note) VALUES (1, 12.5, 'Food', '2025-10-03', 'lunch')");
+        db.setVersion(1);
+        db.close();
+    }
+
+    private static void assertIndexExists(SQLiteDatabase db, String name) {
+        Cursor cursor = db.rawQuery("SELECT name FROM sqlite_master WHERE type = 'index' AND name = ?", new String[]{name});
+        try {
+            assertTrue("Missing index " + name, cursor.moveToFirst());
+        } finally {
+            cursor.close();
+        }
+    }
+}
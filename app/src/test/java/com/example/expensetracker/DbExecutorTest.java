@@ -0,0 +1,100 @@
+package com.example.expensetracker;
+
+import android.os.Looper;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Every request that is not cancelled hears back exactly once: onResult, or onFailure when its work
+ * throws or it is dropped from the full read queue.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DbExecutorTest {
+
+    private static final Throwable NOT_CALLED = new Throwable();
+
+    @Test
+    public void throwingWork_reportsTheError() {
+        IllegalStateException boom = new IllegalStateException("boom");
+        AtomicReference<Throwable> failure = new AtomicReference<>(NOT_CALLED);
+        DbExecutor.getInstance().write(signal -> {
+            throw boom;
+        }, DbExecutor.<Boolean>callback(result -> fail("No result expected"), failure::set));
+
+        runMainUntil(() -> failure.get() != NOT_CALLED);
+        assertSame(boom, failure.get());
+    }
+
+    @Test
+    public void cancelledRequest_hearsNothing() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        DbExecutor.Request request = DbExecutor.getInstance().write(signal -> {
+            await(release);
+            throw new IllegalStateException("boom");
+        }, DbExecutor.<Boolean>callback(result -> calls.incrementAndGet(), error -> calls.incrementAndGet()));
+        request.cancel();
+        release.countDown();
+
+        // A write queued behind it flushes both through the write thread and the main looper
+        AtomicInteger after = new AtomicInteger();
+        DbExecutor.getInstance().write(signal -> true, result -> after.incrementAndGet());
+        runMainUntil(() -> after.get() == 1);
+        assertEquals(0, calls.get());
+    }
+
+    @Test
+    public void droppedRead_reportsNullFailure() throws Exception {
+        DbExecutor executor = DbExecutor.getInstance();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch busy = new CountDownLatch(2);
+        AtomicInteger results = new AtomicInteger();
+        for (int thread = 0; thread < 2; thread++) {
+            executor.read(signal -> {
+                busy.countDown();
+                await(release);
+                return 0;
+            }, result -> results.incrementAndGet());
+        }
+        assertTrue(busy.await(5, TimeUnit.SECONDS)); // Both read threads are taken
+
+        AtomicReference<Throwable> firstQueued = new AtomicReference<>(NOT_CALLED);
+        executor.read(signal -> 1, DbExecutor.<Integer>callback(result -> fail("Should have been dropped"), firstQueued::set));
+        for (int i = 0; i < 32; i++) { // Fills the queue, then pushes the oldest out
+            executor.read(signal -> 2, result -> results.incrementAndGet());
+        }
+        release.countDown();
+
+        runMainUntil(() -> firstQueued.get() != NOT_CALLED && results.get() == 34);
+        assertNull(firstQueued.get());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    // Results are posted to the main looper from the background threads
+    private static void runMainUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue("Timed out", System.nanoTime() < deadline);
+            shadowOf(Looper.getMainLooper()).idle();
+            Thread.yield();
+        }
+    }
+}
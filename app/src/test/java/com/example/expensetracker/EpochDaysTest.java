@@ -0,0 +1,67 @@
+package com.example.expensetracker;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class EpochDaysTest {
+
+    @Test
+    public void knownDays() {
+        assertEquals(0, EpochDays.of(1970, 1, 1));
+        assertEquals(-1, EpochDays.of(1969, 12, 31));
+        assertEquals(11016, EpochDays.of(2000, 2, 29));
+        assertEquals(4, EpochDays.dayOfWeek(EpochDays.of(2025, 10, 2))); // Thursday
+        assertEquals(0, EpochDays.dayOfWeek(-4)); // 1969-12-28, a Sunday
+    }
+
+    @Test
+    public void everyDayMatchesCalendarAndSimpleDateFormat() {
+        TimeZone utc = TimeZone.getTimeZone("UTC");
+        Calendar calendar = new GregorianCalendar(utc, Locale.US);
+        calendar.clear();
+        calendar.set(1900, Calendar.JANUARY, 1);
+        SimpleDateFormat iso = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        iso.setTimeZone(utc);
+
+        for (long day = EpochDays.of(1900, 1, 1); day <= EpochDays.of(2100, 12, 31); day++) {
+            assertEquals(calendar.getTimeInMillis() / 86_400_000L, day);
+            String expected = iso.format(calendar.getTime());
+            assertEquals(expected, EpochDays.format(day));
+            assertEquals(day, EpochDays.parse(expected));
+            assertEquals(calendar.get(Calendar.DAY_OF_WEEK) - Calendar.SUNDAY, EpochDays.dayOfWeek(day));
+            calendar.add(Calendar.DAY_OF_MONTH, 1);
+        }
+    }
+
+    @Test
+    public void parse_rejectsNonDates() {
+        String[] bad = {"2025-02-30", "2025-13-01", "2025-00-10", "2025-1-01", "2025/10/01", "20a5-10-01", "", null};
+        for (String date : bad) {
+            try {
+                EpochDays.parse(date);
+                fail("Parsed " + date);
+            } catch (IllegalArgumentException expected) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void months() {
+        int october = EpochDays.parseMonth("2025-10");
+        assertEquals(october, EpochDays.monthIndexOf(EpochDays.of(2025, 10, 31)));
+        assertEquals("2025-10", EpochDays.formatMonth(october));
+        assertEquals("2026-01", EpochDays.formatMonth(october + 3));
+        assertEquals("October 2025", EpochDays.displayMonth(october));
+        assertEquals(EpochDays.of(2025, 10, 1), EpochDays.firstDayOfMonth(october));
+        assertEquals(29, EpochDays.daysInMonth(2024, 2));
+        assertEquals(28, EpochDays.daysInMonth(1900, 2));
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.expensetracker;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Full-text search: query building, index upkeep through writes, ranking and paging, plus a
+ * comparison with the LIKE scan it replaces.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ExpenseSearchTest {
+
+    private DatabaseHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase("ExpenseTrackerDB");
+        dbHelper = new DatabaseHelper(context);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+    }
+
+    @Test
+    public void matchQuery_prefixesWordsAndDropsSyntax() {
+        assertEquals("rent* march*", ExpenseSearch.toMatchQuery("Rent, March"));
+        assertEquals("uber*", ExpenseSearch.toMatchQuery("  \"uber\"*  "));
+        assertEquals("a* or* b*", ExpenseSearch.toMatchQuery("a OR b"));
+        assertNull(ExpenseSearch.toMatchQuery(" -*\"() "));
+        assertNull(ExpenseSearch.toMatchQuery(null));
+    }
+
+    @Test
+    public void narrows_onlyWhenTextGrew() {
+        assertTrue(ExpenseSearch.narrows(ExpenseSearch.terms("ub"), ExpenseSearch.terms("uber")));
+        assertTrue(ExpenseSearch.narrows(ExpenseSearch.terms("uber"), ExpenseSearch.terms("Uber eats")));
+        assertFalse(ExpenseSearch.narrows(ExpenseSearch.terms("uber"), ExpenseSearch.terms("ube")));
+        assertFalse(ExpenseSearch.narrows(ExpenseSearch.terms("rent march"), ExpenseSearch.terms("rental march")));
+        assertFalse(ExpenseSearch.narrows(ExpenseSearch.terms(""), ExpenseSearch.terms("a")));
+    }
+
+    @Test
+    public void narrowInMemory_matchesFreshSearch() {
+        dbHelper.addExpense(1, 100, "Transport", "2025-10-01", "Uber to airport");
+        dbHelper.addExpense(1, 200, "Food", "2025-10-02", "uber eats dinner");
+        dbHelper.addExpense(1, 300, "Food", "2025-10-03", "Uber-eats lunch");
+        dbHelper.addExpense(1, 400, "Others", "2025-10-04", "ubiquitous cable");
+
+        ExpenseSearch.Results broad = dbHelper.searchExpenses(1, "ub", 0, ExpenseSearch.MAX_PAGE_SIZE, null);
+        assertEquals(4, broad.size);
+
+        for (String typed : new String[]{"ube", "uber ea", "uber eats l", "ubi"}) {
+            ExpenseSearch.Results narrowed = ExpenseSearch.narrow(broad, ExpenseSearch.terms(typed));
+            ExpenseSearch.Results fresh = dbHelper.searchExpenses(1, typed, 0, ExpenseSearch.MAX_PAGE_SIZE, null);
+            long[] narrowedIds = Arrays.copyOf(narrowed.ids, narrowed.size);
+            long[] freshIds = Arrays.copyOf(fresh.ids, fresh.size);
+            Arrays.sort(narrowedIds);
+            Arrays.sort(freshIds);
+            assertArrayEquals(typed, freshIds, narrowedIds);
+        }
+    }
+
+    @Test
+    public void search_isPrefixedAndScopedToUser() {
+        dbHelper.addExpense(1, 100, "Transport", "2025-10-01", "Uber to airport");
+        dbHelper.addExpense(1, 200, "Food", "2025-10-02", "uber eats");
+        dbHelper.addExpense(1, 300, "Rent", "2025-03-01", "rent march");
+        dbHelper.addExpense(2, 400, "Transport", "2025-10-03", "uber");
+
+        ExpenseSearch.Results uber = dbHelper.searchExpenses(1, "ub", 0, 10, null);
+        assertEquals(2, uber.totalMatches);
+
+        ExpenseSearch.Results rentMarch = dbHelper.searchExpenses(1, "rent mar", 0, 10, null);
+        assertEquals(1, rentMarch.size);
+        assertEquals(300, rentMarch.amounts[0]);
+        assertEquals("rent march", rentMarch.notes[0]);
+
+        assertEquals(0, dbHelper.searchExpenses(1, "   ", 0, 10, null).size);
+    }
+
+    @Test
+    public void index_followsUpdatesAndDeletes() {
+        dbHelper.addExpense(1, 100, "Transport", "2025-10-01", "uber");
+        dbHelper.addExpense(1, 200, "Food", "2025-10-02", "lunch");
+        long uberId = dbHelper.searchExpenses(1, "uber", 0, 1, null).ids[0];
+
+        assertTrue(dbHelper.updateExpense(uberId, 100, "Transport", "2025-10-01", "taxi"));
+        assertEquals(0, dbHelper.searchExpenses(1, "uber", 0, 10, null).totalMatches);
+        assertEquals(1, dbHelper.searchExpenses(1, "taxi", 0, 10, null).totalMatches);
+
+        // Amount-only edits do not re-tokenize but must leave the entry intact
+        assertTrue(dbHelper.updateExpense(uberId, 999, "Transport", "2025-10-01", "taxi"));
+        assertEquals(999, dbHelper.searchExpenses(1, "taxi", 0, 10, null).amounts[0]);
+
+        assertTrue(dbHelper.deleteExpense(uberId));
+        assertEquals(0, dbHelper.searchExpenses(1, "taxi", 0, 10, null).totalMatches);
+        assertEquals(1, dbHelper.searchExpenses(1, "lunch", 0, 10, null).totalMatches);
+    }
+
+    @Test
+    public void ranking_prefersCategoryHitsThenNewest() {
+        dbHelper.addExpense(1, 100, "Food", "2025-10-01", "groceries");
+        dbHelper.addExpense(1, 200, "Others", "2025-10-05", "food for the party");
+        dbHelper.addExpense(1, 300, "Others", "2025-10-09", "food truck");
+
+        ExpenseSearch.Results results = dbHelper.searchExpenses(1, "food", 0, 10, null);
+
+        assertArrayEquals(new long[]{100, 300, 200}, results.amounts);
+    }
+
+    @Test
+    public void pages_coverEveryMatchOnce() {
+        for (int i = 0; i < 25; i++) {
+            dbHelper.addExpense(1, i, "Transport", "2025-10-" + (10 + i % 10), "uber ride " + i);
+        }
+
+        long[] seen = new long[25];
+        int count = 0;
+        for (int offset = 0; offset < 30; offset += 10) {
+            ExpenseSearch.Results page = dbHelper.searchExpenses(1, "uber", offset, 10, null);
+            assertEquals(25, page.totalMatches);
+            for (int i = 0; i < page.size; i++) {
+                seen[count++] = page.ids[i];
+            }
+        }
+        assertEquals(25, count);
+        Arrays.sort(seen);
+        for (int i = 1; i < seen.length; i++) {
+            assertNotEquals(seen[i - 1], seen[i]);
+        }
+    }
+
+    @Test
+    public void topRanked_matchesAFullSort() {
+        Random random = new Random(5);
+        for (int n = 0; n < 60; n++) {
+            double[] scores = new double[n];
+            String[] dates = new String[n];
+            long[] ids = new long[n];
+            for (int i = 0; i < n; i++) {
+                scores[i] = random.nextInt(4) / 2.0; // Plenty of ties, down to the date
+                dates[i] = random.nextInt(5) == 0 ? null : "2025-10-0" + (1 + random.nextInt(3));
+                ids[i] = random.nextInt(1000);
+            }
+            Integer[] sorted = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                sorted[i] = i;
+            }
+            Arrays.sort(sorted, Comparator.<Integer>comparingDouble(i -> -scores[i])
+                    .thenComparing(i -> dates[i], Comparator.nullsLast(Comparator.<String>reverseOrder()))
+                    .thenComparingLong(i -> -ids[i]));
+
+            for (int k = 0; k <= n + 1; k++) {
+                int[] top = ExpenseSearch.topRanked(scores, dates, ids, k);
+                assertEquals(Math.min(k, n), top.length);
+                for (int i = 0; i < top.length; i++) {
+                    // Equal keys may come in either order, so compare the keys
+                    assertEquals(scores[sorted[i]], scores[top[i]], 0);
+                    assertEquals(dates[sorted[i]], dates[top[i]]);
+                    assertEquals(ids[sorted[i]], ids[top[i]]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void benchmark_ftsVersusLikeScan() {
+        // 1% of 200k notes mention "uber", all of them user 1's (i % 100 == 0 implies i % 4 == 0).
+        // No other word contains "uber", so LIKE and FTS must agree.
+        int rows = 200_000;
+        for (long userId = 1; userId <= 4; userId++) {
+            dbHelper.addCategory(userId, "Food");
+        }
+        dbHelper.getWritableDatabase().execSQL(
+                "WITH RECURSIVE n(i) AS (SELECT 0 UNION ALL SELECT i + 1 FROM n WHERE i < " + (rows - 1) + ")" +
+                        " INSERT INTO expenses (UserID, Amount, CategoryID, Date, Note)" +
+                        " SELECT 1 + i % 4, i % 10000," +
+                        " (SELECT CategoryID FROM categories WHERE categories.UserID = 1 + i % 4 AND Name = 'Food'), date('2015-01-01', '+' || (i % 3650) || ' days')," +
+                        " CASE WHEN i % 100 = 0 THEN 'uber ride ' || i ELSE 'groceries row ' || i END FROM n");
+
+        long likeNanos = Long.MAX_VALUE;
+        long ftsNanos = Long.MAX_VALUE;
+        int likeCount = 0;
+        int ftsCount = 0;
+        for (int run = 0; run < 3; run++) {
+            long start = System.nanoTime();
+            Cursor like = dbHelper.getReadableDatabase().rawQuery(
+                    "SELECT ExpID, Date, Amount, Name, Note FROM expenses LEFT JOIN categories USING (CategoryID)" +
+                            " WHERE expenses.UserID = ? AND (Note LIKE ? OR Name LIKE ?) ORDER BY Date DESC LIMIT 50",
+                    new String[]{"1", "%uber%", "%uber%"});
+            like.getCount();
+            like.close();
+            Cursor likeTotal = dbHelper.getReadableDatabase().rawQuery(
+                    "SELECT COUNT(*) FROM expenses LEFT JOIN categories USING (CategoryID)" +
+                            " WHERE expenses.UserID = ? AND (Note LIKE ? OR Name LIKE ?)",
+                    new String[]{"1", "%uber%", "%uber%"});
+            likeTotal.moveToFirst();
+            likeCount = likeTotal.getInt(0);
+            likeTotal.close();
+            likeNanos = Math.min(likeNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            ftsCount = dbHelper.searchExpenses(1, "uber", 0, 50, null).totalMatches;
+            ftsNanos = Math.min(ftsNanos, System.nanoTime() - start);
+        }
+
+        System.out.println("search over " + rows + " rows: LIKE " + likeNanos / 1000 + " us, FTS " +
+                ftsNanos / 1000 + " us (" + ftsCount + " matches)");
+        assertEquals(rows / 100, ftsCount);
+        assertEquals(likeCount, ftsCount);
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.expensetracker;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.text.NumberFormat;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class FormatsTest {
+
+    private static final boolean FULL = Boolean.getBoolean("ledgerBenchmark");
+    private static final int CALLS = 100_000;
+
+    @Test
+    public void currency_inUsDollars() {
+        Formats formats = new Formats(Locale.US);
+        assertEquals("$0.00", formats.currency(0));
+        assertEquals("$0.05", formats.currency(5));
+        assertEquals("$1,234.56", formats.currency(123_456));
+        assertEquals("$1,000,000.00", formats.currency(100_000_000));
+        assertEquals(NumberFormat.getCurrencyInstance(Locale.US).format(-12.34), formats.currency(-1234));
+    }
+
+    @Test
+    public void currency_matchesNumberFormatInEveryLocale() {
+        Random random = new Random(7);
+        for (Locale locale : Locale.getAvailableLocales()) {
+            Formats formats = new Formats(locale);
+            NumberFormat expected = NumberFormat.getCurrencyInstance(locale);
+            expected.setMinimumFractionDigits(2);
+            expected.setMaximumFractionDigits(2);
+            for (int i = 0; i < 50; i++) {
+                long amount = i < 10 ? random.nextInt(20_000) - 10_000 : random.nextLong() % 1_000_000_000_000L;
+                assertEquals(locale + " " + amount, expected.format(BigDecimal.valueOf(amount, 2)), formats.currency(amount));
+            }
+            assertEquals(locale.toString(), expected.format(BigDecimal.valueOf(Long.MIN_VALUE, 2)),
+                    formats.currency(Long.MIN_VALUE));
+        }
+    }
+
+    @Test
+    public void currency_appendsToTheBuilder() {
+        StringBuilder line = new StringBuilder("Food: ");
+        new Formats(Locale.US).appendCurrency(line, 1999).append(" on 2025-10-01");
+        assertEquals("Food: $19.99 on 2025-10-01", line.toString());
+    }
+
+    @Test
+    public void months_areCachedAndEvictedBySlot() {
+        Formats formats = new Formats(Locale.US);
+        int october2025 = EpochDays.monthIndex(2025, 10);
+        assertEquals("2025-10", formats.monthKey(october2025));
+        assertEquals("October 2025", formats.displayMonth(october2025));
+        assertSame(formats.monthKey(october2025), formats.monthKey(october2025));
+
+        // 64 months later lands in the same slot and must not be served October's strings
+        assertEquals("2031-02", formats.monthKey(october2025 + 64));
+        assertEquals("February 2031", formats.displayMonth(october2025 + 64));
+        assertEquals("2025-10", formats.monthKey(october2025));
+    }
+
+    @Test
+    public void isoDate() {
+        Formats formats = new Formats(Locale.US);
+        assertEquals("2024-02-29", formats.isoDate(EpochDays.of(2024, 2, 29)));
+        assertEquals("1970-01-01", formats.isoDate(0));
+    }
+
+    @Test
+    public void defaultInstance_followsTheDefaultLocale() {
+        Locale saved = Locale.getDefault();
+        try {
+            Locale.setDefault(Locale.US);
+            Formats us = Formats.getInstance();
+            assertSame(us, Formats.getInstance());
+            Locale.setDefault(Locale.GERMANY);
+            Formats german = Formats.getInstance();
+            assertEquals(Locale.GERMANY, german.locale);
+            assertNotSame(us, german);
+        } finally {
+            Locale.setDefault(saved);
+        }
+    }
+
+    @Test
+    public void benchmark_beatsBuildingAFormatterPerCall() {
+        Assume.assumeTrue("Run with -PledgerBenchmark", FULL);
+        Formats formats = new Formats(Locale.US);
+        TimeZone utc = TimeZone.getTimeZone("UTC");
+        int month = EpochDays.monthIndex(2025, 10);
+        long sink = 0;
+
+        for (int round = 0; round < 2; round++) { // The first round is JIT warm-up
+            long start = System.nanoTime();
+            StringBuilder line = new StringBuilder(32);
+            for (int i = 0; i < CALLS; i++) {
+                line.setLength(0);
+                sink += formats.appendCurrency(line, i * 37L).length();
+            }
+            long cached = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < CALLS; i++) {
+                sink += NumberFormat.getCurrencyInstance(Locale.US).format(i * 37L / 100.0).length();
+            }
+            long perCall = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < CALLS; i++) {
+                sink += String.format(Locale.US, "$%.2f", i * 37L / 100.0).length();
+            }
+            long stringFormat = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < CALLS; i++) {
+                sink += formats.monthKey(month + i % 24).length() + formats.displayMonth(month + i % 24).length();
+            }
+            long cachedMonths = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            Calendar calendar = new GregorianCalendar(utc, Locale.US);
+            for (int i = 0; i < CALLS; i++) {
+                calendar.clear();
+                calendar.set(2025 + i % 24 / 12, i % 12, 1);
+                SimpleDateFormat key = new SimpleDateFormat("yyyy-MM", Locale.US);
+                SimpleDateFormat display = new SimpleDateFormat("MMMM yyyy", Locale.US);
+                key.setTimeZone(utc);
+                display.setTimeZone(utc);
+                sink += key.format(calendar.getTime()).length() + display.format(calendar.getTime()).length();
+            }
+            long simpleDateFormat = System.nanoTime() - start;
+
+            if (round == 1) {
+                System.out.println("Formats: currency " + cached / CALLS + " ns vs " + perCall / CALLS +
+                        " ns (NumberFormat per call), " + stringFormat / CALLS + " ns (String.format); months " +
+                        cachedMonths / CALLS + " ns vs " + simpleDateFormat / CALLS + " ns (SimpleDateFormat per call)");
+                assertTrue(cached < perCall);
+                assertTrue(cached < stringFormat);
+                assertTrue(cachedMonths < simpleDateFormat);
+            }
+        }
+        assertTrue(sink > 0);
+    }
+}
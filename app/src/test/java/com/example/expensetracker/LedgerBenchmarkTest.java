@@ -0,0 +1,192 @@
+package com.example.expensetracker;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Times the dashboard and category-detail queries against SyntheticLedger at 10k rows on every
+ * test run, and at 100k and 1M rows with ./gradlew testDebugUnitTest -PledgerBenchmark.
+ *
+ * Rows per user stay fixed as the ledger grows, so every query here should cost about the same
+ * at every size. One that slows down in step with the ledger has lost its index and is scanning.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class LedgerBenchmarkTest {
+
+    private static final boolean FULL = Boolean.getBoolean("ledgerBenchmark");
+    private static final long SEED = 42;
+    private static final int WARMUP = 10;
+    private static final int ITERATIONS = 50;
+    // Flat means within this factor of the 10k median; a full scan at 1M is about 100x
+    private static final int MAX_SLOWDOWN = 8;
+
+    private static final String[] QUERIES = {
+            "getTopNExpenses", "getCategoryTotalsForMonth", "getCategorySummary", "getWeekTotals", "getExpensesPageDescending"
+    };
+
+    private Context context;
+    private DatabaseHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+    }
+
+    @After
+    public void tearDown() {
+        if (dbHelper != null) {
+            dbHelper.close();
+        }
+    }
+
+    @Test
+    public void generator_isDeterministic() {
+        SyntheticLedger a = new SyntheticLedger(3, 2023, 3, 500, SEED);
+        SyntheticLedger b = new SyntheticLedger(3, 2023, 3, 500, SEED);
+        for (int user = 1; user <= 3; user++) {
+            for (int n = 0; n < 500; n += 37) {
+                CsvExpenseImporter.Row x = a.row(user, n);
+                CsvExpenseImporter.Row y = b.row(user, n);
+                assertEquals(x.date, y.date);
+                assertEquals(x.amountMinor, y.amountMinor);
+                assertEquals(x.category, y.category);
+                assertEquals(x.note, y.note);
+                assertTrue(x.date.compareTo("2023-01-01") >= 0 && x.date.compareTo("2026-01-01") < 0);
+            }
+        }
+        assertNotEquals(a.row(1, 0).date + a.row(1, 1).date, a.row(2, 0).date + a.row(2, 1).date);
+    }
+
+    @Test
+    public void benchmark_10kRows() {
+        long[] medians = run(10_000);
+        for (long median : medians) {
+            assertTrue(median > 0);
+        }
+    }
+
+    @Test
+    public void benchmark_costStaysFlatFrom10kTo1MRows() {
+        Assume.assumeTrue("Run with -PledgerBenchmark", FULL);
+        long[] base = run(10_000);
+        run(100_000);
+        long[] large = run(1_000_000);
+        for (int q = 0; q < QUERIES.length; q++) {
+            // The floor keeps a 20 us query from failing over scheduler noise
+            assertTrue(QUERIES[q] + " went from " + base[q] + " to " + large[q] + " us",
+                    large[q] <= Math.max(base[q], 200) * MAX_SLOWDOWN);
+        }
+    }
+
+    /** Builds a ledger of rows, prints and returns the median microseconds of each of QUERIES. */
+    private long[] run(int rows) {
+        if (dbHelper != null) {
+            dbHelper.close();
+        }
+        context.deleteDatabase("ExpenseTrackerDB");
+        dbHelper = new DatabaseHelper(context);
+
+        SyntheticLedger ledger = SyntheticLedger.forSize(rows, SEED);
+        long start = System.nanoTime();
+        ledger.insertInto(dbHelper);
+        long insertMillis = (System.nanoTime() - start) / 1_000_000;
+
+        Random random = new Random(SEED);
+        long[][] micros = new long[QUERIES.length][ITERATIONS];
+        for (int i = -WARMUP; i < ITERATIONS; i++) {
+            long userId = 1 + random.nextInt(ledger.users);
+            WeekBuckets weeks = WeekBuckets.forMonth(ledger.randomMonth(random));
+            int week = random.nextInt(weeks.count);
+            long[] elapsed = runQueries(userId, weeks, week);
+            if (i >= 0) {
+                for (int q = 0; q < QUERIES.length; q++) {
+                    micros[q][i] = elapsed[q];
+                }
+            }
+        }
+
+        long[] medians = new long[QUERIES.length];
+        StringBuilder report = new StringBuilder();
+        report.append("ledger ").append(ledger.rows()).append(" rows, ").append(ledger.users)
+                .append(" users: insert ").append(insertMillis).append(" ms");
+        for (int q = 0; q < QUERIES.length; q++) {
+            Arrays.sort(micros[q]);
+            medians[q] = micros[q][ITERATIONS / 2];
+            report.append("\n  ").append(QUERIES[q]).append(": p50 ").append(medians[q])
+                    .append(" us, p95 ").append(micros[q][ITERATIONS * 95 / 100]).append(" us");
+        }
+        System.out.println(report);
+        return medians;
+    }
+
+    // Runs each query once, reading every row, and cross-checks the month's totals
+    private long[] runQueries(long userId, WeekBuckets weeks, int week) {
+        long[] elapsed = new long[QUERIES.length];
+
+        long start = System.nanoTime();
+        drain(dbHelper.getTopNExpenses(userId, weeks.monthYear, 5));
+        elapsed[0] = (System.nanoTime() - start) / 1000;
+
+        start = System.nanoTime();
+        long categoryTotal = sumTotals(dbHelper.getCategoryTotalsForMonth(userId, weeks.monthYear));
+        elapsed[1] = (System.nanoTime() - start) / 1000;
+
+        start = System.nanoTime();
+        long summaryTotal = sumTotals(dbHelper.getCategorySummary(userId, weeks.monthYear));
+        elapsed[2] = (System.nanoTime() - start) / 1000;
+
+        start = System.nanoTime();
+        WeekBuckets.Totals weekTotals = weeks.totalsFrom(dbHelper.getWeekTotals(userId, weeks, null));
+        elapsed[3] = (System.nanoTime() - start) / 1000;
+
+        start = System.nanoTime();
+        int pageRows = drain(dbHelper.getExpensesPageDescending(userId, weeks.startDate(week), weeks.endDate(week),
+                0, 0, ExpensePager.PAGE_SIZE, null));
+        elapsed[4] = (System.nanoTime() - start) / 1000;
+
+        // The rollup and the raw rows must agree, or the timings are of the wrong answer
+        long weeksTotal = 0;
+        for (long amount : weekTotals.amounts) {
+            weeksTotal += amount;
+        }
+        assertEquals(categoryTotal, summaryTotal);
+        assertEquals(categoryTotal, weeksTotal);
+        assertEquals(Math.min(weekTotals.counts[week], ExpensePager.PAGE_SIZE), pageRows);
+        return elapsed;
+    }
+
+    private static int drain(Cursor cursor) {
+        try {
+            return cursor.getCount();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static long sumTotals(Cursor cursor) {
+        try {
+            int totalIndex = cursor.getColumnIndexOrThrow("TotalAmount");
+            long total = 0;
+            while (cursor.moveToNext()) {
+                total += cursor.getLong(totalIndex);
+            }
+            return total;
+        } finally {
+            cursor.close();
+        }
+    }
+}
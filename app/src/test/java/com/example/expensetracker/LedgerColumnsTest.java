@@ -0,0 +1,227 @@
+package com.example.expensetracker;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * LedgerColumns must agree with the database through loading and incremental writes, and
+ * aggregate a million rows in milliseconds (timed only with -PledgerBenchmark).
+ */
+@RunWith(RobolectricTestRunner.class)
+public class LedgerColumnsTest {
+
+    private static final long USER = 1;
+    private static final boolean FULL = Boolean.getBoolean("ledgerBenchmark");
+
+    private DatabaseHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase("ExpenseTrackerDB");
+        dbHelper = new DatabaseHelper(context);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+    }
+
+    @Test
+    public void load_matchesTheRollupInEveryMonth() {
+        // More rows than one load page, so the keyset paging is exercised
+        SyntheticLedger ledger = new SyntheticLedger(2, 2024, 2, LedgerColumns.LOAD_PAGE_SIZE * 2 + 17, 5);
+        ledger.insertInto(dbHelper);
+
+        LedgerColumns columns = LedgerColumns.load(dbHelper, USER, null);
+        assertEquals(ledger.rowsPerUser, columns.size());
+
+        int firstMonth = EpochDays.monthIndex(2024, 1);
+        long[][] totals = columns.totalsByMonthAndCategory(firstMonth, firstMonth + 24);
+        long[] monthTotals = columns.totalsByMonth(firstMonth, firstMonth + 24);
+        for (int m = 0; m < 24; m++) {
+            assertMatchesSummary(columns, EpochDays.formatMonth(firstMonth + m), totals[m]);
+            assertEquals(Arrays.stream(totals[m]).sum(), monthTotals[m]);
+        }
+    }
+
+    @Test
+    public void dayOfWeekTotals_matchSqlite() {
+        new SyntheticLedger(1, 2025, 1, 3000, 9).insertInto(dbHelper);
+        LedgerColumns columns = LedgerColumns.load(dbHelper, USER, null);
+        long from = EpochDays.of(2025, 3, 1);
+        long to = EpochDays.of(2025, 9, 1);
+
+        long[] expected = new long[7];
+        Cursor cursor = dbHelper.getReadableDatabase().rawQuery("SELECT strftime('%w', " + DatabaseHelper.COL_EXP_DATE +
+                "), SUM(" + DatabaseHelper.COL_EXP_AMOUNT + ") FROM " + DatabaseHelper.TABLE_EXPENSES +
+                " WHERE " + DatabaseHelper.COL_EXP_USER_ID + " = ? AND " + DatabaseHelper.COL_EXP_DAY + " >= ? AND " +
+                DatabaseHelper.COL_EXP_DAY + " < ? GROUP BY 1", new String[]{"1", String.valueOf(from), String.valueOf(to)});
+        try {
+            while (cursor.moveToNext()) {
+                expected[cursor.getInt(0)] = cursor.getLong(1);
+            }
+        } finally {
+            cursor.close();
+        }
+        assertArrayEquals(expected, columns.totalsByDayOfWeek(from, to));
+        assertEquals(Arrays.stream(expected).sum(), columns.total(from, to));
+    }
+
+    @Test
+    public void incrementalWrites_matchAReload() {
+        new SyntheticLedger(1, 2025, 1, 500, 3).insertInto(dbHelper);
+        LedgerColumns columns = LedgerColumns.load(dbHelper, USER, null);
+        Random random = new Random(11);
+
+        for (int i = 0; i < 200; i++) {
+            String date = EpochDays.format(EpochDays.of(2025, 1 + random.nextInt(12), 1 + random.nextInt(28)));
+            String category = SyntheticLedger.CATEGORIES[random.nextInt(SyntheticLedger.CATEGORIES.length)];
+            long amount = 1 + random.nextInt(50_000);
+            long id = 1 + random.nextInt(500 + i);
+            switch (random.nextInt(3)) {
+                case 0:
+                    long added = dbHelper.addExpenseReturningId(USER, amount, category, date, null);
+                    columns.insert(added, EpochDays.parse(date), amount, category);
+                    break;
+                case 1:
+                    if (dbHelper.updateExpense(id, amount, category, date, null)) {
+                        columns.remove(id);
+                        columns.insert(id, EpochDays.parse(date), amount, category);
+                    }
+                    break;
+                default:
+                    assertEquals(dbHelper.deleteExpense(id), columns.remove(id));
+                    break;
+            }
+        }
+
+        LedgerColumns reloaded = LedgerColumns.load(dbHelper, USER, null);
+        assertEquals(reloaded.size(), columns.size());
+        int january = EpochDays.monthIndex(2025, 1);
+        long[][] expected = reloaded.totalsByMonthAndCategory(january, january + 12);
+        long[][] actual = columns.totalsByMonthAndCategory(january, january + 12);
+        for (int m = 0; m < 12; m++) {
+            for (int code = 0; code < reloaded.categoryCount(); code++) {
+                String category = reloaded.categoryName(code);
+                assertEquals(category, expected[m][code], actual[m][columns.categoryCode(category)]);
+            }
+        }
+    }
+
+    @Test
+    public void undatedRowsAreLeftOut_andNullCategoriesAreEmpty() {
+        dbHelper.addExpense(USER, 100, null, "2025-10-01", null);
+        dbHelper.addExpense(USER, 200, "Food", "2025-02-30", null); // No such day: DateDay is NULL
+        dbHelper.addExpense(USER, 300, "Food", null, null);
+        dbHelper.addExpense(USER + 1, 400, "Food", "2025-10-01", null);
+
+        LedgerColumns columns = LedgerColumns.load(dbHelper, USER, null);
+        assertEquals(1, columns.size());
+        assertEquals(0, columns.categoryCode(""));
+        assertEquals(-1, columns.categoryCode("Food"));
+        assertEquals(100, columns.total(Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void ranges_areHalfOpen() {
+        LedgerColumns columns = new LedgerColumns(USER);
+        long day = EpochDays.of(2025, 10, 1);
+        columns.insert(2, day, 20, "Food");
+        columns.insert(1, day, 10, "Food");
+        columns.insert(3, day + 1, 30, "Rent");
+
+        assertEquals(30, columns.total(day, day + 1));
+        assertEquals(2, columns.count(day, day + 1));
+        assertEquals(60, columns.total(day, day + 2));
+        assertEquals(0, columns.total(day + 2, day + 10));
+        assertEquals(0, columns.count(day + 1, day));
+        assertTrue(columns.remove(1));
+        assertFalse(columns.remove(1));
+        assertEquals(50, columns.total(day, day + 2));
+    }
+
+    @Test
+    public void aggregates_addUpToTheLedger_inMillisecondsAtAMillionRows() {
+        // Without -PledgerBenchmark a smaller ledger is checked once, untimed
+        int rows = FULL ? 1_000_000 : 100_000;
+        int years = 4;
+        long build = System.nanoTime();
+        LedgerColumns columns = SyntheticLedger.columns(rows, 2022, years, 42);
+        long buildMillis = (System.nanoTime() - build) / 1_000_000;
+
+        int firstMonth = EpochDays.monthIndex(2022, 1);
+        long[] byCategoryMicros = new long[FULL ? 15 : 1];
+        long[] byMonthMicros = new long[byCategoryMicros.length];
+        long[] byWeekdayMicros = new long[byCategoryMicros.length];
+        long expected = columns.total(Long.MIN_VALUE, Long.MAX_VALUE);
+        for (int run = 0; run < byCategoryMicros.length; run++) {
+            long start = System.nanoTime();
+            long[] byCategory = columns.totalsByCategory(Long.MIN_VALUE, Long.MAX_VALUE);
+            byCategoryMicros[run] = (System.nanoTime() - start) / 1000;
+
+            start = System.nanoTime();
+            long[][] byMonth = columns.totalsByMonthAndCategory(firstMonth, firstMonth + years * 12);
+            byMonthMicros[run] = (System.nanoTime() - start) / 1000;
+
+            start = System.nanoTime();
+            long[] byWeekday = columns.totalsByDayOfWeek(Long.MIN_VALUE, Long.MAX_VALUE);
+            byWeekdayMicros[run] = (System.nanoTime() - start) / 1000;
+
+            assertEquals(expected, Arrays.stream(byCategory).sum());
+            assertEquals(expected, Arrays.stream(byWeekday).sum());
+            long monthsTotal = 0;
+            for (long[] month : byMonth) {
+                monthsTotal += Arrays.stream(month).sum();
+            }
+            assertEquals(expected, monthsTotal);
+        }
+        if (!FULL) {
+            return;
+        }
+        Arrays.sort(byCategoryMicros);
+        Arrays.sort(byMonthMicros);
+        Arrays.sort(byWeekdayMicros);
+        System.out.println("LedgerColumns, " + rows + " rows (built in " + buildMillis + " ms): by category " +
+                byCategoryMicros[7] + " us, by month and category " + byMonthMicros[7] + " us, by weekday " +
+                byWeekdayMicros[7] + " us");
+        assertTrue(byCategoryMicros[7] + " us", byCategoryMicros[7] < 50_000);
+        assertTrue(byMonthMicros[7] + " us", byMonthMicros[7] < 50_000);
+        assertTrue(byWeekdayMicros[7] + " us", byWeekdayMicros[7] < 50_000);
+    }
+
+    // The columns' totals for month must be exactly what getCategorySummary reads from the rollup
+    private void assertMatchesSummary(LedgerColumns columns, String monthYear, long[] totals) {
+        Cursor cursor = dbHelper.getCategorySummary(USER, monthYear);
+        try {
+            int nonZero = 0;
+            for (long total : totals) {
+                if (total != 0) {
+                    nonZero++;
+                }
+            }
+            assertEquals(monthYear, cursor.getCount(), nonZero);
+            int categoryIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_CATEGORY);
+            int totalIndex = cursor.getColumnIndexOrThrow("TotalAmount");
+            while (cursor.moveToNext()) {
+                int code = columns.categoryCode(cursor.getString(categoryIndex));
+                assertEquals(monthYear, cursor.getLong(totalIndex), totals[code]);
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.expensetracker;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.StringWriter;
+import java.io.Writer;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class LedgerExporterTest {
+
+    private static final boolean FULL = Boolean.getBoolean("ledgerBenchmark");
+
+    private DatabaseHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase("ExpenseTrackerDB");
+        dbHelper = new DatabaseHelper(context);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+    }
+
+    @Test
+    public void csvExport_escapesAndHonoursDateRange() throws Exception {
+        dbHelper.addExpense(1, 350, "Food", "2025-09-30", "before range");
+        dbHelper.addExpense(1, 1250, "Food", "2025-10-01", "Coffee, \"large\"");
+        dbHelper.addExpense(1, 5, "Rent", "2025-10-31", null);
+        dbHelper.addExpense(2, 999, "Food", "2025-10-05", "other user");
+
+        StringWriter out = new StringWriter();
+        LedgerExporter.Result result = new LedgerExporter(dbHelper)
+                .export(1, "2025-10-01", "2025-11-01", LedgerExporter.Format.CSV, out, null, null);
+
+        assertEquals(2, result.rowsWritten);
+        assertEquals("Date,Amount,Category,Note\n" +
+                "2025-10-01,12.50,Food,\"Coffee, \"\"large\"\"\"\n" +
+                "2025-10-31,0.05,Rent,\n", out.toString());
+    }
+
+    @Test
+    public void jsonExport_crossesPageBoundariesWithoutGapsOrRepeats() throws Exception {
+        // Many rows share a Date, so paging must fall back to ExpID to stay exact
+        int rows = LedgerExporter.PAGE_SIZE * 2 + 3;
+        insertSyntheticLedger(rows, 3);
+
+        StringWriter out = new StringWriter();
+        LedgerExporter.Result result = new LedgerExporter(dbHelper)
+                .export(1, null, null, LedgerExporter.Format.JSON, out, null, null);
+
+        assertEquals(rows, result.rowsWritten);
+        String json = out.toString();
+        assertTrue(json.startsWith("[\n{\"date\":"));
+        assertTrue(json.endsWith("}]\n"));
+        assertEquals(rows, json.split("\"date\"").length - 1);
+    }
+
+    @Test
+    public void wholeLedgerExport_includesUndatedRowsLast() throws Exception {
+        int rows = LedgerExporter.PAGE_SIZE + 1;
+        insertSyntheticLedger(rows, 30);
+        dbHelper.addExpense(1, 700, "Food", "2025-1x-01", "bad month");
+        dbHelper.addExpense(1, 800, "Food", "2025-02-30", "no such day");
+        dbHelper.addExpense(2, 900, "Food", "garbage", "other user");
+
+        StringWriter out = new StringWriter();
+        LedgerExporter.Result result = new LedgerExporter(dbHelper)
+                .export(1, null, null, LedgerExporter.Format.CSV, out, null, null);
+
+        assertEquals(rows + 2, result.rowsWritten);
+        assertTrue(out.toString().endsWith("2025-1x-01,7.00,Food,bad month\n2025-02-30,8.00,Food,no such day\n"));
+
+        // A date range only covers real days
+        out = new StringWriter();
+        result = new LedgerExporter(dbHelper).export(1, "2015-01-01", "2016-01-01", LedgerExporter.Format.CSV, out, null, null);
+        assertEquals(rows, result.rowsWritten);
+        assertFalse(out.toString().contains("bad month"));
+    }
+
+    @Test
+    public void millionRowExport_keepsHeapFlat() throws Exception {
+        Assume.assumeTrue("Run with -PledgerBenchmark", FULL);
+        insertSyntheticLedger(1_000_000, 3650);
+
+        Runtime runtime = Runtime.getRuntime();
+        long[] minMax = {Long.MAX_VALUE, 0};
+        LedgerExporter.ProgressListener sampler = (rowsWritten, elapsedMillis) -> {
+            if (rowsWritten % (LedgerExporter.PAGE_SIZE * 50) == 0) {
+                System.gc();
+                long used = runtime.totalMemory() - runtime.freeMemory();
+                minMax[0] = Math.min(minMax[0], used);
+                minMax[1] = Math.max(minMax[1], used);
+            }
+        };
+
+        LedgerExporter.Result result = new LedgerExporter(dbHelper)
+                .export(1, null, null, LedgerExporter.Format.CSV, new CountingWriter(), sampler, null);
+
+        assertEquals(1_000_000, result.rowsWritten);
+        // Materialising a million rows would need hundreds of MB; streaming should barely move
+        assertTrue("Heap grew by " + (minMax[1] - minMax[0]) + " bytes", minMax[1] - minMax[0] < 16L * 1024 * 1024);
+    }
+
+    // Generated in SQL so building the fixture does not dominate the test
+    private void insertSyntheticLedger(int rows, int days) {
+        long food = dbHelper.addCategory(1, "Food");
+        dbHelper.getWritableDatabase().execSQL(
+                "WITH RECURSIVE n(i) AS (SELECT 0 UNION ALL SELECT i + 1 FROM n WHERE i < " + (rows - 1) + ")" +
+                        " INSERT INTO expenses (UserID, Amount, CategoryID, Date, Note)" +
+                        " SELECT 1, i % 10000, " + food + ", date('2015-01-01', '+' || (i % " + days + ") || ' days'), 'row ' || i FROM n");
+    }
+
+    private static final class CountingWriter extends Writer {
+        long chars;
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            chars += length;
+        }
+
+        @Override
+        public Writer append(CharSequence csq) {
+            chars += csq.length();
+            return this;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
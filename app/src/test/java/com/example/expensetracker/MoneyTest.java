@@ -0,0 +1,52 @@
+package com.example.expensetracker;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MoneyTest {
+
+    @Test
+    public void parse_convertsDecimalTextToMinorUnits() {
+        assertEquals(1200L, Money.parse("12"));
+        assertEquals(1250L, Money.parse("12.5"));
+        assertEquals(1234L, Money.parse("12.34"));
+        assertEquals(50L, Money.parse(".5"));
+        assertEquals(7L, Money.parse("0.07"));
+    }
+
+    @Test
+    public void parse_roundsHalfUpOnThirdDecimal() {
+        assertEquals(1235L, Money.parse("12.345"));
+        assertEquals(1234L, Money.parse("12.344"));
+        assertEquals(1300L, Money.parse("12.995"));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void parse_rejectsGarbage() {
+        Money.parse("12a");
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void parse_rejectsLoneDot() {
+        Money.parse(".");
+    }
+
+    @Test
+    public void toPlainString_keepsTwoDecimals() {
+        assertEquals("0.00", Money.toPlainString(0));
+        assertEquals("0.05", Money.toPlainString(5));
+        assertEquals("12.50", Money.toPlainString(1250));
+        assertEquals("-3.10", Money.toPlainString(-310));
+    }
+
+    @Test
+    public void integerSums_doNotDrift() {
+        // 0.10 added a million times: float accumulates error, long cents do not
+        long total = 0;
+        for (int i = 0; i < 1_000_000; i++) {
+            total += Money.parse("0.10");
+        }
+        assertEquals(10_000_000L, total);
+    }
+}
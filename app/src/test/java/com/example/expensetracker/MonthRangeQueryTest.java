@@ -0,0 +1,182 @@
+package com.example.expensetracker;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the sargable [start, end) month queries in DatabaseHelper return exactly what the
+ * old strftime('%Y-%m', Date) = ? filters returned, on generated ledgers.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class MonthRangeQueryTest {
+
+    private static final String[] CATEGORIES = {"Food", "Transport", "Rent", "Electricity", "Water", "Others"};
+    private static final String[] MONTHS = {"2023-12", "2024-01", "2024-02", "2024-12", "2025-01", "2025-10"};
+
+    private DatabaseHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        dbHelper = new DatabaseHelper(context);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+    }
+
+    @Test
+    public void forMonth_buildsHalfOpenRange() {
+        DateRange range = DateRange.forMonth("2025-10");
+        assertEquals(EpochDays.of(2025, 10, 1), range.startDay);
+        assertEquals(EpochDays.of(2025, 11, 1), range.endDay);
+
+        DateRange december = DateRange.forMonth("2024-12");
+        assertEquals(EpochDays.of(2024, 12, 1), december.startDay);
+        assertEquals(EpochDays.of(2025, 1, 1), december.endDay);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void forMonth_rejectsMalformedInput() {
+        DateRange.forMonth("2025-13");
+    }
+
+    @Test
+    public void monthQueries_matchLegacyStrftimeFilters() {
+        for (long seed = 1; seed <= 5; seed++) {
+            seedLedger(seed, 400 * (int) seed);
+
+            for (long userId = 1; userId <= 3; userId++) {
+                for (String month : MONTHS) {
+                    assertSameRows(legacyCategoryTotals(userId, month),
+                            dbHelper.getCategoryTotalsForMonth(userId, month));
+                    assertSameRows(legacyCategorySummary(userId, month),
+                            dbHelper.getCategorySummary(userId, month));
+                    // Order by Date only is not unique, so compare the Date column of the top N
+                    assertSameDates(legacyTopN(userId, month, 5),
+                            dbHelper.getTopNExpenses(userId, month, 5));
+                }
+            }
+        }
+    }
+
+    // --- Data generation ---
+
+    private void seedLedger(long seed, int rows) {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        db.delete(DatabaseHelper.TABLE_EXPENSES, null, null);
+
+        Random random = new Random(seed);
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < rows; i++) {
+                String month = MONTHS[random.nextInt(MONTHS.length)];
+                // Day 1..31 deliberately; the boundaries are where the two filters could disagree, and
+                // impossible days ('2024-02-30') must be left out by the rollup and the range reads alike
+                int day = 1 + random.nextInt(31);
+                long userId = 1 + random.nextInt(3);
+                db.execSQL("INSERT INTO " + DatabaseHelper.TABLE_EXPENSES + " (" +
+                                DatabaseHelper.COL_EXP_USER_ID + ", " + DatabaseHelper.COL_EXP_AMOUNT + ", " +
+                                DatabaseHelper.COL_EXP_CATEGORY_ID + ", " + DatabaseHelper.COL_EXP_DATE + ", " +
+                                DatabaseHelper.COL_EXP_NOTE + ") VALUES (?, ?, ?, ?, ?)",
+                        new Object[]{
+                                userId,
+                                random.nextInt(50000), // Minor units
+                                dbHelper.addCategory(userId, CATEGORIES[random.nextInt(CATEGORIES.length)]),
+                                String.format(Locale.US, "%s-%02d", month, day),
+                                "note " + i
+                        });
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // --- The original strftime() queries, kept here as the reference implementation; since v9 they
+    // join in the category name that expenses used to store, and like every read since v11 they skip
+    // dates that are no calendar day (strftime() would file '2024-02-30' under March) ---
+
+    private static final String CALENDAR_DAY = " AND date(Date) = Date";
+
+    private Cursor legacyCategoryTotals(long userId, String monthYear) {
+        return dbHelper.getReadableDatabase().rawQuery(
+                "SELECT Name AS Category, SUM(Amount) AS TotalAmount FROM expenses JOIN categories USING (CategoryID)" +
+                        " WHERE expenses.UserID = ? AND strftime('%Y-%m', Date) = ?" + CALENDAR_DAY + " GROUP BY Name",
+                new String[]{String.valueOf(userId), monthYear});
+    }
+
+    private Cursor legacyCategorySummary(long userId, String monthYear) {
+        return dbHelper.getReadableDatabase().rawQuery(
+                "SELECT CategoryID AS _id, Name AS Category, SUM(Amount) AS TotalAmount FROM expenses JOIN categories USING (CategoryID)" +
+                        " WHERE expenses.UserID = ? AND strftime('%Y-%m', Date) = ?" + CALENDAR_DAY +
+                        " GROUP BY CategoryID ORDER BY TotalAmount DESC",
+                new String[]{String.valueOf(userId), monthYear});
+    }
+
+    private Cursor legacyTopN(long userId, String monthYear, int limit) {
+        return dbHelper.getReadableDatabase().rawQuery(
+                "SELECT ExpID AS _id, Date, Amount, CategoryID FROM expenses" +
+                        " WHERE UserID = ? AND strftime('%Y-%m', Date) = ?" + CALENDAR_DAY +
+                        " ORDER BY Date DESC LIMIT " + limit,
+                new String[]{String.valueOf(userId), monthYear});
+    }
+
+    // --- Comparison helpers ---
+
+    private static void assertSameRows(Cursor expected, Cursor actual) {
+        try {
+            assertEquals(readRows(expected), readRows(actual));
+        } finally {
+            expected.close();
+            actual.close();
+        }
+    }
+
+    private static void assertSameDates(Cursor expected, Cursor actual) {
+        try {
+            assertEquals(readColumn(expected, DatabaseHelper.COL_EXP_DATE), readColumn(actual, DatabaseHelper.COL_EXP_DATE));
+        } finally {
+            expected.close();
+            actual.close();
+        }
+    }
+
+    private static List<String> readRows(Cursor cursor) {
+        List<String> rows = new ArrayList<>();
+        while (cursor.moveToNext()) {
+            StringBuilder row = new StringBuilder();
+            for (int i = 0; i < cursor.getColumnCount(); i++) {
+                row.append(cursor.getString(i)).append('|');
+            }
+            rows.add(row.toString());
+        }
+        return rows;
+    }
+
+    private static List<String> readColumn(Cursor cursor, String column) {
+        List<String> values = new ArrayList<>();
+        int index = cursor.getColumnIndexOrThrow(column);
+        while (cursor.moveToNext()) {
+            values.add(cursor.getString(index));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.expensetracker;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.*;
+
+/**
+ * Snapshot loading plus the cache's LRU bound and invalidation rules.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class MonthSnapshotCacheTest {
+
+    private DatabaseHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase("ExpenseTrackerDB");
+        dbHelper = new DatabaseHelper(context);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+    }
+
+    @Test
+    public void snapshotHoldsTopRowsAndTotals() {
+        dbHelper.addExpense(1, 1000, "Food", "2025-10-01", null);
+        dbHelper.addExpense(1, 250, "Food", "2025-10-20", null);
+        dbHelper.addExpense(1, 5000, "Rent", "2025-10-15", null);
+        dbHelper.addExpense(1, 999, "Food", "2025-11-01", null); // Next month
+
+        MonthSnapshot snapshot = load(1, "2025-10", 2);
+
+        assertEquals(2, snapshot.topExpenses.size);
+        assertEquals("2025-10-20", snapshot.topExpenses.dates[0]);
+        assertEquals("2025-10-15", snapshot.topExpenses.dates[1]);
+        assertArrayEquals(new String[]{"Food", "Rent"}, snapshot.categories);
+        assertArrayEquals(new long[]{1250, 5000}, snapshot.categoryTotals);
+        assertEquals(6250, snapshot.grandTotal);
+    }
+
+    @Test
+    public void hitRequiresSameLimit() {
+        MonthSnapshotCache cache = new MonthSnapshotCache(4);
+        MonthSnapshot snapshot = load(1, "2025-10", 5);
+        assertTrue(cache.put(snapshot, cache.generation()));
+
+        assertSame(snapshot, cache.get(1, "2025-10", 5));
+        assertNull(cache.get(1, "2025-10", 10));
+        assertNull(cache.get(2, "2025-10", 5));
+    }
+
+    @Test
+    public void evictsLeastRecentlyViewedMonth() {
+        MonthSnapshotCache cache = new MonthSnapshotCache(2);
+        cache.put(load(1, "2025-08", 5), cache.generation());
+        cache.put(load(1, "2025-09", 5), cache.generation());
+        assertNotNull(cache.get(1, "2025-08", 5)); // August is now the most recent
+
+        cache.put(load(1, "2025-10", 5), cache.generation());
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(1, "2025-08", 5));
+        assertNull(cache.get(1, "2025-09", 5));
+        assertNotNull(cache.get(1, "2025-10", 5));
+    }
+
+    @Test
+    public void invalidateDropsOnlyThatMonth() {
+        MonthSnapshotCache cache = new MonthSnapshotCache(4);
+        cache.put(load(1, "2025-09", 5), cache.generation());
+        cache.put(load(1, "2025-10", 5), cache.generation());
+
+        cache.invalidate(1, "2025-10");
+
+        assertNotNull(cache.get(1, "2025-09", 5));
+        assertNull(cache.get(1, "2025-10", 5));
+    }
+
+    @Test
+    public void invalidateUserKeepsOtherUsers() {
+        MonthSnapshotCache cache = new MonthSnapshotCache(4);
+        cache.put(load(1, "2025-09", 5), cache.generation());
+        cache.put(load(1, "2025-10", 5), cache.generation());
+        cache.put(load(2, "2025-10", 5), cache.generation());
+
+        cache.invalidateUser(1);
+
+        assertEquals(1, cache.size());
+        assertNotNull(cache.get(2, "2025-10", 5));
+    }
+
+    @Test
+    public void loadOverlappingAnInvalidationIsNotCached() {
+        MonthSnapshotCache cache = new MonthSnapshotCache(4);
+        long generation = cache.generation();
+        MonthSnapshot stale = load(1, "2025-10", 5);
+
+        // A write to the same month commits while the load above is still in flight
+        dbHelper.addExpense(1, 1000, "Food", "2025-10-01", null);
+        cache.invalidate(1, "2025-10");
+
+        assertFalse(cache.put(stale, generation));
+        assertNull(cache.get(1, "2025-10", 5));
+    }
+
+    private MonthSnapshot load(long userId, String monthYear, int limit) {
+        return MonthSnapshot.load(dbHelper, userId, monthYear, limit, null);
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.expensetracker;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * The monthly_category_totals rollup must stay exact through every kind of write.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class MonthlyTotalsTest {
+
+    private DatabaseHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase("ExpenseTrackerDB");
+        dbHelper = new DatabaseHelper(context);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+    }
+
+    @Test
+    public void insertsAccumulateIntoBuckets() {
+        dbHelper.addExpense(1, 1000, "Food", "2025-10-01", null);
+        dbHelper.addExpense(1, 250, "Food", "2025-10-31", null);
+        dbHelper.addExpense(1, 5000, "Rent", "2025-10-15", null);
+        dbHelper.addExpense(1, 999, "Food", "2025-11-01", null); // Next month
+        dbHelper.addExpense(2, 777, "Food", "2025-10-02", null); // Other user
+
+        Map<String, Long> october = totals(1, "2025-10");
+        assertEquals(2, october.size());
+        assertEquals(Long.valueOf(1250), october.get("Food"));
+        assertEquals(Long.valueOf(5000), october.get("Rent"));
+        assertTrue(dbHelper.verifyMonthlyTotals());
+    }
+
+    @Test
+    public void updateMovesAmountAcrossMonthsAndCategories() {
+        dbHelper.addExpense(1, 1000, "Food", "2025-10-05", null);
+        long id = firstExpenseId();
+
+        assertTrue(dbHelper.updateExpense(id, 1500, "Transport", "2025-11-05", null));
+
+        assertTrue(totals(1, "2025-10").isEmpty()); // Empty bucket removed
+        assertEquals(Long.valueOf(1500), totals(1, "2025-11").get("Transport"));
+        assertTrue(dbHelper.verifyMonthlyTotals());
+    }
+
+    @Test
+    public void rowsWithoutACalendarDay_stayOutOfTheRollup() {
+        dbHelper.addExpense(1, 1000, "Food", "2025-02-30", null); // No such day, so no DateDay either
+        dbHelper.addExpense(1, 200, "Food", "2025-02-28", null);
+        long id = firstExpenseId();
+        assertEquals(Long.valueOf(200), totals(1, "2025-02").get("Food"));
+
+        // Moving it onto a real day counts it, and back off again takes it out
+        assertTrue(dbHelper.updateExpense(id, 1000, "Food", "2025-02-27", null));
+        assertEquals(Long.valueOf(1200), totals(1, "2025-02").get("Food"));
+        assertTrue(dbHelper.updateExpense(id, 900, "Food", "2025-02-29", null));
+        assertEquals(Long.valueOf(200), totals(1, "2025-02").get("Food"));
+        assertTrue(dbHelper.deleteExpense(id));
+        assertEquals(Long.valueOf(200), totals(1, "2025-02").get("Food"));
+        assertTrue(dbHelper.verifyMonthlyTotals());
+    }
+
+    @Test
+    public void deleteEmptiesBucket() {
+        dbHelper.addExpense(1, 1000, "Food", "2025-10-05", null);
+        dbHelper.addExpense(1, 300, "Food", "2025-10-06", null);
+        long id = firstExpenseId();
+
+        assertTrue(dbHelper.deleteExpense(id));
+        assertEquals(1, totals(1, "2025-10").size());
+        assertTrue(dbHelper.verifyMonthlyTotals());
+    }
+
+    @Test
+    public void rebuildRepairsDriftedRollup() {
+        dbHelper.addExpense(1, 1000, "Food", "2025-10-05", null);
+        dbHelper.getWritableDatabase().execSQL("UPDATE monthly_category_totals SET Total = 1");
+        assertFalse(dbHelper.verifyMonthlyTotals());
+
+        dbHelper.rebuildMonthlyTotals();
+        assertTrue(dbHelper.verifyMonthlyTotals());
+        assertEquals(Long.valueOf(1000), totals(1, "2025-10").get("Food"));
+    }
+
+    private Map<String, Long> totals(long userId, String month) {
+        Map<String, Long> totals = new LinkedHashMap<>();
+        Cursor cursor = dbHelper.getCategoryTotalsForMonth(userId, month);
+        while (cursor.moveToNext()) {
+            totals.put(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_CATEGORY)),
+                    cursor.getLong(cursor.getColumnIndexOrThrow("TotalAmount")));
+        }
+        cursor.close();
+        return totals;
+    }
+
+    private long firstExpenseId() {
+        Cursor cursor = dbHelper.getTopNExpenses(1, null, 100);
+        assertTrue(cursor.moveToLast()); // Oldest date sorts last
+        long id = cursor.getLong(cursor.getColumnIndexOrThrow("_id"));
+        cursor.close();
+        return id;
+    }
+}
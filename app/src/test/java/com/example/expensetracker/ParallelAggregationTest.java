@@ -0,0 +1,172 @@
+package com.example.expensetracker;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * The parallel month-by-category totals must be exactly getCategorySummary's and the sequential
+ * scan's, however the rows are split, and get faster with more cores.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ParallelAggregationTest {
+
+    private static final long USER = 1;
+    private static final boolean FULL = Boolean.getBoolean("ledgerBenchmark");
+
+    private DatabaseHelper dbHelper;
+    private ForkJoinPool pool;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase("ExpenseTrackerDB");
+        dbHelper = new DatabaseHelper(context);
+        pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdown();
+        dbHelper.close();
+    }
+
+    @Test
+    public void matchesGetCategorySummaryInEveryMonth() {
+        // Several leaves' worth of rows over four years
+        SyntheticLedger ledger = new SyntheticLedger(1, 2022, 4, ParallelAggregation.LEAF_ROWS * 3 + 101, 13);
+        ledger.insertInto(dbHelper);
+        LedgerColumns columns = LedgerColumns.load(dbHelper, USER, null);
+
+        int firstMonth = EpochDays.monthIndex(2022, 1);
+        long[][] totals = columns.totalsByMonthAndCategory(firstMonth, firstMonth + 48, pool);
+        assertEquals(48, totals.length);
+        for (int m = 0; m < totals.length; m++) {
+            String monthYear = EpochDays.formatMonth(firstMonth + m);
+            Cursor cursor = dbHelper.getCategorySummary(USER, monthYear);
+            try {
+                int categoryIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_CATEGORY);
+                int totalIndex = cursor.getColumnIndexOrThrow("TotalAmount");
+                long[] expected = new long[columns.categoryCount()];
+                while (cursor.moveToNext()) {
+                    expected[columns.categoryCode(cursor.getString(categoryIndex))] = cursor.getLong(totalIndex);
+                }
+                assertArrayEquals(monthYear, expected, totals[m]);
+            } finally {
+                cursor.close();
+            }
+        }
+    }
+
+    @Test
+    public void matchesTheSequentialScan_forAnyRangeAndPoolSize() {
+        LedgerColumns columns = SyntheticLedger.columns(ParallelAggregation.LEAF_ROWS * 10 + 7, 2023, 3, 5);
+        int january = EpochDays.monthIndex(2023, 1);
+        int[][] ranges = {
+                {january, january + 36}, // Everything
+                {january - 12, january + 48}, // Wider than the data
+                {january + 7, january + 8}, // One month, smaller than a leaf
+                {january + 5, january + 29}, // Starts and ends mid-ledger
+                {january + 40, january + 50}, // No rows
+                {january + 3, january + 3}, // Empty
+                {january + 3, january}, // Backwards
+        };
+        for (int threads = 1; threads <= 8; threads *= 2) {
+            ForkJoinPool sized = new ForkJoinPool(threads);
+            try {
+                for (int[] range : ranges) {
+                    long[][] expected = columns.totalsByMonthAndCategory(range[0], range[1]);
+                    long[][] actual = columns.totalsByMonthAndCategory(range[0], range[1], sized);
+                    assertEquals(expected.length, actual.length);
+                    for (int m = 0; m < expected.length; m++) {
+                        assertArrayEquals(threads + " threads, " + Arrays.toString(range) + " month " + m,
+                                expected[m], actual[m]);
+                    }
+                }
+            } finally {
+                sized.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void emptyLedger() {
+        LedgerColumns columns = new LedgerColumns(USER);
+        long[][] totals = columns.totalsByMonthAndCategory(0, 12, pool);
+        assertEquals(12, totals.length);
+        assertEquals(0, totals[0].length);
+    }
+
+    @Test
+    public void benchmark_scalesFromOneToEveryCore() {
+        // Ten years of a very busy ledger; -PledgerBenchmark uses four times as many rows
+        int rows = FULL ? 8_000_000 : 2_000_000;
+        LedgerColumns columns = SyntheticLedger.columns(rows, 2016, 10, 42);
+        int firstMonth = EpochDays.monthIndex(2016, 1);
+        int lastMonth = firstMonth + 120;
+        long[][] expected = columns.totalsByMonthAndCategory(firstMonth, lastMonth);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        StringBuilder report = new StringBuilder("ParallelAggregation, ").append(rows).append(" rows x 120 months:");
+        long sequentialMicros = medianMicros(columns, firstMonth, lastMonth, null, expected);
+        report.append(" sequential ").append(sequentialMicros).append(" us");
+        long oneThreadMicros = 0;
+        long allCoresMicros = 0;
+        for (int threads = 1; ; threads = Math.min(cores, threads * 2)) {
+            ForkJoinPool sized = new ForkJoinPool(threads);
+            try {
+                long micros = medianMicros(columns, firstMonth, lastMonth, sized, expected);
+                report.append(", ").append(threads).append(threads == 1 ? " thread " : " threads ")
+                        .append(micros).append(" us");
+                if (threads == 1) {
+                    oneThreadMicros = micros;
+                }
+                allCoresMicros = micros;
+            } finally {
+                sized.shutdown();
+            }
+            if (threads == cores) {
+                break;
+            }
+        }
+        report.append(" (").append(String.format("%.1f", (double) oneThreadMicros / Math.max(1, allCoresMicros)))
+                .append("x on ").append(cores).append(cores == 1 ? " core)" : " cores)");
+        System.out.println(report);
+
+        assertTrue(report.toString(), allCoresMicros < 50_000 * (FULL ? 4 : 1));
+        // Shared CI machines give too noisy a speedup to assert; a quiet 4-core one should manage 1.5x
+        if (FULL && cores >= 4) {
+            assertTrue(report.toString(), allCoresMicros * 3 < oneThreadMicros * 2);
+        }
+    }
+
+    // Median of 15 timed runs after 5 warm-up runs; pool null times the sequential scan
+    private static long medianMicros(LedgerColumns columns, int fromMonth, int toMonth, ForkJoinPool pool,
+                                     long[][] expected) {
+        long[] micros = new long[15];
+        for (int run = -5; run < micros.length; run++) {
+            long start = System.nanoTime();
+            long[][] totals = pool == null ? columns.totalsByMonthAndCategory(fromMonth, toMonth)
+                    : columns.totalsByMonthAndCategory(fromMonth, toMonth, pool);
+            long elapsed = (System.nanoTime() - start) / 1000;
+            if (run >= 0) {
+                micros[run] = elapsed;
+            }
+            assertArrayEquals(expected, totals);
+        }
+        Arrays.sort(micros);
+        return micros[micros.length / 2];
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.expensetracker;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Histograms, the slow-query ring buffer and DatabaseHelper's timed cursors.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class QueryMetricsTest {
+
+    private static final boolean FULL = Boolean.getBoolean("ledgerBenchmark");
+
+    private DatabaseHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase("ExpenseTrackerDB");
+        dbHelper = new DatabaseHelper(context);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+    }
+
+    @Test
+    public void percentiles_comeFromPowerOfTwoBuckets() {
+        QueryMetrics metrics = new QueryMetrics();
+        QueryMetrics.Op op = metrics.op("test");
+        for (int i = 0; i < 90; i++) {
+            op.recordMicros("SELECT 1", 100, 1); // Bucket [64, 128)
+        }
+        for (int i = 0; i < 10; i++) {
+            op.recordMicros("SELECT 1", 3000, 5); // Bucket [2048, 4096)
+        }
+
+        QueryMetrics.Stats stats = metrics.stats().get(0);
+        assertEquals(100, stats.count);
+        assertEquals(128, stats.percentileMicros(50));
+        assertEquals(128, stats.percentileMicros(90));
+        assertEquals(3000, stats.percentileMicros(95)); // Capped at the max seen
+        assertEquals(3000, stats.percentileMicros(100));
+        assertEquals(90 + 50, stats.totalRows);
+        assertEquals(5, stats.maxRows);
+    }
+
+    @Test
+    public void slowLog_keepsTheNewestEntries() {
+        QueryMetrics metrics = new QueryMetrics();
+        metrics.setSlowThresholdMillis(1);
+        QueryMetrics.Op op = metrics.op("slow");
+        QueryMetrics.Op fast = metrics.op("fast");
+        int calls = QueryMetrics.SLOW_LOG_CAPACITY + 5;
+        for (int i = 0; i < calls; i++) {
+            op.recordMicros("SELECT " + i, 2000, i);
+            fast.recordMicros("SELECT 1", 999, 0);
+        }
+
+        List<QueryMetrics.SlowQuery> slow = metrics.slowQueries();
+        assertEquals(QueryMetrics.SLOW_LOG_CAPACITY, slow.size());
+        assertEquals(calls, metrics.slowQueryCount());
+        assertEquals("SELECT " + (calls - 1), slow.get(0).sql);
+        assertEquals("SELECT 5", slow.get(slow.size() - 1).sql);
+        for (QueryMetrics.SlowQuery query : slow) {
+            assertEquals("slow", query.name);
+        }
+    }
+
+    @Test
+    public void benchmark_recordCostsAFewMicrosecondsAtMost() {
+        Assume.assumeTrue("Run with -PledgerBenchmark", FULL);
+        QueryMetrics.Op op = new QueryMetrics().op("overhead");
+        int calls = 200_000;
+        for (int i = 0; i < calls; i++) {
+            op.record(System.nanoTime(), 1); // Warm-up, so the JIT has compiled record()
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            op.record(System.nanoTime(), 1);
+        }
+        long nanosPerCall = (System.nanoTime() - start) / calls;
+        System.out.println("QueryMetrics.record: " + nanosPerCall + " ns per call");
+        assertTrue(nanosPerCall + " ns", nanosPerCall < 2_000);
+    }
+
+    @Test
+    public void helperReadsAndWrites_areRecordedWithPlans() throws Exception {
+        dbHelper.addExpense(1, 1000, "Food", "2025-10-01", "lunch");
+        dbHelper.addExpense(1, 250, "Rent", "2025-10-04", null);
+
+        Cursor cursor = dbHelper.getTopNExpenses(1, "2025-10", 5);
+        assertEquals(2, cursor.getCount());
+        assertEquals(2, cursor.getCount()); // Counted once
+        cursor.close();
+
+        QueryMetrics.Stats topN = stats("getTopNExpenses");
+        assertEquals(1, topN.count);
+        assertEquals(2, topN.totalRows);
+        assertEquals(2, stats("addExpense").count);
+
+        StringWriter out = new StringWriter();
+        dbHelper.dumpQueryMetrics(out);
+        String report = out.toString();
+        assertTrue(report, report.contains("getTopNExpenses: SEARCH"));
+        assertTrue(report, report.contains("idx_expenses_user_day"));
+    }
+
+    @Test
+    public void slowThreshold_sendsHelperQueriesToTheSlowLog() {
+        dbHelper.getQueryMetrics().setSlowThresholdMillis(0);
+        dbHelper.getCategorySummary(1, "2025-10").close(); // Never counted: nothing ran
+        Cursor cursor = dbHelper.getCategorySummary(1, "2025-10");
+        cursor.moveToFirst();
+        cursor.close();
+
+        List<QueryMetrics.SlowQuery> slow = dbHelper.getQueryMetrics().slowQueries();
+        assertEquals(1, slow.size());
+        assertEquals("getCategorySummary", slow.get(0).name);
+        assertTrue(slow.get(0).sql.contains(DatabaseHelper.TABLE_MONTHLY_TOTALS));
+    }
+
+    private QueryMetrics.Stats stats(String name) {
+        for (QueryMetrics.Stats stats : dbHelper.getQueryMetrics().stats()) {
+            if (stats.name.equals(name)) {
+                return stats;
+            }
+        }
+        throw new AssertionError("No stats for " + name);
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.expensetracker;
+
+import android.os.Looper;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.StringWriter;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * ScreenTrace's phases and first-frame hook, and PerformanceLog's ring buffer and report.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ScreenTraceTest {
+
+    @Test
+    public void finishedTrace_isLoggedAfterTheNextFrame() {
+        PerformanceLog log = PerformanceLog.getInstance();
+        long before = log.totalLoads();
+
+        ScreenTrace trace = ScreenTrace.start("Test screen");
+        trace.record("query", System.nanoTime());
+        trace.beginSection("bind");
+        trace.endSection();
+        trace.finishAfterNextFrame();
+        assertEquals(before, log.totalLoads()); // Not until the frame is drawn
+
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(100));
+        assertEquals(before + 1, log.totalLoads());
+        PerformanceLog.ScreenLoad load = log.recent().get(0);
+        assertEquals("Test screen", load.screen);
+        assertArrayEquals(new String[]{"query", "bind", "frame"}, load.phases);
+        long phases = 0;
+        for (long micros : load.phaseMicros) {
+            phases += micros;
+        }
+        assertTrue(load.firstRenderMicros >= phases); // Sequential phases fit in the total
+    }
+
+    @Test
+    public void cancelledTrace_isNeverLogged() {
+        PerformanceLog log = PerformanceLog.getInstance();
+        long before = log.totalLoads();
+
+        ScreenTrace trace = ScreenTrace.start("Superseded");
+        trace.finishAfterNextFrame();
+        trace.cancel();
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(100));
+        assertEquals(before, log.totalLoads());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void sections_doNotNest() {
+        ScreenTrace trace = ScreenTrace.start("Nested");
+        trace.beginSection("outer");
+        trace.beginSection("inner");
+    }
+
+    @Test
+    public void log_keepsTheNewestLoadsAndMedians() throws Exception {
+        PerformanceLog log = new PerformanceLog();
+        int loads = PerformanceLog.CAPACITY + 3;
+        for (int i = 0; i < loads; i++) {
+            log.add(new PerformanceLog.ScreenLoad(i % 2 == 0 ? "Even" : "Odd", i, i * 1000L,
+                    new String[]{"query"}, new long[]{i * 100L}));
+        }
+
+        List<PerformanceLog.ScreenLoad> recent = log.recent();
+        assertEquals(PerformanceLog.CAPACITY, recent.size());
+        assertEquals(loads, log.totalLoads());
+        assertEquals(loads - 1, recent.get(0).atMillis);
+        assertEquals(3, recent.get(recent.size() - 1).atMillis);
+        assertEquals(-1, log.medianFirstRenderMicros("Missing"));
+        // Odd loads 3..65 are kept; the median of 32 is the upper middle one, 35
+        assertEquals(35_000, log.medianFirstRenderMicros("Odd"));
+
+        StringWriter out = new StringWriter();
+        log.dump(out);
+        String report = out.toString();
+        assertTrue(report, report.contains("Odd median first render 35 ms"));
+        assertTrue(report, report.contains("Even: first render 66.0 ms (query 6.6 ms)"));
+    }
+}
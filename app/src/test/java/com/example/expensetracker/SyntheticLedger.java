@@ -0,0 +1,135 @@
+package com.example.expensetracker;
+
+import java.util.Random;
+
+/**
+ * Deterministic fake ledgers for benchmarks: users x years x categories, written through
+ * DatabaseHelper.insertImportBatch() so the rollup, search and DateDay triggers all run as they
+ * would for a real import.
+ *
+ * Each user's rows come from their own Random(seed, user), so a ledger is the same row for row
+ * whatever the batch size, and forSize() keeps rows per user fixed (more rows means more users),
+ * so per-user queries should cost the same at every size.
+ */
+final class SyntheticLedger {
+
+    static final String[] CATEGORIES = {"Food", "Transport", "Rent", "Electricity", "Water", "Others"};
+    // Relative frequency of each category: groceries and travel dominate, bills are monthly
+    private static final int[] CATEGORY_WEIGHTS = {40, 25, 3, 3, 3, 26};
+    private static final String[] NOTE_WORDS = {
+            "groceries", "uber", "bus", "coffee", "lunch", "dinner", "market", "pharmacy", "taxi", "train",
+            "refill", "subscription", "gift", "snacks", "parking", "bill", "cinema", "books"
+    };
+
+    static final int ROWS_PER_USER = 2_000;
+    static final int LAST_YEAR = 2025;
+
+    final int users;
+    final int firstYear;
+    final int years;
+    final int rowsPerUser;
+    final long seed;
+
+    private final long firstDay;
+    private final int dayCount;
+
+    SyntheticLedger(int users, int firstYear, int years, int rowsPerUser, long seed) {
+        this.users = users;
+        this.firstYear = firstYear;
+        this.years = years;
+        this.rowsPerUser = rowsPerUser;
+        this.seed = seed;
+        this.firstDay = EpochDays.of(firstYear, 1, 1);
+        this.dayCount = (int) (EpochDays.of(firstYear + years, 1, 1) - firstDay);
+    }
+
+    /** rows spread over rows / ROWS_PER_USER users and the three years up to LAST_YEAR. */
+    static SyntheticLedger forSize(int rows, long seed) {
+        return new SyntheticLedger(Math.max(1, rows / ROWS_PER_USER), LAST_YEAR - 2, 3, ROWS_PER_USER, seed);
+    }
+
+    int rows() {
+        return users * rowsPerUser;
+    }
+
+    /** YYYY-MM of a month inside the ledger, picked with random. */
+    String randomMonth(Random random) {
+        return EpochDays.formatMonth(EpochDays.monthIndex(firstYear + random.nextInt(years), 1 + random.nextInt(12)));
+    }
+
+    /** Inserts every user's rows (user ids 1..users) in batches of CsvExpenseImporter.BATCH_SIZE. */
+    void insertInto(DatabaseHelper dbHelper) {
+        CsvExpenseImporter.Row[] batch = new CsvExpenseImporter.Row[CsvExpenseImporter.BATCH_SIZE];
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = new CsvExpenseImporter.Row();
+        }
+        for (int user = 1; user <= users; user++) {
+            Random random = randomFor(user);
+            int written = 0;
+            while (written < rowsPerUser) {
+                int count = Math.min(batch.length, rowsPerUser - written);
+                for (int i = 0; i < count; i++) {
+                    fill(batch[i], random);
+                }
+                written += count;
+                dbHelper.insertImportBatch(user, batch, count, "synthetic-" + seed, written, written, 0);
+            }
+        }
+    }
+
+    /**
+     * rows spread evenly over the years from firstYear, built straight into LedgerColumns for user 1
+     * (ExpIDs 1..rows) in a fraction of the time a database round trip would take.
+     */
+    static LedgerColumns columns(int rows, int firstYear, int years, long seed) {
+        LedgerColumns columns = new LedgerColumns(1);
+        Random random = new Random(seed);
+        long firstDay = EpochDays.of(firstYear, 1, 1);
+        long dayCount = EpochDays.of(firstYear + years, 1, 1) - firstDay;
+        for (int i = 0; i < rows; i++) {
+            // Ascending days, so every insert appends
+            long day = firstDay + (long) i * dayCount / rows;
+            columns.insert(i + 1, day, 1 + random.nextInt(20_000), CATEGORIES[random.nextInt(CATEGORIES.length)]);
+        }
+        return columns;
+    }
+
+    /** The n-th row (0-based) of user, without touching a database; for checking determinism. */
+    CsvExpenseImporter.Row row(int user, int n) {
+        Random random = randomFor(user);
+        CsvExpenseImporter.Row row = new CsvExpenseImporter.Row();
+        for (int i = 0; i <= n; i++) {
+            fill(row, random);
+        }
+        return row;
+    }
+
+    private Random randomFor(int user) {
+        return new Random(seed * 1_000_003L + user);
+    }
+
+    private void fill(CsvExpenseImporter.Row row, Random random) {
+        int category = pickCategory(random);
+        row.category = CATEGORIES[category];
+        row.date = EpochDays.format(firstDay + random.nextInt(dayCount));
+        // Mostly small amounts with a long tail: $1 to about $1100
+        row.amountMinor = 100 + (long) (Math.pow(random.nextDouble(), 3) * 110_000);
+        row.note = random.nextInt(4) == 0 ? null
+                : NOTE_WORDS[random.nextInt(NOTE_WORDS.length)] + " " + NOTE_WORDS[random.nextInt(NOTE_WORDS.length)];
+    }
+
+    private static int pickCategory(Random random) {
+        int total = 0;
+        for (int weight : CATEGORY_WEIGHTS) {
+            total += weight;
+        }
+        int pick = random.nextInt(total);
+        for (int i = 0; i < CATEGORY_WEIGHTS.length; i++) {
+            pick -= CATEGORY_WEIGHTS[i];
+            if (pick < 0) {
+                return i;
+            }
+        }
+        return CATEGORY_WEIGHTS.length - 1;
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.expensetracker;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * TrendReport's one query must give every month exactly what getCategorySummary gives it, derive
+ * year-over-year and rolling figures from those totals, and beat one query per month (timed only
+ * with -PledgerBenchmark).
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TrendReportTest {
+
+    private static final long USER = 1;
+    private static final boolean FULL = Boolean.getBoolean("ledgerBenchmark");
+
+    private DatabaseHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase("ExpenseTrackerDB");
+        dbHelper = new DatabaseHelper(context);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+    }
+
+    @Test
+    public void everyMonth_matchesGetCategorySummary() {
+        new SyntheticLedger(2, 2022, 4, 6000, 3).insertInto(dbHelper);
+        int from = EpochDays.monthIndex(2023, 1);
+        TrendReport report = TrendReport.read(dbHelper, USER, from, from + 36, null);
+        assertEquals(36, report.months);
+
+        // The lookback months too, which cover 2022
+        for (int m = -TrendReport.LOOKBACK_MONTHS; m < report.months; m++) {
+            String monthYear = EpochDays.formatMonth(from + m);
+            long[] expected = new long[report.categories.length];
+            long expectedTotal = 0;
+            Cursor cursor = dbHelper.getCategorySummary(USER, monthYear);
+            try {
+                while (cursor.moveToNext()) {
+                    long total = cursor.getLong(cursor.getColumnIndexOrThrow("TotalAmount"));
+                    expected[report.categoryIndex(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_CATEGORY)))] = total;
+                    expectedTotal += total;
+                }
+            } finally {
+                cursor.close();
+            }
+            for (int c = 0; c < expected.length; c++) {
+                assertEquals(monthYear + " " + report.categories[c], expected[c], report.total(m, c));
+            }
+            assertEquals(monthYear, expectedTotal, report.total(m, TrendReport.ALL));
+        }
+    }
+
+    @Test
+    public void yearOverYear_andRollingAverages() {
+        // Food: 100 a month in 2024, 150 a month in 2025; Rent only in March 2025
+        for (int month = 1; month <= 12; month++) {
+            dbHelper.addExpense(USER, 100, "Food", String.format("2024-%02d-10", month), null);
+            dbHelper.addExpense(USER, 150, "Food", String.format("2025-%02d-10", month), null);
+        }
+        dbHelper.addExpense(USER, 1000, "Rent", "2025-03-01", null);
+
+        TrendReport report = TrendReport.read(dbHelper, USER, EpochDays.monthIndex(2025, 1), EpochDays.monthIndex(2026, 1), null);
+        assertArrayEquals(new String[]{"Food", "Rent"}, report.categories);
+        int food = report.categoryIndex("Food");
+        int rent = report.categoryIndex("Rent");
+        assertEquals(-1, report.categoryIndex("Water"));
+
+        long[] foodChange = report.yearOverYearChange(food);
+        double[] foodGrowth = report.yearOverYearGrowth(food);
+        for (int m = 0; m < 12; m++) {
+            assertEquals(50, foodChange[m]);
+            assertEquals(0.5, foodGrowth[m], 1e-9);
+        }
+        assertEquals(1000, report.yearOverYearChange(rent)[2]);
+        assertTrue(Double.isNaN(report.yearOverYearGrowth(rent)[2]));
+        assertEquals(1150, report.series(TrendReport.ALL)[2]);
+
+        // January's quarter reaches back into 2024: (100 + 100 + 150) / 3
+        long[] quarterly = report.rollingAverage(food, 3);
+        assertEquals(117, quarterly[0]);
+        assertEquals(133, quarterly[1]);
+        assertEquals(150, quarterly[2]);
+        assertEquals(150, quarterly[11]);
+        // April 2024 to March 2025: (9 x 100 + 3 x 150 + 1000) / 12 = 195.8
+        long[] yearly = report.rollingAverage(TrendReport.ALL, 12);
+        assertEquals(196, yearly[2]);
+        assertEquals(233, yearly[11]);
+    }
+
+    @Test
+    public void rollingAverage_rejectsWindowsLongerThanTheLookback() {
+        TrendReport report = TrendReport.read(dbHelper, USER, 24_300, 24_312, null);
+        assertEquals(0, report.rollingAverage(TrendReport.ALL, TrendReport.LOOKBACK_MONTHS + 1)[0]);
+        try {
+            report.rollingAverage(TrendReport.ALL, TrendReport.LOOKBACK_MONTHS + 2);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // Months before the lookback were never read
+        }
+    }
+
+    @Test
+    public void malformedDates_countLikeTheRollup() {
+        dbHelper.addExpense(USER, 200, "Food", "2025-02-30", null); // Not a day, so in no month's rows or rollup
+        dbHelper.addExpense(USER, 300, "Food", "2025-1x-01", null); // Not a month at all
+        dbHelper.addExpense(USER, 400, "Food", "2025-10-01", null);
+
+        int january = EpochDays.monthIndex(2025, 1);
+        TrendReport report = TrendReport.read(dbHelper, USER, january, january + 12, null);
+        assertEquals(0, report.total(1, TrendReport.ALL));
+        assertEquals(400, report.total(9, TrendReport.ALL));
+        assertEquals(400, Arrays.stream(report.series(TrendReport.ALL)).sum());
+    }
+
+    @Test
+    public void benchmark_beatsOneQueryPerMonth() {
+        // Ten years of one busy user; without -PledgerBenchmark a smaller ledger, checked once, untimed
+        new SyntheticLedger(1, 2016, 10, FULL ? 30_000 : 3_000, 42).insertInto(dbHelper);
+        int from = EpochDays.monthIndex(2016, 1);
+        int months = 120;
+        long expected = 0;
+
+        long[] single = new long[FULL ? 21 : 1];
+        long[] perMonth = new long[single.length];
+        for (int run = FULL ? -5 : 0; run < single.length; run++) {
+            long start = System.nanoTime();
+            TrendReport report = TrendReport.read(dbHelper, USER, from, from + months, null);
+            long singleMicros = (System.nanoTime() - start) / 1000;
+
+            start = System.nanoTime();
+            long sum = 0;
+            for (int m = 0; m < months; m++) {
+                Cursor cursor = dbHelper.getCategoryTotalsForMonth(USER, EpochDays.formatMonth(from + m));
+                try {
+                    while (cursor.moveToNext()) {
+                        sum += cursor.getLong(1);
+                    }
+                } finally {
+                    cursor.close();
+                }
+            }
+            long perMonthMicros = (System.nanoTime() - start) / 1000;
+
+            assertEquals(sum, Arrays.stream(report.series(TrendReport.ALL)).sum());
+            if (run >= 0) {
+                single[run] = singleMicros;
+                perMonth[run] = perMonthMicros;
+                expected = sum;
+            }
+        }
+        if (!FULL) {
+            return;
+        }
+        Arrays.sort(single);
+        Arrays.sort(perMonth);
+        System.out.println("TrendReport, " + months + " months (" + expected + " total): one query " +
+                single[single.length / 2] + " us vs " + months + " queries " + perMonth[perMonth.length / 2] + " us");
+        assertTrue(single[single.length / 2] < perMonth[perMonth.length / 2]);
+    }
+}
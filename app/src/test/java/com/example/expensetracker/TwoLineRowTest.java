@@ -0,0 +1,149 @@
+package com.example.expensetracker;
+
+import android.content.Context;
+import android.database.MatrixCursor;
+import android.view.View;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * TwoLineRow's text and per-row garbage, bound through CategoryDetail's summary adapter.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TwoLineRowTest {
+
+    private static final boolean FULL = Boolean.getBoolean("ledgerBenchmark");
+    private static final int ROWS = 20;
+    private static final int BINDS = 20_000;
+
+    private Context context;
+    private FrameLayout parent;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        parent = new FrameLayout(context);
+    }
+
+    @Test
+    public void summaryRows_showCategoryAndDollars() {
+        MatrixCursor cursor = summary();
+        CategoryDetailActivity.CategorySummaryAdapter adapter = new CategoryDetailActivity.CategorySummaryAdapter(context, cursor);
+        View view = adapter.newView(context, cursor, parent);
+
+        cursor.moveToPosition(3);
+        adapter.bindView(view, context, cursor);
+        assertEquals("Category 3", text(view, android.R.id.text1));
+        assertEquals("$3.03", text(view, android.R.id.text2));
+
+        // A longer line grows the buffer; a shorter one after it must not keep the old tail
+        TwoLineRow row = (TwoLineRow) view.getTag();
+        row.setLine1(row.line().append("A much longer category name than the buffer holds at first"));
+        assertEquals("A much longer category name than the buffer holds at first", text(view, android.R.id.text1));
+        cursor.moveToPosition(0);
+        adapter.bindView(view, context, cursor);
+        assertEquals("Category 0", text(view, android.R.id.text1));
+        assertEquals("$0.00", text(view, android.R.id.text2));
+    }
+
+    @Test
+    public void uncategorizedExpense_showsAnEmptyLine() {
+        context.deleteDatabase("ExpenseTrackerDB");
+        DatabaseHelper dbHelper = new DatabaseHelper(context);
+        try {
+            dbHelper.addExpense(1, 250, null, "2025-10-05", null);
+            ExpensePage page = ExpensePage.from(dbHelper.getTopNExpenses(1, "2025-10", 5));
+            assertEquals("", page.categories[0]);
+
+            DashboardActivity.TopExpensesAdapter adapter = new DashboardActivity.TopExpensesAdapter(page, Formats.getInstance());
+            View view = adapter.getView(0, null, parent);
+            assertEquals("", text(view, android.R.id.text1));
+            assertEquals("$2.50 on 2025-10-05", text(view, android.R.id.text2));
+        } finally {
+            dbHelper.close();
+        }
+
+        TwoLineRow row = TwoLineRow.of(null, parent);
+        row.setLine1("Food");
+        row.setLine1((CharSequence) null);
+        assertEquals("", text(row.view, android.R.id.text1));
+    }
+
+    @Test
+    public void recycledView_keepsItsHolder() {
+        TwoLineRow row = TwoLineRow.of(null, parent);
+        assertSame(row, TwoLineRow.of(row.view, parent));
+    }
+
+    @Test
+    public void benchmark_bindingAllocatesNearlyNothingPerRow() {
+        Assume.assumeTrue("Run with -PledgerBenchmark", FULL);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        MatrixCursor cursor = summary();
+        CategoryDetailActivity.CategorySummaryAdapter adapter = new CategoryDetailActivity.CategorySummaryAdapter(context, cursor);
+        View view = adapter.newView(context, cursor, parent);
+        TextView text1 = view.findViewById(android.R.id.text1);
+        TextView text2 = view.findViewById(android.R.id.text2);
+
+        for (int warmup = 0; warmup < 2; warmup++) { // Sizes the buffers and warms up the JIT
+            bindAll(adapter, view, cursor, BINDS);
+            bindAllWithFormat(text1, text2, cursor, BINDS);
+        }
+
+        long tid = Thread.currentThread().getId();
+        long start = threads.getThreadAllocatedBytes(tid);
+        bindAll(adapter, view, cursor, BINDS);
+        long perRow = (threads.getThreadAllocatedBytes(tid) - start) / BINDS;
+
+        start = threads.getThreadAllocatedBytes(tid);
+        bindAllWithFormat(text1, text2, cursor, BINDS);
+        long perRowWithFormat = (threads.getThreadAllocatedBytes(tid) - start) / BINDS;
+
+        System.out.println("Summary row bind: " + perRow + " bytes, " + perRowWithFormat + " with ViewBinder-style formatting");
+        assertTrue(perRow + " bytes per row", perRow < 16);
+        assertTrue(perRowWithFormat + " bytes per row", perRowWithFormat > perRow);
+    }
+
+    private static void bindAll(CategoryDetailActivity.CategorySummaryAdapter adapter, View view, MatrixCursor cursor, int binds) {
+        for (int i = 0; i < binds; i++) {
+            cursor.moveToPosition(i % ROWS);
+            adapter.bindView(view, null, cursor);
+        }
+    }
+
+    // What the old SimpleCursorAdapter and ViewBinder did for each row
+    private static void bindAllWithFormat(TextView text1, TextView text2, MatrixCursor cursor, int binds) {
+        for (int i = 0; i < binds; i++) {
+            cursor.moveToPosition(i % ROWS);
+            text1.setText(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_EXP_CATEGORY)));
+            long amount = cursor.getLong(cursor.getColumnIndexOrThrow("TotalAmount"));
+            text2.setText(String.format(Locale.US, "$%.2f", amount / 100.0));
+        }
+    }
+
+    private static MatrixCursor summary() {
+        MatrixCursor cursor = new MatrixCursor(new String[]{"_id", DatabaseHelper.COL_EXP_CATEGORY, "TotalAmount"});
+        for (int i = 0; i < ROWS; i++) {
+            cursor.addRow(new Object[]{i, "Category " + i, i * 101L});
+        }
+        return cursor;
+    }
+
+    private static String text(View row, int id) {
+        return ((TextView) row.findViewById(id)).getText().toString();
+    }
+}
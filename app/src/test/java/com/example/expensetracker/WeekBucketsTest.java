@@ -0,0 +1,88 @@
+package com.example.expensetracker;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Epoch-day week buckets against java.util.Calendar, and the one-pass weekly aggregate.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class WeekBucketsTest {
+
+    private DatabaseHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase("ExpenseTrackerDB");
+        dbHelper = new DatabaseHelper(context);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+    }
+
+    @Test
+    public void bucketsMatchCalendarForEveryMonth() {
+        Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"), Locale.US);
+        for (int year = 1900; year <= 2100; year++) {
+            for (int month = 1; month <= 12; month++) {
+                WeekBuckets weeks = WeekBuckets.forMonth(String.format(Locale.US, "%04d-%02d", year, month));
+                calendar.clear();
+                calendar.set(year, month - 1, 1);
+                assertEquals(calendar.getActualMaximum(Calendar.DAY_OF_MONTH), weeks.daysInMonth);
+                assertEquals(calendar.get(Calendar.DAY_OF_WEEK) - Calendar.SUNDAY, weeks.firstDayOfWeek);
+                assertEquals(calendar.getActualMaximum(Calendar.WEEK_OF_MONTH), weeks.count);
+
+                for (int day = 1; day <= weeks.daysInMonth; day++) {
+                    calendar.set(Calendar.DAY_OF_MONTH, day);
+                    int week = weeks.weekOf(day);
+                    assertEquals(calendar.get(Calendar.WEEK_OF_MONTH) - 1, week);
+                    assertTrue(weeks.startDays[week] <= day && day <= weeks.endDays[week]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void boundariesAndLabels() {
+        WeekBuckets october = WeekBuckets.forMonth("2025-10"); // Starts on a Wednesday
+        assertEquals(5, october.count);
+        assertEquals("2025-10-01", october.startDate(0));
+        assertEquals("2025-10-04", october.endDate(0));
+        assertEquals("2025-10-26", october.startDate(4));
+        assertEquals("2025-10-31", october.endDate(4));
+        assertEquals("Oct 05 - Oct 11", october.appendLabel(new StringBuilder(), 1).toString());
+    }
+
+    @Test
+    public void weekTotals_comeFromOneQuery() {
+        dbHelper.addExpense(1, 1000, "Food", "2025-10-01", null); // Week 0
+        dbHelper.addExpense(1, 250, "Rent", "2025-10-04", null); // Week 0 (Saturday)
+        dbHelper.addExpense(1, 700, "Food", "2025-10-05", null); // Week 1 (Sunday)
+        dbHelper.addExpense(1, 5, "Food", "2025-10-31", null); // Week 4
+        dbHelper.addExpense(1, 999, "Food", "2025-11-01", null); // Next month
+        dbHelper.addExpense(2, 777, "Food", "2025-10-02", null); // Other user
+
+        WeekBuckets weeks = WeekBuckets.forMonth("2025-10");
+        WeekBuckets.Totals totals = weeks.totalsFrom(dbHelper.getWeekTotals(1, weeks, null));
+
+        assertArrayEquals(new long[]{1250, 700, 0, 0, 5}, totals.amounts);
+        assertArrayEquals(new int[]{2, 1, 0, 0, 1}, totals.counts);
+    }
+}